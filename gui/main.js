@@ -56,39 +56,91 @@ ipcMain.on('run-command', (event, srcPath) => {
 
   const jarPath = path.join(__dirname, '..', 'target', 'LLM_Mutator-jar-with-dependencies.jar');
 
-  mvnExec = spawn('java', ['-jar', jarPath, ...userArgs], {
+  // progress events come as one JSON object per line on stdout, the log on stderr
+  mvnExec = spawn('java', ['-jar', jarPath, ...userArgs, '-progress', '-'], {
     shell: true,
   });
 
-  mvnExec.stdout.on('data', data => {
-    const lines = data.toString().split('\n');
-    lines.forEach(line => {
-      if (/^\r[|\/\\-]/.test(line)) {
-        event.sender.send('command-output', line);
-        return;
-      }
-      const trimmed = line.trim();
-      event.sender.send('command-output', trimmed + '\n');
-    });
+  forEachLine(mvnExec.stdout, line => {
+    try {
+      event.sender.send('progress', JSON.parse(line));
+    } catch (err) {
+      event.sender.send('command-output', line + '\n');
+    }
   });
 
-  mvnExec.stderr.on('data', data => {
-    dialog.showErrorBox('Error', data.toString());
+  // a log entry starts with its level tag, or is a JSON object with a level with -log-format json, and may go on
+  // over untagged lines; untagged lines before any entry, or starting a JVM message, come from the JVM itself
+  const child = mvnExec;
+  const errors = [];
+  let level = null;
+  forEachLine(child.stderr, line => {
+    event.sender.send('command-output', line + '\n');
+    level = entryLevel(line, level);
+    if (level === 'ERROR') {
+      errors.push(line);
+      event.sender.send('command-error', line);
+    }
   });
 
-  mvnExec.on('error', err => {
+  child.on('error', err => {
     dialog.showErrorBox('Error', err.message);
   });
 
-  mvnExec.on('close', code => {
-    event.sender.send('command-output', `\nMaven exec finished with code ${code}`);
-    event.sender.send('process-complete');
-    mvnExec = null;
+  child.on('close', code => {
+    event.sender.send('command-output', `\nLLM Mutator finished with code ${code}`);
+    if (code !== 0 && !child.stoppedByUser) {
+      dialog.showErrorBox('LLM Mutator failed', `The LLM Mutator finished with code ${code}.`
+        + (errors.length > 0 ? '\n\n' + errors.slice(-20).join('\n') : ''));
+    }
+    event.sender.send('process-complete', child.stoppedByUser ? 0 : code);
+    if (mvnExec === child) {
+      mvnExec = null;
+    }
   });
 });
 
+// level of the log entry a stderr line belongs to, given the level of the entry before it
+function entryLevel(line, previous) {
+  const tag = /^\[(DEBUG|INFO|ERROR)\]/.exec(line);
+  if (tag) {
+    return tag[1];
+  }
+  if (line.startsWith('{')) {
+    try {
+      const entry = JSON.parse(line);
+      if (typeof entry.level === 'string') {
+        return entry.level;
+      }
+    } catch (err) {
+      // not a JSON log entry
+    }
+  }
+  if (previous === null || /^(Exception in thread |Error: )/.test(line)) {
+    return 'ERROR';
+  }
+  return previous;
+}
+
+// calls back with every complete, non-empty line of a stream; chunks may end in the middle of a line
+function forEachLine(stream, callback) {
+  let pending = '';
+  stream.on('data', data => {
+    pending += data.toString();
+    const lines = pending.split('\n');
+    pending = lines.pop();
+    lines.map(line => line.trim()).filter(line => line !== '').forEach(callback);
+  });
+  stream.on('end', () => {
+    if (pending.trim() !== '') {
+      callback(pending.trim());
+    }
+  });
+}
+
 ipcMain.on('stop-process', () => {
   if (mvnExec) {
+    mvnExec.stoppedByUser = true;
     mvnExec.kill('SIGTERM');
     mvnExec = null;
   }
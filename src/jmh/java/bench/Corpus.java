@@ -0,0 +1,103 @@
+package bench;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark inputs of a given size, assembled from real sources.
+ * <p>
+ * The member declarations of every class found below {@code -Dbench.corpus} (this project's sources by default)
+ * are concatenated into one class until it reaches the requested number of lines, keeping their comments, javadoc
+ * and string literals. Files the mutator's parser rejects are left out, so every input can be mutated. The result
+ * carries a licence header so header detection does real work.
+ */
+final class Corpus {
+    private static final String HEADER = """
+            /*
+             * Licensed to the Apache Software Foundation (ASF) under one
+             * or more contributor license agreements.  See the NOTICE file
+             * distributed with this work for additional information
+             * regarding copyright ownership.  The ASF licenses this file
+             * to you under the Apache License, Version 2.0 (the
+             * "License"); you may not use this file except in compliance
+             * with the License.  You may obtain a copy of the License at
+             *
+             *   http://www.apache.org/licenses/LICENSE-2.0
+             *
+             * Unless required by applicable law or agreed to in writing,
+             * software distributed under the License is distributed on an
+             * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+             * KIND, either express or implied.  See the License for the
+             * specific language governing permissions and limitations
+             * under the License.
+             */
+            """;
+
+    private Corpus() {
+    }
+
+    /**
+     * @param lines approximate number of lines of the source
+     * @return a parseable class of about that size
+     */
+    static String source(int lines) throws IOException {
+        List<String> bodies = classBodies(Paths.get(System.getProperty("bench.corpus", "src/main/java")));
+        if (bodies.isEmpty()) {
+            throw new IllegalStateException("No classes found in the benchmark corpus");
+        }
+        StringBuilder source = new StringBuilder(HEADER)
+                .append("import java.util.*;\n\npublic class BenchmarkSubject {\n");
+        int count = (int) source.chars().filter(c -> c == '\n').count();
+        for (int i = 0; count < lines - 1; i = (i + 1) % bodies.size()) {
+            String body = bodies.get(i);
+            String[] bodyLines = body.split("\n", -1);
+            int take = Math.min(bodyLines.length, lines - 1 - count);
+            // never cut a member in half: take whole bodies, or stop at a line that closes a member
+            if (take < bodyLines.length) {
+                while (take > 0 && !bodyLines[take - 1].equals("    }")) {
+                    take--;
+                }
+                if (take == 0) {
+                    break;
+                }
+            }
+            source.append(String.join("\n", Arrays.copyOf(bodyLines, take))).append("\n");
+            count += take;
+        }
+        return source.append("}\n").toString();
+    }
+
+    /**
+     * @return the text between the braces of every parseable top-level class declared as {@code public class}
+     */
+    private static List<String> classBodies(Path root) throws IOException {
+        JavaParser parser = new JavaParser(new ParserConfiguration());
+        List<String> bodies = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.filter(p -> p.toString().endsWith(".java")).sorted().toList()) {
+                String code = Files.readString(path, StandardCharsets.UTF_8);
+                int declaration = code.indexOf("\npublic class ");
+                if (declaration < 0 || !parser.parse(code).isSuccessful()) {
+                    continue;
+                }
+                int open = code.indexOf('{', declaration);
+                int close = code.lastIndexOf('}');
+                String body = open > 0 && close > open ? code.substring(open + 1, close).stripTrailing() : "";
+                if (!body.isBlank()) {
+                    bodies.add(body.startsWith("\n") ? body.substring(1) : body);
+                }
+            }
+        }
+        return bodies;
+    }
+}
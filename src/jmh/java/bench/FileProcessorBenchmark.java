@@ -0,0 +1,80 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local work {@code FileProcessor} does around every request: reading and stripping the source, detecting its
+ * header, cutting the code block out of the answer and collecting the operator comments of the mutant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileProcessorBenchmark {
+    @Param({"50", "500", "2000", "10000"})
+    public int lines;
+
+    private Object processor;
+    private MethodHandle readJavaCodeWithoutComments;
+    private MethodHandle checkForHeader;
+    private MethodHandle extractJavaCodeFromResponse;
+    private MethodHandle getAppliedMutators;
+    private File file;
+    private String response;
+    private String mutatedCode;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        processor = Subjects.fileProcessor();
+        readJavaCodeWithoutComments = Subjects.method("FileProcessor", "readJavaCodeWithoutComments", String.class, File.class);
+        checkForHeader = Subjects.method("FileProcessor", "checkForHeader", String.class, File.class);
+        extractJavaCodeFromResponse = Subjects.method("FileProcessor", "extractJavaCodeFromResponse", String.class, String.class);
+        getAppliedMutators = Subjects.method("FileProcessor", "getAppliedMutators", String.class, String.class);
+
+        String source = Corpus.source(lines);
+        file = File.createTempFile("BenchmarkSubject", ".java");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), source, StandardCharsets.UTF_8);
+
+        String code = (String) readJavaCodeWithoutComments.invoke(processor, file);
+        if (code.isEmpty()) {
+            throw new IllegalStateException("Benchmark source of " + lines + " lines does not parse");
+        }
+        MethodHandle mutate = Subjects.staticMethod("MockOpenAIServer", "mutate", String.class, String.class);
+        mutatedCode = (String) mutate.invoke(code);
+        response = "Here is the mutated class:\n```java\n" + mutatedCode + "\n```\nEvery mutant is marked by a comment.";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public String readJavaCodeWithoutComments() throws Throwable {
+        return (String) readJavaCodeWithoutComments.invoke(processor, file);
+    }
+
+    @Benchmark
+    public String checkForHeader() throws Throwable {
+        return (String) checkForHeader.invoke(processor, file);
+    }
+
+    @Benchmark
+    public String extractJavaCodeFromResponse() throws Throwable {
+        return (String) extractJavaCodeFromResponse.invoke(processor, response);
+    }
+
+    @Benchmark
+    public String getAppliedMutators() throws Throwable {
+        return (String) getAppliedMutators.invoke(processor, mutatedCode);
+    }
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import Interfaces.LLMApiService.Response;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local work {@code OpenAIService} does around every request: building the prompt, serialising the request body
+ * and parsing the answer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenAIServiceBenchmark {
+    @Param({"50", "500", "2000", "10000"})
+    public int lines;
+
+    private Object service;
+    private MethodHandle generatePrompt;
+    private MethodHandle buildRequestBody;
+    private MethodHandle processResponse;
+    private String code;
+    private String prompt;
+    private String responseBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        service = Subjects.openAIService();
+        generatePrompt = Subjects.method("OpenAIService", "generatePrompt", String.class, String.class);
+        buildRequestBody = Subjects.method("OpenAIService", "buildRequestBody", JSONObject.class, String.class);
+        processResponse = Subjects.method("OpenAIService", "processResponse", Response.class, JSONObject.class);
+
+        code = Corpus.source(lines);
+        prompt = (String) generatePrompt.invoke(service, code);
+        MethodHandle answer = Subjects.staticMethod("MockOpenAIServer", "answer", String.class, String.class);
+        String content = (String) answer.invoke(prompt);
+        responseBody = new JSONObject()
+                .put("id", "chatcmpl-bench")
+                .put("object", "chat.completion")
+                .put("choices", new JSONArray().put(new JSONObject()
+                        .put("index", 0)
+                        .put("finish_reason", "stop")
+                        .put("message", new JSONObject().put("role", "assistant").put("content", content))))
+                .put("usage", new JSONObject()
+                        .put("prompt_tokens", prompt.length() / 4)
+                        .put("completion_tokens", content.length() / 4))
+                .toString();
+    }
+
+    @Benchmark
+    public String generatePrompt() throws Throwable {
+        return (String) generatePrompt.invoke(service, code);
+    }
+
+    @Benchmark
+    public String requestBody() throws Throwable {
+        return ((JSONObject) buildRequestBody.invoke(service, prompt)).toString();
+    }
+
+    @Benchmark
+    public Response parseResponse() throws Throwable {
+        return (Response) processResponse.invoke(service, new JSONObject(responseBody));
+    }
+}
@@ -0,0 +1,104 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cold start of the packaged CLI on a single file: time from launching a JVM on the jar until its first LLM
+ * request reaches a {@code MockOpenAIServer}, and the wall time of a dry run. Build the jar with {@code mvn package}
+ * first; with {@code mvn -Pcds verify} the AppCDS archive can be compared with {@code -p archive=off,cds}. The jar
+ * and archive are found through {@code -Dbench.jar} and {@code -Dbench.archive}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+    @Param({"off"})
+    public String archive;
+
+    private Path jar;
+    private Path archiveFile;
+    private Path source;
+    private Object server;
+    private MethodHandle requestCount;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        jar = Paths.get(System.getProperty("bench.jar", "target/LLM_Mutator-jar-with-dependencies.jar"));
+        archiveFile = Paths.get(System.getProperty("bench.archive", "target/LLM_Mutator.jsa"));
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException(jar + " not found, run mvn package first");
+        }
+        if (archive.equals("cds") && !Files.isRegularFile(archiveFile)) {
+            throw new IllegalStateException(archiveFile + " not found, run mvn -Pcds verify first");
+        }
+        Path directory = Files.createTempDirectory("startup-bench").resolve("src");
+        source = Files.createDirectories(directory).resolve("BenchmarkSubject.java");
+        Files.writeString(source, Corpus.source(50));
+
+        server = Subjects.mockServer();
+        requestCount = Subjects.method("MockOpenAIServer", "getRequestCount", int.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        Subjects.method("MockOpenAIServer", "close", void.class).invoke(server);
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopProcess() throws InterruptedException {
+        if (process != null) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws Throwable {
+        int before = (int) requestCount.invoke(server);
+        String baseUrl = (String) Subjects.method("MockOpenAIServer", "getBaseUrl", String.class).invoke(server);
+        process = launch("-f", source.toString(), "-api-base", baseUrl);
+        int count;
+        while ((count = (int) requestCount.invoke(server)) == before) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The CLI exited before sending a request");
+            }
+            LockSupport.parkNanos(100_000);
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int dryRun() throws Exception {
+        process = launch("-f", source.toString(), "-dry-run");
+        return process.waitFor();
+    }
+
+    private Process launch(String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (archive.equals("cds")) {
+            command.add("-XX:SharedArchiveFile=" + archiveFile);
+        }
+        command.add("-jar");
+        command.add(jar.toString());
+        command.addAll(List.of(args));
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().put("OPENAI_API_KEY", "bench");
+        return builder.start();
+    }
+}
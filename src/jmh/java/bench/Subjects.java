@@ -0,0 +1,84 @@
+package bench;
+
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Bridge to the benchmarked classes. They live in the unnamed package, which JMH benchmarks can not use and named
+ * packages can not import, so they are reached through method handles resolved once per trial.
+ */
+final class Subjects {
+    static final LoggerService SILENT = new LoggerService() {
+        @Override
+        public void log(String message) {
+        }
+
+        @Override
+        public void error(String message) {
+        }
+
+        @Override
+        public void debug(String message) {
+        }
+    };
+
+    private Subjects() {
+    }
+
+    /**
+     * @return a FileProcessor whose LLM service is never called
+     */
+    static Object fileProcessor() throws Throwable {
+        LLMApiService unused = javaCode -> "";
+        return lookup("FileProcessor")
+                .findConstructor(type("FileProcessor"), MethodType.methodType(void.class, LoggerService.class, LLMApiService.class))
+                .invoke(SILENT, unused);
+    }
+
+    /**
+     * @return an OpenAIService without transport, for prompt and JSON handling only
+     */
+    static Object openAIService() throws Throwable {
+        Class<?> apacheClient = Class.forName("org.apache.http.client.HttpClient");
+        return lookup("OpenAIService")
+                .findConstructor(type("OpenAIService"), MethodType.methodType(void.class,
+                        String.class, String.class, String.class, apacheClient, LoggerService.class))
+                .invoke("gpt-4o-mini", "key", "http://localhost/v1/chat/completions", null, SILENT);
+    }
+
+    /**
+     * @return a MockOpenAIServer answering at once, started on a free port
+     */
+    static Object mockServer() throws Throwable {
+        Object server = lookup("MockOpenAIServer")
+                .findConstructor(type("MockOpenAIServer"), MethodType.methodType(void.class))
+                .invoke();
+        return method("MockOpenAIServer", "start", type("MockOpenAIServer"), int.class).invoke(server, 0);
+    }
+
+    /**
+     * Resolves an instance method, private ones included.
+     */
+    static MethodHandle method(String className, String name, Class<?> returnType, Class<?>... parameters) throws Exception {
+        return lookup(className).findVirtual(type(className), name, MethodType.methodType(returnType, parameters));
+    }
+
+    /**
+     * Resolves a static method, private ones included.
+     */
+    static MethodHandle staticMethod(String className, String name, Class<?> returnType, Class<?>... parameters) throws Exception {
+        return lookup(className).findStatic(type(className), name, MethodType.methodType(returnType, parameters));
+    }
+
+    static Class<?> type(String className) throws ClassNotFoundException {
+        return Class.forName(className);
+    }
+
+    private static MethodHandles.Lookup lookup(String className) throws Exception {
+        return MethodHandles.privateLookupIn(type(className), MethodHandles.lookup());
+    }
+}
@@ -0,0 +1,196 @@
+import Interfaces.LoggerService;
+import enums.LogLevel;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logs through a lock-free ring buffer drained by a background writer, so logging threads never wait for the console.
+ * <p>
+ * A caller claims a slot with one atomic increment and publishes its entry into it; formatting and writing happen
+ * on the writer thread, which writes every entry as one piece, so the lines of concurrent threads never interleave.
+ * The writer sleeps while the buffer is empty and the first entry after that wakes it. When the buffer is full
+ * the caller waits for a free slot rather than dropping the entry. Messages below the
+ * configured level are discarded before they are built. Entries are written as text, or as JSON lines carrying
+ * time, level, thread and the stage, file and latency of stage events.
+ */
+public class AsyncLogger implements LoggerService, AutoCloseable {
+    static final int DEFAULT_CAPACITY = 8192;
+    private static final long FULL_PARK_NANOS = 200_000;
+
+    public enum Format { TEXT, JSON }
+
+    private record Entry(long millis, LogLevel level, String thread, String message, String stage, String file,
+                         long nanos) {
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private volatile boolean closed;
+    private volatile boolean sleeping;
+    private final Writer out;
+    private final Format format;
+    private final LogLevel level;
+    private final Thread writer;
+
+    /**
+     * Logs text at {@link LogLevel#INFO} and above to standard output.
+     */
+    public AsyncLogger() {
+        this(System.out, Format.TEXT, LogLevel.INFO, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param out stream the entries are written to
+     * @param level least level written
+     * @param capacity entries buffered at most, rounded up to a power of two
+     */
+    public AsyncLogger(OutputStream out, Format format, LogLevel level, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        this.format = format;
+        this.level = level;
+        this.writer = Thread.ofPlatform().daemon().name("async-logger").start(this::drain);
+    }
+
+    @Override
+    public void log(String message) {
+        append(LogLevel.INFO, message, null, null, -1);
+    }
+
+    @Override
+    public void error(String message) {
+        append(LogLevel.ERROR, message, null, null, -1);
+    }
+
+    @Override
+    public void debug(String message) {
+        append(LogLevel.DEBUG, message, null, null, -1);
+    }
+
+    @Override
+    public boolean isEnabled(LogLevel level) {
+        return level.compareTo(this.level) >= 0;
+    }
+
+    @Override
+    public void event(LogLevel level, String stage, String file, long nanos, String message) {
+        append(level, message, stage, file, nanos);
+    }
+
+    private void append(LogLevel level, String message, String stage, String file, long nanos) {
+        if (closed || !isEnabled(level)) {
+            return;
+        }
+        Entry entry = new Entry(System.currentTimeMillis(), level, Thread.currentThread().getName(), message, stage,
+                file, nanos);
+        long index = tail.getAndIncrement();
+        // the slot is free once the writer has moved past the entry a full turn before
+        while (index - head >= slots.length()) {
+            if (closed && !writer.isAlive()) {
+                return;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        // a volatile write, so it cannot pass the read of sleeping below
+        slots.set((int) (index & mask), entry);
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Writer loop: writes the published entries in order and flushes whenever the buffer runs empty.
+     */
+    private void drain() {
+        long index = head;
+        boolean flushed = true;
+        while (true) {
+            int slot = (int) (index & mask);
+            Entry entry = slots.get(slot);
+            if (entry == null) {
+                if (!flushed) {
+                    flush();
+                    flushed = true;
+                }
+                if (closed && index == tail.get()) {
+                    return;
+                }
+                sleeping = true;
+                // an entry published before the flag was raised is seen here, a later one unparks the writer
+                if (slots.get(slot) == null && !closed) {
+                    LockSupport.park();
+                }
+                sleeping = false;
+                continue;
+            }
+            slots.lazySet(slot, null);
+            head = ++index;
+            write(entry);
+            flushed = false;
+        }
+    }
+
+    private void write(Entry entry) {
+        try {
+            out.write(format == Format.JSON ? toJson(entry) : toText(entry));
+            out.write(System.lineSeparator());
+        } catch (IOException e) {
+            // the console is gone, nothing left to log to
+        }
+    }
+
+    private void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            // the console is gone, nothing left to log to
+        }
+    }
+
+    private static String toText(Entry entry) {
+        String text = "[" + entry.level() + "] : " + entry.message();
+        if (entry.stage() == null) {
+            return text;
+        }
+        return String.format(Locale.ROOT, "%s (%s %s, %.1f ms)", text, entry.stage(), entry.file(), entry.nanos() / 1e6);
+    }
+
+    private static String toJson(Entry entry) {
+        JSONObject json = new JSONObject()
+                .put("time", Instant.ofEpochMilli(entry.millis()).toString())
+                .put("level", entry.level().name())
+                .put("thread", entry.thread())
+                .put("message", entry.message());
+        if (entry.stage() != null) {
+            json.put("stage", entry.stage())
+                    .put("file", entry.file())
+                    .put("latencyMs", entry.nanos() / 1e6);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Writes the entries still buffered and stops the writer; later entries are discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
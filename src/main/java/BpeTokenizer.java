@@ -0,0 +1,193 @@
+import Interfaces.Tokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline byte pair encoding tokenizer reading tiktoken rank files such as {@code o200k_base.tiktoken}.
+ * <p>
+ * All token bytes live in one pool addressed through an open addressing table of ints, so loading a 200k token
+ * vocabulary creates no object per token and counting allocates only the bytes of each pre-tokenized piece.
+ * Only counts are produced; the token ids themselves are never needed by the mutator.
+ */
+public class BpeTokenizer implements Tokenizer {
+    /** Pre-tokenization pattern of o200k_base, the encoding of the gpt-4o family. */
+    static final Pattern O200K_PATTERN = Pattern.compile(String.join("|",
+            "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]*[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]+(?i:'s|'t|'re|'ve|'m|'ll|'d)?",
+            "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]+[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]*(?i:'s|'t|'re|'ve|'m|'ll|'d)?",
+            "\\p{N}{1,3}",
+            " ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*",
+            "\\s*[\\r\\n]+",
+            "\\s+(?!\\S)",
+            "\\s+"));
+    /** Pre-tokenization pattern of cl100k_base, the encoding of gpt-4 and gpt-3.5. */
+    static final Pattern CL100K_PATTERN = Pattern.compile(String.join("|",
+            "(?i:'s|'t|'re|'ve|'m|'ll|'d)",
+            "[^\\r\\n\\p{L}\\p{N}]?\\p{L}+",
+            "\\p{N}{1,3}",
+            " ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*",
+            "\\s*[\\r\\n]+",
+            "\\s+(?!\\S)",
+            "\\s+"));
+
+    private final Pattern pattern;
+    private final byte[] pool;
+    private final int[] offsets;
+    private final int[] ranks;
+    private final int[] table;
+    private final int mask;
+
+    private BpeTokenizer(Pattern pattern, byte[] pool, int[] offsets, int[] ranks, int count) {
+        this.pattern = pattern;
+        this.pool = pool;
+        this.offsets = offsets;
+        this.ranks = ranks;
+        this.table = new int[Integer.highestOneBit(Math.max(2, count * 2 - 1)) << 1];
+        this.mask = table.length - 1;
+        for (int token = 0; token < count; token++) {
+            int slot = hash(pool, offsets[token], offsets[token + 1]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = token + 1;
+        }
+    }
+
+    /**
+     * Loads a rank file of base64 encoded tokens and their ranks, one per line.
+     * The cl100k pre-tokenization is used when the file name says so, o200k otherwise.
+     * @param ranksFile tiktoken rank file
+     * @throws IOException if the file can not be read or is malformed
+     */
+    public static BpeTokenizer load(Path ranksFile) throws IOException {
+        Pattern pattern = ranksFile.getFileName().toString().contains("cl100k") ? CL100K_PATTERN : O200K_PATTERN;
+        byte[] pool = new byte[1 << 16];
+        int[] offsets = new int[1 << 12];
+        int[] ranks = new int[1 << 12];
+        int count = 0;
+        int size = 0;
+        Base64.Decoder decoder = Base64.getDecoder();
+        try (BufferedReader reader = Files.newBufferedReader(ranksFile, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                int space = line.indexOf(' ');
+                if (space < 0) {
+                    throw new IOException("Malformed line in " + ranksFile + ": " + line);
+                }
+                byte[] token;
+                try {
+                    token = decoder.decode(line.substring(0, space));
+                    if (count + 1 >= offsets.length) {
+                        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                        ranks = Arrays.copyOf(ranks, ranks.length * 2);
+                    }
+                    ranks[count] = Integer.parseInt(line.substring(space + 1).trim());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Malformed line in " + ranksFile + ": " + line, e);
+                }
+                if (size + token.length > pool.length) {
+                    pool = Arrays.copyOf(pool, Math.max(pool.length * 2, size + token.length));
+                }
+                System.arraycopy(token, 0, pool, size, token.length);
+                offsets[count] = size;
+                size += token.length;
+                count++;
+                offsets[count] = size;
+            }
+        }
+        if (count == 0) {
+            throw new IOException("No tokens in " + ranksFile);
+        }
+        return new BpeTokenizer(pattern, Arrays.copyOf(pool, size), Arrays.copyOf(offsets, count + 1),
+                Arrays.copyOf(ranks, count), count);
+    }
+
+    @Override
+    public int countTokens(String text) {
+        int tokens = 0;
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            tokens += countPiece(matcher.group().getBytes(StandardCharsets.UTF_8));
+        }
+        return tokens;
+    }
+
+    /**
+     * Merges the bytes of one piece pair by pair, always taking the pair of lowest rank first.
+     * @return number of parts left once no pair can be merged
+     */
+    int countPiece(byte[] piece) {
+        int length = piece.length;
+        if (length <= 1 || rank(piece, 0, length) >= 0) {
+            return Math.min(length, 1);
+        }
+        // starts[i] is the start of part i, starts[parts] the end of the piece
+        int[] starts = new int[length + 1];
+        int[] pairRanks = new int[length];
+        for (int i = 0; i <= length; i++) {
+            starts[i] = i;
+        }
+        int parts = length;
+        for (int i = 0; i < parts - 1; i++) {
+            pairRanks[i] = rank(piece, starts[i], starts[i + 2]);
+        }
+        while (parts > 1) {
+            int best = -1;
+            for (int i = 0; i < parts - 1; i++) {
+                if (pairRanks[i] >= 0 && (best < 0 || pairRanks[i] < pairRanks[best])) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            System.arraycopy(starts, best + 2, starts, best + 1, parts - best - 1);
+            System.arraycopy(pairRanks, best + 1, pairRanks, best, parts - best - 2);
+            parts--;
+            if (best < parts - 1) {
+                pairRanks[best] = rank(piece, starts[best], starts[best + 2]);
+            }
+            if (best > 0) {
+                pairRanks[best - 1] = rank(piece, starts[best - 1], starts[best + 1]);
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * @return rank of the bytes as a single token, -1 when they are not one
+     */
+    private int rank(byte[] bytes, int from, int to) {
+        int slot = hash(bytes, from, to) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int token = entry - 1;
+            if (Arrays.equals(pool, offsets[token], offsets[token + 1], bytes, from, to)) {
+                return ranks[token];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * FNV-1a over a byte range.
+     */
+    private static int hash(byte[] bytes, int from, int to) {
+        int hash = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ (bytes[i] & 0xff)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,182 @@
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+import enums.Mutators;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * LLM service decorator that answers repeated requests from a {@link DiskResponseCache}.
+ * <p>
+ * The key is a SHA-256 of the model name, the mutator set, the comment free code and the generated prompt,
+ * so changing any of them misses the cache. Identical requests that arrive while the first one is still
+ * running wait for its result instead of sending their own request. Streamed requests missing the cache are streamed
+ * by the wrapped service and their answer is cached once complete; a cached answer is handed over as a single piece.
+ */
+public class CachingLLMService implements LLMApiService {
+    private final LLMApiService delegate;
+    private final DiskResponseCache cache;
+    private final LoggerService logger;
+    private final ConcurrentMap<String, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+
+    public CachingLLMService(LLMApiService delegate, DiskResponseCache cache, LoggerService logger) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.logger = logger;
+    }
+
+    @Override
+    public String askOpenAI(String javaCode) {
+        try {
+            return askOpenAIAsync(javaCode).join().content();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> askOpenAIAsync(String javaCode) {
+        return request(javaCode, null);
+    }
+
+    @Override
+    public CompletableFuture<Response> askOpenAIStreaming(String javaCode, Predicate<String> onDelta) {
+        return request(javaCode, onDelta);
+    }
+
+    /**
+     * @param onDelta receives the pieces of a streamed answer, null to send the request without streaming
+     */
+    private CompletableFuture<Response> request(String javaCode, Predicate<String> onDelta) {
+        String key = cacheKey(javaCode);
+        String cached = cache.get(key);
+        if (cached != null) {
+            logger.log("Cached LLM response found...");
+            return replay(cached, onDelta);
+        }
+
+        CompletableFuture<Response> request = new CompletableFuture<>();
+        CompletableFuture<Response> running = inFlight.putIfAbsent(key, request);
+        if (running != null) {
+            logger.log("Waiting for identical LLM request in flight...");
+            return onDelta == null ? running : running.thenApply(result -> {
+                onDelta.test(result.content());
+                return result;
+            });
+        }
+
+        // an identical request may have finished between the lookup and claiming the key
+        String stored = cache.get(key);
+        CompletableFuture<Response> response;
+        try {
+            if (stored != null) {
+                response = replay(stored, onDelta);
+            } else if (onDelta != null) {
+                response = delegate.askOpenAIStreaming(javaCode, onDelta);
+            } else {
+                response = delegate.askOpenAIAsync(javaCode);
+            }
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((result, error) -> {
+            if (error == null && stored == null && isCacheable(result.content())) {
+                store(key, result.content());
+            }
+            inFlight.remove(key, request);
+            if (error != null) {
+                request.completeExceptionally(error);
+            } else {
+                request.complete(result);
+            }
+        });
+        return request;
+    }
+
+    private static CompletableFuture<Response> replay(String content, Predicate<String> onDelta) {
+        if (onDelta != null) {
+            onDelta.test(content);
+        }
+        return CompletableFuture.completedFuture(new Response(content, 0, 0, 0.0));
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+
+    @Override
+    public String generatePrompt(String javaCode) {
+        return delegate.generatePrompt(javaCode);
+    }
+
+    @Override
+    public int getContextWindow() {
+        return delegate.getContextWindow();
+    }
+
+    @Override
+    public int getMaxOutputTokens() {
+        return delegate.getMaxOutputTokens();
+    }
+
+    @Override
+    public double estimateCost(int promptTokens, int completionTokens) {
+        return delegate.estimateCost(promptTokens, completionTokens);
+    }
+
+    /**
+     * @param javaCode comment free code
+     * @return hex encoded SHA-256 identifying the request
+     */
+    String cacheKey(String javaCode) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, getModelName());
+            for (Mutators mutator : Mutators.values()) {
+                update(digest, mutator.name());
+            }
+            update(digest, javaCode);
+            update(digest, generatePrompt(javaCode));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Only responses holding a complete Java code block are worth replaying; errors and answers cut off in the
+     * middle of the code must be retried on the next run.
+     */
+    private static boolean isCacheable(String response) {
+        if (response == null || response.startsWith("Error: ")) {
+            return false;
+        }
+        int block = response.indexOf("```java");
+        return block >= 0 && response.indexOf("```", block + "```java".length()) >= 0;
+    }
+
+    private void store(String key, String response) {
+        try {
+            cache.put(key, response);
+        } catch (IOException e) {
+            logger.error("Failed to cache LLM response: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import constants.Headers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Training run of the {@code cds} build profile, which records the classes it loads into an AppCDS archive.
+ * <p>
+ * Mutates a few generated classes the ways CI calls the mutator: a directory with the local engine, a directory
+ * and a single file through the LLM path against an in-process {@link MockOpenAIServer}, and a dry run. The LLM
+ * runs need {@code OPENAI_API_KEY} set, to any value.
+ */
+public class CdsTraining {
+    private static final String[] SOURCES = {
+            "public class Account {\n"
+                    + "    private long balance;\n\n"
+                    + "    public boolean withdraw(long amount) {\n"
+                    + "        if (amount > 0 && amount <= balance) {\n"
+                    + "            balance = balance - amount;\n"
+                    + "            return true;\n"
+                    + "        }\n"
+                    + "        return false;\n"
+                    + "    }\n"
+                    + "}\n",
+            "import java.util.List;\n\n"
+                    + "public class Stats {\n"
+                    + "    public static double mean(List<Integer> values) {\n"
+                    + "        int sum = 0;\n"
+                    + "        for (int value : values) {\n"
+                    + "            sum += value;\n"
+                    + "        }\n"
+                    + "        return values.isEmpty() ? 0 : (double) sum / values.size();\n"
+                    + "    }\n"
+                    + "}\n",
+    };
+
+    private CdsTraining() {
+    }
+
+    /**
+     * @param args directory the training sources and outputs are written to
+     */
+    public static void main(String[] args) throws IOException {
+        Path root = Paths.get(args.length > 0 ? args[0] : "target/cds-training");
+        Path sources = Files.createDirectories(root.resolve("src"));
+        Path first = null;
+        for (String source : SOURCES) {
+            String name = source.substring(source.indexOf("class ") + 6, source.indexOf(" {"));
+            Path file = sources.resolve(name + ".java");
+            Files.writeString(file, Headers.APACHE_LICENCE + source);
+            first = first == null ? file : first;
+        }
+
+        Main.main(new String[]{"-dir", sources.toString(), "-engine", "local"});
+        if (System.getenv("OPENAI_API_KEY") == null) {
+            System.err.println("OPENAI_API_KEY not set, the LLM path is left out of the training run");
+        } else {
+            try (MockOpenAIServer server = new MockOpenAIServer().start(0)) {
+                Main.main(new String[]{"-dir", sources.toString(), "-api-base", server.getBaseUrl(), "-parallel", "2"});
+                Main.main(new String[]{"-f", first.toString(), "-api-base", server.getBaseUrl()});
+            }
+        }
+        Main.main(new String[]{"-f", first.toString(), "-dry-run"});
+    }
+}
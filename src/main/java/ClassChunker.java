@@ -0,0 +1,213 @@
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.ast.stmt.BlockStmt;
+
+import java.util.*;
+
+/**
+ * Splits a large compilation unit into groups of methods that are mutated by independent requests.
+ * <p>
+ * Every chunk is the skeleton of the whole unit, fields and signatures included, with only the bodies of its own
+ * methods and constructors kept. Methods are matched across original and answer by type and signature, and the
+ * answer's text of each method replaces the original in the printed comment free unit. Text is spliced rather than
+ * nodes because the printer drops comments inside expressions, which name the applied mutation operators.
+ * A chunk whose answer is unusable leaves its methods unchanged.
+ */
+public class ClassChunker {
+    private final CompilationUnit result;
+    private final List<String> keys = new ArrayList<>();
+    private final List<List<Integer>> groups = new ArrayList<>();
+    private final NavigableMap<Integer, Snippet> spliced = new TreeMap<>();
+
+    /**
+     * @param compilationUnit parsed source, left unchanged
+     * @param maxLines printed lines a chunk should not exceed; a larger single method gets a chunk of its own
+     */
+    public ClassChunker(CompilationUnit compilationUnit, int maxLines) {
+        this.result = compilationUnit.clone();
+        this.result.getAllContainedComments().forEach(Comment::remove);
+        List<CallableDeclaration<?>> callables = bodies(result);
+
+        List<Integer> group = new ArrayList<>();
+        int lines = 0;
+        for (int i = 0; i < callables.size(); i++) {
+            keys.add(key(callables.get(i)));
+            int size = (int) callables.get(i).toString().lines().count();
+            if (!group.isEmpty() && lines + size > maxLines) {
+                groups.add(group);
+                group = new ArrayList<>();
+                lines = 0;
+            }
+            group.add(i);
+            lines += size;
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+    }
+
+    /**
+     * @return number of chunks, 1 when the unit does not need splitting
+     */
+    public int size() {
+        return groups.size();
+    }
+
+    /**
+     * @param chunk chunk index
+     * @return skeleton of the unit holding the bodies of the chunk's methods only
+     */
+    public String getCode(int chunk) {
+        CompilationUnit skeleton = result.clone();
+        List<CallableDeclaration<?>> copies = bodies(skeleton);
+        Set<Integer> kept = new HashSet<>(groups.get(chunk));
+        for (int i = 0; i < copies.size(); i++) {
+            if (!kept.contains(i)) {
+                setBody(copies.get(i), new BlockStmt());
+            }
+        }
+        return skeleton.toString();
+    }
+
+    /**
+     * Takes the chunk's methods from the answer, keeping their text and comments as the model wrote them.
+     * @param chunk chunk index
+     * @param mutatedCode code block returned for the chunk
+     * @return number of methods replaced, 0 when the answer does not parse or matches none of them
+     */
+    public synchronized int splice(int chunk, String mutatedCode) {
+        ParseResult<CompilationUnit> parsed = ParsedSource.parser().parse(mutatedCode);
+        if (parsed.getResult().isEmpty() || !parsed.isSuccessful()) {
+            return 0;
+        }
+        Map<String, CallableDeclaration<?>> mutated = new HashMap<>();
+        for (CallableDeclaration<?> callable : bodies(parsed.getResult().get())) {
+            mutated.putIfAbsent(key(callable), callable);
+        }
+
+        int replaced = 0;
+        for (int index : groups.get(chunk)) {
+            CallableDeclaration<?> replacement = mutated.get(keys.get(index));
+            Optional<Range> range = replacement == null ? Optional.empty() : replacement.getRange();
+            if (range.isPresent()) {
+                Position begin = replacement.getComment().flatMap(Node::getBegin)
+                        .filter(position -> position.isBefore(range.get().begin))
+                        .orElse(range.get().begin);
+                spliced.put(index, new Snippet(mutatedCode.substring(offset(mutatedCode, begin),
+                        offset(mutatedCode, range.get().end) + 1), begin.column - 1));
+                replaced++;
+            }
+        }
+        return replaced;
+    }
+
+    /**
+     * @return the comment free unit with the text of all spliced methods in place of the originals
+     */
+    public synchronized String print() {
+        String code = result.toString();
+        if (spliced.isEmpty()) {
+            return code;
+        }
+        List<CallableDeclaration<?>> printed = bodies(ParsedSource.parser().parse(code).getResult().orElseThrow());
+        StringBuilder output = new StringBuilder(code);
+        // from the end so earlier offsets stay valid
+        for (Map.Entry<Integer, Snippet> entry : spliced.descendingMap().entrySet()) {
+            Range range = printed.get(entry.getKey()).getRange().orElseThrow();
+            output.replace(offset(code, range.begin), offset(code, range.end) + 1,
+                    entry.getValue().indent(range.begin.column - 1));
+        }
+        return output.toString();
+    }
+
+    /**
+     * Source text of a mutated method.
+     * @param text declaration from its first comment to its closing brace
+     * @param column indentation of the first line in the answer
+     */
+    private record Snippet(String text, int column) {
+
+        /**
+         * Moves the lines after the first one from the answer's indentation to the target indentation.
+         */
+        String indent(int target) {
+            String[] lines = text.split("\\R", -1);
+            StringBuilder indented = new StringBuilder(lines[0]);
+            for (int i = 1; i < lines.length; i++) {
+                String line = lines[i];
+                int strip = 0;
+                while (strip < column && strip < line.length() && (line.charAt(strip) == ' ' || line.charAt(strip) == '\t')) {
+                    strip++;
+                }
+                indented.append('\n');
+                if (strip < line.length()) {
+                    indented.append(" ".repeat(target)).append(line, strip, line.length());
+                }
+            }
+            return indented.toString();
+        }
+    }
+
+    /**
+     * @return offset of a parser position, lines and columns counted from 1
+     */
+    private static int offset(String text, Position position) {
+        int offset = 0;
+        for (int line = 1; line < position.line; line++) {
+            offset = text.indexOf('\n', offset) + 1;
+        }
+        return offset + position.column - 1;
+    }
+
+    /**
+     * Methods and constructors with a body, in source order. Methods of local and anonymous classes stay part of
+     * the method declaring them.
+     */
+    private static List<CallableDeclaration<?>> bodies(CompilationUnit unit) {
+        List<CallableDeclaration<?>> found = new ArrayList<>();
+        unit.walk(Node.TreeTraversal.PREORDER, node -> {
+            if (node instanceof CallableDeclaration<?> callable && hasBody(callable)
+                    && callable.stream(Node.TreeTraversal.PARENTS)
+                    .noneMatch(parent -> parent instanceof CallableDeclaration<?>)) {
+                found.add(callable);
+            }
+        });
+        return found;
+    }
+
+    private static boolean hasBody(CallableDeclaration<?> callable) {
+        return callable instanceof ConstructorDeclaration
+                || callable instanceof MethodDeclaration method && method.getBody().isPresent();
+    }
+
+    private static void setBody(CallableDeclaration<?> callable, BlockStmt body) {
+        if (callable instanceof MethodDeclaration method) {
+            method.setBody(body);
+        } else if (callable instanceof ConstructorDeclaration constructor) {
+            constructor.setBody(body);
+        }
+    }
+
+    /**
+     * Identifies a method across the original and the mutated unit by its enclosing types and signature.
+     */
+    private static String key(CallableDeclaration<?> callable) {
+        StringBuilder key = new StringBuilder(callable.getSignature().asString());
+        Optional<Node> parent = callable.getParentNode();
+        while (parent.isPresent()) {
+            if (parent.get() instanceof TypeDeclaration<?> type) {
+                key.insert(0, type.getNameAsString() + ".");
+            }
+            parent = parent.get().getParentNode();
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,38 @@
+import Interfaces.LoggerService;
+import Interfaces.ProgressListener;
+import enums.LogLevel;
+
+import java.util.Locale;
+
+/**
+ * Draws the progress of a run in the console log: a line whenever a file finishes and a summary at the end.
+ */
+public class ConsoleProgress implements ProgressListener {
+    private final LoggerService logger;
+
+    public ConsoleProgress(LoggerService logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void onProgress(Event event) {
+        switch (event.type()) {
+            case QUEUED -> {
+            }
+            case STARTED -> logger.log(LogLevel.DEBUG, () -> "Mutating " + event.file() + "...");
+            case FINISHED -> logger.log(String.format(Locale.ROOT, "%d of %d file(s) finished, %d failed, %d tokens, $%.6f",
+                    event.finished(), event.total(), event.failed(), event.totalTokens(), event.totalCost()));
+            default -> logger.log((event.total() - event.finished()) + " file(s) remaining..." + summary(event));
+        }
+    }
+
+    private static String summary(Event event) {
+        String totals = String.format(Locale.ROOT, " (%d/%d, %d tokens, $%.6f", event.finished(), event.total(),
+                event.totalTokens(), event.totalCost());
+        return totals + (event.etaSeconds() < 0 || event.finished() == event.total() ? ")" : ", ETA " + eta(event.etaSeconds()) + ")");
+    }
+
+    private static String eta(long seconds) {
+        return seconds < 60 ? seconds + " s" : seconds / 60 + " min " + seconds % 60 + " s";
+    }
+}
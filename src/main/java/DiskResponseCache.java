@@ -0,0 +1,238 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent key/value store for LLM responses, kept as a series of append-only segment files.
+ * <p>
+ * Entries are appended to the newest segment. When the total size exceeds the limit, the oldest segment is deleted.
+ * A hit on an entry that lives in the older half of the segments copies it to the newest segment,
+ * so eviction by segment approximates least-recently-used eviction without per-entry bookkeeping on disk.
+ * The index is rebuilt from the segments on start up; a torn record at the end of a segment is truncated.
+ */
+public class DiskResponseCache implements Closeable {
+    private static final int MAGIC = 0x4C4C4D43;
+    private static final int RECORD_HEADER = 16;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long segmentBytes;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private long totalBytes;
+
+    /**
+     * @param directory directory holding the segment files, created if missing
+     * @param maxBytes upper bound of the total size of all segments
+     */
+    public DiskResponseCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = Math.max(maxBytes, 1024 * 1024);
+        this.segmentBytes = Math.max(this.maxBytes / 8, 64 * 1024);
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * @param key cache key
+     * @return cached value or null on a miss
+     */
+    public String get(String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(location.length);
+            int read = 0;
+            while (read < location.length) {
+                int n = location.segment.channel.read(buffer, location.valueOffset + read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            if (read < location.length) {
+                index.remove(key, location);
+                return null;
+            }
+            String value = new String(buffer.array(), StandardCharsets.UTF_8);
+            if (shouldPromote(location.segment)) {
+                put(key, value);
+            }
+            return value;
+        } catch (IOException e) {
+            // segment was evicted or closed while reading
+            index.remove(key, location);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a value, replacing any previous value of the key.
+     */
+    public synchronized void put(String key, String value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        int recordLength = RECORD_HEADER + keyBytes.length + valueBytes.length;
+
+        if (active == null || active.size + recordLength > segmentBytes) {
+            roll();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(valueBytes);
+        ByteBuffer record = ByteBuffer.allocate(recordLength);
+        record.putInt(MAGIC).putInt(keyBytes.length).putInt(valueBytes.length).putInt((int) crc.getValue());
+        record.put(keyBytes).put(valueBytes).flip();
+
+        long offset = active.size;
+        while (record.hasRemaining()) {
+            active.channel.write(record, offset + record.position());
+        }
+        active.size += recordLength;
+        totalBytes += recordLength;
+        index.put(key, new Location(active, offset + RECORD_HEADER + keyBytes.length, valueBytes.length));
+
+        evict();
+    }
+
+    /**
+     * @return number of live entries
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return bytes used by all segments on disk
+     */
+    public synchronized long sizeInBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+        segments.clear();
+        index.clear();
+        active = null;
+    }
+
+    private synchronized boolean shouldPromote(Segment segment) {
+        if (segment == active || segments.isEmpty()) {
+            return false;
+        }
+        long oldest = segments.firstKey();
+        long newest = segments.lastKey();
+        return segment.id <= oldest + (newest - oldest) / 2;
+    }
+
+    private void roll() throws IOException {
+        long id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        active = open(id);
+        segments.put(id, active);
+    }
+
+    private void evict() throws IOException {
+        while (totalBytes > maxBytes && segments.size() > 1) {
+            Segment oldest = segments.pollFirstEntry().getValue();
+            index.values().removeIf(location -> location.segment == oldest);
+            totalBytes -= oldest.size;
+            oldest.channel.close();
+            Files.deleteIfExists(oldest.path);
+        }
+    }
+
+    private void load() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long id;
+            try {
+                id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            Segment segment = open(id);
+            segments.put(id, segment);
+            scan(segment);
+            totalBytes += segment.size;
+        }
+        active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        evict();
+    }
+
+    private void scan(Segment segment) throws IOException {
+        long fileSize = segment.channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        while (offset + RECORD_HEADER <= fileSize) {
+            header.clear();
+            segment.channel.read(header, offset);
+            header.flip();
+            int magic = header.getInt();
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            int checksum = header.getInt();
+            long end = offset + RECORD_HEADER + (long) keyLength + valueLength;
+            if (magic != MAGIC || keyLength < 0 || valueLength < 0 || end > fileSize) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(keyLength + valueLength);
+            segment.channel.read(body, offset + RECORD_HEADER);
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), keyLength, valueLength);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            String key = new String(body.array(), 0, keyLength, StandardCharsets.UTF_8);
+            index.put(key, new Location(segment, offset + RECORD_HEADER + keyLength, valueLength));
+            offset = end;
+        }
+        if (offset < fileSize) {
+            segment.channel.truncate(offset);
+        }
+        segment.size = offset;
+    }
+
+    private Segment open(long id) throws IOException {
+        Path path = directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel);
+    }
+
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        long size;
+
+        Segment(long id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    private record Location(Segment segment, long valueOffset, int length) {
+    }
+}
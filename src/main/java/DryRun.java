@@ -0,0 +1,128 @@
+import Interfaces.LoggerService;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Plans a mutation run without sending a request: counts the tokens of every file and projects cost and duration.
+ * <p>
+ * Files are tokenized in parallel. The duration assumes every request takes a fixed latency plus its projected
+ * answer at the model's generation speed, with requests spread over the parallel lanes longest first. A run can
+ * never be faster than the token rate limit allows.
+ */
+public class DryRun {
+    /** Time until the first token of an answer arrives. */
+    static final double LATENCY_SECONDS = 1.0;
+
+    private final LoggerService logger;
+    private final TokenBudget budget;
+    private final int parallelism;
+    private final int tokensPerMinute;
+    private final double tokensPerSecond;
+
+    /**
+     * Projection of a run.
+     * @param files files that would be sent
+     * @param oversized files too large for a single request, sent in chunks or rejected
+     * @param promptTokens input tokens of all requests
+     * @param outputTokens projected output tokens of all answers
+     * @param cost projected price in USD
+     * @param seconds projected wall-clock time
+     */
+    public record Estimate(int files, int oversized, long promptTokens, long outputTokens, double cost, double seconds) {
+    }
+
+    /**
+     * @param parallelism requests in flight
+     * @param tokensPerMinute token rate limit of the account
+     * @param tokensPerSecond generation speed of the model
+     */
+    public DryRun(LoggerService logger, TokenBudget budget, int parallelism, int tokensPerMinute, double tokensPerSecond) {
+        this.logger = logger;
+        this.budget = budget;
+        this.parallelism = Math.max(1, parallelism);
+        this.tokensPerMinute = Math.max(1, tokensPerMinute);
+        this.tokensPerSecond = tokensPerSecond > 0 ? tokensPerSecond : 1;
+    }
+
+    /**
+     * Estimates the run and logs the projection.
+     * @param files files to be mutated
+     * @return the projection
+     */
+    public Estimate run(List<File> files) {
+        logger.log("Dry run, tokenizing " + files.size() + " file(s)...");
+        Estimate estimate = estimate(files);
+        StringBuilder report = new StringBuilder();
+        report.append("---- Dry Run ----\n");
+        report.append("Files: ").append(estimate.files());
+        if (estimate.oversized() > 0) {
+            report.append(" (").append(estimate.oversized()).append(" over the model limits)");
+        }
+        report.append("\n");
+        report.append("Input Tokens: ").append(estimate.promptTokens()).append("\n");
+        report.append("Projected Output Tokens: ").append(estimate.outputTokens()).append("\n");
+        report.append(String.format("Estimated Cost: $%.6f", estimate.cost())).append("\n");
+        report.append("Estimated Time: ").append(formatSeconds(estimate.seconds()))
+                .append(" at parallelism ").append(parallelism).append("\n");
+        logger.log(report.toString());
+        return estimate;
+    }
+
+    /**
+     * @param files files to be mutated
+     * @return the projection of the run
+     */
+    public Estimate estimate(List<File> files) {
+        List<int[]> counts = files.parallelStream()
+                .map(this::count)
+                .filter(count -> count.length > 0)
+                .toList();
+
+        long promptTokens = 0;
+        long outputTokens = 0;
+        int oversized = 0;
+        double cost = 0;
+        PriorityQueue<Double> lanes = new PriorityQueue<>();
+        for (int i = 0; i < parallelism; i++) {
+            lanes.add(0.0);
+        }
+        List<int[]> longestFirst = counts.stream().sorted((a, b) -> Integer.compare(b[1], a[1])).toList();
+        for (int[] count : longestFirst) {
+            promptTokens += count[0];
+            outputTokens += count[1];
+            cost += budget.estimateCost(count[0], count[1]);
+            if (!budget.fits(count[0], count[1])) {
+                oversized++;
+            }
+            lanes.add(lanes.poll() + LATENCY_SECONDS + count[1] / tokensPerSecond);
+        }
+        double busiestLane = lanes.stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        double rateLimited = (promptTokens + outputTokens) * 60.0 / tokensPerMinute;
+        return new Estimate(counts.size(), oversized, promptTokens, outputTokens, cost, Math.max(busiestLane, rateLimited));
+    }
+
+    /**
+     * @return prompt and projected output tokens of a file, empty when it would not be sent
+     */
+    private int[] count(File file) {
+        try {
+            String javaCode = ParsedSource.read(file).getCodeWithoutComments();
+            if (javaCode.isEmpty()) {
+                logger.error("No valid Java code found in " + file.getName());
+                return new int[0];
+            }
+            return new int[]{budget.promptTokens(javaCode), budget.projectedOutputTokens(javaCode)};
+        } catch (IOException e) {
+            logger.error("Error reading file: " + e.getMessage());
+            return new int[0];
+        }
+    }
+
+    private static String formatSeconds(double seconds) {
+        long total = (long) Math.ceil(seconds);
+        return String.format("%d:%02d:%02d", total / 3600, total / 60 % 60, total % 60);
+    }
+}
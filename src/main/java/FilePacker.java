@@ -0,0 +1,112 @@
+import java.io.File;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Groups small files into packs sent as one request, so the fixed prompt and the request latency are shared.
+ * <p>
+ * Files are collected in arrival order until the next one would exceed the token budget of a pack. Files larger than
+ * half the budget, chunked files and failed or skipped files pass through on their own. Within a pack every file is
+ * delimited by a {@code ### FILE:} line naming it, and the answer is expected back in the same layout.
+ */
+public class FilePacker {
+    static final String FILE_MARKER = "### FILE: ";
+    private static final Pattern SECTION = Pattern.compile("^[\\s*_]*" + Pattern.quote(FILE_MARKER.trim()) + "\\s*(.+?)\\s*$",
+            Pattern.MULTILINE);
+
+    private final int packTokens;
+    private final Function<File, String> names;
+    private final List<FileProcessor.MutationTask> pending = new ArrayList<>();
+    private int pendingTokens;
+
+    /**
+     * @param packTokens code tokens a pack may hold
+     * @param names name of a file inside a pack, unique within the run
+     */
+    public FilePacker(int packTokens, Function<File, String> names) {
+        this.packTokens = packTokens;
+        this.names = names;
+    }
+
+    /**
+     * @param task prepared task
+     * @return tasks ready to be sent: the task itself when it is not packed, a full pack, or nothing
+     */
+    public List<FileProcessor.MutationTask> add(FileProcessor.MutationTask task) {
+        if (!task.isPending() || task.chunker != null || task.codeTokens > packTokens / 2) {
+            return List.of(task);
+        }
+        List<FileProcessor.MutationTask> ready = new ArrayList<>();
+        if (pendingTokens + task.codeTokens > packTokens) {
+            ready.addAll(flush());
+        }
+        pending.add(task);
+        pendingTokens += task.codeTokens;
+        return ready;
+    }
+
+    /**
+     * @return the collected files as one pack, the single file itself, or nothing
+     */
+    public List<FileProcessor.MutationTask> flush() {
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        List<FileProcessor.MutationTask> members = List.copyOf(pending);
+        pending.clear();
+        pendingTokens = 0;
+        if (members.size() == 1) {
+            return members;
+        }
+        FileProcessor.MutationTask pack = new FileProcessor.MutationTask(members);
+        pack.javaCode = pack(members);
+        return List.of(pack);
+    }
+
+    /**
+     * @return name of a member file inside its pack
+     */
+    public String nameOf(FileProcessor.MutationTask member) {
+        return names.apply(member.file);
+    }
+
+    /**
+     * Lays out the members of a pack with the instructions to answer file by file.
+     */
+    String pack(List<FileProcessor.MutationTask> members) {
+        StringBuilder packed = new StringBuilder();
+        packed.append("The following ").append(members.size()).append(" Java files are independent. ")
+                .append("Mutate every file and answer with one section per file: a line \"")
+                .append(FILE_MARKER).append("<name>\" followed by the mutated file in its own ```java block.\n");
+        for (FileProcessor.MutationTask member : members) {
+            packed.append("\n").append(FILE_MARKER).append(nameOf(member)).append("\n```java\n")
+                    .append(member.javaCode.trim()).append("\n```\n");
+        }
+        return packed.toString();
+    }
+
+    /**
+     * Splits the answer to a pack at its {@code ### FILE:} lines.
+     * @param response answer to a pack
+     * @return text of every section by file name; files without a section are missing
+     */
+    static Map<String, String> unpack(String response) {
+        Map<String, String> sections = new LinkedHashMap<>();
+        Matcher matcher = SECTION.matcher(response);
+        String name = null;
+        int start = 0;
+        while (matcher.find()) {
+            if (name != null) {
+                sections.putIfAbsent(name, response.substring(start, matcher.start()));
+            }
+            name = matcher.group(1).replace("`", "").replace("*", "").trim();
+            start = matcher.end();
+        }
+        if (name != null) {
+            sections.putIfAbsent(name, response.substring(start));
+        }
+        return sections;
+    }
+}
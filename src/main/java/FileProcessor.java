@@ -1,15 +1,19 @@
 import Interfaces.LLMApiService;
 import Interfaces.LoggerService;
 import Interfaces.MutationProcessor;
-import com.github.javaparser.*;
+import Interfaces.ProgressListener;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.comments.Comment;
-import constants.Headers;
+import enums.LogLevel;
+import org.json.JSONObject;
 
 import java.io.*;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class handles file related processes
@@ -18,13 +22,46 @@ public class FileProcessor implements MutationProcessor {
     private final LoggerService logger;
     private final Map<String, String> mutationOperators;
     private final LLMApiService openAIService;
-    private File outputDir;
-    private Path rootDir;
+    private final Set<String> failedFiles;
+    private final Map<String, String> droppedMutants;
+    private final Map<String, KillChecker.Result> killResults;
+    private final List<CompletableFuture<Void>> killChecks;
+    private final MutantFilter mutantFilter;
+    private final MutationOptions options;
+    private final TokenBudget budget;
+    private final ProgressTracker progress;
+    private volatile File outputDir;
+    private volatile Path rootDir;
+    private volatile RunManifest manifest;
+    private volatile boolean cancelled;
 
     public FileProcessor(LoggerService logger, LLMApiService openAIService){
+        this(logger, openAIService, 1);
+    }
+
+    /**
+     * @param parallelism maximum number of LLM requests in flight. Values above 1 run the staged pipeline.
+     */
+    public FileProcessor(LoggerService logger, LLMApiService openAIService, int parallelism){
+        this(logger, openAIService, new MutationOptions().setParallelism(parallelism));
+    }
+
+    public FileProcessor(LoggerService logger, LLMApiService openAIService, MutationOptions options){
         this.logger = logger;
-        this.mutationOperators = new HashMap<>();
+        this.mutationOperators = new ConcurrentHashMap<>();
+        this.failedFiles = ConcurrentHashMap.newKeySet();
+        this.droppedMutants = new ConcurrentHashMap<>();
+        this.killResults = new ConcurrentHashMap<>();
+        this.killChecks = Collections.synchronizedList(new ArrayList<>());
+        this.mutantFilter = options.isDropEquivalent() ? new MutantFilter() : null;
         this.openAIService = openAIService;
+        this.options = options;
+        this.budget = new TokenBudget(options.getTokenizer(), openAIService);
+        List<ProgressListener> listeners = new ArrayList<>(List.of(new ConsoleProgress(logger)));
+        if (options.getProgressListener() != null) {
+            listeners.add(options.getProgressListener());
+        }
+        this.progress = new ProgressTracker(listeners, openAIService);
     }
 
     /**
@@ -37,20 +74,56 @@ public class FileProcessor implements MutationProcessor {
             rootDir = outputPath;
             if (prepareOutputDirectory(rootDir)) {
                 logger.log("Output directory created at " + outputDir.getPath());
-                int fileCount = files.size();
-                logger.log(fileCount + " File(s) to mutate...");
-                for (File file : files) {
-                    processFile(file);
-                    fileCount -= 1;
-                    logger.log(fileCount + " file(s) remaining...");
+                manifest = new RunManifest(outputDir.toPath());
+                if (options.isResume() && manifest.size() > 0) {
+                    logger.log("Resuming run, " + manifest.size() + " file(s) recorded in " + RunManifest.FILE_NAME);
+                }
+                logger.log(files.size() + " File(s) to mutate...");
+                progress.queued(files.stream().map(this::relativeName).toList());
+                if (options.getBatchService() != null) {
+                    runBatch(files);
+                } else if (options.getParallelism() > 1) {
+                    new MutationPipeline(this, logger, options.getParallelism(), options.getMetrics()).run(files);
+                } else {
+                    FilePacker packer = newPacker();
+                    for (File file : files) {
+                        MutationTask task = prepareTask(file);
+                        for (MutationTask ready : packer == null ? List.of(task) : packer.add(task)) {
+                            processTask(ready);
+                        }
+                    }
+                    for (MutationTask ready : packer == null ? List.<MutationTask>of() : packer.flush()) {
+                        processTask(ready);
+                    }
+                }
+
+                if (options.getKillChecker() != null) {
+                    long killStart = System.nanoTime();
+                    awaitKillChecks();
+                    options.getMetrics().stage("kill", killStart);
+                }
+
+                long reportStart = System.nanoTime();
+                if (!failedFiles.isEmpty()) {
+                    logger.error(failedFiles.size() + " file(s) could not be mutated: " + String.join(", ", new TreeSet<>(failedFiles)));
+                }
+
+                if (!droppedMutants.isEmpty()) {
+                    logger.log(droppedMutants.size() + " mutant(s) dropped as equivalent or duplicate: " + String.join(", ", new TreeSet<>(droppedMutants.keySet())));
+                    reportDroppedMutants(outputDir + "/DroppedMutants.csv");
                 }
 
                 if(!mutationOperators.isEmpty()){ //Saves all the used mutators in Excel format.
                     reportMutators(outputDir + "/MutationOperators.csv");
                 }
+                options.getMetrics().stage("report", reportStart);
+                reportMetrics(outputDir + "/RunMetrics.json");
+                progress.runFinished();
             }
         } catch (IOException e) {
             logger.error(e.getMessage());
+        } finally {
+            closeManifest();
         }
     }
 
@@ -61,20 +134,28 @@ public class FileProcessor implements MutationProcessor {
      */
     @Override
     public String readJavaCodeWithoutComments(File file) {
-        logger.log("Extracting Java Code from file...");
-        CompilationUnit cu = new CompilationUnit();
         try {
-            cu = StaticJavaParser.parse(file);
-
-            // Remove all comments
-            cu.getAllComments().forEach(Comment::remove);
-            logger.log("Removing Java Comments...");
-
-        } catch (Exception e) {
+            return readJavaCodeWithoutComments(ParsedSource.read(file));
+        } catch (IOException e) {
             logger.log(e.getMessage());
+            return "";
         }
+    }
 
-        return cu.toString();
+    /**
+     * Prints the parsed source without any kind of comments
+     * @param source : parsed file to be mutated
+     * @return Java code without comments
+     */
+    private String readJavaCodeWithoutComments(ParsedSource source) {
+        logger.log("Extracting Java Code from file...");
+        String javaCode = source.getCodeWithoutComments();
+        if (source.getParseError() != null) {
+            logger.log(source.getParseError());
+        } else {
+            logger.log("Removing Java Comments...");
+        }
+        return javaCode;
     }
 
     /**
@@ -87,7 +168,11 @@ public class FileProcessor implements MutationProcessor {
         String endTag = "```";
 
         int startIndex = response.indexOf(startTag);
-        int endIndex = response.indexOf(endTag, startIndex + startTag.length());
+        // a fence opening a line closes the block, backticks inside string literals do not
+        int endIndex = response.indexOf("\n" + endTag, startIndex + startTag.length());
+        if (endIndex == -1) {
+            endIndex = response.indexOf(endTag, startIndex + startTag.length());
+        }
 
         if (startIndex != -1 && endIndex != -1) {
             return response.substring(startIndex + startTag.length(), endIndex).trim();
@@ -118,13 +203,7 @@ public class FileProcessor implements MutationProcessor {
     @Override
     public String checkForHeader(File file) {
         try {
-            String content = Files.readString(file.toPath());
-
-            for (String header : Headers.getAllHeaders()) {
-                if (content.contains(header)) {
-                    return header + "\n";
-                }
-            }
+            return options.getHeaderDetector().detect(file);
         } catch (Exception e) {
             logger.log("Error reading file: " + e.getMessage());
         }
@@ -140,14 +219,11 @@ public class FileProcessor implements MutationProcessor {
     @Override
     public String getAppliedMutators(String mutatedJavaCode){
         StringBuilder operations = new StringBuilder();
-        try {
-            CompilationUnit cu = StaticJavaParser.parse(mutatedJavaCode);
-            List<Comment> comments = cu.getAllComments();
-            for(Comment comment : comments){
-                operations.append(comment.getContent().trim()).append("\n");
-            }
-        } catch (Exception e) {
-            logger.log(e.getMessage());
+        if (mutatedJavaCode == null) {
+            return "";
+        }
+        for (String comment : ParsedSource.scanComments(mutatedJavaCode)) {
+            operations.append(comment).append("\n");
         }
         return operations.toString();
     }
@@ -160,11 +236,17 @@ public class FileProcessor implements MutationProcessor {
         logger.log("Writing Mutation comments to Excel file: " + excelFilePath);
 
         try (FileWriter writer = new FileWriter(excelFilePath)) {
-            writer.append("Java File Name,Mutation Comments\n");
+            boolean killChecked = options.getKillChecker() != null;
+            writer.append("Java File Name,Mutation Comments").append(killChecked ? ",Test Result\n" : "\n");
 
             for (Map.Entry<String, String> entry : mutationOperators.entrySet()) {
                 String sanitizedComment = entry.getValue().replace("\"", "\"\"");
-                writer.append(entry.getKey()).append(",\"").append(sanitizedComment).append("\"\n");
+                writer.append(entry.getKey()).append(",\"").append(sanitizedComment).append("\"");
+                if (killChecked) {
+                    KillChecker.Result result = killResults.get(entry.getKey());
+                    writer.append(",\"").append(result == null ? "" : result.toString().replace("\"", "\"\"")).append("\"");
+                }
+                writer.append("\n");
             }
             logger.log("CSV file created successfully!");
         } catch (IOException e) {
@@ -173,6 +255,61 @@ public class FileProcessor implements MutationProcessor {
 
     }
 
+    /**
+     * Waits for the tests of all mutants and logs the mutation score.
+     */
+    private void awaitKillChecks() {
+        logger.log("Waiting for the tests of " + killChecks.size() + " mutant(s)...");
+        killChecks.forEach(CompletableFuture::join);
+        Map<KillChecker.Status, Long> counts = new EnumMap<>(KillChecker.Status.class);
+        killResults.values().forEach(result -> counts.merge(result.status(), 1L, Long::sum));
+        long killed = counts.getOrDefault(KillChecker.Status.KILLED, 0L) + counts.getOrDefault(KillChecker.Status.TIMED_OUT, 0L);
+        long viable = killed + counts.getOrDefault(KillChecker.Status.SURVIVED, 0L) + counts.getOrDefault(KillChecker.Status.NO_COVERAGE, 0L);
+        logger.log("Mutation score: " + killed + " of " + viable + " mutant(s) killed"
+                + (viable == 0 ? "" : String.format(Locale.ROOT, " (%.1f%%)", 100.0 * killed / viable)) + ", " + counts);
+    }
+
+    /**
+     * Starts the tests of a written mutant; the result is reported under the given output path.
+     */
+    private void checkKill(MutationTask task, String outputPath, String code) {
+        killChecks.add(options.getKillChecker().check(relativeName(task.file), code)
+                .thenAccept(result -> killResults.put(outputPath, result)));
+    }
+
+    /**
+     * Saves the mutants dropped by the {@link MutantFilter} with the reason of each drop
+     * @param csvFilePath : Path for the report file.
+     */
+    private void reportDroppedMutants(String csvFilePath) {
+        try (FileWriter writer = new FileWriter(csvFilePath)) {
+            writer.append("Java File Name,Reason\n");
+            for (Map.Entry<String, String> entry : new TreeMap<>(droppedMutants).entrySet()) {
+                writer.append(entry.getKey()).append(",\"").append(entry.getValue().replace("\"", "\"\"")).append("\"\n");
+            }
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the JSON summary of the run metrics and logs the stage that took longest.
+     * @param jsonFilePath : Path for the summary file.
+     */
+    private void reportMetrics(String jsonFilePath) {
+        JSONObject summary = options.getMetrics().toJson();
+        try {
+            Files.writeString(Paths.get(jsonFilePath), summary.toString(2));
+        } catch (IOException e) {
+            logger.error("Failed to save run metrics: " + e.getMessage());
+        }
+        JSONObject latencies = summary.getJSONObject("latencies");
+        latencies.keySet().stream()
+                .max(Comparator.comparingDouble(name -> latencies.getJSONObject(name).getDouble("totalSeconds")))
+                .ifPresent(name -> logger.log(String.format(Locale.ROOT, "Run metrics saved to %s, most time spent in %s (%.1f s)",
+                        jsonFilePath, name, latencies.getJSONObject(name).getDouble("totalSeconds"))));
+    }
+
     /**
      * prepareOutputDirectory
      * @param rootDir
@@ -180,7 +317,13 @@ public class FileProcessor implements MutationProcessor {
      * @throws IOException
      */
     private boolean prepareOutputDirectory(Path rootDir) throws IOException {
-        outputDir = new File(rootDir.toFile(), "output");
+        outputDir = options.getOutputDirectory() != null
+                ? options.getOutputDirectory().toFile()
+                : new File(rootDir.toFile(), "output");
+        if (options.isResume() && outputDir.isDirectory()) {
+            logger.log("Output directory kept for resumed run...");
+            return true;
+        }
         if (outputDir.exists()) {
             Files.walkFileTree(outputDir.toPath(), new SimpleFileVisitor<>(){
                 @Override
@@ -200,40 +343,703 @@ public class FileProcessor implements MutationProcessor {
     }
 
     /**
-     * mutate each file
-     * @param file
+     * mutate a prepared file or pack
+     * @param task prepared task
      * @throws IOException
      */
-    private void processFile(File file) throws IOException {
-        String javaHeader = checkForHeader(file);
-        String javaCode = readJavaCodeWithoutComments(file);
+    private void processTask(MutationTask task) throws IOException {
+        if (task.isPending()) {
+            requestMutation(task);
+        }
+        if (task.isPending()) {
+            extractMutation(task);
+        }
+        if (task.isPending()) {
+            writeMutation(task);
+        }
+    }
 
-        if (javaCode.isEmpty()) {
-            logger.error("No valid Java code found in " + file.getName());
+    /**
+     * Sends all files as one batch and extracts and writes every file as soon as its answers have been read back.
+     * The requests of a chunked file are named after the file and their chunk index.
+     * @param files files to mutate
+     */
+    private void runBatch(List<File> files) {
+        Map<String, MutationTask> tasks = new LinkedHashMap<>();
+        Map<String, String> javaCodes = new LinkedHashMap<>();
+        for (File file : files) {
+            MutationTask task = prepareTask(file);
+            if (!task.isPending()) {
+                continue;
+            }
+            String name = relativeName(file);
+            tasks.put(name, task);
+            progress.started(name);
+            if (task.chunker == null) {
+                javaCodes.put(name, task.javaCode);
+            } else {
+                task.chunkResponses = new ArrayList<>(Collections.nCopies(task.chunker.size(), null));
+                for (int i = 0; i < task.chunker.size(); i++) {
+                    javaCodes.put(name + "#" + i, task.chunker.getCode(i));
+                }
+            }
+        }
+        if (javaCodes.isEmpty()) {
             return;
+        }
+
+        try {
+            options.getBatchService().run(javaCodes, (id, response) -> {
+                int chunk = id.lastIndexOf('#');
+                MutationTask task = tasks.get(chunk < 0 ? id : id.substring(0, chunk));
+                if (task == null || !task.isPending()) {
+                    return;
+                }
+                task.promptTokens += response.promptTokens();
+                task.completionTokens += response.completionTokens();
+                if (task.chunker == null) {
+                    task.response = response.content();
+                } else {
+                    task.chunkResponses.set(Integer.parseInt(id.substring(chunk + 1)), response.content());
+                    if (task.chunkResponses.contains(null)) {
+                        return;
+                    }
+                }
+                finishBatchTask(task);
+            });
+        } catch (IOException e) {
+            logger.error("Batch failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Batch interrupted");
+        }
+
+        // files the batch gave no (complete) answer for
+        for (MutationTask task : tasks.values()) {
+            if (task.isPending() && task.response == null && (task.chunkResponses == null || task.chunkResponses.contains(null))) {
+                fail(task, "No Mutation response returned for " + task.file.getName());
+            }
+        }
+    }
+
+    private void finishBatchTask(MutationTask task) {
+        extractMutation(task);
+        if (task.isPending()) {
+            try {
+                writeMutation(task);
+            } catch (IOException e) {
+                fail(task, "Failed to write mutation for " + task.file.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return packer for small files, null when packing is off
+     */
+    FilePacker newPacker() {
+        return options.getPackTokens() > 0 ? new FilePacker(options.getPackTokens(), this::relativeName) : null;
+    }
+
+    /**
+     * Parse stage: reads the licence header and the comment free code of a file.
+     * @param file file to be mutated
+     * @return task carrying the file through the remaining stages
+     */
+    MutationTask prepareTask(File file) {
+        MutationTask task = new MutationTask(file);
+        if (cancelled) {
+            skipCancelled(task);
+            return task;
+        }
+        long start = System.nanoTime();
+        try {
+            task.source = ParsedSource.read(file);
+        } catch (IOException e) {
+            fail(task, "Error reading file: " + e.getMessage());
+            return task;
+        }
+        task.sourceHash = task.source.getHash();
+        if (options.isResume() && resumeCompleted(task)) {
+            return task;
+        }
+
+        long headerStart = System.nanoTime();
+        task.header = task.source.getHeader(options.getHeaderDetector());
+        finishStage("header", task, headerStart);
+        task.javaCode = readJavaCodeWithoutComments(task.source);
+        finishStage("parse", task, start);
+
+        if (task.javaCode.isEmpty()) {
+            fail(task, "No valid Java code found in " + file.getName());
         } else {
             logger.log("Java code extracted from " + file.getName());
+            admit(task);
         }
+        return task;
+    }
 
-        // Generate and print mutated code
-        String mutatedCode = openAIService.askOpenAI(javaCode);
+    /**
+     * Admission control: counts the tokens of a task before it is sent.
+     * A class longer than the configured chunk size, or too large for a single request, is split into method groups;
+     * a class that does not fit the model even in chunks is rejected.
+     * @param task prepared task with a parsed source
+     */
+    private void admit(MutationTask task) {
+        task.codeTokens = budget.codeTokens(task.javaCode);
+        int promptTokens = budget.promptTokens(task.javaCode);
+        int outputTokens = budget.projectedOutputTokens(task.javaCode);
+        boolean fits = budget.fits(promptTokens, outputTokens);
+        long lines = task.javaCode.lines().count();
+        int configured = options.getChunkLines() > 0 ? options.getChunkLines() : Integer.MAX_VALUE;
+        // an oversized class aims at half the output limit per chunk, the skeleton of the class comes on top
+        int chunkLines = fits ? configured : (int) Math.min(configured,
+                Math.max(1, lines * (budget.outputLimit(0) / 2) / Math.max(1, outputTokens)));
+        if (lines > chunkLines) {
+            task.source.getCompilationUnit().ifPresent(unit -> {
+                ClassChunker chunker = new ClassChunker(unit, chunkLines);
+                if (chunker.size() > 1) {
+                    task.chunker = chunker;
+                    logger.log(task.file.getName() + " split into " + chunker.size() + " chunks...");
+                }
+            });
+        }
+        if (fits || task.chunker != null && chunksFit(task.chunker)) {
+            return;
+        }
+        task.chunker = null;
+        fail(task, task.file.getName() + " needs about " + (promptTokens + outputTokens)
+                + " tokens and exceeds the limits of the model, skipped...");
+    }
+
+    private boolean chunksFit(ClassChunker chunker) {
+        for (int i = 0; i < chunker.size(); i++) {
+            String code = chunker.getCode(i);
+            if (!budget.fits(budget.promptTokens(code), budget.projectedOutputTokens(code))) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        if (!mutatedCode.isEmpty()) {
-            String extractedJavaCode = extractJavaCodeFromResponse(mutatedCode);
-            if (!extractedJavaCode.isEmpty()) {
-                Path relativePath = rootDir.relativize(file.toPath());
-                Path outputFilePath = outputDir.toPath().resolve(relativePath);
+    /**
+     * Skips a file that an earlier run already mutated from the same source content.
+     * @param task task with the hash of its source
+     * @return true when the file was finished earlier and its output still exists
+     */
+    private boolean resumeCompleted(MutationTask task) {
+        String relativePath = rootDir.relativize(task.file.toPath()).toString();
+        RunManifest.Entry entry = manifest.findCompleted(relativePath, task.sourceHash);
+        if (entry == null || !Files.exists(outputDir.toPath().resolve(entry.output()))) {
+            return false;
+        }
+        mutationOperators.put(relativePath, entry.mutators());
+        task.skipped = true;
+        progress.finished(ProgressListener.Type.SKIPPED, relativePath, "", 0, 0);
+        options.getMetrics().increment("files_total", "status", "skipped");
+        logger.log("Skipping " + task.file.getName() + ", already mutated in an earlier run");
+        return true;
+    }
 
-                // Create parent dirs if it doesn't exist
-                Files.createDirectories(outputFilePath.getParent());
-                saveToFile(javaHeader + extractedJavaCode, outputFilePath.toString());
+    /**
+     * LLM stage: sends the code of the task to the LLM service.
+     * @param task prepared task
+     */
+    void requestMutation(MutationTask task) {
+        if (!cancelled && task.members == null) {
+            progress.started(relativeName(task.file));
+        }
+        sendRequest(task);
+    }
 
-                mutationOperators.put(relativePath.toString(),getAppliedMutators(extractedJavaCode));
+    /**
+     * Sends the request of a task whose start was already reported, also for a file retried after its pack.
+     * @param task prepared task
+     */
+    private void sendRequest(MutationTask task) {
+        if (cancelled) {
+            skipCancelled(task);
+            return;
+        }
+        try {
+            if (task.members != null) {
+                requestPack(task);
+            } else if (task.chunker != null) {
+                requestChunks(task);
+            } else if (options.isStreaming()) {
+                streamMutation(task);
             } else {
-                logger.error("Java code block not found in response. LLM Mutation for " + file.getName() + " failed...");
+                LLMApiService.Response response = openAIService.askOpenAIAsync(task.javaCode).join();
+                task.response = response.content();
+                task.promptTokens = response.promptTokens();
+                task.completionTokens = response.completionTokens();
             }
-        } else {
-            logger.error("No Mutation response returned for " + file.getName());
+        } catch (CompletionException e) {
+            if (cancelled && e.getCause() instanceof CancellationException) {
+                skipCancelled(task);
+            } else {
+                fail(task, "LLM request for " + task.file.getName() + " failed: " + e.getCause().getMessage());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            fail(task, "Failed to save mutated code to file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends all chunks of a task at once and waits for the last answer.
+     * Chunks are not streamed, the file is only complete once every chunk has been spliced back.
+     * @param task chunked task
+     */
+    private void requestChunks(MutationTask task) {
+        List<CompletableFuture<LLMApiService.Response>> requests = new ArrayList<>();
+        for (int i = 0; i < task.chunker.size(); i++) {
+            requests.add(openAIService.askOpenAIAsync(task.chunker.getCode(i)));
+        }
+        task.chunkResponses = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                LLMApiService.Response response = requests.get(i).join();
+                task.chunkResponses.add(response.content());
+                task.promptTokens += response.promptTokens();
+                task.completionTokens += response.completionTokens();
+            } catch (CompletionException e) {
+                task.chunkResponses.add("Error: " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends a pack of small files and hands every file its section of the answer.
+     * Files missing from the answer, or all files when the pack request failed, are requested again on their own.
+     * @param pack task holding the member files
+     */
+    private void requestPack(MutationTask pack) {
+        logger.log("Sending " + pack.members.size() + " packed files in one request...");
+        pack.members.forEach(member -> progress.started(relativeName(member.file)));
+        Map<String, String> sections = Map.of();
+        try {
+            LLMApiService.Response response = openAIService.askOpenAIAsync(pack.javaCode).join();
+            if (!response.content().startsWith("Error: ")) {
+                sections = FilePacker.unpack(response.content());
+            }
+            int packedTokens = Math.max(1, pack.members.stream().mapToInt(member -> member.codeTokens).sum());
+            for (MutationTask member : pack.members) {
+                member.promptTokens = (int) ((long) response.promptTokens() * member.codeTokens / packedTokens);
+                member.completionTokens = (int) ((long) response.completionTokens() * member.codeTokens / packedTokens);
+            }
+        } catch (CompletionException e) {
+            logger.error("LLM request for packed files failed: " + e.getCause().getMessage());
+        }
+
+        List<CompletableFuture<Void>> retries = new ArrayList<>();
+        for (MutationTask member : pack.members) {
+            String section = sections.get(relativeName(member.file));
+            if (section != null && section.contains("```java")) {
+                member.response = section;
+            } else {
+                logger.log(member.file.getName() + " missing from packed answer, retrying on its own...");
+                retries.add(CompletableFuture.runAsync(() -> sendRequest(member), Thread::startVirtualThread));
+            }
+        }
+        retries.forEach(CompletableFuture::join);
+    }
+
+    /**
+     * Streams the answer and writes its code block straight into the output file while it is generated.
+     * The code goes to a partial file first, which replaces the output file once the closing fence arrived.
+     * @param task prepared task
+     * @throws IOException if the output file can not be written
+     */
+    private void streamMutation(MutationTask task) throws IOException {
+        Path outputFilePath = resolveOutputPath(task.file);
+        Files.createDirectories(outputFilePath.getParent());
+        Path partialPath = outputFilePath.resolveSibling(outputFilePath.getFileName() + ".part");
+
+        StreamingCodeExtractor extractor;
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(partialPath)) {
+                writer.write(task.header);
+                extractor = new StreamingCodeExtractor(writer);
+                LLMApiService.Response response = openAIService.askOpenAIStreaming(task.javaCode, extractor::accept).join();
+                task.response = response.content();
+                task.promptTokens = response.promptTokens();
+                task.completionTokens = response.completionTokens();
+            }
+            if (extractor.isComplete()) {
+                Files.move(partialPath, outputFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                task.mutatedCode = extractor.getCode();
+                task.written = true;
+                logger.log("Mutated Java code streamed to: " + outputFilePath);
+            }
+        } finally {
+            Files.deleteIfExists(partialPath);
+        }
+    }
+
+    /**
+     * Extract stage: pulls the mutated Java code block out of the LLM response, drops it when it is equivalent to the
+     * original or to an earlier mutant, and compiles it when a {@link MutantCompiler} is set.
+     * @param task task with a response
+     */
+    void extractMutation(MutationTask task) {
+        if (task.members != null) {
+            task.members.stream().filter(MutationTask::isPending).forEach(this::extractMutation);
+            return;
+        }
+        long start = System.nanoTime();
+        if (!task.written) {
+            extractCode(task);
+        }
+        if (mutantFilter != null && task.isPending()) {
+            filterMutation(task);
+        }
+        finishStage("extract", task, start);
+        if (options.getCompiler() != null && task.isPending()) {
+            long compileStart = System.nanoTime();
+            validateMutation(task);
+            finishStage("compile", task, compileStart);
+        }
+        if (options.isFirstOrder() && task.isPending()) {
+            long splitStart = System.nanoTime();
+            splitMutation(task);
+            finishStage("split", task, splitStart);
+        }
+    }
+
+    /**
+     * Splits the mutant into first-order mutants with one change each, keeping only those that compile when a
+     * {@link MutantCompiler} is set.
+     * @param task task with extracted mutated code
+     */
+    private void splitMutation(MutationTask task) {
+        Optional<CompilationUnit> original = task.source.getCompilationUnit();
+        Optional<CompilationUnit> mutated = ParsedSource.of(task.file, task.mutatedCode).getCompilationUnit();
+        if (original.isEmpty() || mutated.isEmpty()) {
+            logger.error(task.file.getName() + " can not be split into first-order mutants, it does not parse");
+            return;
+        }
+        List<FirstOrderSplitter.Mutant> mutants = FirstOrderSplitter.split(original.get(), mutated.get());
+        if (options.getCompiler() != null) {
+            String name = relativeName(task.file);
+            List<CompletableFuture<List<String>>> errors = mutants.stream()
+                    .map(mutant -> options.getCompiler().compile(name, task.header + mutant.code(), task.source.getContent()))
+                    .toList();
+            List<FirstOrderSplitter.Mutant> compiling = new ArrayList<>();
+            for (int i = 0; i < mutants.size(); i++) {
+                if (errors.get(i).join().isEmpty()) {
+                    compiling.add(mutants.get(i));
+                }
+            }
+            if (compiling.size() < mutants.size()) {
+                logger.log((mutants.size() - compiling.size()) + " first-order mutant(s) of " + task.file.getName()
+                        + " do not compile, rejected");
+            }
+            mutants = compiling;
+        }
+        task.firstOrderMutants = mutants;
+        logger.log(task.file.getName() + " split into " + mutants.size() + " first-order mutant(s)...");
+    }
+
+    /**
+     * Drops a mutant that only differs from the original, or from the mutant of another file, in comments,
+     * formatting or import order.
+     * @param task task with extracted mutated code
+     */
+    private void filterMutation(MutationTask task) {
+        String name = relativeName(task.file);
+        String reason = mutantFilter.check(task.source, name, task.mutatedCode);
+        if (reason == null) {
+            return;
+        }
+        deleteWrittenMutant(task);
+        logger.log("Mutant of " + task.file.getName() + " dropped, " + reason);
+        task.dropped = true;
+        droppedMutants.put(name, reason);
+        progress.finished(ProgressListener.Type.DROPPED, name, reason, task.promptTokens, task.completionTokens);
+        options.getMetrics().increment("files_total", "status", "dropped");
+        recordInManifest(task, RunManifest.Status.DROPPED, "", "");
+    }
+
+    private void extractCode(MutationTask task) {
+        if (task.chunker != null) {
+            extractChunks(task);
+            return;
+        }
+        if (task.response == null || task.response.isEmpty()) {
+            fail(task, "No Mutation response returned for " + task.file.getName());
+            return;
+        }
+        if (task.response.startsWith("Error: ")) {
+            fail(task, "LLM request for " + task.file.getName() + " failed: " + task.response.substring("Error: ".length()));
+            return;
+        }
+        task.mutatedCode = extractJavaCodeFromResponse(task.response);
+        if (task.mutatedCode.isEmpty()) {
+            fail(task, "Java code block not found in response. LLM Mutation for " + task.file.getName() + " failed...");
+        }
+    }
+
+    /**
+     * Rejects a mutant that does not compile; a mutant already streamed to the output is deleted again.
+     * @param task task with extracted mutated code
+     */
+    private void validateMutation(MutationTask task) {
+        List<String> errors = options.getCompiler()
+                .compile(relativeName(task.file), task.header + task.mutatedCode, task.source.getContent()).join();
+        if (errors.isEmpty()) {
+            return;
+        }
+        deleteWrittenMutant(task);
+        fail(task, "Mutant of " + task.file.getName() + " does not compile, " + errors.size() + " error(s), first at "
+                + errors.getFirst());
+    }
+
+    /**
+     * Removes the output of a streamed mutant that is rejected after it was written.
+     */
+    private void deleteWrittenMutant(MutationTask task) {
+        if (task.written) {
+            try {
+                Files.deleteIfExists(resolveOutputPath(task.file));
+            } catch (IOException e) {
+                logger.error("Failed to delete " + task.file.getName() + " mutant: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Splices the mutated methods of every usable chunk answer back into the class.
+     * Methods of chunks without a usable answer stay unchanged; the file fails only when no chunk could be used.
+     * @param task chunked task with one response per chunk
+     */
+    private void extractChunks(MutationTask task) {
+        int usable = 0;
+        for (int i = 0; i < task.chunkResponses.size(); i++) {
+            String response = task.chunkResponses.get(i);
+            String code = response == null || response.startsWith("Error: ") ? "" : extractJavaCodeFromResponse(response);
+            int replaced = code.isEmpty() ? 0 : task.chunker.splice(i, code);
+            if (replaced > 0) {
+                usable++;
+            } else {
+                logger.error("Chunk " + (i + 1) + "/" + task.chunkResponses.size() + " of " + task.file.getName()
+                        + " could not be used" + (response != null && response.startsWith("Error: ") ? ": " + response.substring("Error: ".length()) : ""));
+            }
+        }
+        if (usable == 0) {
+            fail(task, "Java code block not found in response. LLM Mutation for " + task.file.getName() + " failed...");
+            return;
+        }
+        task.mutatedCode = task.chunker.print().trim();
+    }
+
+    /**
+     * Write stage: saves the mutated code and records the applied mutators.
+     * @param task task with extracted mutated code
+     * @throws IOException if the output directories can not be created
+     */
+    void writeMutation(MutationTask task) throws IOException {
+        if (task.members != null) {
+            for (MutationTask member : task.members) {
+                if (member.isPending()) {
+                    writeMutation(member);
+                }
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        Path relativePath = rootDir.relativize(task.file.toPath());
+
+        if (!task.written) {
+            Path outputFilePath = resolveOutputPath(task.file);
+
+            // Create parent dirs if it doesn't exist
+            Files.createDirectories(outputFilePath.getParent());
+            saveToFile(task.header + task.mutatedCode, outputFilePath.toString());
+        }
+
+        String mutators = getAppliedMutators(task.mutatedCode);
+        mutationOperators.put(relativePath.toString(), mutators);
+        writeFirstOrderMutants(task);
+        if (options.getKillChecker() != null && task.firstOrderMutants.isEmpty()) {
+            checkKill(task, relativePath.toString(), task.header + task.mutatedCode);
+        }
+        recordInManifest(task, RunManifest.Status.DONE, relativePath.toString(), mutators);
+        options.getMetrics().increment("files_total", "status", "done");
+        progress.finished(ProgressListener.Type.DONE, relativePath.toString(), "", task.promptTokens, task.completionTokens);
+        finishStage("write", task, start);
+    }
+
+    /**
+     * Saves every first-order mutant of a file as first-order/&lt;file path without .java&gt;/&lt;site&gt;/&lt;file name&gt;,
+     * below the output directory, and reports the operator of each.
+     * @param task task with split mutated code
+     * @throws IOException if a mutant can not be written
+     */
+    private void writeFirstOrderMutants(MutationTask task) throws IOException {
+        if (task.firstOrderMutants.isEmpty()) {
+            return;
+        }
+        String relativePath = relativeName(task.file);
+        Path directory = outputDir.toPath().resolve("first-order")
+                .resolve(relativePath.substring(0, relativePath.length() - ".java".length()));
+        for (FirstOrderSplitter.Mutant mutant : task.firstOrderMutants) {
+            Path path = directory.resolve(String.valueOf(mutant.site())).resolve(task.file.getName());
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, task.header + mutant.code());
+            String outputPath = outputDir.toPath().relativize(path).toString();
+            mutationOperators.put(outputPath, mutant.operators());
+            if (options.getKillChecker() != null) {
+                checkKill(task, outputPath, task.header + mutant.code());
+            }
+        }
+        logger.log(task.firstOrderMutants.size() + " first-order mutant(s) saved to: " + directory);
+    }
+
+    /**
+     * Records the time a stage took for a file in the run metrics and logs it as a debug event.
+     */
+    private void finishStage(String stage, MutationTask task, long startNanos) {
+        options.getMetrics().stage(stage, startNanos);
+        logger.event(LogLevel.DEBUG, stage, task.file.getName(), System.nanoTime() - startNanos, "Stage finished");
+    }
+
+    /**
+     * Appends the outcome of a task to the run manifest.
+     */
+    private void recordInManifest(MutationTask task, RunManifest.Status status, String output, String mutators) {
+        if (manifest == null || task.sourceHash == null) {
+            return;
+        }
+        try {
+            manifest.record(new RunManifest.Entry(rootDir.relativize(task.file.toPath()).toString(), task.sourceHash,
+                    output, status, task.promptTokens, task.completionTokens, mutators));
+        } catch (IOException e) {
+            logger.error("Failed to update " + RunManifest.FILE_NAME + ": " + e.getMessage());
+        }
+    }
+
+    private void closeManifest() {
+        if (manifest != null) {
+            try {
+                manifest.close();
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @param file source file
+     * @return path of the file relative to the run root
+     */
+    String relativeName(File file) {
+        return rootDir.relativize(file.toPath()).toString();
+    }
+
+    /**
+     * @param file source file
+     * @return location of the mutated file, mirroring the source tree below the output directory
+     */
+    private Path resolveOutputPath(File file) {
+        return outputDir.toPath().resolve(rootDir.relativize(file.toPath()));
+    }
+
+    /**
+     * Stops the run: files not yet sent to the LLM are skipped, requests in flight are finished and written.
+     * Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void skipCancelled(MutationTask task) {
+        if (task.members != null) {
+            task.members.stream().filter(MutationTask::isPending).forEach(this::skipCancelled);
+            return;
+        }
+        task.skipped = true;
+        options.getMetrics().increment("files_total", "status", "cancelled");
+        progress.finished(ProgressListener.Type.SKIPPED, relativeName(task.file), "cancelled", 0, 0);
+    }
+
+    /**
+     * Marks a task as failed so the remaining stages skip it, and remembers the file for the run summary.
+     * @param task failed task
+     * @param message reason logged as error
+     */
+    void fail(MutationTask task, String message) {
+        if (task.members != null) {
+            task.members.stream().filter(MutationTask::isPending).forEach(member -> fail(member, message));
+            return;
+        }
+        logger.error(message);
+        task.failed = true;
+        options.getMetrics().increment("files_total", "status", "failed");
+        failedFiles.add(relativeName(task.file));
+        progress.finished(ProgressListener.Type.FAILED, relativeName(task.file), message, task.promptTokens, task.completionTokens);
+        recordInManifest(task, RunManifest.Status.FAILED, "", "");
+    }
+
+    /**
+     * State of a single file, or of a pack of small files, while it moves through the mutation stages.
+     * Each field is written by one stage and handed to the next one through a queue.
+     */
+    static final class MutationTask {
+        final File file;
+        final List<MutationTask> members;
+        ParsedSource source;
+        ClassChunker chunker;
+        List<String> chunkResponses;
+        String header = "";
+        String javaCode = "";
+        String sourceHash;
+        String response;
+        int promptTokens;
+        int completionTokens;
+        String mutatedCode = "";
+        List<FirstOrderSplitter.Mutant> firstOrderMutants = List.of();
+        boolean written;
+        boolean skipped;
+        boolean failed;
+        boolean dropped;
+
+        int codeTokens;
+
+        MutationTask(File file) {
+            this.file = file;
+            this.members = null;
+        }
+
+        /**
+         * @param members files sent together in one request
+         */
+        MutationTask(List<MutationTask> members) {
+            this.file = null;
+            this.members = members;
+        }
+
+        boolean isPending() {
+            if (members != null) {
+                return members.stream().anyMatch(MutationTask::isPending);
+            }
+            return !failed && !skipped && !dropped;
+        }
+
+        /**
+         * @return number of files the task stands for
+         */
+        int size() {
+            return members == null ? 1 : members.size();
+        }
+
+        /**
+         * @return file name, or a description of the pack
+         */
+        String getName() {
+            return members == null ? file.getName() : "pack of " + members.size() + " files";
         }
     }
 }
@@ -0,0 +1,297 @@
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+import com.github.javaparser.ast.comments.LineComment;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.metamodel.PropertyMetaModel;
+import com.github.javaparser.printer.DefaultPrettyPrinter;
+import com.github.javaparser.printer.DefaultPrettyPrinterVisitor;
+import com.github.javaparser.printer.configuration.DefaultConfigurationOption;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration.ConfigOption;
+import com.github.javaparser.printer.configuration.PrinterConfiguration;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Splits a mutated class, which holds every mutation the model made, into first-order mutants with one change each.
+ * <p>
+ * Original and mutant are compared property by property over their syntax trees, comments ignored. A node whose
+ * class, attributes or number of children differ is a change site, and its subtree is not looked into further.
+ * Every first-order mutant is the original with the node of one site replaced by its mutated version; it takes the
+ * imports of the mutant, so code added by the model still resolves. The operator comment of a site is the comment
+ * nearest to it in the mutant, or the matching part of it when the comment names several sites, and is printed
+ * above the statement of the site. Sites are printed in parallel, every worker on its own copy of the original.
+ */
+public class FirstOrderSplitter {
+    /**
+     * Sites printed by one worker, which copies the original once for all of them.
+     */
+    static final int SITES_PER_WORKER = 64;
+
+    /**
+     * @param site number of the change site, from 1 in source order
+     * @param code the original with this site mutated
+     * @param operators operator comment of the site, empty when the model left none
+     */
+    public record Mutant(int site, String code, String operators) {
+    }
+
+    /**
+     * @param path properties leading from the root of the original to the changed node
+     * @param replacement mutated version of the node, without comments
+     */
+    private record Site(List<Step> path, Node replacement, String operators) {
+    }
+
+    /**
+     * One step down the tree: a property of a node, and the index in it when the property is a list. Unlike the
+     * index among all children, it stays valid when a child is replaced.
+     */
+    private record Step(PropertyMetaModel property, int index) {
+
+        Node follow(Node node) {
+            Object value = property.getValue(node);
+            if (value instanceof Optional<?> optional) {
+                value = optional.orElseThrow();
+            }
+            return index < 0 ? (Node) value : ((NodeList<?>) value).get(index);
+        }
+    }
+
+    private FirstOrderSplitter() {
+    }
+
+    /**
+     * @param original parsed original, left unchanged
+     * @param mutated parsed mutant, left unchanged
+     * @return one mutant per change site, in source order; empty when the trees do not differ
+     */
+    public static List<Mutant> split(CompilationUnit original, CompilationUnit mutated) {
+        CompilationUnit base = original.clone();
+        removeComments(base);
+        CompilationUnit changed = mutated.clone();
+        Map<Node, String> comments = collectComments(changed);
+        removeComments(changed);
+
+        List<Node[]> changes = new ArrayList<>();
+        diff(base, changed, changes);
+        List<Site> sites = describe(changes, comments);
+
+        NodeList<ImportDeclaration> imports = changed.getImports();
+        int workers = (sites.size() + SITES_PER_WORKER - 1) / SITES_PER_WORKER;
+        return IntStream.range(0, workers).parallel()
+                .mapToObj(worker -> print(base, imports, sites, worker * SITES_PER_WORKER,
+                        Math.min(sites.size(), (worker + 1) * SITES_PER_WORKER)))
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    /**
+     * Walks both trees in step and collects the pairs of nodes that differ in more than their children.
+     */
+    private static void diff(Node original, Node mutated, List<Node[]> changes) {
+        if (original.getClass() != mutated.getClass()) {
+            changes.add(new Node[]{original, mutated});
+            return;
+        }
+        List<Node[]> children = new ArrayList<>();
+        for (PropertyMetaModel property : original.getMetaModel().getAllPropertyMetaModels()) {
+            String name = property.getName();
+            if (name.equals("comment") || original instanceof CompilationUnit && name.equals("imports")) {
+                continue;
+            }
+            Object before = property.getValue(original);
+            Object after = property.getValue(mutated);
+            if (before instanceof Optional<?> optional) {
+                before = optional.orElse(null);
+                after = ((Optional<?>) after).orElse(null);
+            }
+            if (property.isNodeList()) {
+                NodeList<?> beforeList = before == null ? new NodeList<>() : (NodeList<?>) before;
+                NodeList<?> afterList = after == null ? new NodeList<>() : (NodeList<?>) after;
+                if (beforeList.size() != afterList.size()) {
+                    changes.add(new Node[]{original, mutated});
+                    return;
+                }
+                for (int i = 0; i < beforeList.size(); i++) {
+                    children.add(new Node[]{beforeList.get(i), afterList.get(i)});
+                }
+            } else if (property.isNode()) {
+                if ((before == null) != (after == null)) {
+                    changes.add(new Node[]{original, mutated});
+                    return;
+                }
+                if (before != null) {
+                    children.add(new Node[]{(Node) before, (Node) after});
+                }
+            } else if (!Objects.equals(before, after)) {
+                changes.add(new Node[]{original, mutated});
+                return;
+            }
+        }
+        for (Node[] child : children) {
+            if (!child[0].equals(child[1])) {
+                diff(child[0], child[1], changes);
+            }
+        }
+    }
+
+    /**
+     * Maps every change to its path and operator comment. Changes below one comment share it, split at "; " when
+     * it has one part per change.
+     */
+    private static List<Site> describe(List<Node[]> changes, Map<Node, String> comments) {
+        Map<Node, List<Integer>> byOwner = new IdentityHashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            Node owner = commentOwner(changes.get(i)[1], comments);
+            if (owner != null) {
+                byOwner.computeIfAbsent(owner, key -> new ArrayList<>()).add(i);
+            }
+        }
+        String[] operators = new String[changes.size()];
+        Arrays.fill(operators, "");
+        byOwner.forEach((owner, indexes) -> {
+            String comment = comments.get(owner);
+            String[] parts = comment.split("; ");
+            for (int i = 0; i < indexes.size(); i++) {
+                operators[indexes.get(i)] = parts.length == indexes.size() ? parts[i] : comment;
+            }
+        });
+        List<Site> sites = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            sites.add(new Site(path(changes.get(i)[0]), changes.get(i)[1], operators[i]));
+        }
+        return sites;
+    }
+
+    /**
+     * @return the node nearest to the change carrying a comment, not looking beyond the enclosing type
+     */
+    private static Node commentOwner(Node node, Map<Node, String> comments) {
+        for (Node current = node; current != null; current = current.getParentNode().orElse(null)) {
+            if (comments.containsKey(current)) {
+                return current;
+            }
+            if (current instanceof TypeDeclaration<?> || current instanceof CompilationUnit) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Comments by the node they describe; orphan comments count for their enclosing node.
+     */
+    private static Map<Node, String> collectComments(CompilationUnit unit) {
+        Map<Node, String> comments = new IdentityHashMap<>();
+        for (Comment comment : unit.getAllContainedComments()) {
+            Node owner = comment.getCommentedNode().orElse(comment.getParentNode().orElse(null));
+            String text = comment.getContent().lines().map(line -> line.strip().replaceFirst("^\\*\\s*", ""))
+                    .filter(line -> !line.isEmpty()).collect(Collectors.joining(" "));
+            if (owner != null && !text.isEmpty()) {
+                comments.merge(owner, text, (first, second) -> first + "; " + second);
+            }
+        }
+        return comments;
+    }
+
+    private static void removeComments(CompilationUnit unit) {
+        unit.getAllContainedComments().forEach(Comment::remove);
+        unit.removeComment();
+    }
+
+    private static List<Step> path(Node node) {
+        Deque<Step> path = new ArrayDeque<>();
+        for (Node current = node; current.getParentNode().isPresent(); current = current.getParentNode().get()) {
+            path.push(step(current.getParentNode().get(), current));
+        }
+        return List.copyOf(path);
+    }
+
+    private static Step step(Node parent, Node child) {
+        for (PropertyMetaModel property : parent.getMetaModel().getAllPropertyMetaModels()) {
+            Object value = property.getValue(parent);
+            if (value instanceof Optional<?> optional) {
+                value = optional.orElse(null);
+            }
+            if (value == child) {
+                return new Step(property, -1);
+            }
+            if (value instanceof NodeList<?> list) {
+                for (int i = 0; i < list.size(); i++) {
+                    if (list.get(i) == child) {
+                        return new Step(property, i);
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("Node not found in its parent: " + child);
+    }
+
+    /**
+     * Prints the mutants of a range of sites from one copy of the original, putting every site back after printing.
+     */
+    private static List<Mutant> print(CompilationUnit base, NodeList<ImportDeclaration> imports, List<Site> sites,
+                                      int from, int to) {
+        CompilationUnit copy = base.clone();
+        copy.setImports(new NodeList<>(imports.stream().map(ImportDeclaration::clone).toList()));
+        DefaultPrettyPrinter printer = operatorCommentPrinter();
+        List<Mutant> mutants = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Site site = sites.get(i);
+            Node node = copy;
+            for (Step step : site.path()) {
+                node = step.follow(node);
+            }
+            Node replacement = site.replacement().clone();
+            node.replace(replacement);
+            Node anchor = anchor(replacement);
+            if (!site.operators().isEmpty()) {
+                anchor.setComment(new LineComment(" " + site.operators()));
+            }
+            mutants.add(new Mutant(i + 1, printer.print(copy), site.operators()));
+            anchor.removeComment();
+            replacement.replace(node);
+        }
+        return mutants;
+    }
+
+    /**
+     * Printer of code without comments, apart from the line comments set on nodes. Orphan comments are never looked
+     * for, which the default printer does by sorting the children of every node it prints.
+     */
+    private static DefaultPrettyPrinter operatorCommentPrinter() {
+        PrinterConfiguration configuration = new DefaultPrinterConfiguration()
+                .removeOption(new DefaultConfigurationOption(ConfigOption.PRINT_COMMENTS));
+        return new DefaultPrettyPrinter(config -> new DefaultPrettyPrinterVisitor(config) {
+            @Override
+            protected void printComment(Optional<Comment> comment, Void arg) {
+                comment.ifPresent(present -> present.accept(this, arg));
+            }
+
+            @Override
+            public void visit(LineComment comment, Void arg) {
+                printer.print("//").println(comment.getContent());
+            }
+        }, configuration);
+    }
+
+    /**
+     * @return the statement or declaration holding the node, where the operator comment goes
+     */
+    private static Node anchor(Node node) {
+        Node current = node;
+        while (!(current instanceof Statement) && !(current instanceof BodyDeclaration<?>)
+                && current.getParentNode().isPresent()) {
+            current = current.getParentNode().get();
+        }
+        return current;
+    }
+}
@@ -0,0 +1,303 @@
+import constants.Headers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Finds known licence headers at the top of a source file.
+ * <p>
+ * All headers are compiled once into an Aho-Corasick automaton over their whitespace normalised text, so every run
+ * of whitespace matches any other and a file is scanned in a single pass, whatever the number of headers. Only the
+ * leading comment region is read: scanning stops at the first character of code, or after {@link #MAX_PREFIX}
+ * characters.
+ */
+public class HeaderDetector {
+    /**
+     * Characters read at most from the start of a file.
+     */
+    public static final int MAX_PREFIX = 64 * 1024;
+
+    private static HeaderDetector defaults;
+
+    private final List<String> headers;
+    private final int[] asciiClasses = new int[128];
+    private final Map<Character, Integer> otherClasses = new HashMap<>();
+    private final int classes;
+    /**
+     * next state of every state and character class, states * classes entries
+     */
+    private final int[] transitions;
+    /**
+     * index of the first listed header ending in a state, -1 for none
+     */
+    private final int[] matches;
+
+    /**
+     * @param headers licence headers; when several match a file the first listed one wins
+     */
+    public HeaderDetector(Collection<String> headers) {
+        this.headers = List.copyOf(headers);
+        List<String> patterns = new ArrayList<>();
+        int next = 1;
+        for (String header : this.headers) {
+            String pattern = normalise(header);
+            patterns.add(pattern);
+            for (char c : pattern.toCharArray()) {
+                if (classOf(c) == 0) {
+                    if (c < 128) {
+                        asciiClasses[c] = next++;
+                    } else {
+                        otherClasses.put(c, next++);
+                    }
+                }
+            }
+        }
+        classes = next;
+
+        // trie, with 0 as "no edge" since the root is never a target
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> output = new ArrayList<>();
+        trie.add(new int[classes]);
+        output.add(-1);
+        for (int index = 0; index < patterns.size(); index++) {
+            String pattern = patterns.get(index);
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (char c : pattern.toCharArray()) {
+                int symbol = classOf(c);
+                if (trie.get(state)[symbol] == 0) {
+                    trie.add(new int[classes]);
+                    output.add(-1);
+                    trie.get(state)[symbol] = trie.size() - 1;
+                }
+                state = trie.get(state)[symbol];
+            }
+            if (output.get(state) < 0) {
+                output.set(state, index);
+            }
+        }
+
+        // breadth first over the trie, completing every state's transitions with those of its failure state
+        int states = trie.size();
+        transitions = new int[states * classes];
+        matches = new int[states];
+        int[] failure = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        matches[0] = output.get(0);
+        for (int symbol = 0; symbol < classes; symbol++) {
+            int child = trie.get(0)[symbol];
+            transitions[symbol] = child;
+            if (child != 0) {
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            matches[state] = first(output.get(state), matches[failure[state]]);
+            for (int symbol = 0; symbol < classes; symbol++) {
+                int child = trie.get(state)[symbol];
+                int fallback = transitions[failure[state] * classes + symbol];
+                if (child == 0) {
+                    transitions[state * classes + symbol] = fallback;
+                } else {
+                    transitions[state * classes + symbol] = child;
+                    failure[child] = fallback;
+                    queue[tail++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return detector of the headers declared in {@link Headers}
+     */
+    public static synchronized HeaderDetector defaults() {
+        if (defaults == null) {
+            defaults = new HeaderDetector(Headers.getAllHeaders());
+        }
+        return defaults;
+    }
+
+    /**
+     * Reads user supplied headers: every block comment, and every run of line comments, is one header.
+     * @param file file holding the header comments
+     * @return headers in file order
+     * @throws IOException if the file can not be read
+     */
+    public static List<String> readHeaders(Path file) throws IOException {
+        List<String> headers = new ArrayList<>();
+        StringBuilder comment = new StringBuilder();
+        boolean block = false;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.strip();
+            boolean lineComment = !block && trimmed.startsWith("//");
+            if (!block && !lineComment) {
+                // a block comment or anything else ends a run of line comments
+                flush(comment, headers);
+                block = trimmed.startsWith("/*");
+            }
+            if (block || lineComment) {
+                comment.append(line).append('\n');
+            }
+            if (block && trimmed.endsWith("*/")) {
+                block = false;
+                flush(comment, headers);
+            }
+        }
+        flush(comment, headers);
+        return headers;
+    }
+
+    private static void flush(StringBuilder comment, List<String> headers) {
+        if (!comment.isEmpty()) {
+            headers.add(comment.toString().stripTrailing());
+            comment.setLength(0);
+        }
+    }
+
+    /**
+     * @param content file content
+     * @return the header found followed by a line break, or an empty string
+     */
+    public String detect(CharSequence content) {
+        Scan scan = new Scan();
+        int limit = Math.min(content.length(), MAX_PREFIX);
+        for (int i = 0; i < limit && scan.accept(content.charAt(i)); i++) {
+            // scanned up to the first character of code
+        }
+        return scan.result();
+    }
+
+    /**
+     * Reads the leading comment region of a file, not the whole file.
+     * @param file source file
+     * @return the header found followed by a line break, or an empty string
+     * @throws IOException if the file can not be read
+     */
+    public String detect(File file) throws IOException {
+        Scan scan = new Scan();
+        char[] buffer = new char[4096];
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            int total = 0;
+            int read;
+            while (total < MAX_PREFIX && (read = reader.read(buffer, 0, Math.min(buffer.length, MAX_PREFIX - total))) > 0) {
+                total += read;
+                for (int i = 0; i < read; i++) {
+                    if (!scan.accept(buffer[i])) {
+                        return scan.result();
+                    }
+                }
+            }
+        }
+        return scan.result();
+    }
+
+    /**
+     * State of one scan: position in the comment syntax, the normalised character stream and the automaton.
+     */
+    private final class Scan {
+        private static final int BETWEEN = 0;
+        private static final int SLASH = 1;
+        private static final int LINE = 2;
+        private static final int BLOCK = 3;
+        private static final int BLOCK_STAR = 4;
+
+        private int syntax = BETWEEN;
+        private int state;
+        private boolean pendingSpace;
+        private boolean started;
+        private int best = -1;
+
+        /**
+         * @return false once the character starts code and the comment region has ended
+         */
+        boolean accept(char c) {
+            switch (syntax) {
+                case BETWEEN -> {
+                    if (c == '/') {
+                        syntax = SLASH;
+                    } else if (!Character.isWhitespace(c) && c != '\uFEFF') {
+                        return false;
+                    }
+                }
+                case SLASH -> {
+                    if (c == '/') {
+                        syntax = LINE;
+                    } else if (c == '*') {
+                        syntax = BLOCK;
+                    } else {
+                        return false;
+                    }
+                }
+                case LINE -> {
+                    if (c == '\n' || c == '\r') {
+                        syntax = BETWEEN;
+                    }
+                }
+                case BLOCK -> {
+                    if (c == '*') {
+                        syntax = BLOCK_STAR;
+                    }
+                }
+                default -> {
+                    if (c == '/') {
+                        syntax = BETWEEN;
+                    } else if (c != '*') {
+                        syntax = BLOCK;
+                    }
+                }
+            }
+            feed(c);
+            return true;
+        }
+
+        private void feed(char c) {
+            if (Character.isWhitespace(c) || c == '\uFEFF') {
+                pendingSpace = started;
+                return;
+            }
+            if (pendingSpace) {
+                step(' ');
+                pendingSpace = false;
+            }
+            started = true;
+            step(c);
+        }
+
+        private void step(char c) {
+            state = transitions[state * classes + classOf(c)];
+            best = first(best, matches[state]);
+        }
+
+        String result() {
+            return best < 0 ? "" : headers.get(best) + "\n";
+        }
+    }
+
+    private int classOf(char c) {
+        return c < 128 ? asciiClasses[c] : otherClasses.getOrDefault(c, 0);
+    }
+
+    /**
+     * @return the lower of two header indexes, -1 standing for none
+     */
+    private static int first(int a, int b) {
+        return a < 0 ? b : b < 0 ? a : Math.min(a, b);
+    }
+
+    /**
+     * @return the text with surrounding whitespace removed and every inner run of whitespace replaced by one space
+     */
+    static String normalise(String text) {
+        return text.strip().replaceAll("\\s+", " ");
+    }
+}
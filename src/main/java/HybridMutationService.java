@@ -0,0 +1,81 @@
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Applies the standard operators locally and asks the LLM only for semantic mutants on top of them.
+ * <p>
+ * The model receives the locally mutated class with its operator comments and is told to keep those mutants.
+ * When its answer is unusable the local answer is returned, so a file is never worse off than with the local engine.
+ */
+public class HybridMutationService implements LLMApiService {
+    static final String SEMANTIC_INSTRUCTIONS = """
+            The standard operators are already applied to the class below, every mutant is marked by a comment naming \
+            its operator. Keep these mutants and comments unchanged and only add semantic mutants the operators can \
+            not express, such as swapped arguments, off-by-one indexes, wrong API calls or missing guards, each marked \
+            by a comment describing it.
+            """;
+
+    private final LocalMutationService local;
+    private final LLMApiService llm;
+    private final LoggerService logger;
+
+    public HybridMutationService(LocalMutationService local, LLMApiService llm, LoggerService logger) {
+        this.local = local;
+        this.llm = llm;
+        this.logger = logger;
+    }
+
+    @Override
+    public String askOpenAI(String javaCode) {
+        return askOpenAIAsync(javaCode).join().content();
+    }
+
+    @Override
+    public CompletableFuture<Response> askOpenAIAsync(String javaCode) {
+        return local.askOpenAIAsync(javaCode).thenCompose(localAnswer -> {
+            String content = localAnswer.content();
+            if (content.startsWith("Error: ")) {
+                return CompletableFuture.completedFuture(localAnswer);
+            }
+            String mutated = content.substring("```java\n".length(), content.length() - "\n```".length());
+            return llm.askOpenAIAsync(SEMANTIC_INSTRUCTIONS + "\n" + mutated)
+                    .handle((response, error) -> {
+                        if (error == null && !response.content().startsWith("Error: ") && response.content().contains("```java")) {
+                            return response;
+                        }
+                        logger.error("LLM answer not usable, keeping the local mutants: "
+                                + (error != null ? error.getMessage() : response.content()));
+                        return error == null
+                                ? new Response(content, response.promptTokens(), response.completionTokens(), response.cost())
+                                : localAnswer;
+                    });
+        });
+    }
+
+    @Override
+    public String getModelName() {
+        return llm.getModelName();
+    }
+
+    @Override
+    public String generatePrompt(String javaCode) {
+        return llm.generatePrompt(SEMANTIC_INSTRUCTIONS + "\n" + javaCode);
+    }
+
+    @Override
+    public int getContextWindow() {
+        return llm.getContextWindow();
+    }
+
+    @Override
+    public int getMaxOutputTokens() {
+        return llm.getMaxOutputTokens();
+    }
+
+    @Override
+    public double estimateCost(int promptTokens, int completionTokens) {
+        return llm.estimateCost(promptTokens, completionTokens);
+    }
+}
@@ -1,11 +1,15 @@
 import Interfaces.*;
 import Interfaces.LoggerService;
-import org.apache.http.impl.client.HttpClients;
+import constants.Headers;
+import enums.LogLevel;
 
 import java.io.File;
 import java.nio.file.*;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Stream;
 import java.io.IOException;
 
@@ -15,11 +19,20 @@ import java.io.IOException;
 public class InitProcessor implements ArgumentParser {
     private final String[] args;
     private final LoggerService logger;
+    private final Metrics metrics;
     private Path outputPath;
 
     public InitProcessor(String[] args, LoggerService logger) {
+        this(args, logger, new Metrics());
+    }
+
+    /**
+     * @param metrics metrics the services and the run record into, shared by the jobs of a server
+     */
+    public InitProcessor(String[] args, LoggerService logger, Metrics metrics) {
         this.args = args;
         this.logger = logger;
+        this.metrics = metrics;
     }
 
     @Override
@@ -98,27 +111,569 @@ public class InitProcessor implements ArgumentParser {
         return model;
     }
 
+    /**
+     * reads the maximum number of LLM requests in flight
+     * @return parallelism, 1 when the files should be mutated one after another
+     */
+    @Override
+    public int getParallelism() {
+        long defaultParallelism = getEngine().equals("local") ? Runtime.getRuntime().availableProcessors() : 1;
+        return (int) Math.max(1, readNumber("-parallel", defaultParallelism));
+    }
+
+    /**
+     * reads the mutation engine: {@code llm} sends every file to the model, {@code local} applies the standard
+     * operators offline and {@code hybrid} applies them locally and asks the model for semantic mutants only
+     * @return engine name, llm by default
+     */
+    public String getEngine() {
+        String engine = "llm";
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("-engine".equalsIgnoreCase(args[i])) {
+                engine = args[i + 1].trim().toLowerCase();
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * collects the options of the mutation run
+     * @return options for the file processor
+     */
+    public MutationOptions getMutationOptions() {
+        return new MutationOptions()
+                .setParallelism(getParallelism())
+                .setStreaming(hasFlag("-stream"))
+                .setResume(hasFlag("-resume"))
+                .setChunkLines((int) readNumber("-chunk-lines", 0))
+                .setPackTokens(getEngine().equals("llm") ? (int) readNumber("-pack", 0) : 0)
+                .setTokenizer(getTokenizer())
+                .setHeaderDetector(getHeaderDetector())
+                .setDropEquivalent(!hasFlag("-keep-equivalent"))
+                .setFirstOrder(hasFlag("-first-order"))
+                .setMetrics(metrics);
+    }
+
     @Override
     public LLMApiService createAPIService() {
+        String engine = getEngine();
+        if (engine.equals("local")) {
+            logger.log("Using local mutation engine");
+            return new LocalMutationService(logger);
+        }
+        if (!engine.equals("llm") && !engine.equals("hybrid")) {
+            logger.error("Unsupported engine: " + engine);
+            return null;
+        }
         LLMApiService apiService = null;
         String model = getModel().trim().toLowerCase();
         logger.log("Using LLM model: " + model);
 
         if (model.equals("gpt4omini")) {
             String apiKey = System.getenv("OPENAI_API_KEY");
-            if (apiKey != null && !apiKey.trim().isEmpty()) {
+            if (apiKey == null && isDryRun()) {
+                apiKey = ""; // a dry run sends no request
+            }
+            if (apiKey != null && !apiKey.trim().isEmpty() || isDryRun()) {
+                int poolSize = getParallelism();
                 apiService = new OpenAIService("gpt-4o-mini"
                         , apiKey
-                        , "https://api.openai.com/v1/chat/completions"
-                        , HttpClients.createDefault()
+                        , getApiBase() + "/chat/completions"
+                        , () -> SharedHttpClient.get(poolSize)
+                        , new RequestScheduler(getRequestsPerMinute(), getTokensPerMinute(), 6, logger)
+                        , metrics
                         , logger);
             } else {
                 logger.error("API Key not found in Environment Variables");
             }
         }
+
+        Path cacheDir = getCacheDirectory();
+        if (apiService != null && cacheDir != null) {
+            try {
+                DiskResponseCache cache = new DiskResponseCache(cacheDir, getCacheSizeMegabytes() * 1024 * 1024);
+                logger.log("Using LLM response cache at " + cacheDir.toAbsolutePath() + " (" + cache.size() + " entries)");
+                apiService = new CachingLLMService(apiService, cache, logger);
+            } catch (IOException e) {
+                logger.error("LLM response cache disabled: " + e.getMessage());
+            }
+        }
+        if (apiService != null && engine.equals("hybrid")) {
+            logger.log("Applying the standard operators locally, the LLM adds semantic mutants");
+            apiService = new HybridMutationService(new LocalMutationService(logger), apiService, logger);
+        }
         return apiService;
     }
 
+    /**
+     * reads the base URL of the API, so a compatible or local endpoint can stand in for OpenAI
+     * @return base URL without trailing slash
+     */
+    public String getApiBase() {
+        String apiBase = "https://api.openai.com/v1";
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("-api-base".equalsIgnoreCase(args[i])) {
+                apiBase = args[i + 1];
+            }
+        }
+        return apiBase.endsWith("/") ? apiBase.substring(0, apiBase.length() - 1) : apiBase;
+    }
+
+    /**
+     * @return true when all files should be sent as one Batch API job, which only the llm engine does
+     */
+    public boolean isBatch() {
+        return hasFlag("-batch") && getEngine().equals("llm");
+    }
+
+    /**
+     * creates the batch service for {@code -batch} runs
+     * @param prompts service generating the prompts of the batch requests
+     * @return batch service, or null when no API key is set
+     */
+    public OpenAIBatchService createBatchService(LLMApiService prompts) {
+        String apiKey = System.getenv("OPENAI_API_KEY");
+        if (apiKey == null || apiKey.trim().isEmpty()) {
+            logger.error("API Key not found in Environment Variables");
+            return null;
+        }
+        return new OpenAIBatchService(prompts, apiKey, getApiBase(), SharedHttpClient.get(getParallelism()),
+                Duration.ofSeconds(Math.max(1, readNumber("-batch-poll", 30))), logger);
+    }
+
+    /**
+     * creates the compiler of {@code -validate [classpath]}, which rejects mutants that do not compile against the
+     * given class path and the sources next to the mutated files, and compiles the mutants of {@code -kill}
+     * @param files files of the run, their source roots form the source path
+     * @return compiler, or null when neither was asked for or no system compiler is available
+     */
+    public MutantCompiler createMutantCompiler(List<File> files) {
+        List<File> classpath = readClasspath("-validate");
+        if (classpath == null) {
+            classpath = readClasspath("-kill");
+        }
+        if (classpath == null) {
+            return null;
+        }
+        try {
+            return new MutantCompiler(classpath, MutantCompiler.sourceRoots(files),
+                    Runtime.getRuntime().availableProcessors(), logger);
+        } catch (IllegalStateException e) {
+            logger.error("Mutants are not compiled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return true when mutants that do not compile are rejected
+     */
+    public boolean isValidate() {
+        return hasFlag("-validate");
+    }
+
+    /**
+     * creates the checker of {@code -kill <classpath>}, which runs the tests found in the class directories of the
+     * class path against every mutant, one mutant per core and each within {@code -kill-timeout} milliseconds beyond
+     * the time of its tests on the original
+     * @param compiler compiler of the mutants
+     * @return kill checker, or null when not asked for or the class path can not be read
+     */
+    public KillChecker createKillChecker(MutantCompiler compiler) {
+        List<File> classpath = readClasspath("-kill");
+        if (classpath == null || compiler == null) {
+            return null;
+        }
+        try {
+            return new KillChecker(compiler, classpath, Runtime.getRuntime().availableProcessors(),
+                    Duration.ofMillis(Math.max(0, readNumber("-kill-timeout", 4000))), logger);
+        } catch (IOException e) {
+            logger.error("Mutants are not tested: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * reads the class path following a flag, which may be left out
+     * @return class path entries, empty when the flag has no class path, or null without the flag
+     */
+    private List<File> readClasspath(String flag) {
+        for (int i = 0; i < args.length; i++) {
+            if (flag.equalsIgnoreCase(args[i])) {
+                List<File> classpath = new ArrayList<>();
+                if (i + 1 < args.length && !args[i + 1].startsWith("-")) {
+                    for (String entry : args[i + 1].split(File.pathSeparator)) {
+                        if (!entry.isBlank()) {
+                            classpath.add(new File(entry));
+                        }
+                    }
+                }
+                return classpath;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * reads {@code -mock-server [port]}, which serves a local mock of the chat completions API instead of mutating
+     * @return mock server configured from the {@code -mock-*} arguments, or null when none was asked for
+     */
+    public MockOpenAIServer createMockServer() {
+        if (!hasFlag("-mock-server")) {
+            return null;
+        }
+        return new MockOpenAIServer()
+                .setLatency(MockOpenAIServer.Latency.logNormal(readNumber("-mock-latency", 800), 0.5))
+                .setTokensPerSecond(readNumber("-mock-tps", 80))
+                .setRateLimitRate(readNumber("-mock-429", 0) / 100.0)
+                .setServerErrorRate(readNumber("-mock-500", 0) / 100.0)
+                .setTruncateRate(readNumber("-mock-truncate", 0) / 100.0);
+    }
+
+    /**
+     * @return port of {@code -mock-server}, 8089 when none is given
+     */
+    public int getMockServerPort() {
+        return (int) readOptionalNumber("-mock-server", 8089);
+    }
+
+    /**
+     * reads {@code -server [port]}, which keeps the mutator running and takes mutation jobs over HTTP
+     * @return true when the mutator should run as a server
+     */
+    public boolean isServer() {
+        return hasFlag("-server");
+    }
+
+    /**
+     * @return port of {@code -server}, 8090 when none is given
+     */
+    public int getServerPort() {
+        return (int) readOptionalNumber("-server", 8090);
+    }
+
+    /**
+     * @return address of {@code -server-host <host>} the server listens on, 127.0.0.1 by default
+     */
+    public String getServerHost() {
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("-server-host".equalsIgnoreCase(args[i])) {
+                return args[i + 1];
+            }
+        }
+        return "127.0.0.1";
+    }
+
+    /**
+     * @return directory of {@code -server-root <dir>} holding the paths jobs may mutate, the working directory by
+     * default
+     */
+    public Path getServerRoot() {
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("-server-root".equalsIgnoreCase(args[i])) {
+                return Paths.get(args[i + 1]);
+            }
+        }
+        return Paths.get("");
+    }
+
+    /**
+     * @return token the server requires, from the {@code MUTATOR_SERVER_TOKEN} environment variable; null when unset,
+     * so the server generates one
+     */
+    public String getServerToken() {
+        return System.getenv("MUTATOR_SERVER_TOKEN");
+    }
+
+    /**
+     * @return the endpoint and cache arguments of the server command line, which every job submitted over HTTP uses
+     */
+    public List<String> getServerJobDefaults() {
+        List<String> defaults = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String flag = args[i].toLowerCase(Locale.ROOT);
+            boolean hasValue = i + 1 < args.length && !args[i + 1].startsWith("-");
+            if (flag.equals("-api-base") || flag.equals("-cache-size") || flag.equals("-cache")) {
+                defaults.add(args[i]);
+                if (hasValue) {
+                    defaults.add(args[++i]);
+                }
+            }
+        }
+        return defaults;
+    }
+
+    /**
+     * @return number of bulk jobs a server runs at the same time, 4 by default
+     */
+    public int getServerJobs() {
+        return (int) Math.max(1, readNumber("-server-jobs", 4));
+    }
+
+    /**
+     * @return number of interactive jobs a server runs at the same time, 2 by default
+     */
+    public int getServerInteractiveJobs() {
+        return (int) Math.max(1, readNumber("-server-interactive-jobs", 2));
+    }
+
+    /**
+     * @return files of an interactive job at most, larger jobs run in the bulk lane; 10 by default
+     */
+    public int getServerInteractiveFiles() {
+        return (int) Math.max(1, readNumber("-server-interactive-files", 10));
+    }
+
+    /**
+     * @return LLM requests a server has in flight at most, shared by all jobs, 16 by default
+     */
+    public int getServerLlmSlots() {
+        return (int) Math.max(1, readNumber("-server-llm-slots", 16));
+    }
+
+    /**
+     * @return the arguments {@link #createAPIService()} depends on, equal for runs that can share one service
+     */
+    public String getServiceKey() {
+        return String.join("|", getEngine(), getModel(), getApiBase(), String.valueOf(getCacheDirectory()),
+                String.valueOf(getCacheSizeMegabytes()), String.valueOf(getRequestsPerMinute()),
+                String.valueOf(getTokensPerMinute()), String.valueOf(isDryRun()));
+    }
+
+    /**
+     * creates the logger of the run from {@code -log-level <debug|info|error>} and {@code -log-format <text|json>}
+     * @return asynchronous logger writing to standard output, or to standard error with {@code -progress -};
+     * info and text by default
+     */
+    public AsyncLogger createLogger() {
+        // standard output belongs to the progress events when they are written there
+        return new AsyncLogger("-".equals(getProgressTarget()) ? System.err : System.out, readOption("-log-format", AsyncLogger.Format.TEXT),
+                readOption("-log-level", LogLevel.INFO), AsyncLogger.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * reads {@code -progress <file>}, where {@code -} stands for standard output
+     * @return target of the progress events, null when they are not written
+     */
+    public String getProgressTarget() {
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("-progress".equalsIgnoreCase(args[i])) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * creates the writer of the NDJSON progress events asked for by {@code -progress}
+     * @return writer, or null when no events are written or the file can not be created
+     */
+    public NdjsonProgressWriter createProgressWriter() {
+        String target = getProgressTarget();
+        if (target == null) {
+            return null;
+        }
+        if (target.equals("-")) {
+            return new NdjsonProgressWriter(System.out, false);
+        }
+        try {
+            return new NdjsonProgressWriter(Files.newOutputStream(Paths.get(target)), true);
+        } catch (IOException e) {
+            logger.error("Progress events not written: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * reads an enum argument, case-insensitive
+     * @param defaultValue value used when the argument is missing or unknown
+     */
+    private <E extends Enum<E>> E readOption(String flag, E defaultValue) {
+        E value = defaultValue;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (flag.equalsIgnoreCase(args[i])) {
+                try {
+                    value = Enum.valueOf(defaultValue.getDeclaringClass(), args[i + 1].trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    logger.error("Invalid value for " + flag + ": " + args[i + 1]);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return metrics of the run, shared by the LLM service and the mutation options
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * reads {@code -metrics-port <port>}, the port serving the run metrics on {@code /metrics}
+     * @return port, or -1 when the metrics are not served
+     */
+    public int getMetricsPort() {
+        return hasFlag("-metrics-port") ? (int) readNumber("-metrics-port", -1) : -1;
+    }
+
+    /**
+     * @return address of {@code -metrics-host <host>} the metrics are served on, 127.0.0.1 by default
+     */
+    public String getMetricsHost() {
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("-metrics-host".equalsIgnoreCase(args[i])) {
+                return args[i + 1];
+            }
+        }
+        return "127.0.0.1";
+    }
+
+    /**
+     * @return true when the run should only be estimated, without sending requests
+     */
+    public boolean isDryRun() {
+        return hasFlag("-dry-run");
+    }
+
+    /**
+     * reads the tiktoken vocabulary given by {@code -tokenizer-vocab}, or ~/.llm-mutator/o200k_base.tiktoken if present
+     * @return tokenizer of the vocabulary, four characters per token when there is none
+     */
+    public Tokenizer getTokenizer() {
+        Path vocabulary = Paths.get(System.getProperty("user.home"), ".llm-mutator", "o200k_base.tiktoken");
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("-tokenizer-vocab".equalsIgnoreCase(args[i])) {
+                vocabulary = Paths.get(args[i + 1]);
+            }
+        }
+        if (Files.isRegularFile(vocabulary)) {
+            try {
+                return BpeTokenizer.load(vocabulary);
+            } catch (IOException e) {
+                logger.error("Tokenizer vocabulary not usable, counting four characters per token: " + e.getMessage());
+            }
+        }
+        return Tokenizer.approximate();
+    }
+
+    /**
+     * reads the licence headers given by {@code -headers}, a file of header comments checked before the built-in ones
+     * @return detector of the accepted headers
+     */
+    public HeaderDetector getHeaderDetector() {
+        String file = null;
+        for (int i = 0; i < args.length - 1; i++) {
+            if ("-headers".equalsIgnoreCase(args[i])) {
+                file = args[i + 1];
+            }
+        }
+        if (file == null) {
+            return HeaderDetector.defaults();
+        }
+        try {
+            List<String> headers = new ArrayList<>(HeaderDetector.readHeaders(Paths.get(file)));
+            logger.log(headers.size() + " licence header(s) read from " + file);
+            headers.addAll(Headers.getAllHeaders());
+            return new HeaderDetector(headers);
+        } catch (IOException e) {
+            logger.error("Licence headers not readable, using the built-in ones: " + e.getMessage());
+            return HeaderDetector.defaults();
+        }
+    }
+
+    /**
+     * reads the generation speed of the model used to project the duration of a dry run
+     * @return output tokens per second
+     */
+    public int getTokensPerSecond() {
+        return (int) Math.max(1, readNumber("-tokens-per-second", 80));
+    }
+
+    /**
+     * reads the response cache location. {@code -cache} without a directory uses ~/.llm-mutator/cache
+     * @return cache directory or null when caching is disabled
+     */
+    public Path getCacheDirectory() {
+        for (int i = 0; i < args.length; i++) {
+            if ("-cache".equalsIgnoreCase(args[i])) {
+                if (i + 1 < args.length && !args[i + 1].startsWith("-")) {
+                    return Paths.get(args[i + 1]);
+                }
+                return Paths.get(System.getProperty("user.home"), ".llm-mutator", "cache");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * reads the size limit of the response cache
+     * @return limit in megabytes
+     */
+    public long getCacheSizeMegabytes() {
+        return Math.max(1, readNumber("-cache-size", 512));
+    }
+
+    /**
+     * reads the initial request rate limit, used until the API reports its own limit
+     * @return requests per minute
+     */
+    public int getRequestsPerMinute() {
+        return (int) Math.max(1, readNumber("-rpm", 500));
+    }
+
+    /**
+     * reads the initial token rate limit, used until the API reports its own limit
+     * @return tokens per minute
+     */
+    public int getTokensPerMinute() {
+        return (int) Math.max(1, readNumber("-tpm", 200_000));
+    }
+
+    /**
+     * @param flag argument name
+     * @return true when the argument is present
+     */
+    private boolean hasFlag(String flag) {
+        for (String arg : args) {
+            if (flag.equalsIgnoreCase(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * reads a numeric argument
+     * @param flag argument name
+     * @param defaultValue value used when the argument is missing or not a number
+     * @return value of the last occurrence of the argument
+     */
+    private long readNumber(String flag, long defaultValue) {
+        long value = defaultValue;
+        for (int i = 0; i < args.length; i++) {
+            if (flag.equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                try {
+                    value = Long.parseLong(args[i + 1].trim());
+                } catch (NumberFormatException e) {
+                    logger.error("Invalid value for " + flag + ": " + args[i + 1]);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * reads the number of a flag that may be left out, so a following flag is not taken for its value
+     */
+    private long readOptionalNumber(String flag, long defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (flag.equalsIgnoreCase(args[i]) && !args[i + 1].startsWith("-")) {
+                return readNumber(flag, defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
     public Path getOutputPath(){
         return this.outputPath;
     }
@@ -9,5 +9,7 @@ public interface ArgumentParser {
 
     String getModel();
 
+    int getParallelism();
+
     LLMApiService createAPIService();
 }
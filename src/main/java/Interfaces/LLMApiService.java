@@ -1,5 +1,80 @@
 package Interfaces;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
 public interface LLMApiService {
     String askOpenAI(String javaCode);
+
+    /**
+     * Non-blocking variant of {@link #askOpenAI(String)}.
+     * Implementations without their own async transport run the blocking call on a virtual thread.
+     * @param javaCode code to be mutated
+     * @return future completing with the model answer and its token usage
+     */
+    default CompletableFuture<Response> askOpenAIAsync(String javaCode) {
+        return CompletableFuture.supplyAsync(() -> new Response(askOpenAI(javaCode), 0, 0, 0.0), Thread::startVirtualThread);
+    }
+
+    /**
+     * Streaming variant of {@link #askOpenAIAsync(String)} that hands the answer over piece by piece.
+     * Implementations without a streaming transport pass the complete answer as a single piece.
+     * @param javaCode code to be mutated
+     * @param onDelta receives every piece of the answer; returning false ends the request early
+     * @return future completing with the received answer and its token usage
+     */
+    default CompletableFuture<Response> askOpenAIStreaming(String javaCode, Predicate<String> onDelta) {
+        return askOpenAIAsync(javaCode).thenApply(response -> {
+            onDelta.test(response.content());
+            return response;
+        });
+    }
+
+    /**
+     * @return name of the model answering the requests, part of every response cache key
+     */
+    default String getModelName() {
+        return "";
+    }
+
+    /**
+     * @param javaCode code to be mutated
+     * @return the prompt sent to the model for this code
+     */
+    default String generatePrompt(String javaCode) {
+        return javaCode;
+    }
+
+    /**
+     * @return tokens the model accepts for prompt and answer together, 0 when unknown
+     */
+    default int getContextWindow() {
+        return 0;
+    }
+
+    /**
+     * @return tokens the model can generate in one answer, 0 when unknown
+     */
+    default int getMaxOutputTokens() {
+        return 0;
+    }
+
+    /**
+     * @param promptTokens input tokens
+     * @param completionTokens output tokens
+     * @return price of a request with this usage in USD, 0 when unknown
+     */
+    default double estimateCost(int promptTokens, int completionTokens) {
+        return 0.0;
+    }
+
+    /**
+     * Model answer with the usage metadata reported for the request.
+     * @param content text returned by the model
+     * @param promptTokens input tokens, 0 when unknown
+     * @param completionTokens output tokens, 0 when unknown
+     * @param cost estimated cost in USD
+     */
+    record Response(String content, int promptTokens, int completionTokens, double cost) {
+    }
 }
@@ -1,7 +1,44 @@
 package Interfaces;
 
+import enums.LogLevel;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
 public interface LoggerService {
     void log(String message);
     void error(String message);
     void debug(String message);
+
+    /**
+     * @return true when messages of the level are written; callers check it to skip building a message
+     */
+    default boolean isEnabled(LogLevel level) {
+        return true;
+    }
+
+    /**
+     * Logs a message built only when its level is enabled.
+     */
+    default void log(LogLevel level, Supplier<String> message) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        switch (level) {
+            case DEBUG -> debug(message.get());
+            case INFO -> log(message.get());
+            case ERROR -> error(message.get());
+        }
+    }
+
+    /**
+     * Logs the end of a stage for one file. Structured loggers keep stage, file and latency as fields of their own.
+     * @param stage stage that finished, such as parse or write
+     * @param file file the stage worked on
+     * @param nanos time the stage took
+     * @param message what happened
+     */
+    default void event(LogLevel level, String stage, String file, long nanos, String message) {
+        log(level, () -> String.format(Locale.ROOT, "%s (%s %s, %.1f ms)", message, stage, file, nanos / 1e6));
+    }
 }
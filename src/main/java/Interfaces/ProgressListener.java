@@ -0,0 +1,35 @@
+package Interfaces;
+
+/**
+ * Receives the progress of a mutation run, on the thread that made the progress.
+ */
+public interface ProgressListener {
+    void onProgress(Event event);
+
+    enum Type {
+        QUEUED,
+        STARTED,
+        DONE,
+        FAILED,
+        SKIPPED,
+        DROPPED,
+        FINISHED
+    }
+
+    /**
+     * Progress of one file, or of the whole run for {@link Type#FINISHED}, with the totals of the run so far.
+     * @param file path of the file relative to the run root, null for the run
+     * @param message reason of a failure or drop, empty otherwise
+     * @param tokens prompt and completion tokens spent on the file
+     * @param cost estimated cost of the file in USD
+     * @param total files of the run
+     * @param finished files done, failed, skipped or dropped
+     * @param failed files that could not be mutated
+     * @param totalTokens tokens spent by the run
+     * @param totalCost estimated cost of the run in USD
+     * @param etaSeconds estimated seconds until the last file is finished, -1 before the first one is
+     */
+    record Event(Type type, String file, String message, int tokens, double cost, int total, int finished,
+                 int failed, long totalTokens, double totalCost, long etaSeconds) {
+    }
+}
@@ -0,0 +1,16 @@
+package Interfaces;
+
+public interface Tokenizer {
+    /**
+     * @param text text sent to or received from the model
+     * @return number of tokens the model counts for the text
+     */
+    int countTokens(String text);
+
+    /**
+     * @return tokenizer assuming four characters per token, used when no vocabulary is available
+     */
+    static Tokenizer approximate() {
+        return text -> (text.length() + 3) / 4;
+    }
+}
@@ -0,0 +1,209 @@
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shares the LLM requests a server may have in flight between its jobs.
+ * <p>
+ * Every job joins with a lane and a weight and asks for a slot before each request. A free slot goes to the
+ * interactive lane first, so a single file submitted by a developer never waits behind a bulk job; within a lane
+ * it goes to the waiting job with the fewest requests in flight for its weight, so jobs of weight 2 get twice the
+ * concurrency of jobs of weight 1, and among equals to the job served longest ago. Slots are granted as requests
+ * finish, never by a thread of the scheduler. Cancelling a job fails its waiting requests at once; requests in
+ * flight run to their end.
+ */
+public class JobScheduler {
+
+    /**
+     * Priority lanes, the first one served first.
+     */
+    public enum Lane { INTERACTIVE, BULK }
+
+    private record Waiter(CompletableFuture<Void> grant, long startNanos) {
+    }
+
+    private final int slots;
+    private final Metrics metrics;
+    private final List<Share> shares = new ArrayList<>();
+    private int inUse;
+    private long grants;
+
+    private JobScheduler(int slots, Metrics metrics) {
+        this.slots = Math.max(1, slots);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates a scheduler and registers its gauges of slots in use and requests waiting by lane.
+     * @param slots LLM requests in flight at most, over all jobs
+     * @param metrics receives the time requests waited for a slot, by lane
+     */
+    public static JobScheduler create(int slots, Metrics metrics) {
+        JobScheduler scheduler = new JobScheduler(slots, metrics);
+        metrics.gauge("llm_slots_in_use", "", "", scheduler::getInUse);
+        for (Lane lane : Lane.values()) {
+            metrics.gauge("llm_slot_waiting", "lane", lane.name().toLowerCase(Locale.ROOT), () -> scheduler.waiting(lane));
+        }
+        return scheduler;
+    }
+
+    /**
+     * @param job name of the job, for its metrics and log
+     * @param weight share of the slots relative to the other jobs of its lane, at least 1
+     * @return the share the job asks for slots through, to leave once the job is finished
+     */
+    public synchronized Share join(String job, Lane lane, int weight) {
+        Share share = new Share(job, lane, Math.max(1, weight));
+        shares.add(share);
+        return share;
+    }
+
+    public synchronized int getInUse() {
+        return inUse;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    private synchronized int waiting(Lane lane) {
+        return shares.stream().filter(share -> share.lane == lane).mapToInt(share -> share.waiting.size()).sum();
+    }
+
+    /**
+     * Hands the free slots to the waiting requests; the grants complete outside the lock.
+     */
+    private void dispatch() {
+        List<Waiter> granted = new ArrayList<>();
+        List<Lane> lanes = new ArrayList<>();
+        synchronized (this) {
+            while (inUse < slots) {
+                Share next = next();
+                if (next == null) {
+                    break;
+                }
+                next.inFlight++;
+                next.lastGrant = ++grants;
+                inUse++;
+                granted.add(next.waiting.poll());
+                lanes.add(next.lane);
+            }
+        }
+        for (int i = 0; i < granted.size(); i++) {
+            metrics.observe("llm_slot_wait_seconds", "lane", lanes.get(i).name().toLowerCase(Locale.ROOT),
+                    granted.get(i).startNanos());
+            granted.get(i).grant().complete(null);
+        }
+    }
+
+    /**
+     * @return the job the next slot goes to, null when no job waits
+     */
+    private Share next() {
+        Share best = null;
+        for (Share share : shares) {
+            if (share.waiting.isEmpty()) {
+                continue;
+            }
+            if (best == null || share.lane.compareTo(best.lane) < 0) {
+                best = share;
+                continue;
+            }
+            if (share.lane != best.lane) {
+                continue;
+            }
+            // fewer requests in flight per weight, compared without dividing
+            long load = (long) share.inFlight * best.weight;
+            long bestLoad = (long) best.inFlight * share.weight;
+            if (load < bestLoad || load == bestLoad && share.lastGrant < best.lastGrant) {
+                best = share;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The part of the slots a job holds and waits for.
+     */
+    public final class Share {
+        private final String job;
+        private final Lane lane;
+        private final int weight;
+        private final Deque<Waiter> waiting = new ArrayDeque<>();
+        private int inFlight;
+        private long lastGrant;
+        private boolean cancelled;
+
+        private Share(String job, Lane lane, int weight) {
+            this.job = job;
+            this.lane = lane;
+            this.weight = weight;
+        }
+
+        /**
+         * @return future completing once a slot is held, or failing with a {@link CancellationException} when the
+         * job is cancelled first
+         */
+        public CompletableFuture<Void> acquire() {
+            CompletableFuture<Void> grant = new CompletableFuture<>();
+            synchronized (JobScheduler.this) {
+                if (cancelled) {
+                    grant.completeExceptionally(new CancellationException("Job " + job + " cancelled"));
+                    return grant;
+                }
+                waiting.add(new Waiter(grant, System.nanoTime()));
+            }
+            dispatch();
+            return grant;
+        }
+
+        /**
+         * Gives back a slot once its request finished.
+         */
+        public void release() {
+            synchronized (JobScheduler.this) {
+                inFlight--;
+                inUse--;
+            }
+            dispatch();
+        }
+
+        /**
+         * Fails the waiting requests of the job and every later one.
+         */
+        public void cancel() {
+            List<Waiter> dropped;
+            synchronized (JobScheduler.this) {
+                cancelled = true;
+                dropped = new ArrayList<>(waiting);
+                waiting.clear();
+            }
+            dropped.forEach(waiter -> waiter.grant().completeExceptionally(
+                    new CancellationException("Job " + job + " cancelled")));
+        }
+
+        /**
+         * Cancels what still waits and stops taking part in the scheduling.
+         */
+        public void leave() {
+            cancel();
+            synchronized (JobScheduler.this) {
+                shares.remove(this);
+            }
+        }
+
+        public Lane getLane() {
+            return lane;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public int getInFlight() {
+            synchronized (JobScheduler.this) {
+                return inFlight;
+            }
+        }
+    }
+}
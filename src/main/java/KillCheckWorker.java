@@ -0,0 +1,189 @@
+import org.json.JSONObject;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+import java.io.*;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+/**
+ * Test JVM of the {@link KillChecker}, which ends the whole JVM when the tests of a mutant run too long, so a mutant
+ * looping forever never keeps a core busy.
+ * <p>
+ * Reads one JSON request per line from standard input and answers each with one line on standard output. The first
+ * request holds the class path of the mutated project; every later one the test classes to run and the mutated class
+ * files, none to run the tests against the original. Anything the tests print goes to standard error.
+ * <p>
+ * Classes of the project and its libraries are loaded child first, so a project class named like one of this
+ * application, such as a default package {@code Main} or an org.json class, is never replaced by the application's
+ * copy. Only the JDK and the JUnit Platform come from this application, so the tests run on its launcher.
+ */
+public class KillCheckWorker {
+    private final URL[] directories;
+    private final URLClassLoader libraries;
+
+    /**
+     * @param classpath compiled main and test classes of the project and its libraries
+     */
+    KillCheckWorker(List<String> classpath) {
+        List<URL> directoryUrls = new ArrayList<>();
+        List<URL> jarUrls = new ArrayList<>();
+        for (String entry : classpath) {
+            File file = new File(entry);
+            (file.isDirectory() ? directoryUrls : jarUrls).add(toUrl(file));
+        }
+        this.directories = directoryUrls.toArray(URL[]::new);
+        this.libraries = new ChildFirstClassLoader("mutated-project-libraries", jarUrls.toArray(URL[]::new),
+                KillCheckWorker.class.getClassLoader());
+    }
+
+    public static void main(String[] args) throws IOException {
+        PrintStream answers = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+        // a mutant looping forever never reads the end of the input, so the JVM also ends with the application
+        ProcessHandle.current().parent()
+                .ifPresent(parent -> parent.onExit().thenRun(() -> Runtime.getRuntime().halt(1)));
+        BufferedReader requests = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String init = requests.readLine();
+        if (init == null) {
+            return;
+        }
+        KillCheckWorker worker = new KillCheckWorker(new JSONObject(init).getJSONArray("classpath").toList().stream()
+                .map(String::valueOf).toList());
+        // loads the JUnit Platform and its engines before the first mutant is timed
+        execute(worker.libraries, List.of());
+        answers.println(new JSONObject().put("ready", true));
+        String line;
+        while ((line = requests.readLine()) != null) {
+            answers.println(worker.run(new JSONObject(line)));
+        }
+    }
+
+    /**
+     * Runs test classes in a loader of their own holding the mutated classes.
+     * @return time the tests took and their first failure, or the error that kept them from running
+     */
+    JSONObject run(JSONObject request) {
+        Map<String, byte[]> classes = new HashMap<>();
+        JSONObject encoded = request.getJSONObject("classes");
+        for (String name : encoded.keySet()) {
+            classes.put(name, Base64.getDecoder().decode(encoded.getString(name)));
+        }
+        List<String> tests = request.getJSONArray("tests").toList().stream().map(String::valueOf).toList();
+        long start = System.nanoTime();
+        try (MutantClassLoader loader = new MutantClassLoader(directories, libraries, classes)) {
+            String failure = firstFailure(execute(loader, tests));
+            JSONObject answer = new JSONObject().put("millis", (System.nanoTime() - start) / 1_000_000);
+            return failure == null ? answer : answer.put("failure", failure);
+        } catch (Exception | LinkageError e) {
+            return new JSONObject().put("error", String.valueOf(e));
+        }
+    }
+
+    private static TestExecutionSummary execute(ClassLoader loader, List<String> tests) {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            LauncherDiscoveryRequest request = LauncherDiscoveryRequestBuilder.request()
+                    .selectors(tests.stream().map(test -> selectClass(loader, test)).toList())
+                    .build();
+            Launcher launcher = LauncherFactory.create();
+            SummaryGeneratingListener listener = new SummaryGeneratingListener();
+            launcher.execute(request, listener);
+            return listener.getSummary();
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    /**
+     * @return the first failing test with its exception, or null when all tests passed
+     */
+    private static String firstFailure(TestExecutionSummary summary) {
+        if (summary.getTotalFailureCount() == 0) {
+            return null;
+        }
+        TestExecutionSummary.Failure failure = summary.getFailures().getFirst();
+        return failure.getTestIdentifier().getDisplayName() + " " + failure.getException();
+    }
+
+    private static URL toUrl(File entry) {
+        try {
+            return entry.toURI().toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Looks for classes in its own URLs before asking its parent, except for the classes shared with the parent.
+     */
+    private static class ChildFirstClassLoader extends URLClassLoader {
+        private static final List<String> SHARED = List.of("java.", "org.junit.", "org.opentest4j.", "org.apiguardian.");
+
+        static {
+            registerAsParallelCapable();
+        }
+
+        ChildFirstClassLoader(String name, URL[] urls, ClassLoader parent) {
+            super(name, urls, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (SHARED.stream().anyMatch(name::startsWith)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try {
+                        loaded = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        // JDK classes outside java.*, and what the project leaves to the runtime
+                        return super.loadClass(name, resolve);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+    }
+
+    /**
+     * Loads the classes of the project directories, the mutated ones from memory.
+     */
+    private static final class MutantClassLoader extends ChildFirstClassLoader {
+        static {
+            registerAsParallelCapable();
+        }
+
+        private final Map<String, byte[]> classes;
+
+        MutantClassLoader(URL[] directories, ClassLoader parent, Map<String, byte[]> classes) {
+            super("mutant", directories, parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes != null) {
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+            return super.findClass(name);
+        }
+    }
+}
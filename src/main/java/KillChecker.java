@@ -0,0 +1,314 @@
+import Interfaces.LoggerService;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Runs the tests of the mutated project against every mutant, to tell the mutants the tests kill.
+ * <p>
+ * Tests run in test JVMs started from this application's class path, one per worker and reused from mutant to
+ * mutant (see {@link KillCheckWorker}). A mutant is compiled in memory here and loaded there, with all classes of the
+ * project directories, by a class loader of its own, so mutants never see each other. Only the test classes
+ * referencing a mutated class are run, through the JUnit Platform Launcher, first against the original to measure
+ * them. A mutant whose tests run longer than {@link #TIMEOUT_FACTOR} times that, plus the configured time, is timed
+ * out and its test JVM is ended, as is one whose tests end the JVM themselves; the next mutant starts a new one.
+ * A mutant whose tests could not be run at all, such as when a test class can not be loaded, is reported as
+ * {@link Status#ERROR} and its test JVM is ended too.
+ */
+public class KillChecker implements AutoCloseable {
+    static final double TIMEOUT_FACTOR = 1.25;
+    private static final Duration BASELINE_TIMEOUT = Duration.ofMinutes(10);
+    private static final Pattern TEST_CLASS = Pattern.compile("(Test[^$]*|[^$]*(Test|Tests|TestCase))\\.class");
+
+    public enum Status { KILLED, SURVIVED, TIMED_OUT, NO_COVERAGE, NON_VIABLE, ERROR }
+
+    /**
+     * @param status outcome of the mutant
+     * @param detail failing test, or the reason the mutant could not be checked
+     */
+    public record Result(Status status, String detail) {
+
+        @Override
+        public String toString() {
+            return detail.isEmpty() ? status.name() : status + ": " + detail;
+        }
+    }
+
+    private record Outcome(boolean completed, String failure, long millis) {
+    }
+
+    private record Baseline(List<String> tests, long millis, String failure) {
+    }
+
+    private final MutantCompiler compiler;
+    private final List<String> classpath;
+    private final Map<String, byte[]> testClasses = new HashMap<>();
+    private final Map<String, CompletableFuture<Baseline>> baselines = new ConcurrentHashMap<>();
+    private final Semaphore slots;
+    private final Queue<TestJvm> idle = new ConcurrentLinkedQueue<>();
+    private final Set<TestJvm> started = ConcurrentHashMap.newKeySet();
+    private final Duration timeout;
+    private final LoggerService logger;
+    private volatile boolean closed;
+
+    /**
+     * @param compiler compiler of the mutants, with the main classes and libraries of the project on its class path
+     * @param classpath compiled main and test classes of the project and its libraries
+     * @param workers number of mutants tested at the same time, each in a test JVM of its own
+     * @param timeout time a mutant may take beyond its measured test time
+     * @throws IOException if the test classes can not be read
+     */
+    public KillChecker(MutantCompiler compiler, List<File> classpath, int workers, Duration timeout, LoggerService logger)
+            throws IOException {
+        this.compiler = compiler;
+        this.classpath = classpath.stream().map(File::getAbsolutePath).toList();
+        this.slots = new Semaphore(Math.max(1, workers));
+        this.timeout = timeout;
+        this.logger = logger;
+        for (File entry : classpath) {
+            if (entry.isDirectory()) {
+                readTestClasses(entry.toPath());
+            }
+        }
+        logger.log(testClasses.size() + " test class(es) found for kill checks");
+    }
+
+    private void readTestClasses(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.filter(path -> TEST_CLASS.matcher(path.getFileName().toString()).matches()).toList()) {
+                String file = directory.relativize(path).toString();
+                String name = file.substring(0, file.length() - ".class".length()).replace(File.separatorChar, '.');
+                testClasses.put(name, Files.readAllBytes(path));
+            }
+        }
+    }
+
+    /**
+     * Compiles a mutant and runs the tests of its classes against it.
+     * @param name path of the source, its file name must match the public class
+     * @param code mutated code
+     * @return future completing with the outcome, never failing
+     */
+    public CompletableFuture<Result> check(String name, String code) {
+        return compiler.compileClasses(name, code).handle((classes, error) -> classes)
+                .thenComposeAsync(classes -> classes == null || classes.isEmpty()
+                        ? CompletableFuture.completedFuture(new Result(Status.NON_VIABLE, "does not compile"))
+                        : CompletableFuture.supplyAsync(() -> evaluate(classes), Thread::startVirtualThread))
+                .exceptionally(error -> new Result(Status.ERROR, String.valueOf(
+                        (error instanceof CompletionException && error.getCause() != null ? error.getCause() : error)
+                                .getMessage())));
+    }
+
+    private Result evaluate(Map<String, byte[]> classes) {
+        List<String> mutated = classes.keySet().stream().filter(name -> !name.contains("$")).sorted().toList();
+        String key = String.join(",", mutated);
+        CompletableFuture<Baseline> measured = baselines.computeIfAbsent(key,
+                classNames -> CompletableFuture.supplyAsync(() -> measure(mutated), Thread::startVirtualThread));
+        Baseline baseline;
+        try {
+            baseline = measured.join();
+        } catch (CompletionException e) {
+            // measured again by the next mutant of these classes
+            baselines.remove(key, measured);
+            return new Result(Status.ERROR, "tests could not run on the original: " + e.getCause().getMessage());
+        }
+        if (baseline.tests().isEmpty()) {
+            return new Result(Status.NO_COVERAGE, "no test references " + String.join(", ", mutated));
+        }
+        if (baseline.failure() != null) {
+            return new Result(Status.NO_COVERAGE, "tests fail on the original: " + baseline.failure());
+        }
+        Duration limit = Duration.ofMillis((long) (baseline.millis() * TIMEOUT_FACTOR)).plus(timeout);
+        Outcome outcome;
+        try {
+            outcome = run(classes, baseline.tests(), limit);
+        } catch (IllegalStateException e) {
+            return new Result(Status.ERROR, "tests could not run: " + e.getMessage());
+        }
+        if (!outcome.completed()) {
+            return new Result(Status.TIMED_OUT, "tests ran longer than " + limit.toMillis() + " ms");
+        }
+        String failure = outcome.failure();
+        return failure == null ? new Result(Status.SURVIVED, "") : new Result(Status.KILLED, failure);
+    }
+
+    /**
+     * Runs the tests of classes against the original code, to learn which tests to run and how long they take.
+     */
+    private Baseline measure(List<String> mutated) {
+        List<String> tests = testClasses.entrySet().stream()
+                .filter(test -> !mutated.contains(test.getKey()))
+                .filter(test -> mutated.stream().anyMatch(name -> references(test.getValue(), name.replace('.', '/'))))
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+        if (tests.isEmpty()) {
+            return new Baseline(tests, 0, null);
+        }
+        Outcome outcome = run(Map.of(), tests, BASELINE_TIMEOUT);
+        if (!outcome.completed()) {
+            return new Baseline(tests, 0, "timed out");
+        }
+        return new Baseline(tests, outcome.millis(), outcome.failure());
+    }
+
+    /**
+     * Runs test classes against the given classes in an idle test JVM, ending the JVM after the limit.
+     * @throws IllegalStateException if no test JVM could be started or the tests could not be run
+     */
+    private Outcome run(Map<String, byte[]> classes, List<String> tests, Duration limit) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Outcome(false, null, 0);
+        }
+        TestJvm jvm = idle.poll();
+        try {
+            if (jvm == null) {
+                jvm = new TestJvm();
+            }
+            JSONObject encoded = new JSONObject();
+            classes.forEach((name, bytes) -> encoded.put(name, Base64.getEncoder().encodeToString(bytes)));
+            JSONObject answer = jvm.request(new JSONObject().put("tests", new JSONArray(tests)).put("classes", encoded),
+                    limit);
+            if (answer == null) {
+                logger.error("Tests of a mutant timed out after " + limit.toMillis() + " ms, their test JVM is ended");
+                jvm.stop();
+                jvm = null;
+                return new Outcome(false, null, 0);
+            }
+            if (answer.has("error")) {
+                // the failed run may have left the JVM in any state, so it is not reused
+                jvm.stop();
+                jvm = null;
+                throw new IllegalStateException(answer.getString("error"));
+            }
+            return new Outcome(true, answer.optString("failure", null), answer.getLong("millis"));
+        } catch (IOException e) {
+            jvm.stop();
+            jvm = null;
+            return new Outcome(true, "test JVM ended: " + e.getMessage(), 0);
+        } finally {
+            if (jvm != null) {
+                idle.add(jvm);
+                if (closed) {
+                    jvm.stop();
+                }
+            }
+            slots.release();
+        }
+    }
+
+    /**
+     * Looks for a class name in the constant pool of a class file, as an entry of its own or inside a descriptor.
+     * @param classFile bytes of the class file
+     * @param internalName class name with slashes
+     */
+    static boolean references(byte[] classFile, String internalName) {
+        byte[] name = internalName.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i + name.length <= classFile.length; i++) {
+            if (!Arrays.equals(classFile, i, i + name.length, name, 0, name.length)) {
+                continue;
+            }
+            int end = i + name.length;
+            boolean inDescriptor = i > 0 && classFile[i - 1] == 'L' && end < classFile.length
+                    && (classFile[end] == ';' || classFile[end] == '<');
+            boolean ownEntry = i >= 3 && classFile[i - 3] == 1
+                    && ((classFile[i - 2] & 0xFF) << 8 | classFile[i - 1] & 0xFF) == name.length;
+            boolean nested = end < classFile.length && classFile[end] == '$';
+            if (inDescriptor || ownEntry || nested) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ends the test JVMs.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        started.forEach(TestJvm::stop);
+    }
+
+    /**
+     * A {@link KillCheckWorker} JVM, answering one request at a time.
+     */
+    private final class TestJvm {
+        private final Process process;
+        private final BufferedWriter requests;
+        private final BufferedReader answers;
+
+        TestJvm() {
+            List<String> command = List.of(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"), KillCheckWorker.class.getName());
+            try {
+                process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            } catch (IOException e) {
+                throw new IllegalStateException("Test JVM could not be started: " + e.getMessage(), e);
+            }
+            started.add(this);
+            requests = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            answers = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            String failure;
+            try {
+                JSONObject ready = request(new JSONObject().put("classpath", new JSONArray(classpath)), BASELINE_TIMEOUT);
+                failure = ready == null ? "did not start within " + BASELINE_TIMEOUT : null;
+            } catch (IOException e) {
+                failure = "ended on start: " + e.getMessage();
+            }
+            if (failure != null) {
+                stop();
+                throw new IllegalStateException("Test JVM " + failure);
+            }
+        }
+
+        /**
+         * @return the answer, or null when none came within the limit
+         * @throws IOException if the JVM ended before answering
+         */
+        JSONObject request(JSONObject request, Duration limit) throws IOException {
+            requests.write(request.toString());
+            requests.newLine();
+            requests.flush();
+            CompletableFuture<String> answer = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return answers.readLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, Thread::startVirtualThread);
+            try {
+                String line = answer.get(limit.toMillis(), TimeUnit.MILLISECONDS);
+                if (line == null) {
+                    throw new EOFException("exit code " + process.waitFor());
+                }
+                return new JSONObject(line);
+            } catch (TimeoutException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        void stop() {
+            process.destroyForcibly();
+            started.remove(this);
+        }
+    }
+}
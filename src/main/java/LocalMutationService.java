@@ -0,0 +1,389 @@
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.comments.LineComment;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.stmt.*;
+import com.github.javaparser.ast.type.Type;
+import enums.Mutators;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Mutation engine applying the standard {@link Mutators} operators to the syntax tree, without any LLM.
+ * <p>
+ * Answers have the format of a model answer: the mutated class in a ```java block, every mutated statement preceded
+ * by a comment naming its operators, so files, operator report and manifest come out as with a remote model.
+ * Every applicable site is mutated once; where several operators apply, the one used least so far is chosen, so
+ * the result only depends on the code. Types are not resolved, so {@code +} is only mutated between operands known
+ * to be numeric, and every method call statement counts as a void call. Requests run on the common pool, one per
+ * core.
+ */
+public class LocalMutationService implements LLMApiService {
+    private static final Set<String> NUMERIC = Set.of("byte", "short", "char", "int", "long", "float", "double",
+            "Byte", "Short", "Character", "Integer", "Long", "Float", "Double");
+    private static final Set<String> NUMERIC_METHODS = Set.of("size", "length", "ordinal", "hashCode", "compareTo",
+            "indexOf", "lastIndexOf", "intValue", "longValue", "floatValue", "doubleValue", "getAsInt", "getAsLong",
+            "getAsDouble");
+    private static final Map<String, String> EMPTY_VALUES = Map.of(
+            "String", "\"\"",
+            "Integer", "0",
+            "Long", "0L",
+            "Float", "0.0f",
+            "Double", "0.0",
+            "List", "java.util.Collections.emptyList()",
+            "Collection", "java.util.Collections.emptyList()",
+            "Set", "java.util.Collections.emptySet()",
+            "Map", "java.util.Collections.emptyMap()",
+            "Optional", "java.util.Optional.empty()");
+
+    private final LoggerService logger;
+
+    public LocalMutationService(LoggerService logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public String askOpenAI(String javaCode) {
+        ParseResult<CompilationUnit> parsed = ParsedSource.parser().parse(javaCode);
+        if (!parsed.isSuccessful() || parsed.getResult().isEmpty()) {
+            return "Error: " + (parsed.getProblems().isEmpty() ? "Parsing failed" : parsed.getProblems().getFirst().getMessage());
+        }
+        CompilationUnit unit = parsed.getResult().get();
+        int mutants = mutate(unit);
+        logger.log(mutants + " mutant(s) generated locally...");
+        return "```java\n" + unit.toString().stripTrailing() + "\n```";
+    }
+
+    /**
+     * Runs on the common pool rather than a virtual thread, the work is CPU bound.
+     */
+    @Override
+    public CompletableFuture<Response> askOpenAIAsync(String javaCode) {
+        return CompletableFuture.supplyAsync(() -> new Response(askOpenAI(javaCode), 0, 0, 0.0));
+    }
+
+    @Override
+    public String getModelName() {
+        return "local";
+    }
+
+    /**
+     * Applies the operators to a compilation unit.
+     * @param unit parsed code without comments, changed in place
+     * @return number of mutants
+     */
+    public static int mutate(CompilationUnit unit) {
+        Map<String, Set<String>> declaredTypes = declaredTypes(unit);
+        List<Node> nodes = new ArrayList<>();
+        unit.walk(Node.TreeTraversal.PREORDER, nodes::add);
+
+        EnumMap<Mutators, Integer> used = new EnumMap<>(Mutators.class);
+        Set<Node> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<Node, List<String>> comments = new IdentityHashMap<>();
+        List<Runnable> changes = new ArrayList<>();
+        for (Node node : nodes) {
+            if (excluded(node, removed)) {
+                continue;
+            }
+            Map<Mutators, Mutation> candidates = candidates(node, declaredTypes);
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            Mutators operator = candidates.keySet().stream()
+                    .min(Comparator.comparingInt((Mutators m) -> used.getOrDefault(m, 0)).thenComparing(Enum::ordinal))
+                    .orElseThrow();
+            Mutation mutation = candidates.get(operator);
+            used.merge(operator, 1, Integer::sum);
+            if (mutation.replacement() != null) {
+                // the subtree is replaced, its own sites are gone
+                removed.add(node);
+            }
+            changes.add(mutation.change());
+            Node anchor = mutation.replacement() instanceof Statement statement ? statement : anchor(node);
+            comments.computeIfAbsent(anchor, key -> new ArrayList<>())
+                    .add(operator.getReadableName() + ": " + mutation.description());
+        }
+
+        // anchors are looked up before the tree changes
+        for (Runnable change : changes) {
+            change.run();
+        }
+        comments.forEach((anchor, texts) -> anchor.setComment(new LineComment(" " + String.join("; ", texts))));
+        return changes.size();
+    }
+
+    /**
+     * @param replacement node taking the place of the mutated one, null when it is changed in place
+     */
+    private record Mutation(String description, Runnable change, Node replacement) {
+
+        Mutation(String description, Runnable change) {
+            this(description, change, null);
+        }
+    }
+
+    private static Map<Mutators, Mutation> candidates(Node node, Map<String, Set<String>> declaredTypes) {
+        Map<Mutators, Mutation> candidates = new EnumMap<>(Mutators.class);
+        if (node instanceof BinaryExpr binary) {
+            binaryCandidates(binary, declaredTypes, candidates);
+        } else if (node instanceof UnaryExpr unary) {
+            UnaryExpr.Operator operator = unary.getOperator();
+            UnaryExpr.Operator swapped = switch (operator) {
+                case PREFIX_INCREMENT -> UnaryExpr.Operator.PREFIX_DECREMENT;
+                case PREFIX_DECREMENT -> UnaryExpr.Operator.PREFIX_INCREMENT;
+                case POSTFIX_INCREMENT -> UnaryExpr.Operator.POSTFIX_DECREMENT;
+                case POSTFIX_DECREMENT -> UnaryExpr.Operator.POSTFIX_INCREMENT;
+                default -> null;
+            };
+            if (swapped != null) {
+                candidates.put(Mutators.Increments, new Mutation("replaced " + operator.asString() + " with "
+                        + swapped.asString(), () -> unary.setOperator(swapped)));
+            } else if (operator == UnaryExpr.Operator.MINUS && !(unary.getExpression() instanceof LiteralExpr)) {
+                Expression operand = unary.getExpression().clone();
+                candidates.put(Mutators.Invert_Negatives, new Mutation("removed negation of " + operand,
+                        () -> unary.replace(operand), operand));
+            }
+        } else if (node instanceof ReturnStmt statement && statement.getExpression().isPresent()
+                && statement.getExpression().get().findFirst(BinaryExpr.class).isEmpty()
+                && statement.getExpression().get().findFirst(UnaryExpr.class).isEmpty()
+                && !(insideTryWithCatch(statement) && statement.getExpression().get().findFirst(Expression.class,
+                expression -> expression.isMethodCallExpr() || expression.isObjectCreationExpr()).isPresent())) {
+            // a return value holding other sites keeps them instead
+            returnCandidates(statement, candidates);
+        } else if (node instanceof ExpressionStmt statement && statement.getExpression() instanceof MethodCallExpr call
+                && !(statement.getParentNode().orElse(null) instanceof SwitchEntry entry
+                && entry.getType() != SwitchEntry.Type.STATEMENT_GROUP)
+                && !(statement.getParentNode().orElse(null) instanceof LambdaExpr)
+                && !insideTryWithCatch(statement)) {
+            EmptyStmt empty = new EmptyStmt();
+            candidates.put(Mutators.Void_Method_Calls, new Mutation("removed call to " + call.getNameAsString(),
+                    () -> statement.replace(empty), empty));
+        }
+        return candidates;
+    }
+
+    private static void binaryCandidates(BinaryExpr binary, Map<String, Set<String>> declaredTypes,
+                                         Map<Mutators, Mutation> candidates) {
+        BinaryExpr.Operator operator = binary.getOperator();
+        BinaryExpr.Operator boundary = switch (operator) {
+            case LESS -> BinaryExpr.Operator.LESS_EQUALS;
+            case LESS_EQUALS -> BinaryExpr.Operator.LESS;
+            case GREATER -> BinaryExpr.Operator.GREATER_EQUALS;
+            case GREATER_EQUALS -> BinaryExpr.Operator.GREATER;
+            default -> null;
+        };
+        BinaryExpr.Operator negated = switch (operator) {
+            case EQUALS -> BinaryExpr.Operator.NOT_EQUALS;
+            case NOT_EQUALS -> BinaryExpr.Operator.EQUALS;
+            case LESS -> BinaryExpr.Operator.GREATER_EQUALS;
+            case LESS_EQUALS -> BinaryExpr.Operator.GREATER;
+            case GREATER -> BinaryExpr.Operator.LESS_EQUALS;
+            case GREATER_EQUALS -> BinaryExpr.Operator.LESS;
+            default -> null;
+        };
+        BinaryExpr.Operator math = switch (operator) {
+            case PLUS -> isNumeric(binary.getLeft(), declaredTypes) && isNumeric(binary.getRight(), declaredTypes)
+                    ? BinaryExpr.Operator.MINUS : null;
+            case MINUS -> BinaryExpr.Operator.PLUS;
+            case MULTIPLY -> BinaryExpr.Operator.DIVIDE;
+            case DIVIDE -> BinaryExpr.Operator.MULTIPLY;
+            case REMAINDER -> BinaryExpr.Operator.MULTIPLY;
+            case BINARY_AND -> BinaryExpr.Operator.BINARY_OR;
+            case BINARY_OR -> BinaryExpr.Operator.BINARY_AND;
+            case XOR -> BinaryExpr.Operator.BINARY_AND;
+            case LEFT_SHIFT -> BinaryExpr.Operator.SIGNED_RIGHT_SHIFT;
+            case SIGNED_RIGHT_SHIFT -> BinaryExpr.Operator.LEFT_SHIFT;
+            case UNSIGNED_RIGHT_SHIFT -> BinaryExpr.Operator.LEFT_SHIFT;
+            default -> null;
+        };
+        put(candidates, Mutators.Conditionals_Boundary, binary, boundary);
+        put(candidates, Mutators.Negate_Conditionals, binary, negated);
+        put(candidates, Mutators.Math, binary, math);
+    }
+
+    private static void put(Map<Mutators, Mutation> candidates, Mutators mutator, BinaryExpr binary,
+                            BinaryExpr.Operator replacement) {
+        if (replacement != null) {
+            candidates.put(mutator, new Mutation("replaced " + binary.getOperator().asString() + " with "
+                    + replacement.asString(), () -> binary.setOperator(replacement)));
+        }
+    }
+
+    private static void returnCandidates(ReturnStmt statement, Map<Mutators, Mutation> candidates) {
+        Optional<Type> returnType = returnType(statement);
+        if (returnType.isEmpty() || returnType.get().isVoidType()) {
+            return;
+        }
+        Type type = returnType.get();
+        Expression value = statement.getExpression().orElseThrow();
+        String name = type.isClassOrInterfaceType() ? type.asClassOrInterfaceType().getNameAsString() : type.asString();
+
+        if (name.equals("boolean") || name.equals("Boolean")) {
+            replaceReturn(candidates, Mutators.True_Returns, statement, value, "true");
+            replaceReturn(candidates, Mutators.False_Returns, statement, value, "false");
+            if (name.equals("boolean")) {
+                replaceReturn(candidates, Mutators.Return_Values, statement, value,
+                        new UnaryExpr(value.clone(), UnaryExpr.Operator.LOGICAL_COMPLEMENT), "negated return value");
+            }
+        }
+        if (type.isPrimitiveType() && NUMERIC.contains(name)) {
+            replaceReturn(candidates, Mutators.Primitive_Returns, statement, value, "0");
+            if (Set.of("int", "long", "float", "double").contains(name)) {
+                replaceReturn(candidates, Mutators.Return_Values, statement, value,
+                        new ConditionalExpr(new BinaryExpr(value.clone(), new IntegerLiteralExpr("0"), BinaryExpr.Operator.EQUALS),
+                                new IntegerLiteralExpr("1"), new IntegerLiteralExpr("0")), "replaced return value x with x == 0 ? 1 : 0");
+            }
+        }
+        if (!type.isPrimitiveType()) {
+            if (EMPTY_VALUES.containsKey(name)) {
+                replaceReturn(candidates, Mutators.Empty_Returns, statement, value, EMPTY_VALUES.get(name));
+            }
+            replaceReturn(candidates, Mutators.Null_Returns, statement, value, "null");
+        }
+    }
+
+    private static void replaceReturn(Map<Mutators, Mutation> candidates, Mutators mutator, ReturnStmt statement,
+                                      Expression value, String replacement) {
+        if (!value.toString().equals(replacement)) {
+            replaceReturn(candidates, mutator, statement, value,
+                    ParsedSource.parser().parseExpression(replacement).getResult().orElseThrow(),
+                    "replaced return value with " + replacement);
+        }
+    }
+
+    private static void replaceReturn(Map<Mutators, Mutation> candidates, Mutators mutator, ReturnStmt statement,
+                                      Expression value, Expression replacement, String description) {
+        candidates.put(mutator, new Mutation(description, () -> value.replace(replacement), replacement));
+    }
+
+    /**
+     * @return declared return type of the method the statement returns from, empty inside lambdas
+     */
+    private static Optional<Type> returnType(ReturnStmt statement) {
+        Optional<Node> parent = statement.getParentNode();
+        while (parent.isPresent()) {
+            Node node = parent.get();
+            if (node instanceof MethodDeclaration method) {
+                return Optional.of(method.getType());
+            }
+            if (node instanceof LambdaExpr || node instanceof CallableDeclaration<?> || node instanceof InitializerDeclaration) {
+                return Optional.empty();
+            }
+            parent = node.getParentNode();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A removed call may be the only one throwing what a catch clause expects, which would not compile.
+     */
+    private static boolean insideTryWithCatch(Statement statement) {
+        Node child = statement;
+        Optional<Node> parent = statement.getParentNode();
+        while (parent.isPresent() && !(parent.get() instanceof CallableDeclaration<?>) && !(parent.get() instanceof LambdaExpr)) {
+            if (parent.get() instanceof TryStmt tryStmt && tryStmt.getTryBlock() == child && !tryStmt.getCatchClauses().isEmpty()) {
+                return true;
+            }
+            child = parent.get();
+            parent = child.getParentNode();
+        }
+        return false;
+    }
+
+    /**
+     * Sites that must stay constant or are gone: annotation values, case labels and anything inside a removed call.
+     */
+    private static boolean excluded(Node node, Set<Node> removed) {
+        Node child = node;
+        Optional<Node> parent = node.getParentNode();
+        while (parent.isPresent()) {
+            Node ancestor = parent.get();
+            if (removed.contains(ancestor) || ancestor instanceof AnnotationExpr) {
+                return true;
+            }
+            if (ancestor instanceof SwitchEntry entry && entry.getLabels().contains(child)) {
+                return true;
+            }
+            child = ancestor;
+            parent = ancestor.getParentNode();
+        }
+        return false;
+    }
+
+    /**
+     * @return statement or declaration the comment of a mutation is printed before
+     */
+    private static Node anchor(Node node) {
+        Node current = node;
+        while (!(current instanceof Statement) && !(current instanceof BodyDeclaration<?>)
+                && current.getParentNode().isPresent()) {
+            current = current.getParentNode().get();
+        }
+        return current;
+    }
+
+    /**
+     * Types declared for every variable, parameter and field name of the unit.
+     */
+    private static Map<String, Set<String>> declaredTypes(CompilationUnit unit) {
+        Map<String, Set<String>> types = new HashMap<>();
+        unit.findAll(VariableDeclarator.class).forEach(variable ->
+                types.computeIfAbsent(variable.getNameAsString(), name -> new HashSet<>()).add(variable.getTypeAsString()));
+        unit.findAll(Parameter.class).forEach(parameter ->
+                types.computeIfAbsent(parameter.getNameAsString(), name -> new HashSet<>()).add(parameter.getTypeAsString()));
+        return types;
+    }
+
+    /**
+     * @return true when the expression is known to be numeric, so {@code +} is an addition and not a concatenation
+     */
+    private static boolean isNumeric(Expression expression, Map<String, Set<String>> declaredTypes) {
+        if (expression instanceof IntegerLiteralExpr || expression instanceof LongLiteralExpr
+                || expression instanceof DoubleLiteralExpr || expression instanceof CharLiteralExpr) {
+            return true;
+        }
+        if (expression instanceof EnclosedExpr enclosed) {
+            return isNumeric(enclosed.getInner(), declaredTypes);
+        }
+        if (expression instanceof NameExpr name) {
+            return isNumericName(name.getNameAsString(), declaredTypes, false);
+        }
+        if (expression instanceof FieldAccessExpr field) {
+            return field.getNameAsString().equals("length")
+                    || field.getScope() instanceof ThisExpr && isNumericName(field.getNameAsString(), declaredTypes, false);
+        }
+        if (expression instanceof ArrayAccessExpr array && array.getName() instanceof NameExpr name) {
+            return isNumericName(name.getNameAsString(), declaredTypes, true);
+        }
+        if (expression instanceof UnaryExpr unary) {
+            return unary.getOperator() != UnaryExpr.Operator.LOGICAL_COMPLEMENT;
+        }
+        if (expression instanceof BinaryExpr binary) {
+            return switch (binary.getOperator()) {
+                case PLUS -> isNumeric(binary.getLeft(), declaredTypes) && isNumeric(binary.getRight(), declaredTypes);
+                case MINUS, MULTIPLY, DIVIDE, REMAINDER, LEFT_SHIFT, SIGNED_RIGHT_SHIFT, UNSIGNED_RIGHT_SHIFT -> true;
+                default -> false;
+            };
+        }
+        if (expression instanceof CastExpr cast) {
+            return NUMERIC.contains(cast.getTypeAsString());
+        }
+        if (expression instanceof MethodCallExpr call) {
+            return NUMERIC_METHODS.contains(call.getNameAsString())
+                    || call.getScope().filter(scope -> scope.toString().equals("Math")).isPresent()
+                    && !Set.of("toString", "random").contains(call.getNameAsString());
+        }
+        return false;
+    }
+
+    private static boolean isNumericName(String name, Map<String, Set<String>> declaredTypes, boolean element) {
+        Set<String> types = declaredTypes.get(name);
+        return types != null && !types.isEmpty() && types.stream()
+                .allMatch(type -> NUMERIC.contains(element ? type.replaceFirst("\\[]$", "") : type));
+    }
+}
@@ -1,17 +1,38 @@
 import Interfaces.LLMApiService;
-import Interfaces.LoggerService;
 
 import java.io.*;
 import java.util.List;
 
 public class Main {
     public static void main(String[] args) {
-        LoggerService logger = new Logger();
+        AsyncLogger logger = new InitProcessor(args, new Logger()).createLogger();
         InitProcessor initProcessor = new InitProcessor(args, logger);
 
         try{
             logger.log("Starting LLM Mutator ...");
 
+            MockOpenAIServer mockServer = initProcessor.createMockServer();
+            if (mockServer != null) {
+                mockServer.start(initProcessor.getMockServerPort());
+                logger.log("Mock OpenAI server listening, use -api-base " + mockServer.getBaseUrl());
+                Thread.currentThread().join();
+                return;
+            }
+
+            if (initProcessor.isServer()) {
+                MutationServer server = new MutationServer(initProcessor.getServerJobs(),
+                        initProcessor.getServerInteractiveJobs(), initProcessor.getServerInteractiveFiles(),
+                        initProcessor.getServerLlmSlots(), initProcessor.getMetrics(), logger)
+                        .setHost(initProcessor.getServerHost())
+                        .setToken(initProcessor.getServerToken())
+                        .setRoot(initProcessor.getServerRoot())
+                        .setJobDefaults(initProcessor.getServerJobDefaults())
+                        .start(initProcessor.getServerPort());
+                logger.log("Mutation server listening, submit jobs to " + server.getBaseUrl() + "/jobs");
+                Thread.currentThread().join();
+                return;
+            }
+
             List<File> files = initProcessor.getJavaFiles();
             LLMApiService apiService = initProcessor.createAPIService();
 
@@ -20,13 +41,43 @@ public class Main {
                 logger.error("No file(s) found in the specified directory. LLM Mutation Terminated...");
             } else if (apiService == null) {
                 logger.error("Unsupported LLM model. LLM Mutation Terminated...");
+            } else if (initProcessor.isDryRun()) {
+                MutationOptions options = initProcessor.getMutationOptions();
+                new DryRun(logger, new TokenBudget(options.getTokenizer(), apiService), options.getParallelism(),
+                        initProcessor.getTokensPerMinute(), initProcessor.getTokensPerSecond()).run(files);
             } else {
-                FileProcessor fileProcessor = new FileProcessor(logger, apiService);
+                MutationOptions options = initProcessor.getMutationOptions();
+                if (initProcessor.isBatch()) {
+                    options.setBatchService(initProcessor.createBatchService(apiService));
+                }
+                Metrics metrics = initProcessor.getMetrics();
+                if (initProcessor.getMetricsPort() >= 0) {
+                    metrics.serve(initProcessor.getMetricsHost(), initProcessor.getMetricsPort());
+                    logger.log("Serving metrics on http://" + initProcessor.getMetricsHost() + ":" + metrics.getPort() + "/metrics");
+                }
+                NdjsonProgressWriter progressWriter = initProcessor.createProgressWriter();
+                options.setProgressListener(progressWriter);
+                MutantCompiler compiler = initProcessor.createMutantCompiler(files);
+                KillChecker killChecker = initProcessor.createKillChecker(compiler);
+                options.setCompiler(initProcessor.isValidate() ? compiler : null).setKillChecker(killChecker);
+                FileProcessor fileProcessor = new FileProcessor(logger, apiService, options);
                 fileProcessor.processJavaFiles(files,initProcessor.getOutputPath());
+                if (killChecker != null) {
+                    killChecker.close();
+                }
+                if (compiler != null) {
+                    compiler.close();
+                }
+                metrics.close();
+                if (progressWriter != null) {
+                    progressWriter.close();
+                }
                 logger.log("LLM Mutation Completed");
             }
         } catch (Exception e) {
             logger.error(e.getMessage());
+        } finally {
+            logger.close();
         }
     }
 }
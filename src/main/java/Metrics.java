@@ -0,0 +1,295 @@
+import io.javalin.Javalin;
+import org.json.JSONObject;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counters, latency histograms and gauges of a mutation run.
+ * <p>
+ * Every metric is identified by its name and a single label, and is created on first use; recording is lock free,
+ * so stages update their metrics from any thread. The metrics can be served in the Prometheus text format on
+ * {@code /metrics} while the run goes on, and are summarised as JSON at its end. Metrics of one job of a server add
+ * their counters and durations to the metrics of the server too, while their gauges stay their own.
+ */
+public class Metrics implements AutoCloseable {
+    public static final String PREFIX = "mutator_";
+
+    /**
+     * Upper bounds of the histogram buckets in seconds, from parsing a small file to a slow LLM answer.
+     */
+    static final double[] BUCKETS = {0.001, 0.005, 0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300};
+
+    /**
+     * @param name metric name without the prefix
+     * @param label label name, empty for a metric without label
+     * @param value label value
+     */
+    private record Key(String name, String label, String value) implements Comparable<Key> {
+
+        String labels() {
+            return label.isEmpty() ? "" : "{" + label + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+        }
+
+        String jsonName() {
+            return label.isEmpty() ? name : name + "." + value;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return Comparator.comparing(Key::name).thenComparing(Key::label).thenComparing(Key::value).compare(this, other);
+        }
+    }
+
+    private static final class Histogram {
+        final LongAdder[] buckets = new LongAdder[BUCKETS.length];
+        final LongAdder count = new LongAdder();
+        final DoubleAdder sum = new DoubleAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            Arrays.setAll(buckets, i -> new LongAdder());
+        }
+
+        void observe(long nanos) {
+            double seconds = nanos / 1e9;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                if (seconds <= BUCKETS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sum.add(seconds);
+            maxNanos.accumulate(nanos);
+        }
+
+        /**
+         * @return upper bound of the bucket holding the quantile, the maximum for the overflow bucket
+         */
+        double quantile(double q) {
+            long total = count.sum();
+            long seen = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                seen += buckets[i].sum();
+                if (seen > 0 && seen >= q * total) {
+                    return BUCKETS[i];
+                }
+            }
+            return maxNanos.get() / 1e9;
+        }
+    }
+
+    private final ConcurrentMap<Key, DoubleAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+    private final long startNanos = System.nanoTime();
+    private final Metrics parent;
+    private Javalin app;
+
+    public Metrics() {
+        this(null);
+    }
+
+    /**
+     * @param parent metrics also receiving every counter and duration, null for none
+     */
+    public Metrics(Metrics parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Records the time of a stage since it started.
+     * @param stage parse, header, prompt, extract, compile, split, write or report
+     * @param startNanos {@link System#nanoTime()} at the start of the stage
+     */
+    public void stage(String stage, long startNanos) {
+        observe("stage_seconds", "stage", stage, startNanos);
+    }
+
+    /**
+     * Records a duration in a histogram.
+     * @param startNanos {@link System#nanoTime()} at the start of the measured span
+     */
+    public void observe(String name, String label, String value, long startNanos) {
+        record(name, label, value, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a duration already measured.
+     */
+    void record(String name, String label, String value, long nanos) {
+        histograms.computeIfAbsent(new Key(name, label, value), key -> new Histogram()).observe(nanos);
+        if (parent != null) {
+            parent.record(name, label, value, nanos);
+        }
+    }
+
+    public void increment(String name, String label, String value) {
+        add(name, label, value, 1);
+    }
+
+    public void add(String name, String label, String value, double amount) {
+        counters.computeIfAbsent(new Key(name, label, value), key -> new DoubleAdder()).add(amount);
+        if (parent != null) {
+            parent.add(name, label, value, amount);
+        }
+    }
+
+    /**
+     * @param type kind of the error, such as an HTTP status or an exception class
+     */
+    public void error(String type) {
+        increment("errors_total", "type", type);
+    }
+
+    /**
+     * Adds the usage of an LLM request to the token and cost counters of its model.
+     */
+    public void usage(String model, int promptTokens, int completionTokens, double cost) {
+        add("llm_prompt_tokens_total", "model", model, promptTokens);
+        add("llm_completion_tokens_total", "model", model, completionTokens);
+        add("llm_cost_usd_total", "model", model, cost);
+    }
+
+    /**
+     * Registers a value read whenever the metrics are exported, replacing an earlier one of the same name.
+     */
+    public void gauge(String name, String label, String value, Supplier<? extends Number> supplier) {
+        gauges.put(new Key(name, label, value), supplier);
+    }
+
+    /**
+     * Unregisters a gauge, so the value it reads can be collected.
+     */
+    public void removeGauge(String name, String label, String value) {
+        gauges.remove(new Key(name, label, value));
+    }
+
+    /**
+     * @return value of a counter, 0 when it was never incremented
+     */
+    public double counter(String name, String label, String value) {
+        DoubleAdder counter = counters.get(new Key(name, label, value));
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @return number of durations recorded in a histogram
+     */
+    public long count(String name, String label, String value) {
+        Histogram histogram = histograms.get(new Key(name, label, value));
+        return histogram == null ? 0 : histogram.count.sum();
+    }
+
+    /**
+     * @return all metrics in the Prometheus text exposition format
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        Set<String> typed = new HashSet<>();
+        for (Map.Entry<Key, DoubleAdder> counter : new TreeMap<>(counters).entrySet()) {
+            type(text, typed, counter.getKey().name(), "counter");
+            sample(text, counter.getKey().name(), counter.getKey().labels(), counter.getValue().sum());
+        }
+        for (Map.Entry<Key, Supplier<? extends Number>> gauge : new TreeMap<>(gauges).entrySet()) {
+            type(text, typed, gauge.getKey().name(), "gauge");
+            sample(text, gauge.getKey().name(), gauge.getKey().labels(), gauge.getValue().get().doubleValue());
+        }
+        for (Map.Entry<Key, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Key key = entry.getKey();
+            Histogram histogram = entry.getValue();
+            type(text, typed, key.name(), "histogram");
+            String labelPrefix = key.label().isEmpty() ? "{" : "{" + key.labels().substring(1, key.labels().length() - 1) + ",";
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                cumulative += histogram.buckets[i].sum();
+                sample(text, key.name() + "_bucket", labelPrefix + "le=\"" + BUCKETS[i] + "\"}", cumulative);
+            }
+            sample(text, key.name() + "_bucket", labelPrefix + "le=\"+Inf\"}", histogram.count.sum());
+            sample(text, key.name() + "_sum", key.labels(), histogram.sum.sum());
+            sample(text, key.name() + "_count", key.labels(), histogram.count.sum());
+        }
+        return text.toString();
+    }
+
+    private static void type(StringBuilder text, Set<String> typed, String name, String type) {
+        if (typed.add(name)) {
+            text.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+        }
+    }
+
+    private static void sample(StringBuilder text, String name, String labels, double value) {
+        text.append(PREFIX).append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+
+    /**
+     * @return summary of the run: counters and gauges by name, and count, total, mean, p50, p95 and maximum in
+     * seconds of every histogram
+     */
+    public JSONObject toJson() {
+        JSONObject counterValues = new JSONObject();
+        new TreeMap<>(counters).forEach((key, counter) -> counterValues.put(key.jsonName(), counter.sum()));
+        JSONObject gaugeValues = new JSONObject();
+        new TreeMap<>(gauges).forEach((key, gauge) -> gaugeValues.put(key.jsonName(), gauge.get()));
+        JSONObject latencies = new JSONObject();
+        new TreeMap<>(histograms).forEach((key, histogram) -> {
+            long count = histogram.count.sum();
+            double sum = histogram.sum.sum();
+            latencies.put(key.jsonName(), new JSONObject()
+                    .put("count", count)
+                    .put("totalSeconds", sum)
+                    .put("meanSeconds", count == 0 ? 0 : sum / count)
+                    .put("p50Seconds", histogram.quantile(0.5))
+                    .put("p95Seconds", histogram.quantile(0.95))
+                    .put("maxSeconds", histogram.maxNanos.get() / 1e9));
+        });
+        return new JSONObject()
+                .put("elapsedSeconds", (System.nanoTime() - startNanos) / 1e9)
+                .put("counters", counterValues)
+                .put("gauges", gaugeValues)
+                .put("latencies", latencies);
+    }
+
+    /**
+     * Serves the metrics on {@code /metrics} of the loopback interface until closed.
+     * @param port port to listen on, 0 for any free port
+     */
+    public Metrics serve(int port) {
+        return serve("127.0.0.1", port);
+    }
+
+    /**
+     * Serves the metrics on {@code /metrics} until closed.
+     * @param host address to listen on
+     * @param port port to listen on, 0 for any free port
+     */
+    public Metrics serve(String host, int port) {
+        app = Javalin.create()
+                .get("/metrics", ctx -> ctx.contentType("text/plain; version=0.0.4; charset=utf-8").result(toPrometheus()))
+                .start(host, port);
+        return this;
+    }
+
+    public int getPort() {
+        return app.port();
+    }
+
+    @Override
+    public void close() {
+        if (app != null) {
+            app.stop();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import jakarta.servlet.http.HttpServletResponse;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embeddable OpenAI compatible chat completions endpoint for load and resilience tests.
+ * <p>
+ * Answers are deterministic: the Java code of the prompt comes back with a fixed set of operator replacements,
+ * each marked by a comment naming the operator, wrapped in a ```java block; every ```java block of a packed prompt
+ * is mutated in place. Latency, generation speed, rate limit and server errors, truncated bodies and slowly
+ * dripping streams are configurable, so the mutator can be measured against a repeatable local target.
+ * Point a run at it with {@code -api-base http://localhost:<port>/v1}.
+ */
+public class MockOpenAIServer implements AutoCloseable {
+    private static final Pattern CODE_BLOCK = Pattern.compile("```java\\s*\\n(.*?)```", Pattern.DOTALL);
+    private static final Pattern CODE_START = Pattern.compile(
+            "^(package|import|public|protected|private|final|abstract|sealed|class|interface|enum|record|@)\\b", Pattern.MULTILINE);
+    private static final String[][] OPERATORS = {
+            {" == ", " != ", "Relational Operator Replacement"},
+            {" < ", " >= ", "Relational Operator Replacement"},
+            {" > ", " <= ", "Relational Operator Replacement"},
+            {" && ", " || ", "Conditional Operator Replacement"},
+            {" + ", " - ", "Arithmetic Operator Replacement"},
+            {" * ", " / ", "Arithmetic Operator Replacement"},
+            {"return true;", "return false;", "Return Value Mutation"},
+    };
+
+    /**
+     * Delay before the first byte of an answer.
+     */
+    @FunctionalInterface
+    public interface Latency {
+        long sampleMillis(Random random);
+
+        static Latency fixed(long millis) {
+            return random -> millis;
+        }
+
+        static Latency uniform(long minMillis, long maxMillis) {
+            return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+        }
+
+        /**
+         * Long tailed latency as seen from hosted models.
+         * @param medianMillis median delay
+         * @param sigma spread of the underlying normal distribution, 0.5 gives a p99 of about three times the median
+         */
+        static Latency logNormal(long medianMillis, double sigma) {
+            return random -> (long) (medianMillis * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    private final Random random;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger rateLimited = new AtomicInteger();
+    private final AtomicInteger serverErrors = new AtomicInteger();
+    private final AtomicInteger truncated = new AtomicInteger();
+    private volatile Latency latency = Latency.fixed(0);
+    private volatile double tokensPerSecond;
+    private volatile double rateLimitRate;
+    private volatile double serverErrorRate;
+    private volatile double truncateRate;
+    private volatile int dripChars = 16;
+    private Javalin app;
+
+    public MockOpenAIServer() {
+        this(42);
+    }
+
+    /**
+     * @param seed seed of the random faults and latencies
+     */
+    public MockOpenAIServer(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public MockOpenAIServer setLatency(Latency latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * @param tokensPerSecond generation speed, at four characters per token; 0 answers at once
+     */
+    public MockOpenAIServer setTokensPerSecond(double tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+        return this;
+    }
+
+    /**
+     * @param rate share of requests answered with 429 and a Retry-After header
+     */
+    public MockOpenAIServer setRateLimitRate(double rate) {
+        this.rateLimitRate = rate;
+        return this;
+    }
+
+    /**
+     * @param rate share of requests answered with 500
+     */
+    public MockOpenAIServer setServerErrorRate(double rate) {
+        this.serverErrorRate = rate;
+        return this;
+    }
+
+    /**
+     * @param rate share of answers cut off halfway; streams end without their last events
+     */
+    public MockOpenAIServer setTruncateRate(double rate) {
+        this.truncateRate = rate;
+        return this;
+    }
+
+    /**
+     * @param chars characters per streamed event; with a low token rate this gives a slowly dripping stream
+     */
+    public MockOpenAIServer setDripChars(int chars) {
+        this.dripChars = Math.max(1, chars);
+        return this;
+    }
+
+    /**
+     * @param port port to listen on, 0 for any free port
+     */
+    public MockOpenAIServer start(int port) {
+        app = Javalin.create()
+                .post("/v1/chat/completions", this::complete)
+                .start(port);
+        return this;
+    }
+
+    public int getPort() {
+        return app.port();
+    }
+
+    /**
+     * @return value for {@code -api-base}
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + getPort() + "/v1";
+    }
+
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    public int getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    public int getServerErrorCount() {
+        return serverErrors.get();
+    }
+
+    public int getTruncatedCount() {
+        return truncated.get();
+    }
+
+    @Override
+    public void close() {
+        if (app != null) {
+            app.stop();
+        }
+    }
+
+    private void complete(Context ctx) throws IOException, InterruptedException {
+        requests.incrementAndGet();
+        JSONObject request = new JSONObject(ctx.body());
+        double fault = random.nextDouble();
+        if (fault < rateLimitRate) {
+            rateLimited.incrementAndGet();
+            ctx.status(429).header("retry-after-ms", "100").header("x-ratelimit-remaining-requests", "0")
+                    .contentType("application/json")
+                    .result(error("Rate limit reached, please retry", "rate_limit_exceeded"));
+            return;
+        }
+        if (fault < rateLimitRate + serverErrorRate) {
+            serverErrors.incrementAndGet();
+            ctx.status(500).contentType("application/json").result(error("The server had an error", "server_error"));
+            return;
+        }
+        boolean truncate = random.nextDouble() < truncateRate;
+        Thread.sleep(Math.max(0, latency.sampleMillis(random)));
+
+        JSONArray messages = request.getJSONArray("messages");
+        String prompt = messages.getJSONObject(messages.length() - 1).getString("content");
+        String answer = answer(prompt);
+        int promptTokens = prompt.length() / 4;
+        int completionTokens = answer.length() / 4;
+        ctx.header("x-ratelimit-limit-requests", "10000").header("x-ratelimit-limit-tokens", "10000000");
+
+        if (request.optBoolean("stream")) {
+            stream(ctx.res(), request.optString("model"), answer, promptTokens, completionTokens, truncate);
+            return;
+        }
+        Thread.sleep(generationMillis(answer.length()));
+        String body = new JSONObject()
+                .put("id", "chatcmpl-mock-" + requests.get())
+                .put("object", "chat.completion")
+                .put("model", request.optString("model"))
+                .put("choices", new JSONArray().put(new JSONObject()
+                        .put("index", 0)
+                        .put("finish_reason", "stop")
+                        .put("message", new JSONObject().put("role", "assistant").put("content", answer))))
+                .put("usage", new JSONObject()
+                        .put("prompt_tokens", promptTokens)
+                        .put("completion_tokens", completionTokens)
+                        .put("total_tokens", promptTokens + completionTokens))
+                .toString();
+        if (truncate) {
+            truncated.incrementAndGet();
+            body = body.substring(0, body.length() / 2);
+        }
+        ctx.contentType("application/json").result(body);
+    }
+
+    /**
+     * Writes the answer as server-sent chunks paced at the configured generation speed.
+     */
+    private void stream(HttpServletResponse response, String model, String answer, int promptTokens,
+                        int completionTokens, boolean truncate) throws IOException, InterruptedException {
+        response.setStatus(200);
+        response.setContentType("text/event-stream");
+        OutputStream out = response.getOutputStream();
+        int end = truncate ? answer.length() / 2 : answer.length();
+        for (int start = 0; start < end; start += dripChars) {
+            String piece = answer.substring(start, Math.min(end, start + dripChars));
+            JSONObject chunk = new JSONObject()
+                    .put("object", "chat.completion.chunk")
+                    .put("model", model)
+                    .put("choices", new JSONArray().put(new JSONObject()
+                            .put("index", 0)
+                            .put("delta", new JSONObject().put("content", piece))));
+            out.write(("data: " + chunk + "\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            Thread.sleep(generationMillis(piece.length()));
+        }
+        if (truncate) {
+            truncated.incrementAndGet();
+            return;
+        }
+        JSONObject usage = new JSONObject()
+                .put("object", "chat.completion.chunk")
+                .put("choices", new JSONArray())
+                .put("usage", new JSONObject().put("prompt_tokens", promptTokens).put("completion_tokens", completionTokens));
+        out.write(("data: " + usage + "\n\ndata: [DONE]\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private long generationMillis(int chars) {
+        return tokensPerSecond <= 0 ? 0 : (long) (chars / 4.0 / tokensPerSecond * 1000);
+    }
+
+    private static String error(String message, String code) {
+        return new JSONObject().put("error", new JSONObject().put("message", message).put("code", code)).toString();
+    }
+
+    /**
+     * Mutates every ```java block of the prompt in place, or the code at its end when it has none.
+     */
+    static String answer(String prompt) {
+        Matcher blocks = CODE_BLOCK.matcher(prompt);
+        if (blocks.find()) {
+            int start = prompt.lastIndexOf("\n\n", blocks.start());
+            StringBuilder answer = new StringBuilder();
+            blocks.reset();
+            int last = start < 0 ? 0 : start + 2;
+            while (blocks.find()) {
+                answer.append(prompt, last, blocks.start(1)).append(mutate(blocks.group(1))).append("```");
+                last = blocks.end();
+            }
+            return answer.append(prompt.substring(last)).toString().trim();
+        }
+        Matcher code = CODE_START.matcher(prompt);
+        String javaCode = code.find() ? prompt.substring(code.start()) : prompt;
+        return "Here is the mutated class:\n```java\n" + mutate(javaCode).trim() + "\n```";
+    }
+
+    /**
+     * Applies the first matching operator replacement to every statement line and names it in a comment.
+     */
+    static String mutate(String javaCode) {
+        StringBuilder mutated = new StringBuilder();
+        for (String line : javaCode.split("\n", -1)) {
+            String result = line;
+            if (line.trim().endsWith(";") && !line.contains("//") && !line.contains("\"")) {
+                for (String[] operator : OPERATORS) {
+                    int at = line.indexOf(operator[0]);
+                    if (at >= 0) {
+                        result = line.substring(0, at) + operator[1] + line.substring(at + operator[0].length())
+                                + " // " + operator[2];
+                        break;
+                    }
+                }
+            }
+            mutated.append(result).append("\n");
+        }
+        return mutated.substring(0, mutated.length() - 1);
+    }
+}
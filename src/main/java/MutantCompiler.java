@@ -0,0 +1,296 @@
+import Interfaces.LoggerService;
+import com.sun.source.util.JavacTask;
+
+import javax.tools.*;
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Compiles mutants in memory with the system Java compiler before they are written.
+ * <p>
+ * Mutants are analysed against the project classpath, with the original sources as source path, and class files
+ * are only generated, in memory, when asked for. Workers take whatever mutants are waiting, up to
+ * {@link #BATCH_SIZE}, and compile them in one compiler task, mutants of the same file in successive tasks. Every worker keeps its own file manager for its whole life, since a file manager is not
+ * thread-safe. A mutant failing in a batch is compiled on its own to confirm the errors, and its original as well:
+ * when the original does not compile either, the classpath is incomplete and the mutant is let through.
+ */
+public class MutantCompiler implements AutoCloseable {
+    static final int BATCH_SIZE = 16;
+    private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;");
+    private static final Unit END = new Unit(null, null, null, null);
+
+    private final JavaCompiler compiler;
+    private final List<File> classpath;
+    private final List<File> sourcepath;
+    private final LoggerService logger;
+    private final BlockingQueue<Unit> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    /**
+     * A mutant waiting for the compiler.
+     * @param name path of the source below the run root, its file name must match a public class
+     * @param code mutated code
+     * @param original code of the original file, null when the mutant is compiled to classes
+     * @param classes generated classes by binary name, null when the mutant is only checked
+     */
+    private record Unit(String name, String code, String original, CompletableFuture<List<String>> errors,
+                        Map<String, byte[]> classes) {
+
+        Unit(String name, String code, String original, Map<String, byte[]> classes) {
+            this(name, code, original, new CompletableFuture<>(), classes);
+        }
+    }
+
+    /**
+     * @param classpath class path of the project, jars and class directories
+     * @param sourcepath source roots of the project, so mutants can use the classes next to them
+     * @param workers number of concurrent compiler tasks
+     * @throws IllegalStateException when running on a JRE without compiler
+     */
+    public MutantCompiler(List<File> classpath, List<File> sourcepath, int workers, LoggerService logger) {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No system Java compiler available, run the mutator on a JDK");
+        }
+        this.classpath = List.copyOf(classpath);
+        this.sourcepath = List.copyOf(sourcepath);
+        this.logger = logger;
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            Thread worker = Thread.ofPlatform().daemon().name("mutant-compiler-" + i).start(this::work);
+            this.workers.add(worker);
+        }
+    }
+
+    /**
+     * Queues a mutant for compilation.
+     * @param name path of the source, its file name must match the public class
+     * @param code mutated code
+     * @param original code of the original file, compiled only when the mutant does not compile
+     * @return future completing with the compiler errors, empty when the mutant compiles or can not be validated
+     */
+    public CompletableFuture<List<String>> compile(String name, String code, String original) {
+        Unit unit = new Unit(name, code, original, null);
+        queue.add(unit);
+        return unit.errors();
+    }
+
+    /**
+     * Queues a mutant for compilation to class files, kept in memory.
+     * @param name path of the source, its file name must match the public class
+     * @param code mutated code
+     * @return future completing with the classes by binary name, or failing with an
+     * {@link IllegalArgumentException} naming the first error when the mutant does not compile
+     */
+    public CompletableFuture<Map<String, byte[]>> compileClasses(String name, String code) {
+        Unit unit = new Unit(name, code, null, new HashMap<>());
+        queue.add(unit);
+        return unit.errors().thenApply(errors -> {
+            if (!errors.isEmpty()) {
+                throw new IllegalArgumentException(name + " does not compile, " + errors.getFirst());
+            }
+            return unit.classes();
+        });
+    }
+
+    @Override
+    public void close() {
+        queue.add(END);
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void work() {
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8)) {
+            fileManager.setLocation(StandardLocation.CLASS_PATH, classpath);
+            fileManager.setLocation(StandardLocation.SOURCE_PATH, sourcepath);
+            List<Unit> batch = new ArrayList<>();
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                boolean end = batch.remove(END);
+                try {
+                    compileBatch(fileManager, batch);
+                } catch (RuntimeException e) {
+                    logger.error("Mutant compiler failed: " + e);
+                    batch.forEach(unit -> unit.errors().complete(List.of()));
+                }
+                batch.clear();
+                if (end) {
+                    queue.add(END);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Mutant compiler failed: " + e.getMessage());
+        } finally {
+            List<Unit> left = new ArrayList<>();
+            queue.drainTo(left);
+            left.stream().filter(unit -> unit != END).forEach(unit -> unit.errors().complete(List.of()));
+            if (left.contains(END)) {
+                queue.add(END);
+            }
+        }
+    }
+
+    /**
+     * Compiles a batch in rounds, since mutants of the same file can not share a compiler task: their classes clash.
+     */
+    private void compileBatch(StandardJavaFileManager fileManager, List<Unit> batch) {
+        List<Unit> pending = batch;
+        while (!pending.isEmpty()) {
+            Set<String> names = new HashSet<>();
+            List<Unit> round = new ArrayList<>();
+            List<Unit> later = new ArrayList<>();
+            for (Unit unit : pending) {
+                (names.add(unit.name()) ? round : later).add(unit);
+            }
+            compileRound(fileManager, round);
+            pending = later;
+        }
+    }
+
+    private void compileRound(StandardJavaFileManager fileManager, List<Unit> round) {
+        Map<Unit, List<String>> errors = compile(fileManager, round, false);
+        // javac generates no class file at all once a unit of the task has errors
+        boolean failed = errors.values().stream().anyMatch(unitErrors -> !unitErrors.isEmpty());
+        for (Unit unit : round) {
+            List<String> unitErrors = errors.get(unit);
+            if (round.size() > 1 && (!unitErrors.isEmpty() || failed && unit.classes() != null)) {
+                // another mutant of the round may be the cause
+                unitErrors = compile(fileManager, List.of(unit), false).get(unit);
+            }
+            if (!unitErrors.isEmpty() && unit.original() != null
+                    && !compile(fileManager, List.of(unit), true).get(unit).isEmpty()) {
+                logger.error(unit.name() + " could not be validated, its original does not compile against the classpath");
+                unitErrors = List.of();
+            }
+            unit.errors().complete(unitErrors);
+        }
+    }
+
+    /**
+     * Parses and attributes the given sources in one compiler task, and generates the classes of units asking
+     * for them.
+     * @param original true to compile the original code of the units instead of the mutants
+     * @return error messages of every unit
+     */
+    private Map<Unit, List<String>> compile(StandardJavaFileManager fileManager, List<Unit> sources, boolean original) {
+        Map<JavaFileObject, Unit> units = new LinkedHashMap<>();
+        // units hold mutable class maps, so they are told apart by identity
+        Map<Unit, List<String>> errors = new IdentityHashMap<>();
+        for (Unit unit : sources) {
+            units.put(new Source(unit.name(), original ? unit.original() : unit.code()), unit);
+            errors.put(unit, new ArrayList<>());
+        }
+        boolean generate = !original && sources.stream().anyMatch(unit -> unit.classes() != null);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavacTask task = (JavacTask) compiler.getTask(null, generate ? capture(fileManager, units) : fileManager,
+                diagnostics, List.of("-proc:none", "-implicit:none", "-nowarn", "-Xlint:none"), null, units.keySet());
+        try {
+            if (generate) {
+                units.values().stream().filter(unit -> unit.classes() != null).forEach(unit -> unit.classes().clear());
+                task.generate();
+            } else {
+                task.analyze();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            Unit unit = units.get(diagnostic.getSource());
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR && unit != null) {
+                errors.get(unit).add("line " + diagnostic.getLineNumber() + ": " + diagnostic.getMessage(Locale.ROOT));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * @return file manager keeping the generated classes in the units they were compiled from
+     */
+    private static JavaFileManager capture(StandardJavaFileManager fileManager, Map<JavaFileObject, Unit> units) {
+        return new ForwardingJavaFileManager<>(fileManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                       FileObject sibling) {
+                Unit unit = units.get(sibling);
+                return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return new ByteArrayOutputStream() {
+                            @Override
+                            public void close() {
+                                if (unit != null && unit.classes() != null) {
+                                    unit.classes().put(className, toByteArray());
+                                }
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Source file held in memory.
+     */
+    private static final class Source extends SimpleJavaFileObject {
+        private final String code;
+
+        Source(String name, String code) {
+            super(URI.create("mem:///" + name.replace(File.separatorChar, '/').replace(" ", "%20")), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    /**
+     * Finds the source roots of files from their package declarations.
+     * @param files source files
+     * @return directories the package directories of the files start in
+     */
+    public static List<File> sourceRoots(List<File> files) {
+        Set<File> roots = new LinkedHashSet<>();
+        for (File file : files) {
+            File root = file.getAbsoluteFile().getParentFile();
+            String pkg = packageOf(file.toPath());
+            for (int i = 0; !pkg.isEmpty() && i <= pkg.length() - pkg.replace(".", "").length() && root != null; i++) {
+                root = root.getParentFile();
+            }
+            if (root != null) {
+                roots.add(root);
+            }
+        }
+        return new ArrayList<>(roots);
+    }
+
+    private static String packageOf(Path file) {
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return lines.map(PACKAGE::matcher).filter(Matcher::find).map(matcher -> matcher.group(1)).findFirst().orElse("");
+        } catch (IOException | UncheckedIOException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drops mutants that can not be told apart from their original, or from a mutant of another file, once comments,
+ * formatting and import order are ignored.
+ * <p>
+ * Such mutants can not be killed, or are killed by the same tests as the earlier one, so running the test suite
+ * against them only costs time. Sources are compared by their {@link ParsedSource#getFingerprint() fingerprint}, a
+ * hash of the canonical code, so only one hash per file is kept for the whole run.
+ */
+public class MutantFilter {
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * @param original source of the mutated file
+     * @param name path of the file, reported when a later mutant repeats this one
+     * @param mutatedCode code of the mutant
+     * @return reason to drop the mutant, or null to keep it; a mutant that does not parse is kept
+     */
+    public String check(ParsedSource original, String name, String mutatedCode) {
+        String fingerprint = ParsedSource.of(original.getFile(), mutatedCode).getFingerprint();
+        if (fingerprint == null) {
+            return null;
+        }
+        if (fingerprint.equals(original.getFingerprint())) {
+            return "identical to the original";
+        }
+        String first = fingerprints.putIfAbsent(fingerprint, name);
+        if (first != null && !first.equals(name)) {
+            return "identical to the mutant of " + first;
+        }
+        return null;
+    }
+}
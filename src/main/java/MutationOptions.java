@@ -0,0 +1,207 @@
+import Interfaces.ProgressListener;
+import Interfaces.Tokenizer;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of a mutation run that change how {@link FileProcessor} moves files through its stages.
+ * Setters return this instance so options can be chained.
+ */
+public class MutationOptions {
+    private int parallelism = 1;
+    private boolean streaming;
+    private boolean resume;
+    private int chunkLines;
+    private int packTokens;
+    private Tokenizer tokenizer = Tokenizer.approximate();
+    private OpenAIBatchService batchService;
+    private HeaderDetector headerDetector = HeaderDetector.defaults();
+    private MutantCompiler compiler;
+    private boolean dropEquivalent = true;
+    private boolean firstOrder;
+    private KillChecker killChecker;
+    private Metrics metrics = new Metrics();
+    private ProgressListener progressListener;
+    private Path outputDirectory;
+
+    /**
+     * @return maximum number of LLM requests in flight; values above 1 run the staged pipeline
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public MutationOptions setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * @return true when answers are streamed and their code block is written to the output file as it arrives
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public MutationOptions setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    /**
+     * @return true when the output directory of an earlier run is kept and its finished files are skipped
+     */
+    public boolean isResume() {
+        return resume;
+    }
+
+    public MutationOptions setResume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    /**
+     * @return lines above which a class is split into method groups mutated by concurrent requests, 0 to never split
+     */
+    public int getChunkLines() {
+        return chunkLines;
+    }
+
+    public MutationOptions setChunkLines(int chunkLines) {
+        this.chunkLines = Math.max(0, chunkLines);
+        return this;
+    }
+
+    /**
+     * @return code tokens of small files sent together in one request, 0 to send every file on its own
+     */
+    public int getPackTokens() {
+        return packTokens;
+    }
+
+    public MutationOptions setPackTokens(int packTokens) {
+        this.packTokens = Math.max(0, packTokens);
+        return this;
+    }
+
+    /**
+     * @return tokenizer counting the tokens of a request before it is sent
+     */
+    public Tokenizer getTokenizer() {
+        return tokenizer;
+    }
+
+    public MutationOptions setTokenizer(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+        return this;
+    }
+
+    /**
+     * @return batch service all files are sent through, null to send interactive requests
+     */
+    public OpenAIBatchService getBatchService() {
+        return batchService;
+    }
+
+    public MutationOptions setBatchService(OpenAIBatchService batchService) {
+        this.batchService = batchService;
+        return this;
+    }
+
+    /**
+     * @return detector of the licence headers kept at the top of mutated files
+     */
+    public HeaderDetector getHeaderDetector() {
+        return headerDetector;
+    }
+
+    public MutationOptions setHeaderDetector(HeaderDetector headerDetector) {
+        this.headerDetector = headerDetector;
+        return this;
+    }
+
+    /**
+     * @return compiler mutants must pass before they are written, null to write them unchecked
+     */
+    public MutantCompiler getCompiler() {
+        return compiler;
+    }
+
+    public MutationOptions setCompiler(MutantCompiler compiler) {
+        this.compiler = compiler;
+        return this;
+    }
+
+    /**
+     * @return true when mutants equivalent to their original, or repeating an earlier mutant, are dropped
+     */
+    public boolean isDropEquivalent() {
+        return dropEquivalent;
+    }
+
+    public MutationOptions setDropEquivalent(boolean dropEquivalent) {
+        this.dropEquivalent = dropEquivalent;
+        return this;
+    }
+
+    /**
+     * @return true when every mutated file is also split into first-order mutants with one change each
+     */
+    public boolean isFirstOrder() {
+        return firstOrder;
+    }
+
+    public MutationOptions setFirstOrder(boolean firstOrder) {
+        this.firstOrder = firstOrder;
+        return this;
+    }
+
+    /**
+     * @return checker running the tests against every written mutant, null to only write the mutants
+     */
+    public KillChecker getKillChecker() {
+        return killChecker;
+    }
+
+    public MutationOptions setKillChecker(KillChecker killChecker) {
+        this.killChecker = killChecker;
+        return this;
+    }
+
+    /**
+     * @return metrics the stages of the run are recorded in
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public MutationOptions setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * @return directory the mutants and reports of the run are written to, null for {@code output} next to the
+     * mutated file or directory
+     */
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public MutationOptions setOutputDirectory(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+        return this;
+    }
+
+    /**
+     * @return listener receiving the progress events of the run besides the console, null for none
+     */
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public MutationOptions setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+}
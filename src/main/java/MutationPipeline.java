@@ -0,0 +1,193 @@
+import Interfaces.LoggerService;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the mutation of many files as a staged pipeline:
+ * discover -> parse/strip -> pack (optional) -> LLM request -> extract/validate -> write/report.
+ * Every stage owns a bounded input queue, so a slow stage applies back pressure to the ones before it.
+ * The LLM stage runs on virtual threads and its worker count is the in-flight request limit.
+ * The depth of every queue is exported as a gauge of the run {@link Metrics} while the pipeline runs.
+ */
+public class MutationPipeline {
+    private static final FileProcessor.MutationTask END = new FileProcessor.MutationTask((File) null);
+
+    private final FileProcessor processor;
+    private final LoggerService logger;
+    private final int parallelism;
+    private final Metrics metrics;
+
+    public MutationPipeline(FileProcessor processor, LoggerService logger, int parallelism) {
+        this(processor, logger, parallelism, new Metrics());
+    }
+
+    public MutationPipeline(FileProcessor processor, LoggerService logger, int parallelism, Metrics metrics) {
+        this.processor = processor;
+        this.logger = logger;
+        this.parallelism = Math.max(1, parallelism);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Pushes all files through the pipeline and blocks until the last one is written.
+     * @param files files to mutate
+     */
+    public void run(List<File> files) {
+        int cpuWorkers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), parallelism));
+
+        BlockingQueue<FileProcessor.MutationTask> parseQueue = new ArrayBlockingQueue<>(cpuWorkers * 2);
+        BlockingQueue<FileProcessor.MutationTask> requestQueue = new ArrayBlockingQueue<>(parallelism * 2);
+        BlockingQueue<FileProcessor.MutationTask> extractQueue = new ArrayBlockingQueue<>(parallelism * 2);
+        BlockingQueue<FileProcessor.MutationTask> writeQueue = new ArrayBlockingQueue<>(cpuWorkers * 2);
+        metrics.gauge("queue_depth", "queue", "parse", parseQueue::size);
+        metrics.gauge("queue_depth", "queue", "request", requestQueue::size);
+        metrics.gauge("queue_depth", "queue", "extract", extractQueue::size);
+        metrics.gauge("queue_depth", "queue", "write", writeQueue::size);
+
+        ThreadFactory platform = Thread.ofPlatform().daemon().name("mutator-stage-", 0).factory();
+        ThreadFactory virtual = Thread.ofVirtual().name("mutator-llm-", 0).factory();
+
+        Thread discover = platform.newThread(() -> {
+            try {
+                for (File file : files) {
+                    parseQueue.put(new FileProcessor.MutationTask(file));
+                }
+                parseQueue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        FilePacker packer = processor.newPacker();
+        BlockingQueue<FileProcessor.MutationTask> packQueue = packer == null ? requestQueue : new ArrayBlockingQueue<>(cpuWorkers * 2);
+        if (packer != null) {
+            metrics.gauge("queue_depth", "queue", "pack", packQueue::size);
+        }
+        startStage(platform, cpuWorkers, parseQueue, packQueue, task -> processor.prepareTask(task.file));
+        if (packer != null) {
+            startPackStage(platform, packer, packQueue, requestQueue);
+        }
+        startStage(virtual, parallelism, requestQueue, extractQueue, task -> {
+            if (task.isPending()) {
+                processor.requestMutation(task);
+            }
+            return task;
+        });
+        startStage(platform, cpuWorkers, extractQueue, writeQueue, task -> {
+            if (task.isPending()) {
+                processor.extractMutation(task);
+            }
+            return task;
+        });
+
+        discover.start();
+        try {
+            drainWriteQueue(writeQueue);
+        } finally {
+            for (String queue : List.of("parse", "request", "extract", "write", "pack")) {
+                metrics.removeGauge("queue_depth", "queue", queue);
+            }
+        }
+    }
+
+    /**
+     * Write/report stage. Runs on the calling thread so {@link #run(List)} returns once every file is done.
+     */
+    private void drainWriteQueue(BlockingQueue<FileProcessor.MutationTask> writeQueue) {
+        try {
+            while (true) {
+                FileProcessor.MutationTask task = writeQueue.take();
+                if (task == END) {
+                    return;
+                }
+                if (task.isPending()) {
+                    try {
+                        processor.writeMutation(task);
+                    } catch (Exception e) {
+                        metrics.error(e.getClass().getSimpleName());
+                        processor.fail(task, "Failed to write mutation for " + task.getName() + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts {@code workers} threads that move tasks from {@code in} to {@code out}.
+     * The end marker is passed on once the last worker of the stage has seen it.
+     */
+    private void startStage(ThreadFactory factory, int workers,
+                            BlockingQueue<FileProcessor.MutationTask> in,
+                            BlockingQueue<FileProcessor.MutationTask> out,
+                            Stage stage) {
+        AtomicInteger running = new AtomicInteger(workers);
+        for (int i = 0; i < workers; i++) {
+            factory.newThread(() -> {
+                try {
+                    while (true) {
+                        FileProcessor.MutationTask task = in.take();
+                        if (task == END) {
+                            in.put(END);
+                            break;
+                        }
+                        out.put(apply(stage, task));
+                    }
+                    if (running.decrementAndGet() == 0) {
+                        out.put(END);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }).start();
+        }
+    }
+
+    /**
+     * Single threaded stage collecting small files into packs; the last partial pack is sent once all files are parsed.
+     */
+    private void startPackStage(ThreadFactory factory, FilePacker packer,
+                                BlockingQueue<FileProcessor.MutationTask> in,
+                                BlockingQueue<FileProcessor.MutationTask> out) {
+        factory.newThread(() -> {
+            try {
+                while (true) {
+                    FileProcessor.MutationTask task = in.take();
+                    if (task == END) {
+                        for (FileProcessor.MutationTask ready : packer.flush()) {
+                            out.put(ready);
+                        }
+                        out.put(END);
+                        return;
+                    }
+                    for (FileProcessor.MutationTask ready : packer.add(task)) {
+                        out.put(ready);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+    }
+
+    private FileProcessor.MutationTask apply(Stage stage, FileProcessor.MutationTask task) {
+        try {
+            return stage.apply(task);
+        } catch (Exception e) {
+            metrics.error(e.getClass().getSimpleName());
+            processor.fail(task, "Mutation of " + task.getName() + " failed: " + e.getMessage());
+            return task;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        FileProcessor.MutationTask apply(FileProcessor.MutationTask task) throws Exception;
+    }
+}
@@ -0,0 +1,657 @@
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+import Interfaces.ProgressListener;
+import enums.LogLevel;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.UnauthorizedResponse;
+import io.javalin.http.sse.SseClient;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Long-lived mutator taking mutation jobs over HTTP, so the JVM, the parser and the LLM clients stay warm between
+ * runs.
+ * <p>
+ * A job is a file or directory with the arguments of a command line run, in the interactive or the bulk lane.
+ * Interactive jobs, by default those of a single file, run on job threads of their own, so they do not wait
+ * behind bulk jobs; bulk jobs wait in order for one of a fixed number of job threads. An interactive job with more
+ * files than the interactive lane takes is moved to the bulk lane when it starts, so a large directory submitted
+ * as interactive cannot starve the bulk jobs. The LLM requests of all jobs share the slots of a {@link JobScheduler}, which serves the
+ * interactive lane first and shares the rest between jobs by their weight. Jobs with the same engine, model,
+ * endpoint, cache and rate limits share one LLM service, and with it the rate limit scheduler, the response cache
+ * and the HTTP client. Every job records its run metrics of its own, which also add up in the server metrics
+ * served on {@code /metrics}, along with those of the LLM services. Progress events of a job are
+ * streamed as server-sent events, replaying the last {@link #REPLAY_EVENTS} events sent before the client
+ * connected. Every job writes to an output directory of its own, so jobs on the same files never clear each
+ * other's output. Cancelling a job skips the files not yet sent to the LLM. Finished jobs are forgotten after a while,
+ * and beyond a number of them the oldest first.
+ * <p>
+ * The server listens on the loopback interface by default and every request needs the header
+ * {@code Authorization: Bearer <token>}. Jobs submitted over HTTP may only mutate paths inside the server root and
+ * only use the options in {@link #JOB_OPTIONS}; the endpoint, the response cache and the other options that could
+ * send the API key elsewhere, run code of the host or touch other files are those the server was started with.
+ * <ul>
+ *     <li>{@code POST /jobs} with {@code {"path": "...", "args": ["-engine", "local"], "priority": "bulk",
+ *     "weight": 2}} submits a job</li>
+ *     <li>{@code GET /jobs} and {@code GET /jobs/{id}} report the state and totals of jobs</li>
+ *     <li>{@code GET /jobs/{id}/events} streams the progress of a job</li>
+ *     <li>{@code DELETE /jobs/{id}} cancels a job</li>
+ * </ul>
+ */
+public class MutationServer implements AutoCloseable {
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    /**
+     * Options a job submitted over HTTP may use, mapped to whether they take a value.
+     */
+    static final Map<String, Boolean> JOB_OPTIONS = Map.ofEntries(
+            Map.entry("-model", true), Map.entry("-engine", true), Map.entry("-parallel", true),
+            Map.entry("-chunk-lines", true), Map.entry("-pack", true), Map.entry("-batch-poll", true),
+            Map.entry("-rpm", true), Map.entry("-tpm", true), Map.entry("-tokens-per-second", true),
+            Map.entry("-stream", false), Map.entry("-batch", false), Map.entry("-dry-run", false),
+            Map.entry("-first-order", false), Map.entry("-keep-equivalent", false));
+    static final int REPLAY_EVENTS = 1000;
+
+    private final LoggerService logger;
+    private final Metrics metrics;
+    private final ExecutorService runner;
+    private final ExecutorService interactiveRunner;
+    private final int interactiveFiles;
+    private final JobScheduler scheduler;
+    private final ConcurrentMap<String, LLMApiService> services = new ConcurrentHashMap<>();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private String host = "127.0.0.1";
+    private String token;
+    private Path root = Paths.get("");
+    private List<String> jobDefaults = List.of();
+    private Duration retention = Duration.ofHours(1);
+    private int retainedJobs = 100;
+    private Javalin app;
+
+    /**
+     * Creates a server running 2 interactive jobs of up to 10 files at the same time.
+     * @param jobs number of bulk jobs run at the same time
+     * @param llmSlots LLM requests in flight at most, over all jobs
+     * @param metrics metrics of the server, adding up those of all jobs
+     */
+    public MutationServer(int jobs, int llmSlots, Metrics metrics, LoggerService logger) {
+        this(jobs, 2, 10, llmSlots, metrics, logger);
+    }
+
+    /**
+     * @param jobs number of bulk jobs run at the same time
+     * @param interactiveJobs number of interactive jobs run at the same time
+     * @param interactiveFiles files of an interactive job at most, larger jobs are moved to the bulk lane
+     * @param llmSlots LLM requests in flight at most, over all jobs
+     * @param metrics metrics of the server, adding up those of all jobs
+     */
+    public MutationServer(int jobs, int interactiveJobs, int interactiveFiles, int llmSlots, Metrics metrics,
+                          LoggerService logger) {
+        this.logger = logger;
+        this.metrics = metrics;
+        this.scheduler = JobScheduler.create(llmSlots, metrics);
+        this.runner = Executors.newFixedThreadPool(Math.max(1, jobs),
+                Thread.ofPlatform().daemon().name("mutation-job-", 0).factory());
+        this.interactiveRunner = Executors.newFixedThreadPool(Math.max(1, interactiveJobs),
+                Thread.ofPlatform().daemon().name("mutation-job-interactive-", 0).factory());
+        this.interactiveFiles = Math.max(1, interactiveFiles);
+        metrics.gauge("server_jobs", "state", "queued", () -> count(State.QUEUED));
+        metrics.gauge("server_jobs", "state", "running", () -> count(State.RUNNING));
+    }
+
+    /**
+     * @param host address to listen on, 127.0.0.1 by default
+     */
+    public MutationServer setHost(String host) {
+        this.host = host;
+        return this;
+    }
+
+    /**
+     * @param token token every request must carry, null to generate one at start
+     */
+    public MutationServer setToken(String token) {
+        this.token = token;
+        return this;
+    }
+
+    /**
+     * @param root directory holding every path jobs submitted over HTTP may mutate, the working directory by default
+     */
+    public MutationServer setRoot(Path root) {
+        this.root = root;
+        return this;
+    }
+
+    /**
+     * @param jobDefaults arguments added to every job submitted over HTTP, such as the endpoint and the cache
+     */
+    public MutationServer setJobDefaults(List<String> jobDefaults) {
+        this.jobDefaults = List.copyOf(jobDefaults);
+        return this;
+    }
+
+    /**
+     * @param retention time a finished job is kept, one hour by default
+     * @param retainedJobs finished jobs kept at most, 100 by default
+     */
+    public MutationServer setRetention(Duration retention, int retainedJobs) {
+        this.retention = retention;
+        this.retainedJobs = Math.max(0, retainedJobs);
+        return this;
+    }
+
+    /**
+     * @param port port to listen on, 0 for any free port
+     */
+    public MutationServer start(int port) {
+        if (token == null || token.isEmpty()) {
+            byte[] random = new byte[24];
+            new SecureRandom().nextBytes(random);
+            token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+            logger.log("Generated server token, send it as Authorization: Bearer " + token);
+        }
+        app = Javalin.create()
+                .before(this::authorize)
+                .post("/jobs", this::submit)
+                .get("/jobs", ctx -> json(ctx, new JSONArray(jobs.values().stream()
+                        .sorted(Comparator.comparingLong(job -> job.number))
+                        .map(Job::toJson).toList())))
+                .get("/jobs/{id}", ctx -> withJob(ctx, job -> json(ctx, job.toJson())))
+                .delete("/jobs/{id}", ctx -> withJob(ctx, job -> {
+                    cancel(job);
+                    ctx.status(202);
+                    json(ctx, job.toJson());
+                }))
+                .sse("/jobs/{id}/events", this::subscribe)
+                .get("/metrics", ctx -> ctx.contentType("text/plain; version=0.0.4; charset=utf-8")
+                        .result(metrics.toPrometheus()))
+                .start(host, port);
+        return this;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public int getPort() {
+        return app.port();
+    }
+
+    /**
+     * @return base URL of the job API
+     */
+    public String getBaseUrl() {
+        boolean anyAddress = host.equals("0.0.0.0") || host.equals("::");
+        return "http://" + (anyAddress ? "localhost" : host.contains(":") ? "[" + host + "]" : host) + ":" + getPort();
+    }
+
+    private void authorize(Context ctx) {
+        String header = ctx.header("Authorization");
+        byte[] given = (header == null ? "" : header).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(given, ("Bearer " + token).getBytes(StandardCharsets.UTF_8))) {
+            throw new UnauthorizedResponse();
+        }
+    }
+
+    private void submit(Context ctx) {
+        List<String> args = new ArrayList<>();
+        JobScheduler.Lane lane;
+        int weight;
+        try {
+            JSONObject body = new JSONObject(ctx.body());
+            Path path = resolve(body.optString("path", ""));
+            args.add(Files.isDirectory(path) ? "-dir" : "-f");
+            args.add(path.toString());
+            args.addAll(jobDefaults);
+            List<String> options = new ArrayList<>();
+            JSONArray given = body.optJSONArray("args");
+            for (int i = 0; given != null && i < given.length(); i++) {
+                options.add(given.getString(i));
+            }
+            checkOptions(options);
+            args.addAll(options);
+            String priority = body.optString("priority", "");
+            lane = priority.isEmpty() ? defaultLane(args) : JobScheduler.Lane.valueOf(priority.toUpperCase(Locale.ROOT));
+            weight = body.optInt("weight", 1);
+        } catch (JSONException | IllegalArgumentException e) {
+            ctx.status(400);
+            json(ctx, new JSONObject().put("error", "Invalid job: " + e.getMessage()));
+            return;
+        }
+        Job job = submit(args.toArray(String[]::new), lane, weight);
+        ctx.status(202);
+        json(ctx, job.toJson().put("events", "/jobs/" + job.id + "/events"));
+    }
+
+    /**
+     * @return the real path of a job, which must lie inside the server root
+     * @throws IllegalArgumentException if it does not
+     */
+    private Path resolve(String path) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("no path");
+        }
+        try {
+            Path rootPath = root.toRealPath();
+            Path resolved = rootPath.resolve(path).toRealPath();
+            // the output directory is created next to the mutated directory, so the root itself is left out
+            if (!resolved.startsWith(rootPath) || resolved.equals(rootPath)) {
+                throw new IllegalArgumentException(path + " is not inside the server root");
+            }
+            return resolved;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(path + " does not exist");
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException for an option outside {@link #JOB_OPTIONS}
+     */
+    static void checkOptions(List<String> options) {
+        for (int i = 0; i < options.size(); i++) {
+            Boolean takesValue = JOB_OPTIONS.get(options.get(i).toLowerCase(Locale.ROOT));
+            if (takesValue == null) {
+                throw new IllegalArgumentException("option " + options.get(i) + " is not allowed in a job");
+            }
+            if (takesValue) {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Queues a job in its default lane with weight 1.
+     * @param args arguments of the run, as on the command line
+     * @return the queued job
+     */
+    public Job submit(String[] args) {
+        return submit(args, defaultLane(Arrays.asList(args)), 1);
+    }
+
+    /**
+     * Queues a job.
+     * @param args arguments of the run, as on the command line
+     * @param weight share of the LLM slots relative to the other jobs of the lane
+     * @return the queued job
+     */
+    public Job submit(String[] args, JobScheduler.Lane lane, int weight) {
+        evictFinished();
+        long number = ids.incrementAndGet();
+        Job job = new Job(number, args, lane, Math.max(1, weight));
+        jobs.put(job.id, job);
+        logger.log("Job " + job.id + " queued in the " + lane.name().toLowerCase(Locale.ROOT) + " lane: "
+                + String.join(" ", args));
+        (lane == JobScheduler.Lane.INTERACTIVE ? interactiveRunner : runner).execute(() -> run(job));
+        return job;
+    }
+
+    /**
+     * @return the interactive lane for a single file, the bulk lane for a directory
+     */
+    static JobScheduler.Lane defaultLane(List<String> args) {
+        return args.contains("-f") && !args.contains("-dir") ? JobScheduler.Lane.INTERACTIVE : JobScheduler.Lane.BULK;
+    }
+
+    public Job getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Forgets the jobs finished longer ago than the retention, and the oldest finished jobs beyond their limit.
+     */
+    private void evictFinished() {
+        long now = System.nanoTime();
+        List<Job> finished = jobs.values().stream()
+                .filter(Job::isFinished)
+                .sorted(Comparator.comparingLong(job -> job.number))
+                .toList();
+        int excess = finished.size() - retainedJobs;
+        for (Job job : finished) {
+            if (excess-- > 0 || now - job.finishedNanos > retention.toNanos()) {
+                jobs.remove(job.id);
+            }
+        }
+    }
+
+    /**
+     * Cancels a job: a queued job never starts, a running one skips the files not yet sent to the LLM.
+     */
+    public void cancel(Job job) {
+        synchronized (job) {
+            if (job.state != State.QUEUED && job.state != State.RUNNING) {
+                return;
+            }
+            job.cancelled = true;
+            if (job.processor != null) {
+                job.processor.cancel();
+            }
+            if (job.share != null) {
+                job.share.cancel();
+            }
+        }
+        logger.log("Job " + job.id + " cancelled");
+    }
+
+    private void run(Job job) {
+        synchronized (job) {
+            if (job.cancelled) {
+                job.finish(State.CANCELLED, "cancelled before it started");
+                return;
+            }
+            job.state = State.RUNNING;
+        }
+        LoggerService jobLogger = new JobLogger(job.id);
+        JobScheduler.Share share = null;
+        try {
+            InitProcessor initProcessor = new InitProcessor(job.args, jobLogger, new Metrics(metrics));
+            List<File> files = initProcessor.getJavaFiles();
+            if (files.isEmpty()) {
+                job.finish(State.FAILED, "No file(s) found");
+                return;
+            }
+            if (job.lane == JobScheduler.Lane.INTERACTIVE && files.size() > interactiveFiles) {
+                logger.log("Job " + job.id + " has " + files.size() + " files, more than the " + interactiveFiles
+                        + " of the interactive lane, moved to the bulk lane");
+                synchronized (job) {
+                    job.lane = JobScheduler.Lane.BULK;
+                    job.state = State.QUEUED;
+                }
+                runner.execute(() -> run(job));
+                return;
+            }
+            if (initProcessor.isDryRun()) {
+                dryRun(job, initProcessor, files, jobLogger);
+                return;
+            }
+            synchronized (job) {
+                share = scheduler.join(job.id, job.lane, job.weight);
+                job.share = share;
+                if (job.cancelled) {
+                    share.cancel();
+                }
+            }
+            LLMApiService apiService = service(job.args);
+            if (apiService == null) {
+                job.finish(State.FAILED, "Unsupported LLM model or engine");
+                return;
+            }
+            job.output = initProcessor.getOutputPath().resolve("output").resolve("job-" + job.id);
+            MutationOptions options = initProcessor.getMutationOptions().setProgressListener(job)
+                    .setOutputDirectory(job.output);
+            if (initProcessor.isBatch()) {
+                options.setBatchService(initProcessor.createBatchService(apiService));
+            }
+            MutantCompiler compiler = initProcessor.createMutantCompiler(files);
+            KillChecker killChecker = initProcessor.createKillChecker(compiler);
+            options.setCompiler(initProcessor.isValidate() ? compiler : null).setKillChecker(killChecker);
+            FileProcessor processor = new FileProcessor(jobLogger, new ScheduledLLMService(apiService, share), options);
+            synchronized (job) {
+                job.processor = processor;
+                if (job.cancelled) {
+                    processor.cancel();
+                }
+            }
+            try {
+                processor.processJavaFiles(files, initProcessor.getOutputPath());
+            } finally {
+                if (killChecker != null) {
+                    killChecker.close();
+                }
+                if (compiler != null) {
+                    compiler.close();
+                }
+            }
+            job.finish(job.cancelled ? State.CANCELLED : State.DONE, "");
+        } catch (Exception e) {
+            logger.error("Job " + job.id + " failed: " + e.getMessage());
+            job.finish(State.FAILED, String.valueOf(e.getMessage()));
+        } finally {
+            if (share != null) {
+                share.leave();
+            }
+        }
+    }
+
+    /**
+     * Estimates a job without sending a request or writing output, the estimate becoming part of its state.
+     */
+    private void dryRun(Job job, InitProcessor initProcessor, List<File> files, LoggerService jobLogger) {
+        LLMApiService apiService = service(job.args);
+        if (apiService == null) {
+            job.finish(State.FAILED, "Unsupported LLM model or engine");
+            return;
+        }
+        MutationOptions options = initProcessor.getMutationOptions();
+        job.estimate = new DryRun(jobLogger, new TokenBudget(options.getTokenizer(), apiService), options.getParallelism(),
+                initProcessor.getTokensPerMinute(), initProcessor.getTokensPerSecond()).run(files);
+        job.finish(job.cancelled ? State.CANCELLED : State.DONE, "");
+    }
+
+    /**
+     * @return the service of the arguments, created by the first job asking for it and kept for later jobs
+     */
+    private LLMApiService service(String[] args) {
+        InitProcessor initProcessor = new InitProcessor(args, logger, metrics);
+        return services.computeIfAbsent(initProcessor.getServiceKey(), key -> initProcessor.createAPIService());
+    }
+
+    private void subscribe(SseClient client) {
+        Job job = jobs.get(client.ctx().pathParam("id"));
+        if (job == null) {
+            client.sendEvent("error", new JSONObject().put("error", "Unknown job").toString());
+            client.close();
+            return;
+        }
+        synchronized (job) {
+            for (JSONObject event : job.events) {
+                client.sendEvent(event.getString("event"), event.toString());
+            }
+            if (job.isFinished()) {
+                client.sendEvent("job", job.toJson().toString());
+                client.close();
+                return;
+            }
+            // kept alive before the job can see the client, or a job finishing right now would close it too early
+            client.keepAlive();
+            client.onClose(() -> {
+                synchronized (job) {
+                    job.clients.remove(client);
+                }
+            });
+            job.clients.add(client);
+        }
+    }
+
+    private void withJob(Context ctx, Consumer<Job> action) {
+        Job job = jobs.get(ctx.pathParam("id"));
+        if (job == null) {
+            ctx.status(404);
+            json(ctx, new JSONObject().put("error", "Unknown job"));
+        } else {
+            action.accept(job);
+        }
+    }
+
+    private static void json(Context ctx, Object json) {
+        ctx.contentType("application/json").result(json.toString());
+    }
+
+    private long count(State state) {
+        return jobs.values().stream().filter(job -> job.state == state).count();
+    }
+
+    /**
+     * Stops taking requests and cancels the jobs still queued or running.
+     */
+    @Override
+    public void close() {
+        if (app != null) {
+            app.stop();
+        }
+        jobs.values().forEach(this::cancel);
+        runner.shutdown();
+        interactiveRunner.shutdown();
+    }
+
+    /**
+     * A mutation run submitted to the server, collecting its progress events for the clients following it.
+     */
+    public static final class Job implements ProgressListener {
+        final long number;
+        final String id;
+        final String[] args;
+        final int weight;
+        volatile JobScheduler.Lane lane;
+        final Deque<JSONObject> events = new ArrayDeque<>();
+        final Set<SseClient> clients = new HashSet<>();
+        volatile State state = State.QUEUED;
+        volatile String message = "";
+        volatile Event last;
+        volatile DryRun.Estimate estimate;
+        volatile Path output;
+        volatile long finishedNanos;
+        boolean cancelled;
+        FileProcessor processor;
+        JobScheduler.Share share;
+
+        Job(long number, String[] args, JobScheduler.Lane lane, int weight) {
+            this.number = number;
+            this.id = String.valueOf(number);
+            this.args = args;
+            this.lane = lane;
+            this.weight = weight;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        boolean isFinished() {
+            return state == State.DONE || state == State.FAILED || state == State.CANCELLED;
+        }
+
+        @Override
+        public synchronized void onProgress(Event event) {
+            last = event;
+            JSONObject json = NdjsonProgressWriter.toJson(event);
+            events.add(json);
+            if (events.size() > REPLAY_EVENTS) {
+                events.poll();
+            }
+            String type = json.getString("event");
+            String data = json.toString();
+            clients.forEach(client -> client.sendEvent(type, data));
+        }
+
+        synchronized void finish(State state, String message) {
+            this.finishedNanos = System.nanoTime();
+            this.state = state;
+            this.message = message;
+            String data = toJson().toString();
+            clients.forEach(client -> {
+                client.sendEvent("job", data);
+                client.close();
+            });
+            clients.clear();
+        }
+
+        /**
+         * @return id, state and totals of the job
+         */
+        public JSONObject toJson() {
+            JSONObject json = new JSONObject()
+                    .put("id", id)
+                    .put("state", state.name().toLowerCase(Locale.ROOT))
+                    .put("priority", lane.name().toLowerCase(Locale.ROOT))
+                    .put("weight", weight)
+                    .put("args", new JSONArray(args));
+            if (output != null) {
+                json.put("output", output.toString());
+            }
+            if (!message.isEmpty()) {
+                json.put("message", message);
+            }
+            Event progress = last;
+            if (progress != null) {
+                json.put("total", progress.total())
+                        .put("finished", progress.finished())
+                        .put("failed", progress.failed())
+                        .put("totalTokens", progress.totalTokens())
+                        .put("totalCost", progress.totalCost());
+            }
+            DryRun.Estimate projection = estimate;
+            if (projection != null) {
+                json.put("estimate", new JSONObject()
+                        .put("files", projection.files())
+                        .put("oversized", projection.oversized())
+                        .put("promptTokens", projection.promptTokens())
+                        .put("outputTokens", projection.outputTokens())
+                        .put("cost", projection.cost())
+                        .put("seconds", projection.seconds()));
+            }
+            return json;
+        }
+    }
+
+    /**
+     * Logs the messages of a job through the server log, marked with the job.
+     */
+    private final class JobLogger implements LoggerService {
+        private final String prefix;
+
+        JobLogger(String id) {
+            this.prefix = "[job " + id + "] ";
+        }
+
+        @Override
+        public void log(String message) {
+            logger.log(prefix + message);
+        }
+
+        @Override
+        public void error(String message) {
+            logger.error(prefix + message);
+        }
+
+        @Override
+        public void debug(String message) {
+            logger.debug(prefix + message);
+        }
+
+        @Override
+        public boolean isEnabled(LogLevel level) {
+            return logger.isEnabled(level);
+        }
+
+        @Override
+        public void event(LogLevel level, String stage, String file, long nanos, String message) {
+            logger.event(level, stage, file, nanos, prefix + message);
+        }
+    }
+}
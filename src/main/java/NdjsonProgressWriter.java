@@ -0,0 +1,69 @@
+import Interfaces.ProgressListener;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Writes progress events as newline delimited JSON, one compact object per line, for the GUI and other tools.
+ * <p>
+ * Lines are written under a lock on the calling thread and flushed at once, so a reader sees every event as it
+ * happens and never half a line.
+ */
+public class NdjsonProgressWriter implements ProgressListener, AutoCloseable {
+    private final Writer out;
+    private final boolean closeStream;
+
+    /**
+     * @param out stream the events are written to
+     * @param closeStream true to close the stream with this writer, false for standard output
+     */
+    public NdjsonProgressWriter(OutputStream out, boolean closeStream) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.closeStream = closeStream;
+    }
+
+    @Override
+    public void onProgress(Event event) {
+        String line = toJson(event).toString();
+        synchronized (out) {
+            try {
+                out.write(line);
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                // the reader went away, progress is not worth failing the run for
+            }
+        }
+    }
+
+    static JSONObject toJson(Event event) {
+        JSONObject json = new JSONObject().put("event", event.type().name().toLowerCase(Locale.ROOT));
+        if (event.file() != null) {
+            json.put("file", event.file());
+        }
+        if (!event.message().isEmpty()) {
+            json.put("message", event.message());
+        }
+        if (event.tokens() > 0) {
+            json.put("tokens", event.tokens()).put("cost", event.cost());
+        }
+        return json.put("total", event.total())
+                .put("finished", event.finished())
+                .put("failed", event.failed())
+                .put("totalTokens", event.totalTokens())
+                .put("totalCost", event.totalCost())
+                .put("etaSeconds", event.etaSeconds());
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (out) {
+            out.flush();
+            if (closeStream) {
+                out.close();
+            }
+        }
+    }
+}
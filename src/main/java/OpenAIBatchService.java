@@ -0,0 +1,191 @@
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Sends mutation requests through the OpenAI Batch API instead of one chat completion at a time.
+ * <p>
+ * All prompts are written to one JSONL file of chat requests, uploaded and submitted as a batch. The batch is
+ * polled until it has ended, then its output and error files are read line by line and every answer is handed on
+ * as soon as its line has arrived. Batches cost half the price of interactive requests and run against separate
+ * limits, at the price of finishing within hours instead of seconds.
+ */
+public class OpenAIBatchService {
+    private static final Set<String> ENDED = Set.of("completed", "failed", "expired", "cancelled");
+
+    private final LLMApiService prompts;
+    private final String apiKey;
+    private final String apiBase;
+    private final HttpClient client;
+    private final Duration pollInterval;
+    private final LoggerService logger;
+
+    /**
+     * @param prompts service generating the prompts and pricing the answers
+     * @param apiBase base URL of the API, such as {@code https://api.openai.com/v1}
+     * @param pollInterval time between two status requests
+     */
+    public OpenAIBatchService(LLMApiService prompts, String apiKey, String apiBase, HttpClient client,
+                              Duration pollInterval, LoggerService logger) {
+        this.prompts = prompts;
+        this.apiKey = apiKey;
+        this.apiBase = apiBase.endsWith("/") ? apiBase.substring(0, apiBase.length() - 1) : apiBase;
+        this.client = client;
+        this.pollInterval = pollInterval;
+        this.logger = logger;
+    }
+
+    /**
+     * Submits one request per entry and blocks until the batch has ended.
+     * @param javaCodes code to be mutated by request id
+     * @param onResult receives the answer of every request, "Error: ..." content when the request failed;
+     *                 requests of an expired or failed batch may get no answer at all
+     * @throws IOException if the batch can not be submitted or its results can not be read
+     */
+    public void run(Map<String, String> javaCodes, BiConsumer<String, LLMApiService.Response> onResult)
+            throws IOException, InterruptedException {
+        String inputFileId = upload(requests(javaCodes));
+        JSONObject batch = send(post("/batches", new JSONObject()
+                .put("input_file_id", inputFileId)
+                .put("endpoint", "/v1/chat/completions")
+                .put("completion_window", "24h")));
+        String batchId = batch.getString("id");
+        logger.log("Batch " + batchId + " submitted with " + javaCodes.size() + " request(s)...");
+
+        String status = batch.optString("status");
+        while (!ENDED.contains(status)) {
+            Thread.sleep(pollInterval.toMillis());
+            JSONObject polled = send(request("/batches/" + batchId).GET().build());
+            if (!polled.optString("status").equals(status)) {
+                JSONObject counts = polled.optJSONObject("request_counts");
+                logger.log("Batch " + batchId + " is " + polled.optString("status")
+                        + (counts == null ? "" : " (" + counts.optInt("completed") + "/" + counts.optInt("total") + " done)"));
+            }
+            status = polled.optString("status");
+            batch = polled;
+        }
+        if (!status.equals("completed")) {
+            logger.error("Batch " + batchId + " ended as " + status + ", reading the answers it produced");
+        }
+
+        for (String fileKey : new String[]{"output_file_id", "error_file_id"}) {
+            String fileId = batch.optString(fileKey, "");
+            if (!fileId.isEmpty() && !fileId.equals("null")) {
+                readResults(fileId, onResult);
+            }
+        }
+    }
+
+    /**
+     * @return the JSONL input file of the batch
+     */
+    String requests(Map<String, String> javaCodes) {
+        StringBuilder jsonl = new StringBuilder();
+        javaCodes.forEach((id, javaCode) -> jsonl.append(new JSONObject()
+                .put("custom_id", id)
+                .put("method", "POST")
+                .put("url", "/v1/chat/completions")
+                .put("body", OpenAIService.chatRequestBody(prompts.getModelName(), prompts.generatePrompt(javaCode))))
+                .append("\n"));
+        return jsonl.toString();
+    }
+
+    private String upload(String jsonl) throws IOException, InterruptedException {
+        String boundary = "----mutator" + UUID.randomUUID();
+        String body = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"purpose\"\r\n\r\nbatch\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"mutations.jsonl\"\r\n"
+                + "Content-Type: application/jsonl\r\n\r\n"
+                + jsonl + "\r\n"
+                + "--" + boundary + "--\r\n";
+        HttpRequest request = request("/files")
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+        return send(request).getString("id");
+    }
+
+    /**
+     * Reads a result file line by line and passes every answer on while the rest is still downloading.
+     */
+    private void readResults(String fileId, BiConsumer<String, LLMApiService.Response> onResult)
+            throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(request("/files/" + fileId + "/content").GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("HTTP " + response.statusCode() + " reading batch results: " + reader.readLine());
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    try {
+                        JSONObject result = new JSONObject(line);
+                        onResult.accept(result.getString("custom_id"), toResponse(result));
+                    } catch (JSONException e) {
+                        logger.error("Unreadable batch result line: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Batch answers are billed at half the price of interactive requests.
+     */
+    private LLMApiService.Response toResponse(JSONObject result) {
+        JSONObject response = result.optJSONObject("response");
+        JSONObject body = response == null ? null : response.optJSONObject("body");
+        if (response == null || response.optInt("status_code") / 100 != 2 || body == null || !body.has("choices")) {
+            JSONObject error = result.optJSONObject("error");
+            if (error == null && body != null) {
+                error = body.optJSONObject("error");
+            }
+            return new LLMApiService.Response("Error: " + (error == null ? "no answer" : error.optString("message")), 0, 0, 0.0);
+        }
+        String content = body.getJSONArray("choices").getJSONObject(0).getJSONObject("message").getString("content").trim();
+        JSONObject usage = body.optJSONObject("usage");
+        int promptTokens = usage == null ? 0 : usage.optInt("prompt_tokens");
+        int completionTokens = usage == null ? 0 : usage.optInt("completion_tokens");
+        return new LLMApiService.Response(content, promptTokens, completionTokens,
+                prompts.estimateCost(promptTokens, completionTokens) / 2);
+    }
+
+    private HttpRequest post(String path, JSONObject body) {
+        return request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(apiBase + path))
+                .timeout(Duration.ofMinutes(5))
+                .header("Authorization", "Bearer " + apiKey);
+    }
+
+    private JSONObject send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("HTTP " + response.statusCode() + " from " + request.uri().getPath() + ": " + response.body().replace("\n", " "));
+        }
+        return new JSONObject(response.body());
+    }
+}
@@ -1,5 +1,6 @@
 import Interfaces.LLMApiService;
 import Interfaces.LoggerService;
+import enums.LogLevel;
 import enums.Mutators;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
@@ -8,46 +9,298 @@ import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
-import java.util.concurrent.atomic.AtomicBoolean;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class OpenAIService implements LLMApiService {
 
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+
     private final String API_KEY;
     private final String MODEL_NAME;
-    private double TOTAL_COST;
+    private final DoubleAdder TOTAL_COST;
     private final String API_URL;
     private final LoggerService logger;
     private final HttpClient client;
+    private final Supplier<java.net.http.HttpClient> asyncClient;
+    private final RequestScheduler scheduler;
+    private final Metrics metrics;
+    private final AtomicInteger inFlight = new AtomicInteger();
 
     public OpenAIService(String modelName, String apiKey, String apiUrl, HttpClient httpClient, LoggerService logger) {
+        this(modelName, apiKey, apiUrl, httpClient, null, null, logger);
+    }
+
+    /**
+     * Creates a service sending its requests through a shared non-blocking {@link java.net.http.HttpClient}.
+     */
+    public OpenAIService(String modelName, String apiKey, String apiUrl, java.net.http.HttpClient httpClient, LoggerService logger) {
+        this(modelName, apiKey, apiUrl, httpClient, new RequestScheduler(logger), logger);
+    }
+
+    /**
+     * Creates a service sending its requests through a shared non-blocking {@link java.net.http.HttpClient},
+     * paced and retried by the given scheduler.
+     */
+    public OpenAIService(String modelName, String apiKey, String apiUrl, java.net.http.HttpClient httpClient,
+                         RequestScheduler scheduler, LoggerService logger) {
+        this(modelName, apiKey, apiUrl, httpClient, scheduler, new Metrics(), logger);
+    }
+
+    /**
+     * Creates a service sending its requests through a shared non-blocking {@link java.net.http.HttpClient},
+     * paced and retried by the given scheduler, and recording prompt, network, token and error metrics.
+     */
+    public OpenAIService(String modelName, String apiKey, String apiUrl, java.net.http.HttpClient httpClient,
+                         RequestScheduler scheduler, Metrics metrics, LoggerService logger) {
+        this(modelName, apiKey, apiUrl, null, () -> httpClient, scheduler, metrics, logger);
+    }
+
+    /**
+     * Creates a service that asks for its {@link java.net.http.HttpClient} only when it sends the first request,
+     * so runs that never send one, such as dry runs, do not start a client.
+     */
+    public OpenAIService(String modelName, String apiKey, String apiUrl, Supplier<java.net.http.HttpClient> httpClient,
+                         RequestScheduler scheduler, Metrics metrics, LoggerService logger) {
+        this(modelName, apiKey, apiUrl, null, httpClient, scheduler, metrics, logger);
+    }
+
+    private OpenAIService(String modelName, String apiKey, String apiUrl, HttpClient httpClient,
+                          Supplier<java.net.http.HttpClient> asyncClient, RequestScheduler scheduler, LoggerService logger) {
+        this(modelName, apiKey, apiUrl, httpClient, asyncClient, scheduler, new Metrics(), logger);
+    }
+
+    private OpenAIService(String modelName, String apiKey, String apiUrl, HttpClient httpClient,
+                          Supplier<java.net.http.HttpClient> asyncClient, RequestScheduler scheduler, Metrics metrics,
+                          LoggerService logger) {
         this.MODEL_NAME = modelName;
-        this.TOTAL_COST = 0.0;
+        this.TOTAL_COST = new DoubleAdder();
         this.logger = logger;
         this.API_KEY = apiKey;
         this.API_URL = apiUrl;
         this.client = httpClient;
+        this.asyncClient = asyncClient;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        metrics.gauge("llm_requests_in_flight", "model", modelName, inFlight::get);
     }
 
     @Override
     public String askOpenAI(String javaCode) {
         try {
+            if (asyncClient != null) {
+                return askOpenAIAsync(javaCode).join().content();
+            }
             logger.log("LLM Mutation started...");
 
             //generate prompt
-            String prompt = generatePrompt(javaCode);
+            logger.log("Generating Prompt...");
+            String prompt = buildPrompt(javaCode);
 
             //Sending request
             JSONObject responseJson = sendAPIRequest(prompt);
 
-            return processResponse(responseJson);
+            return processResponse(responseJson).content();
+        } catch (CompletionException e) {
+            return "Error: " + e.getCause().getMessage();
         } catch (Exception e) {
             return "Error: " + e.getMessage();
         }
     }
 
-    private String generatePrompt(String javaCode) {
+    @Override
+    public CompletableFuture<Response> askOpenAIAsync(String javaCode) {
+        if (asyncClient == null) {
+            return LLMApiService.super.askOpenAIAsync(javaCode);
+        }
+        logger.log("LLM Mutation started...");
+
+        //generate prompt
         logger.log("Generating Prompt...");
+        String prompt = buildPrompt(javaCode);
+
+        HttpRequest request = newRequest(buildRequestBody(prompt));
+        int estimatedTokens = estimateTokens(prompt, javaCode);
+
+        logger.log("Sending API request to " + MODEL_NAME + "...");
+        return timed(send(request, HttpResponse.BodyHandlers.ofString(), estimatedTokens)
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new CompletionException(new IllegalStateException(
+                                "HTTP " + response.statusCode() + " from " + MODEL_NAME + ": " + response.body()));
+                    }
+                    Response result = processResponse(new JSONObject(response.body()));
+                    scheduler.reconcile(estimatedTokens, result.promptTokens() + result.completionTokens());
+                    return result;
+                }));
+    }
 
+    @Override
+    public CompletableFuture<Response> askOpenAIStreaming(String javaCode, Predicate<String> onDelta) {
+        if (asyncClient == null) {
+            return LLMApiService.super.askOpenAIStreaming(javaCode, onDelta);
+        }
+        logger.log("LLM Mutation started...");
+
+        //generate prompt
+        logger.log("Generating Prompt...");
+        String prompt = buildPrompt(javaCode);
+
+        JSONObject body = buildRequestBody(prompt)
+                .put("stream", true)
+                .put("stream_options", new JSONObject().put("include_usage", true));
+        HttpRequest request = newRequest(body);
+        int estimatedTokens = estimateTokens(prompt, javaCode);
+
+        // error bodies are read completely so a retried request does not leave a stream open
+        HttpResponse.BodyHandler<InputStream> handler = info -> info.statusCode() / 100 == 2
+                ? HttpResponse.BodySubscribers.ofInputStream()
+                : HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), ByteArrayInputStream::new);
+
+        logger.log("Sending streaming API request to " + MODEL_NAME + "...");
+        return timed(send(request, handler, estimatedTokens)
+                .thenApplyAsync(response -> {
+                    try (InputStream stream = response.body()) {
+                        if (response.statusCode() / 100 != 2) {
+                            throw new IllegalStateException("HTTP " + response.statusCode() + " from " + MODEL_NAME + ": "
+                                    + new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+                        }
+                        Response result = readEvents(stream, onDelta, prompt);
+                        scheduler.reconcile(estimatedTokens, result.promptTokens() + result.completionTokens());
+                        return result;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, Thread::startVirtualThread));
+    }
+
+    /**
+     * Sends a request through the scheduler, recording the time to the response headers and the failure of every
+     * attempt.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                                                        int estimatedTokens) {
+        inFlight.incrementAndGet();
+        return scheduler.submit(estimatedTokens, () -> {
+            long start = System.nanoTime();
+            HttpResponse.BodyHandler<T> timedHandler = info -> {
+                metrics.observe("llm_ttfb_seconds", "model", MODEL_NAME, start);
+                if (info.statusCode() / 100 != 2) {
+                    metrics.error("http_" + info.statusCode());
+                }
+                return handler.apply(info);
+            };
+            return asyncClient.get().sendAsync(request, timedHandler).whenComplete((response, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    metrics.error(cause.getClass().getSimpleName());
+                }
+            });
+        });
+    }
+
+    /**
+     * Records the time of a request from its submission, pacing and retries included, until its answer is read.
+     * The request counts as in flight until then.
+     */
+    private <T> CompletableFuture<T> timed(CompletableFuture<T> request) {
+        long start = System.nanoTime();
+        return request.whenComplete((result, error) -> {
+            inFlight.decrementAndGet();
+            metrics.observe("llm_request_seconds", "model", MODEL_NAME, start);
+        });
+    }
+
+    /**
+     * Reads server-sent chat completion chunks until the stream ends or the consumer has seen enough.
+     * Usage is reported in the last chunk; when the stream is cut off before it, the tokens are estimated.
+     */
+    private Response readEvents(InputStream stream, Predicate<String> onDelta, String prompt) throws IOException {
+        StringBuilder content = new StringBuilder();
+        int promptTokens = -1;
+        int completionTokens = -1;
+        boolean wanted = true;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        String line;
+        while (wanted && (line = reader.readLine()) != null) {
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            String data = line.substring("data:".length()).trim();
+            if (data.equals("[DONE]")) {
+                break;
+            }
+            JSONObject chunk = new JSONObject(data);
+            JSONArray choices = chunk.optJSONArray("choices");
+            if (choices != null && !choices.isEmpty()) {
+                JSONObject delta = choices.getJSONObject(0).optJSONObject("delta");
+                String text = delta == null ? "" : delta.optString("content", "");
+                if (!text.isEmpty()) {
+                    content.append(text);
+                    wanted = onDelta.test(text);
+                }
+            }
+            JSONObject usage = chunk.optJSONObject("usage");
+            if (usage != null) {
+                promptTokens = usage.getInt("prompt_tokens");
+                completionTokens = usage.getInt("completion_tokens");
+            }
+        }
+
+        String responseText = content.toString().trim();
+        if (responseText.isEmpty()) {
+            responseText = "No response from the model.";
+            logger.error(responseText);
+            return new Response(responseText, 0, 0, 0.0);
+        }
+        logger.log(wanted ? "API response received..." : "API response received, stream closed after the code block...");
+        if (promptTokens < 0) {
+            promptTokens = prompt.length() / 4;
+            completionTokens = content.length() / 4;
+        }
+        double cost = recordUsage(promptTokens, completionTokens);
+        return new Response(responseText, promptTokens, completionTokens, cost);
+    }
+
+    @Override
+    public String getModelName() {
+        return MODEL_NAME;
+    }
+
+    /**
+     * gpt-4o and gpt-4o-mini share a 128k context and 16k output tokens
+     */
+    @Override
+    public int getContextWindow() {
+        return 128_000;
+    }
+
+    @Override
+    public int getMaxOutputTokens() {
+        return 16_384;
+    }
+
+    @Override
+    public double estimateCost(int promptTokens, int completionTokens) {
+        double inputCostPerToken = 0.150 / 1000000;
+        double outputCostPerToken = 0.600 / 1000000;
+        return promptTokens * inputCostPerToken + completionTokens * outputCostPerToken;
+    }
+
+    @Override
+    public String generatePrompt(String javaCode) {
         StringBuilder mutators = new StringBuilder();
         for (Mutators mutator : Mutators.values()) {
             mutators.append("- ").append(mutator.getReadableName()).append("\n");
@@ -61,6 +314,16 @@ public class OpenAIService implements LLMApiService {
 
     }
 
+    /**
+     * Generates the prompt and records the time it took.
+     */
+    private String buildPrompt(String javaCode) {
+        long start = System.nanoTime();
+        String prompt = generatePrompt(javaCode);
+        metrics.stage("prompt", start);
+        return prompt;
+    }
+
     private JSONObject sendAPIRequest(String prompt) throws Exception {
         HttpPost request = new HttpPost(API_URL);
 
@@ -68,41 +331,63 @@ public class OpenAIService implements LLMApiService {
 
         request.setHeader("Authorization", "Bearer " + API_KEY);
         request.setHeader("Content-Type", "application/json");
+        request.setEntity(new StringEntity(buildRequestBody(prompt).toString()));
+
+        long start = System.nanoTime();
+        String responseString;
+        try {
+            responseString = EntityUtils.toString(client.execute(request).getEntity());
+        } catch (IOException e) {
+            metrics.error(e.getClass().getSimpleName());
+            throw e;
+        } finally {
+            metrics.observe("llm_request_seconds", "model", MODEL_NAME, start);
+        }
+        return new JSONObject(responseString);
+    }
 
+    private HttpRequest newRequest(JSONObject body) {
+        return HttpRequest.newBuilder(URI.create(API_URL))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + API_KEY)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    /**
+     * prompt and completion, both roughly the size of the code at four characters per token
+     */
+    private static int estimateTokens(String prompt, String javaCode) {
+        return (prompt.length() + javaCode.length()) / 4;
+    }
+
+    /**
+     * Builds the chat completion request body for a prompt.
+     */
+    private JSONObject buildRequestBody(String prompt) {
+        return chatRequestBody(MODEL_NAME, prompt);
+    }
+
+    /**
+     * Chat completion request body, shared with the batch requests of {@link OpenAIBatchService}.
+     */
+    static JSONObject chatRequestBody(String model, String prompt) {
         JSONArray messages = new JSONArray();
         messages.put(new JSONObject().put("role", "system").put("content", "You are a helpful assistant."));
         messages.put(new JSONObject().put("role", "user").put("content", prompt));
 
         JSONObject requestBody = new JSONObject();
-        requestBody.put("model", MODEL_NAME);
+        requestBody.put("model", model);
         requestBody.put("messages", messages);
-
-        request.setEntity(new StringEntity(requestBody.toString()));
-
-        AtomicBoolean running = new AtomicBoolean(true);;
-        Thread spinner = new Thread(() -> {
-            String animation = "|/-\\";
-            int i = 0;
-            while (running.get()) {
-                System.out.print("\r" + animation.charAt(i++ % animation.length()));
-                try {
-                    Thread.sleep(250);
-                } catch (InterruptedException ignored) {}
-            }
-            System.out.print("\r");
-        });
-        spinner.start();
-
-        String responseString = EntityUtils.toString(client.execute(request).getEntity());
-
-        running.set(false);
-        spinner.join();
-        return new JSONObject(responseString);
+        return requestBody;
     }
 
-    private String processResponse(JSONObject responseJson) {
-        StringBuilder responseBuilder = new StringBuilder();
+    private Response processResponse(JSONObject responseJson) {
         String responseText = "";
+        int promptTokens = 0;
+        int completionTokens = 0;
+        double totalCost = 0.0;
 
         if (responseJson.has("choices")) {
             responseText = responseJson.getJSONArray("choices").getJSONObject(0).getJSONObject("message").getString("content").trim();
@@ -116,28 +401,35 @@ public class OpenAIService implements LLMApiService {
             logger.log("API response received...");
 
             if (responseJson.has("usage")) {
-                int promptTokens = responseJson.getJSONObject("usage").getInt("prompt_tokens");
-                int completionTokens = responseJson.getJSONObject("usage").getInt("completion_tokens");
-                int totalTokens = responseJson.getJSONObject("usage").getInt("total_tokens");
-
-                double inputCostPerToken = 0.150 / 1000000;
-                double outputCostPerToken = 0.600 / 1000000;
-                double inputCost = promptTokens * inputCostPerToken;
-                double outputCost = completionTokens * outputCostPerToken;
-                double totalCost = inputCost + outputCost;
-                TOTAL_COST = TOTAL_COST + totalCost;
-
-                responseBuilder.append("---- Token Usage ----\n");
-                responseBuilder.append("Prompt Tokens: ").append(promptTokens).append("\n");
-                responseBuilder.append("Completion Tokens: ").append(completionTokens).append("\n");
-                responseBuilder.append("Total Tokens: ").append(totalTokens).append("\n");
-                responseBuilder.append(String.format("Estimated Cost: $%.6f", totalCost)).append("\n");
-                logger.log(responseBuilder.toString());
-                logger.log(String.format("Combined Overall Token Cost: $%.6f", TOTAL_COST));
+                promptTokens = responseJson.getJSONObject("usage").getInt("prompt_tokens");
+                completionTokens = responseJson.getJSONObject("usage").getInt("completion_tokens");
+                totalCost = recordUsage(promptTokens, completionTokens);
             }
         }
 
-        return responseText;
+        return new Response(responseText, promptTokens, completionTokens, totalCost);
     }
 
+    /**
+     * Adds the cost of a request to the running total and logs the token usage.
+     * @return cost of the request
+     */
+    private double recordUsage(int promptTokens, int completionTokens) {
+        double totalCost = estimateCost(promptTokens, completionTokens);
+        TOTAL_COST.add(totalCost);
+        metrics.usage(MODEL_NAME, promptTokens, completionTokens, totalCost);
+
+        // one message, so the block of a request stays together when requests finish at the same time
+        logger.log(LogLevel.INFO, () -> {
+            StringBuilder responseBuilder = new StringBuilder();
+            responseBuilder.append("---- Token Usage ----\n");
+            responseBuilder.append("Prompt Tokens: ").append(promptTokens).append("\n");
+            responseBuilder.append("Completion Tokens: ").append(completionTokens).append("\n");
+            responseBuilder.append("Total Tokens: ").append(promptTokens + completionTokens).append("\n");
+            responseBuilder.append(String.format("Estimated Cost: $%.6f", totalCost)).append("\n");
+            responseBuilder.append(String.format("Combined Overall Token Cost: $%.6f", TOTAL_COST.sum()));
+            return responseBuilder.toString();
+        });
+        return totalCost;
+    }
 }
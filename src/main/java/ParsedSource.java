@@ -0,0 +1,222 @@
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.printer.DefaultPrettyPrinter;
+import com.github.javaparser.printer.configuration.DefaultConfigurationOption;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration;
+import com.github.javaparser.printer.configuration.DefaultPrinterConfiguration.ConfigOption;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One source file, read once and parsed at most once.
+ * <p>
+ * The licence header, the comment free code and the compilation unit are computed lazily from the same content,
+ * so every stage of a mutation shares them instead of reading and parsing the file again. Parsers are kept per
+ * thread because a {@link JavaParser} is not thread-safe and {@code StaticJavaParser} shares one configuration
+ * between all threads.
+ */
+public class ParsedSource {
+    private static final ThreadLocal<JavaParser> PARSER =
+            ThreadLocal.withInitial(() -> new JavaParser(new ParserConfiguration()));
+    private static final ThreadLocal<DefaultPrettyPrinter> PRINTER_WITHOUT_COMMENTS =
+            ThreadLocal.withInitial(() -> new DefaultPrettyPrinter(new DefaultPrinterConfiguration()
+                    .removeOption(new DefaultConfigurationOption(ConfigOption.PRINT_COMMENTS))
+                    .removeOption(new DefaultConfigurationOption(ConfigOption.PRINT_JAVADOC))));
+
+    private final File file;
+    private final byte[] bytes;
+    private final String content;
+    private String hash;
+    private String header;
+    private boolean parsed;
+    private CompilationUnit compilationUnit;
+    private String parseError;
+    private String codeWithoutComments;
+    private String fingerprint;
+
+    private ParsedSource(File file, byte[] bytes) {
+        this.file = file;
+        this.bytes = bytes;
+        this.content = new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param file source file
+     * @return the source, read in one go
+     * @throws IOException if the file can not be read
+     */
+    public static ParsedSource read(File file) throws IOException {
+        return new ParsedSource(file, Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * @param file file the content belongs to
+     * @param content Java code, such as a mutant that is not written yet
+     * @return the source of the given content
+     */
+    public static ParsedSource of(File file, String content) {
+        return new ParsedSource(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return hex encoded SHA-256 of the file content
+     */
+    public String getHash() {
+        if (hash == null) {
+            hash = RunManifest.hash(bytes);
+        }
+        return hash;
+    }
+
+    /**
+     * @return the known licence header found in the file followed by a line break, or an empty string
+     */
+    public String getHeader() {
+        return getHeader(HeaderDetector.defaults());
+    }
+
+    /**
+     * @param detector detector of the accepted headers, used on the first call only
+     * @return the licence header found at the top of the file followed by a line break, or an empty string
+     */
+    public String getHeader(HeaderDetector detector) {
+        if (header == null) {
+            header = detector.detect(content);
+        }
+        return header;
+    }
+
+    /**
+     * @return the parsed compilation unit, empty when the file is not valid Java
+     */
+    public Optional<CompilationUnit> getCompilationUnit() {
+        if (!parsed) {
+            parsed = true;
+            ParseResult<CompilationUnit> result = parser().parse(content);
+            if (result.isSuccessful() && result.getResult().isPresent()) {
+                compilationUnit = result.getResult().get();
+            } else {
+                parseError = result.getProblems().isEmpty() ? "Parsing failed" : result.getProblems().getFirst().getVerboseMessage();
+            }
+        }
+        return Optional.ofNullable(compilationUnit);
+    }
+
+    /**
+     * @return description of the first parse problem, or null when the file parsed
+     */
+    public String getParseError() {
+        getCompilationUnit();
+        return parseError;
+    }
+
+    /**
+     * Prints the compilation unit without comments and javadoc. The tree itself keeps its comments.
+     * @return Java code without comments, or an empty string when the file is not valid Java
+     */
+    public String getCodeWithoutComments() {
+        if (codeWithoutComments == null) {
+            codeWithoutComments = getCompilationUnit().map(PRINTER_WITHOUT_COMMENTS.get()::print).orElse("");
+        }
+        return codeWithoutComments;
+    }
+
+    /**
+     * Hashes the code as the compiler sees it: comments, javadoc and formatting are dropped and imports are sorted,
+     * so two sources with the same fingerprint only differ in ways that can not change their behaviour.
+     * @return hex encoded SHA-256 of the canonical code, or null when the file is not valid Java
+     */
+    public String getFingerprint() {
+        if (fingerprint == null && getCompilationUnit().isPresent()) {
+            DefaultPrettyPrinter printer = PRINTER_WITHOUT_COMMENTS.get();
+            StringBuilder canonical = new StringBuilder();
+            compilationUnit.getPackageDeclaration().ifPresent(declaration -> canonical.append(printer.print(declaration)));
+            compilationUnit.getImports().stream().map(printer::print).sorted().distinct().forEach(canonical::append);
+            compilationUnit.getTypes().forEach(type -> canonical.append(printer.print(type)));
+            compilationUnit.getModule().ifPresent(module -> canonical.append(printer.print(module)));
+            fingerprint = RunManifest.hash(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return parser owned by the calling thread
+     */
+    public static JavaParser parser() {
+        return PARSER.get();
+    }
+
+    /**
+     * Collects the text of all comments without building a syntax tree.
+     * String, character and text block literals are skipped, so comment markers inside them are ignored.
+     * @param code Java code
+     * @return trimmed comment texts in source order
+     */
+    public static List<String> scanComments(String code) {
+        List<String> comments = new ArrayList<>();
+        int length = code.length();
+        int i = 0;
+        while (i < length) {
+            char c = code.charAt(i);
+            if (c == '/' && i + 1 < length && code.charAt(i + 1) == '/') {
+                int end = i + 2;
+                while (end < length && code.charAt(end) != '\n' && code.charAt(end) != '\r') {
+                    end++;
+                }
+                comments.add(code.substring(i + 2, end).trim());
+                i = end;
+            } else if (c == '/' && i + 1 < length && code.charAt(i + 1) == '*') {
+                int start = i + 2;
+                if (start < length && code.charAt(start) == '*' && !code.startsWith("*/", start)) {
+                    start++;
+                }
+                int end = code.indexOf("*/", i + 2);
+                if (end < 0) {
+                    end = length;
+                }
+                comments.add(code.substring(Math.min(start, end), end).trim());
+                i = Math.min(length, end + 2);
+            } else if (c == '"' && code.startsWith("\"\"\"", i)) {
+                i = skipLiteral(code, i + 3, "\"\"\"");
+            } else if (c == '"' || c == '\'') {
+                i = skipLiteral(code, i + 1, String.valueOf(c));
+            } else {
+                i++;
+            }
+        }
+        return comments;
+    }
+
+    private static int skipLiteral(String code, int from, String terminator) {
+        int i = from;
+        while (i < code.length()) {
+            char c = code.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (code.startsWith(terminator, i)) {
+                return i + terminator.length();
+            } else if (terminator.length() == 1 && c == '\n') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+}
@@ -0,0 +1,99 @@
+import Interfaces.LLMApiService;
+import Interfaces.ProgressListener;
+import Interfaces.ProgressListener.Event;
+import Interfaces.ProgressListener.Type;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the files of a run as they move through the stages and hands every change to the progress listeners.
+ * <p>
+ * Events are delivered on the thread reporting them, so tracking progress starts no thread of its own. A file
+ * finishes once; later reports for it are ignored. The time left is projected from the average time per finished
+ * file since the run started.
+ */
+public class ProgressTracker {
+    private final List<ProgressListener> listeners;
+    private final LLMApiService pricing;
+    private final Set<String> finishedFiles = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final LongAdder tokens = new LongAdder();
+    private final DoubleAdder cost = new DoubleAdder();
+    private volatile int total;
+    private volatile long startNanos = System.nanoTime();
+
+    /**
+     * @param pricing service estimating the cost of the tokens of a file
+     */
+    public ProgressTracker(List<ProgressListener> listeners, LLMApiService pricing) {
+        this.listeners = listeners;
+        this.pricing = pricing;
+    }
+
+    /**
+     * Starts the run and reports every file as queued.
+     * @param files paths of the files relative to the run root
+     */
+    public void queued(List<String> files) {
+        total = files.size();
+        startNanos = System.nanoTime();
+        files.forEach(file -> emit(Type.QUEUED, file, "", 0, 0));
+    }
+
+    public void started(String file) {
+        emit(Type.STARTED, file, "", 0, 0);
+    }
+
+    /**
+     * Finishes a file.
+     * @param type {@link Type#DONE}, {@link Type#FAILED}, {@link Type#SKIPPED} or {@link Type#DROPPED}
+     * @param message reason of a failure or drop
+     */
+    public void finished(Type type, String file, String message, int promptTokens, int completionTokens) {
+        if (!finishedFiles.add(file)) {
+            return;
+        }
+        int fileTokens = promptTokens + completionTokens;
+        double fileCost = pricing.estimateCost(promptTokens, completionTokens);
+        tokens.add(fileTokens);
+        cost.add(fileCost);
+        if (type == Type.FAILED) {
+            failed.incrementAndGet();
+        }
+        finished.incrementAndGet();
+        emit(type, file, message, fileTokens, fileCost);
+    }
+
+    /**
+     * Reports the end of the run.
+     */
+    public void runFinished() {
+        emit(Type.FINISHED, null, "", 0, 0);
+    }
+
+    private void emit(Type type, String file, String message, int fileTokens, double fileCost) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        Event event = new Event(type, file, message, fileTokens, fileCost, total, finished.get(), failed.get(),
+                tokens.sum(), cost.sum(), eta());
+        for (ProgressListener listener : listeners) {
+            listener.onProgress(event);
+        }
+    }
+
+    private long eta() {
+        int done = finished.get();
+        if (done == 0) {
+            return -1;
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        return Math.max(0, total - done) * elapsedNanos / done / 1_000_000_000L;
+    }
+}
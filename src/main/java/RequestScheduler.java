@@ -0,0 +1,277 @@
+import Interfaces.LoggerService;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Paces LLM requests so a run stays at the provider's rate limit instead of running into it.
+ * <p>
+ * Every request reserves one unit from a request bucket and its estimated tokens from a token bucket;
+ * when either bucket is empty the request is delayed, never blocked on a thread. The buckets are corrected
+ * from the {@code x-ratelimit-*} headers of every response. A {@code Retry-After} header pauses all requests.
+ * Requests answered with 429, a 5xx status or an I/O error are retried with jittered exponential backoff.
+ */
+public class RequestScheduler {
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|s|m|h)");
+
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private final int maxRetries;
+    private final LoggerService logger;
+    private volatile long pausedUntilNanos;
+
+    public RequestScheduler(LoggerService logger) {
+        this(500, 200_000, 6, logger);
+    }
+
+    /**
+     * @param requestsPerMinute initial request limit, replaced by the provider's limit once known
+     * @param tokensPerMinute initial token limit, replaced by the provider's limit once known
+     * @param maxRetries retries of a failed request before it is given up
+     */
+    public RequestScheduler(int requestsPerMinute, int tokensPerMinute, int maxRetries, LoggerService logger) {
+        this.requests = new TokenBucket(requestsPerMinute);
+        this.tokens = new TokenBucket(tokensPerMinute);
+        this.maxRetries = maxRetries;
+        this.logger = logger;
+        this.pausedUntilNanos = System.nanoTime();
+    }
+
+    /**
+     * Sends a request once the buckets allow it and retries it until it succeeds or the retries run out.
+     * @param estimatedTokens tokens the request is expected to consume, prompt and completion
+     * @param attempt sends the request once; called again for every retry
+     * @return future completing with the first successful response, or exceptionally with the last failure
+     */
+    public <T> CompletableFuture<HttpResponse<T>> submit(int estimatedTokens, Supplier<CompletableFuture<HttpResponse<T>>> attempt) {
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        schedule(estimatedTokens, attempt, 0, reserve(estimatedTokens), result);
+        return result;
+    }
+
+    /**
+     * Corrects the token bucket once the real usage of a request is known.
+     */
+    public void reconcile(int estimatedTokens, int actualTokens) {
+        tokens.adjust(actualTokens - estimatedTokens);
+    }
+
+    private <T> void schedule(int estimatedTokens, Supplier<CompletableFuture<HttpResponse<T>>> attempt,
+                              int retry, long delayMillis, CompletableFuture<HttpResponse<T>> result) {
+        Executor executor = delayMillis > 0
+                ? CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS)
+                : Runnable::run;
+        executor.execute(() -> {
+            long paused = pauseRemainingMillis();
+            if (paused > 0) {
+                schedule(estimatedTokens, attempt, retry, paused, result);
+                return;
+            }
+            CompletableFuture<HttpResponse<T>> sent;
+            try {
+                sent = attempt.get();
+            } catch (RuntimeException e) {
+                sent = CompletableFuture.failedFuture(e);
+            }
+            sent.whenComplete((response, error) -> {
+                if (response != null) {
+                    update(response.headers());
+                }
+                Throwable failure = error instanceof CompletionException ? error.getCause() : error;
+                if (!isRetryable(response, failure)) {
+                    if (failure != null) {
+                        result.completeExceptionally(failure);
+                    } else {
+                        result.complete(response);
+                    }
+                    return;
+                }
+                String reason = failure != null ? failure.toString() : "HTTP " + response.statusCode();
+                if (retry >= maxRetries) {
+                    result.completeExceptionally(failure != null ? failure
+                            : new IOException(reason + " after " + maxRetries + " retries"));
+                    return;
+                }
+                long backoff = backoffMillis(retry, response);
+                logger.error(reason + " from LLM API, retrying in " + backoff + " ms (" + (retry + 1) + "/" + maxRetries + ")");
+                schedule(estimatedTokens, attempt, retry + 1, Math.max(backoff, reserve(estimatedTokens)), result);
+            });
+        });
+    }
+
+    private long reserve(int estimatedTokens) {
+        return Math.max(requests.reserve(1), tokens.reserve(estimatedTokens));
+    }
+
+    private static boolean isRetryable(HttpResponse<?> response, Throwable failure) {
+        if (failure != null) {
+            return failure instanceof IOException;
+        }
+        int status = response.statusCode();
+        return status == 429 || status == 408 || status >= 500;
+    }
+
+    /**
+     * Full jitter backoff, never shorter than the server's Retry-After.
+     */
+    private long backoffMillis(int retry, HttpResponse<?> response) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(retry, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+        long retryAfter = response == null ? 0 : retryAfterMillis(response.headers()).orElse(0L);
+        return Math.max(jittered, retryAfter);
+    }
+
+    private long pauseRemainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - System.nanoTime());
+    }
+
+    /**
+     * Applies the rate limit headers of a response to the buckets.
+     */
+    void update(HttpHeaders headers) {
+        sync(requests, headers, "requests");
+        sync(tokens, headers, "tokens");
+        retryAfterMillis(headers).ifPresent(millis -> {
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            if (until > pausedUntilNanos) {
+                pausedUntilNanos = until;
+                logger.log("LLM API asked to pause requests for " + millis + " ms");
+            }
+        });
+    }
+
+    private static void sync(TokenBucket bucket, HttpHeaders headers, String kind) {
+        Optional<Long> limit = headers.firstValue("x-ratelimit-limit-" + kind).flatMap(RequestScheduler::parseLong);
+        Optional<Long> remaining = headers.firstValue("x-ratelimit-remaining-" + kind).flatMap(RequestScheduler::parseLong);
+        Optional<Long> reset = headers.firstValue("x-ratelimit-reset-" + kind).map(RequestScheduler::parseDurationMillis);
+        limit.ifPresent(bucket::setLimit);
+        remaining.ifPresent(value -> bucket.setRemaining(value, reset.orElse(-1L)));
+    }
+
+    static Optional<Long> retryAfterMillis(HttpHeaders headers) {
+        Optional<String> millis = headers.firstValue("retry-after-ms");
+        if (millis.isPresent()) {
+            return parseLong(millis.get());
+        }
+        return headers.firstValue("retry-after").flatMap(value -> {
+            try {
+                return Optional.of((long) (Double.parseDouble(value.trim()) * 1000));
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return Optional.of(Math.max(0, Duration.between(ZonedDateTime.now(), date).toMillis()));
+                } catch (DateTimeParseException ignored) {
+                    return Optional.empty();
+                }
+            }
+        });
+    }
+
+    /**
+     * Parses reset durations such as {@code 20ms}, {@code 1.5s} or {@code 6m0s}.
+     * @return milliseconds, -1 when the value can not be parsed
+     */
+    static long parseDurationMillis(String value) {
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        boolean found = false;
+        while (matcher.find()) {
+            found = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "ms" -> amount;
+                case "s" -> amount * 1000;
+                case "m" -> amount * 60_000;
+                default -> amount * 3_600_000;
+            };
+        }
+        return found ? (long) Math.ceil(millis) : -1;
+    }
+
+    private static Optional<Long> parseLong(String value) {
+        try {
+            return Optional.of(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Bucket refilled continuously at {@code limit} units per minute.
+     * The level may go negative; the deficit is the time a reservation has to wait.
+     */
+    static final class TokenBucket {
+        private double limit;
+        private double available;
+        private double refillPerNano;
+        private long lastRefill;
+
+        TokenBucket(long perMinute) {
+            this.limit = Math.max(1, perMinute);
+            this.available = this.limit;
+            this.refillPerNano = this.limit / TimeUnit.MINUTES.toNanos(1);
+            this.lastRefill = System.nanoTime();
+        }
+
+        /**
+         * Takes {@code units} from the bucket.
+         * @return milliseconds the caller has to wait before the units are really available
+         */
+        synchronized long reserve(long units) {
+            refill();
+            available -= Math.min(units, limit);
+            if (available >= 0) {
+                return 0;
+            }
+            return (long) Math.ceil(-available / refillPerNano / 1_000_000);
+        }
+
+        synchronized void adjust(long units) {
+            refill();
+            available = Math.min(limit, available - units);
+        }
+
+        synchronized void setLimit(long perMinute) {
+            refill();
+            limit = Math.max(1, perMinute);
+            refillPerNano = limit / TimeUnit.MINUTES.toNanos(1);
+            available = Math.min(available, limit);
+        }
+
+        /**
+         * Trusts the server's view of the remaining budget when it is lower than the local one.
+         * An exhausted budget stays negative until the server's reset time has passed.
+         * @param resetMillis time until the budget is replenished, -1 when unknown
+         */
+        synchronized void setRemaining(long remaining, long resetMillis) {
+            refill();
+            available = Math.min(available, remaining);
+            if (remaining <= 0 && resetMillis > 0) {
+                available = Math.min(available, -TimeUnit.MILLISECONDS.toNanos(resetMillis) * refillPerNano);
+            }
+        }
+
+        synchronized double available() {
+            refill();
+            return available;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            available = Math.min(limit, available + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+        }
+    }
+}
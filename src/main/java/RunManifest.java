@@ -0,0 +1,173 @@
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only record of every file finished in a run, kept next to the mutated files.
+ * <p>
+ * Each completed file adds one JSON line, written with a single append and forced to disk, so a crash or SIGTERM
+ * loses at most the file in progress. A torn last line is ignored when the manifest is read back and cut off
+ * before the next append. The latest
+ * line of a source wins, so a resumed run can skip every file whose source hash still matches a finished entry.
+ */
+public class RunManifest implements Closeable {
+    public static final String FILE_NAME = "RunManifest.jsonl";
+
+    public enum Status { DONE, FAILED, DROPPED }
+
+    /**
+     * Outcome of one source file.
+     * @param source source path relative to the run root
+     * @param sourceHash SHA-256 of the source file content
+     * @param output output path relative to the output directory, empty when nothing was written
+     * @param status outcome of the mutation
+     * @param promptTokens input tokens spent on the file
+     * @param completionTokens output tokens spent on the file
+     * @param mutators applied mutation operators
+     */
+    public record Entry(String source, String sourceHash, String output, Status status,
+                        int promptTokens, int completionTokens, String mutators) {
+
+        JSONObject toJson() {
+            return new JSONObject()
+                    .put("source", source)
+                    .put("hash", sourceHash)
+                    .put("output", output)
+                    .put("status", status.name())
+                    .put("promptTokens", promptTokens)
+                    .put("completionTokens", completionTokens)
+                    .put("mutators", mutators)
+                    .put("time", System.currentTimeMillis());
+        }
+
+        static Entry fromJson(JSONObject json) {
+            return new Entry(json.getString("source"),
+                    json.getString("hash"),
+                    json.optString("output", ""),
+                    Status.valueOf(json.getString("status")),
+                    json.optInt("promptTokens"),
+                    json.optInt("completionTokens"),
+                    json.optString("mutators", ""));
+        }
+    }
+
+    private final FileChannel channel;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Opens the manifest of an output directory, reading the entries of an earlier run.
+     * @param outputDir output directory of the run
+     */
+    public RunManifest(Path outputDir) throws IOException {
+        Path path = outputDir.resolve(FILE_NAME);
+        if (Files.exists(path)) {
+            read(path);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        truncateTornLine(channel);
+        channel.position(channel.size());
+    }
+
+    /**
+     * @param source source path relative to the run root
+     * @param sourceHash hash of the current source content
+     * @return the finished entry of an earlier run for the same content, or null
+     */
+    public Entry findCompleted(String source, String sourceHash) {
+        Entry entry = entries.get(source);
+        if (entry != null && entry.status() == Status.DONE && entry.sourceHash().equals(sourceHash)) {
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Appends an entry and forces it to disk.
+     */
+    public synchronized void record(Entry entry) throws IOException {
+        byte[] line = (entry.toJson() + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        entries.put(entry.source(), entry);
+    }
+
+    /**
+     * @return number of sources with an entry
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @param content file content
+     * @return hex encoded SHA-256 of the content
+     */
+    public static String hash(byte[] content) {
+        try {
+            return java.util.HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Cuts the file after its last line break, so the next entry does not continue a line a crash left unfinished.
+     */
+    private static void truncateTornLine(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+                // read the whole block
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    channel.truncate(start + i + 1);
+                    return;
+                }
+            }
+            end = start;
+        }
+        channel.truncate(0);
+    }
+
+    private void read(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    Entry entry = Entry.fromJson(new JSONObject(line));
+                    entries.put(entry.source(), entry);
+                } catch (JSONException | IllegalArgumentException e) {
+                    // torn line of an interrupted run
+                }
+            }
+        }
+    }
+}
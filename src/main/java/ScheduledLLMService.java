@@ -0,0 +1,82 @@
+import Interfaces.LLMApiService;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * LLM service decorator that sends every request of a job only once the {@link JobScheduler} granted the job a
+ * slot, and gives the slot back when the answer is complete.
+ * <p>
+ * Requests start on a virtual thread of their own after the grant, so a request finishing never runs the next
+ * one on its own completion thread.
+ */
+public class ScheduledLLMService implements LLMApiService {
+    private final LLMApiService delegate;
+    private final JobScheduler.Share share;
+
+    public ScheduledLLMService(LLMApiService delegate, JobScheduler.Share share) {
+        this.delegate = delegate;
+        this.share = share;
+    }
+
+    @Override
+    public String askOpenAI(String javaCode) {
+        try {
+            return askOpenAIAsync(javaCode).join().content();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> askOpenAIAsync(String javaCode) {
+        return scheduled(() -> delegate.askOpenAIAsync(javaCode));
+    }
+
+    @Override
+    public CompletableFuture<Response> askOpenAIStreaming(String javaCode, Predicate<String> onDelta) {
+        return scheduled(() -> delegate.askOpenAIStreaming(javaCode, onDelta));
+    }
+
+    private CompletableFuture<Response> scheduled(Supplier<CompletableFuture<Response>> request) {
+        return share.acquire().thenComposeAsync(granted -> {
+            CompletableFuture<Response> response;
+            try {
+                response = request.get();
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            return response.whenComplete((result, error) -> share.release());
+        }, Thread::startVirtualThread);
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+
+    @Override
+    public String generatePrompt(String javaCode) {
+        return delegate.generatePrompt(javaCode);
+    }
+
+    @Override
+    public int getContextWindow() {
+        return delegate.getContextWindow();
+    }
+
+    @Override
+    public int getMaxOutputTokens() {
+        return delegate.getMaxOutputTokens();
+    }
+
+    @Override
+    public double estimateCost(int promptTokens, int completionTokens) {
+        return delegate.estimateCost(promptTokens, completionTokens);
+    }
+}
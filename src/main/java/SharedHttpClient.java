@@ -0,0 +1,54 @@
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Process wide {@link HttpClient} used by every LLM service.
+ * <p>
+ * The client prefers HTTP/2, so concurrent requests to the same host are multiplexed over one connection.
+ * For HTTP/1.1 endpoints the JDK keeps idle connections alive and pools them; the pool size and keep-alive
+ * timeout are JDK system properties that are only read once, so they are set before the client is first built.
+ */
+public final class SharedHttpClient {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(20);
+    private static final String POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    private static volatile HttpClient client;
+
+    private SharedHttpClient() {
+    }
+
+    /**
+     * @param poolSize number of idle connections kept per client, used only when the client is first built
+     * @return the shared client
+     */
+    public static HttpClient get(int poolSize) {
+        HttpClient result = client;
+        if (result == null) {
+            synchronized (SharedHttpClient.class) {
+                result = client;
+                if (result == null) {
+                    configurePool(poolSize);
+                    result = HttpClient.newBuilder()
+                            .version(HttpClient.Version.HTTP_2)
+                            .connectTimeout(CONNECT_TIMEOUT)
+                            .followRedirects(HttpClient.Redirect.NORMAL)
+                            .executor(Executors.newVirtualThreadPerTaskExecutor())
+                            .build();
+                    client = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void configurePool(int poolSize) {
+        if (System.getProperty(POOL_SIZE_PROPERTY) == null) {
+            System.setProperty(POOL_SIZE_PROPERTY, String.valueOf(Math.max(1, poolSize)));
+        }
+        if (System.getProperty(KEEP_ALIVE_PROPERTY) == null) {
+            System.setProperty(KEEP_ALIVE_PROPERTY, "120");
+        }
+    }
+}
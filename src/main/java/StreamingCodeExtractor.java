@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Incremental counterpart of extracting the first ```java block of a model answer.
+ * <p>
+ * Text arrives in arbitrary pieces; fences split across pieces are recognised by keeping back the few characters
+ * that could still turn into a fence. Code is written through to the given writer as soon as it is known not to be
+ * part of a fence or trailing whitespace, so the output matches the trimmed code block of the complete answer.
+ */
+public class StreamingCodeExtractor {
+    private static final String START_TAG = "```java";
+    private static final String END_TAG = "```";
+
+    private enum State { SEARCHING, LEADING_WHITESPACE, IN_CODE, DONE }
+
+    private final Writer writer;
+    private final StringBuilder code = new StringBuilder();
+    private final StringBuilder pending = new StringBuilder();
+    private final StringBuilder whitespace = new StringBuilder();
+    private State state = State.SEARCHING;
+
+    /**
+     * @param writer receives the code of the block, without fences and surrounding whitespace
+     */
+    public StreamingCodeExtractor(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Feeds the next piece of the answer.
+     * @param delta text received from the model
+     * @return false once the closing fence has been seen and the rest of the answer is not needed
+     */
+    public boolean accept(String delta) {
+        if (state == State.DONE) {
+            return false;
+        }
+        pending.append(delta);
+        try {
+            process();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return state != State.DONE;
+    }
+
+    /**
+     * @return true when a complete code block has been extracted
+     */
+    public boolean isComplete() {
+        return state == State.DONE && !code.isEmpty();
+    }
+
+    /**
+     * @return code written so far
+     */
+    public String getCode() {
+        return code.toString();
+    }
+
+    private void process() throws IOException {
+        while (!pending.isEmpty() && state != State.DONE) {
+            switch (state) {
+                case SEARCHING -> {
+                    int start = pending.indexOf(START_TAG);
+                    if (start < 0) {
+                        // keep a possible partial fence at the end
+                        pending.delete(0, Math.max(0, pending.length() - (START_TAG.length() - 1)));
+                        return;
+                    }
+                    pending.delete(0, start + START_TAG.length());
+                    state = State.LEADING_WHITESPACE;
+                }
+                case LEADING_WHITESPACE -> {
+                    int i = 0;
+                    while (i < pending.length() && Character.isWhitespace(pending.charAt(i))) {
+                        i++;
+                    }
+                    pending.delete(0, i);
+                    if (!pending.isEmpty()) {
+                        state = State.IN_CODE;
+                    }
+                }
+                case IN_CODE -> {
+                    int end = pending.indexOf(END_TAG);
+                    if (end >= 0) {
+                        emit(pending.substring(0, end));
+                        pending.setLength(0);
+                        whitespace.setLength(0);
+                        writer.flush();
+                        state = State.DONE;
+                        return;
+                    }
+                    int safe = pending.length();
+                    while (safe > 0 && pending.charAt(safe - 1) == '`' && pending.length() - safe < END_TAG.length() - 1) {
+                        safe--;
+                    }
+                    emit(pending.substring(0, safe));
+                    pending.delete(0, safe);
+                    return;
+                }
+                default -> {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes code, holding back trailing whitespace until more code follows it.
+     */
+    private void emit(String text) throws IOException {
+        int end = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end > 0) {
+            write(whitespace);
+            whitespace.setLength(0);
+            write(text.substring(0, end));
+        }
+        whitespace.append(text, end, text.length());
+    }
+
+    private void write(CharSequence text) throws IOException {
+        if (!text.isEmpty()) {
+            writer.append(text);
+            code.append(text);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import Interfaces.LLMApiService;
+import Interfaces.Tokenizer;
+
+/**
+ * Token counts of a mutation request, known before it is sent.
+ * <p>
+ * The prompt is counted exactly from the text the service would send. The answer repeats the whole class with a
+ * comment for every mutant and a code fence, so it is projected from the size of the code.
+ */
+public class TokenBudget {
+    /** Chat message framing and the system message of a request. */
+    static final int MESSAGE_OVERHEAD = 16;
+    /** Share of the answer added to the code by mutation comments and fences. */
+    static final double OUTPUT_GROWTH = 1.2;
+
+    private final Tokenizer tokenizer;
+    private final LLMApiService service;
+
+    public TokenBudget(Tokenizer tokenizer, LLMApiService service) {
+        this.tokenizer = tokenizer;
+        this.service = service;
+    }
+
+    /**
+     * @param javaCode comment free code
+     * @return tokens of the code alone
+     */
+    public int codeTokens(String javaCode) {
+        return tokenizer.countTokens(javaCode);
+    }
+
+    /**
+     * @param javaCode comment free code of a request
+     * @return input tokens of the request
+     */
+    public int promptTokens(String javaCode) {
+        return tokenizer.countTokens(service.generatePrompt(javaCode)) + MESSAGE_OVERHEAD;
+    }
+
+    /**
+     * @param javaCode comment free code of a request
+     * @return output tokens expected for the answer
+     */
+    public int projectedOutputTokens(String javaCode) {
+        return (int) Math.ceil(tokenizer.countTokens(javaCode) * OUTPUT_GROWTH);
+    }
+
+    /**
+     * @return true when prompt and answer fit the model's context window and output limit
+     */
+    public boolean fits(int promptTokens, int outputTokens) {
+        int context = service.getContextWindow();
+        int maxOutput = service.getMaxOutputTokens();
+        return (context <= 0 || promptTokens + outputTokens <= context)
+                && (maxOutput <= 0 || outputTokens <= maxOutput);
+    }
+
+    /**
+     * @return largest answer a single request may produce, limited by output limit and context window
+     */
+    public int outputLimit(int promptTokens) {
+        int limit = Integer.MAX_VALUE;
+        if (service.getMaxOutputTokens() > 0) {
+            limit = service.getMaxOutputTokens();
+        }
+        if (service.getContextWindow() > 0) {
+            limit = Math.min(limit, service.getContextWindow() - promptTokens);
+        }
+        return limit;
+    }
+
+    public double estimateCost(int promptTokens, int outputTokens) {
+        return service.estimateCost(promptTokens, outputTokens);
+    }
+}
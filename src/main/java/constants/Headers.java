@@ -67,11 +67,17 @@ public final class Headers {
             """;
 
 
+    private static final List<String> ALL_HEADERS = collectHeaders();
+
     /**
      * Collects all the headers and returns in a list
-     * @return list of all headers in the Headers class.
+     * @return unmodifiable list of all headers in the Headers class, collected once.
      */
     public static List<String> getAllHeaders() {
+        return ALL_HEADERS;
+    }
+
+    private static List<String> collectHeaders() {
         List<String> headers = new ArrayList<>();
         for (Field field : Headers.class.getFields()) {
             if (field.getType() == String.class &&
@@ -83,8 +89,6 @@ public final class Headers {
                 } catch (IllegalAccessException ignored) {}
             }
         }
-        return headers;
+        return List.copyOf(headers);
     }
-
-
 }
@@ -0,0 +1,10 @@
+package enums;
+
+/**
+ * Levels of log messages, from the most to the least verbose.
+ */
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    ERROR
+}
@@ -0,0 +1,127 @@
+import enums.LogLevel;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncLoggerTest {
+    ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+
+    private List<String> lines() {
+        return outContent.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    @Test
+    void writesTextLines() {
+        try (AsyncLogger logger = new AsyncLogger(outContent, AsyncLogger.Format.TEXT, LogLevel.INFO, 16)) {
+            logger.log("Test message.");
+            logger.error("Test error message.");
+            logger.event(LogLevel.INFO, "write", "A.java", 1_500_000, "Stage finished");
+        }
+
+        assertEquals(List.of("[INFO] : Test message.", "[ERROR] : Test error message.",
+                "[INFO] : Stage finished (write A.java, 1.5 ms)"), lines());
+    }
+
+    @Test
+    void idleWriterWakesForNextEntry() throws InterruptedException {
+        try (AsyncLogger logger = new AsyncLogger(outContent, AsyncLogger.Format.TEXT, LogLevel.INFO, 16)) {
+            for (int i = 0; i < 3; i++) {
+                logger.log("Message " + i);
+                long deadline = System.nanoTime() + 5_000_000_000L;
+                while (lines().size() <= i && System.nanoTime() < deadline) {
+                    Thread.sleep(5);
+                }
+                assertEquals("[INFO] : Message " + i, lines().get(i));
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    @Test
+    void filtersLevelsBeforeBuildingMessages() {
+        try (AsyncLogger logger = new AsyncLogger(outContent, AsyncLogger.Format.TEXT, LogLevel.INFO, 16)) {
+            logger.debug("Test debug.");
+            logger.log(LogLevel.DEBUG, () -> fail("debug message built"));
+            logger.log(LogLevel.ERROR, () -> "built");
+
+            assertFalse(logger.isEnabled(LogLevel.DEBUG));
+        }
+
+        assertEquals(List.of("[ERROR] : built"), lines());
+    }
+
+    @Test
+    void writesJsonLines() {
+        try (AsyncLogger logger = new AsyncLogger(outContent, AsyncLogger.Format.JSON, LogLevel.DEBUG, 16)) {
+            logger.debug("multi\nline \"message\"");
+            logger.event(LogLevel.DEBUG, "parse", "A.java", 2_000_000, "Stage finished");
+        }
+
+        List<String> lines = lines();
+        assertEquals(2, lines.size());
+        JSONObject first = new JSONObject(lines.get(0));
+        assertEquals("DEBUG", first.getString("level"));
+        assertEquals("multi\nline \"message\"", first.getString("message"));
+        assertEquals(Thread.currentThread().getName(), first.getString("thread"));
+        assertFalse(first.has("stage"));
+        JSONObject event = new JSONObject(lines.get(1));
+        assertEquals("parse", event.getString("stage"));
+        assertEquals("A.java", event.getString("file"));
+        assertEquals(2.0, event.getDouble("latencyMs"));
+    }
+
+    @Test
+    void concurrentWritersWrapTheBufferWithoutLosingLines() throws InterruptedException {
+        int threads = 8;
+        int messages = 2000;
+        try (AsyncLogger logger = new AsyncLogger(outContent, AsyncLogger.Format.TEXT, LogLevel.INFO, 4)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int writer = t;
+                writers.add(Thread.ofPlatform().start(() -> {
+                    for (int i = 0; i < messages; i++) {
+                        logger.log(writer + "-" + i + "\nsecond line of " + writer + "-" + i);
+                    }
+                }));
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+
+        List<String> lines = lines();
+        assertEquals(threads * messages * 2, lines.size());
+        Set<String> seen = new HashSet<>();
+        int[] last = new int[threads];
+        Arrays.fill(last, -1);
+        for (int i = 0; i < lines.size(); i += 2) {
+            String message = lines.get(i).substring("[INFO] : ".length());
+            assertEquals("second line of " + message, lines.get(i + 1));
+            assertTrue(seen.add(message));
+            String[] parts = message.split("-");
+            int writer = Integer.parseInt(parts[0]);
+            int index = Integer.parseInt(parts[1]);
+            assertTrue(index > last[writer], "messages of one thread stay in order");
+            last[writer] = index;
+        }
+    }
+
+    @Test
+    void discardsEntriesAfterClose() {
+        AsyncLogger logger = new AsyncLogger(outContent, AsyncLogger.Format.TEXT, LogLevel.INFO, 16);
+        logger.log("before");
+        logger.close();
+        logger.log("after");
+
+        assertEquals(List.of("[INFO] : before"), lines());
+    }
+}
@@ -0,0 +1,121 @@
+import io.javalin.Javalin;
+import io.javalin.http.UploadedFile;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * File backed stand-in for the files and batches endpoints of the OpenAI API.
+ * Uploaded and produced files are kept in a directory; a batch reports "in_progress" on its first poll and
+ * "completed" on the next one. Every request line is answered by the given function; a null answer becomes
+ * a line of the error file.
+ */
+class BatchEndpointStandIn implements AutoCloseable {
+    final Map<String, JSONObject> batches = new ConcurrentHashMap<>();
+    final AtomicInteger polls = new AtomicInteger();
+    private final Path directory;
+    private final Function<JSONObject, String> answer;
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Javalin app;
+
+    /**
+     * @param answer content of the answer to a chat request body, null to fail the request
+     */
+    BatchEndpointStandIn(Path directory, Function<JSONObject, String> answer) {
+        this.directory = directory;
+        this.answer = answer;
+        this.app = Javalin.create()
+                .post("/v1/files", ctx -> {
+                    UploadedFile file = ctx.uploadedFile("file");
+                    if (file == null || !"batch".equals(ctx.formParam("purpose"))) {
+                        ctx.status(400).result("{\"error\":{\"message\":\"file and purpose required\"}}");
+                        return;
+                    }
+                    String id = "file-" + ids.incrementAndGet();
+                    try (InputStream content = file.content()) {
+                        Files.copy(content, directory.resolve(id));
+                    }
+                    ctx.contentType("application/json").result(new JSONObject().put("id", id).put("object", "file").toString());
+                })
+                .post("/v1/batches", ctx -> {
+                    JSONObject request = new JSONObject(ctx.body());
+                    JSONObject batch = new JSONObject()
+                            .put("id", "batch-" + ids.incrementAndGet())
+                            .put("status", "validating")
+                            .put("input_file_id", request.getString("input_file_id"));
+                    batches.put(batch.getString("id"), batch);
+                    ctx.contentType("application/json").result(batch.toString());
+                })
+                .get("/v1/batches/{id}", ctx -> {
+                    JSONObject batch = batches.get(ctx.pathParam("id"));
+                    polls.incrementAndGet();
+                    if (batch.getString("status").equals("validating")) {
+                        batch.put("status", "in_progress");
+                    } else if (batch.getString("status").equals("in_progress")) {
+                        complete(batch);
+                    }
+                    ctx.contentType("application/json").result(batch.toString());
+                })
+                .get("/v1/files/{id}/content", ctx -> {
+                    Path file = directory.resolve(ctx.pathParam("id"));
+                    ctx.contentType("application/jsonl").result(Files.readAllBytes(file));
+                })
+                .exception(Exception.class, (e, ctx) -> ctx.status(500).result(e.toString()))
+                .start(0);
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + app.port() + "/v1";
+    }
+
+    private void complete(JSONObject batch) throws IOException {
+        StringBuilder output = new StringBuilder();
+        StringBuilder errors = new StringBuilder();
+        int total = 0;
+        for (String line : Files.readAllLines(directory.resolve(batch.getString("input_file_id")), StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            total++;
+            JSONObject request = new JSONObject(line);
+            String content = answer.apply(request.getJSONObject("body"));
+            if (content == null) {
+                errors.append(new JSONObject()
+                        .put("custom_id", request.getString("custom_id"))
+                        .put("error", new JSONObject().put("message", "request failed"))).append("\n");
+                continue;
+            }
+            JSONObject body = new JSONObject()
+                    .put("choices", new JSONArray().put(new JSONObject()
+                            .put("message", new JSONObject().put("role", "assistant").put("content", content))))
+                    .put("usage", new JSONObject().put("prompt_tokens", 100).put("completion_tokens", 50));
+            output.append(new JSONObject()
+                    .put("custom_id", request.getString("custom_id"))
+                    .put("response", new JSONObject().put("status_code", 200).put("body", body))).append("\n");
+        }
+        String outputId = "file-" + ids.incrementAndGet();
+        Files.writeString(directory.resolve(outputId), output);
+        batch.put("output_file_id", outputId);
+        if (!errors.isEmpty()) {
+            String errorId = "file-" + ids.incrementAndGet();
+            Files.writeString(directory.resolve(errorId), errors);
+            batch.put("error_file_id", errorId);
+        }
+        batch.put("request_counts", new JSONObject().put("total", total).put("completed", total));
+        batch.put("status", "completed");
+    }
+
+    @Override
+    public void close() {
+        app.stop();
+    }
+}
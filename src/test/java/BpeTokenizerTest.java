@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BpeTokenizerTest {
+    Path vocabulary;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        vocabulary = Files.createTempFile("test", ".tiktoken");
+        List<String> lines = new ArrayList<>();
+        for (int b = 0; b < 256; b++) {
+            lines.add(Base64.getEncoder().encodeToString(new byte[]{(byte) b}) + " " + b);
+        }
+        int rank = 256;
+        for (String merge : List.of("he", "ll", "llo", "hello", " w", "or")) {
+            lines.add(Base64.getEncoder().encodeToString(merge.getBytes(StandardCharsets.UTF_8)) + " " + rank++);
+        }
+        Files.write(vocabulary, lines);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(vocabulary);
+    }
+
+    @Test
+    void mergesLowestRankFirst() throws IOException {
+        BpeTokenizer tokenizer = BpeTokenizer.load(vocabulary);
+
+        assertEquals(1, tokenizer.countPiece("hello".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(3, tokenizer.countPiece("hellx".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(4, tokenizer.countPiece(" world".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, tokenizer.countPiece(new byte[0]));
+    }
+
+    @Test
+    void countsPreTokenizedPieces() throws IOException {
+        BpeTokenizer tokenizer = BpeTokenizer.load(vocabulary);
+
+        // "hello" + " world" + "!"
+        assertEquals(6, tokenizer.countTokens("hello world!"));
+        // every byte of a character outside the vocabulary is a token
+        assertEquals(2, tokenizer.countTokens("é"));
+    }
+
+    @Test
+    void malformedVocabulary() throws IOException {
+        Files.writeString(vocabulary, "not-a-rank-line\n");
+
+        assertThrows(IOException.class, () -> BpeTokenizer.load(vocabulary));
+    }
+
+    @Test
+    void preTokenizationSplitsWordsNumbersAndPunctuation() {
+        var matcher = BpeTokenizer.O200K_PATTERN.matcher("int count = 12345;\n");
+        List<String> pieces = new ArrayList<>();
+        while (matcher.find()) {
+            pieces.add(matcher.group());
+        }
+
+        assertEquals(List.of("int", " count", " =", " ", "123", "45", ";\n"), pieces);
+    }
+}
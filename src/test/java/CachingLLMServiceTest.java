@@ -0,0 +1,225 @@
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingLLMServiceTest {
+    LoggerService mockLogger;
+    List<String> logs;
+    Path tempDir;
+    AtomicInteger requests;
+    LLMApiService mockOpenAIService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        logs = Collections.synchronizedList(new LinkedList<>());
+        mockLogger = new LoggerService() {
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void debug(String message) {
+                logs.add(message);
+            }
+        };
+        tempDir = Files.createTempDirectory("CacheDir");
+        requests = new AtomicInteger();
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                requests.incrementAndGet();
+                return "```java " + javaCode + " ```";
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    void repeatedRequestIsServedFromCache() throws IOException {
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            LLMApiService service = new CachingLLMService(mockOpenAIService, cache, mockLogger);
+
+            String first = service.askOpenAI("class A {}");
+            String second = service.askOpenAI("class A {}");
+
+            assertEquals(first, second);
+            assertEquals(1, requests.get());
+            assertTrue(logs.stream().anyMatch(log -> log.contains("Cached LLM response found...")));
+        }
+    }
+
+    @Test
+    void warmRunUsesPersistedResponses() throws IOException {
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            new CachingLLMService(mockOpenAIService, cache, mockLogger).askOpenAI("class A {}");
+        }
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            new CachingLLMService(mockOpenAIService, cache, mockLogger).askOpenAI("class A {}");
+        }
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void errorsAreNotCached() throws IOException {
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                requests.incrementAndGet();
+                return "Error: 429";
+            }
+        };
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            LLMApiService service = new CachingLLMService(mockOpenAIService, cache, mockLogger);
+            service.askOpenAI("class A {}");
+            service.askOpenAI("class A {}");
+        }
+
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void differentModelMissesCache() throws IOException {
+        LLMApiService otherModel = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                return mockOpenAIService.askOpenAI(javaCode);
+            }
+
+            @Override
+            public String getModelName() {
+                return "other-model";
+            }
+        };
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            new CachingLLMService(mockOpenAIService, cache, mockLogger).askOpenAI("class A {}");
+            new CachingLLMService(otherModel, cache, mockLogger).askOpenAI("class A {}");
+        }
+
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void identicalRequestsInFlightAreSentOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                requests.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "```java " + javaCode + " ```";
+            }
+        };
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            LLMApiService service = new CachingLLMService(mockOpenAIService, cache, mockLogger);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> service.askOpenAI("class A {}")));
+            }
+            while (requests.get() == 0) {
+                Thread.onSpinWait();
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("```java class A {} ```", result.get());
+            }
+        }
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void streamedRequestsAreStreamedAndCached() throws IOException {
+        LLMApiService streaming = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                throw new UnsupportedOperationException("streamed only");
+            }
+
+            @Override
+            public CompletableFuture<Response> askOpenAIStreaming(String javaCode, Predicate<String> onDelta) {
+                requests.incrementAndGet();
+                List<String> pieces = List.of("```java ", javaCode, " ```", " and more");
+                StringBuilder received = new StringBuilder();
+                for (String piece : pieces) {
+                    received.append(piece);
+                    if (!onDelta.test(piece)) {
+                        break;
+                    }
+                }
+                return CompletableFuture.completedFuture(new Response(received.toString(), 10, 5, 0.0));
+            }
+        };
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            LLMApiService service = new CachingLLMService(streaming, cache, mockLogger);
+            List<String> pieces = new ArrayList<>();
+            LLMApiService.Response first = service.askOpenAIStreaming("class A {}", piece -> pieces.add(piece) && pieces.size() < 3).join();
+
+            assertEquals(List.of("```java ", "class A {}", " ```"), pieces);
+            assertEquals(10, first.promptTokens());
+
+            pieces.clear();
+            LLMApiService.Response second = service.askOpenAIStreaming("class A {}", pieces::add).join();
+
+            assertEquals(List.of("```java class A {} ```"), pieces);
+            assertEquals("```java class A {} ```", second.content());
+            assertEquals("```java class A {} ```", service.askOpenAI("class A {}"));
+        }
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void answersCutOffInTheCodeAreNotCached() throws IOException {
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                requests.incrementAndGet();
+                return "```java " + javaCode;
+            }
+        };
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            LLMApiService service = new CachingLLMService(mockOpenAIService, cache, mockLogger);
+            service.askOpenAI("class A {}");
+            service.askOpenAI("class A {}");
+        }
+
+        assertEquals(2, requests.get());
+    }
+}
@@ -0,0 +1,74 @@
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassChunkerTest {
+    static final String CODE = """
+            public class Calc {
+                private int base = 1;
+
+                Calc() {
+                    base = 2;
+                }
+
+                int add(int a) {
+                    // keep
+                    return base + a;
+                }
+
+                int sub(int a) {
+                    Runnable r = new Runnable() {
+                        public void run() {
+                            base--;
+                        }
+                    };
+                    return base - a;
+                }
+            }
+            """;
+
+    @Test
+    void splitsMethodsIntoChunks() {
+        ClassChunker chunker = new ClassChunker(StaticJavaParser.parse(CODE), 4);
+
+        assertEquals(3, chunker.size());
+        String second = chunker.getCode(1);
+        assertTrue(second.contains("private int base = 1;"));
+        assertTrue(second.contains("return base + a;"));
+        assertFalse(second.contains("base = 2;"));
+        assertFalse(second.contains("return base - a;"));
+        assertFalse(second.contains("keep"));
+    }
+
+    @Test
+    void smallClassIsOneChunk() {
+        ClassChunker chunker = new ClassChunker(StaticJavaParser.parse(CODE), 1000);
+
+        assertEquals(1, chunker.size());
+    }
+
+    @Test
+    void splicesMutatedMethods() {
+        CompilationUnit unit = StaticJavaParser.parse(CODE);
+        ClassChunker chunker = new ClassChunker(unit, 4);
+        String mutated = chunker.getCode(1).replace("base + a", "base - a /* Arithmetic */");
+
+        assertEquals(1, chunker.splice(1, mutated));
+        String result = chunker.print();
+        assertTrue(result.contains("return base - a /* Arithmetic */;"));
+        assertTrue(result.contains("base = 2;"));
+        assertTrue(result.contains("base--;"));
+        assertTrue(unit.toString().contains("return base + a;"));
+    }
+
+    @Test
+    void unusableAnswerLeavesMethodsUnchanged() {
+        ClassChunker chunker = new ClassChunker(StaticJavaParser.parse(CODE), 4);
+
+        assertEquals(0, chunker.splice(2, "not java {"));
+        assertEquals(0, chunker.splice(2, "class Other { int sub(int a) { return 0; } }"));
+        assertTrue(chunker.print().contains("return base - a;"));
+    }
+}
@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskResponseCacheTest {
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("CacheDir");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    void putAndGet() throws IOException {
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            cache.put("key", "```java class A {} ```");
+
+            assertEquals("```java class A {} ```", cache.get("key"));
+            assertNull(cache.get("missing"));
+        }
+    }
+
+    @Test
+    void entriesSurviveRestart() throws IOException {
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            cache.put("key", "first");
+            cache.put("key", "second");
+        }
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            assertEquals(1, cache.size());
+            assertEquals("second", cache.get("key"));
+        }
+    }
+
+    @Test
+    void tornRecordIsTruncated() throws IOException {
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            cache.put("key", "value");
+        }
+        Path segment;
+        try (var files = Files.list(tempDir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0x4C, 0x4C, 0x4D}, java.nio.file.StandardOpenOption.APPEND);
+
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            assertEquals("value", cache.get("key"));
+            cache.put("other", "value2");
+            assertEquals("value2", cache.get("other"));
+        }
+    }
+
+    @Test
+    void oldestEntriesAreEvicted() throws IOException {
+        String value = "x".repeat(32 * 1024);
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            for (int i = 0; i < 100; i++) {
+                cache.put("key" + i, value);
+            }
+
+            assertTrue(cache.sizeInBytes() <= 1024 * 1024);
+            assertNull(cache.get("key0"));
+            assertEquals(value, cache.get("key99"));
+        }
+    }
+
+    @Test
+    void recentlyUsedEntriesArePromoted() throws IOException {
+        String value = "x".repeat(32 * 1024);
+        try (DiskResponseCache cache = new DiskResponseCache(tempDir, 1024 * 1024)) {
+            cache.put("hot", value);
+            for (int i = 0; i < 100; i++) {
+                cache.put("key" + i, value);
+                assertEquals(value, cache.get("hot"));
+            }
+
+            assertEquals(value, cache.get("hot"));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+import Interfaces.Tokenizer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DryRunTest {
+    LoggerService mockLogger;
+    List<String> logs;
+    LLMApiService service;
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        logs = Collections.synchronizedList(new LinkedList<>());
+        mockLogger = new LoggerService(){
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void debug(String message) {
+                logs.add(message);
+            }
+        };
+        service = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                throw new AssertionError("a dry run must not send requests");
+            }
+
+            @Override
+            public double estimateCost(int promptTokens, int completionTokens) {
+                return promptTokens + 2.0 * completionTokens;
+            }
+
+            @Override
+            public int getMaxOutputTokens() {
+                return 10;
+            }
+        };
+        tempDir = Files.createTempDirectory("DryRunDir");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    void estimatesTokensCostAndTime() throws IOException {
+        List<File> files = new LinkedList<>();
+        for (String code : List.of("class A {}", "class B { int b; }", "class {")) {
+            Path file = Files.createTempFile(tempDir, "Dry", ".java");
+            Files.writeString(file, code);
+            files.add(file.toFile());
+        }
+        Tokenizer words = text -> text.split("\\s+").length;
+        DryRun dryRun = new DryRun(mockLogger, new TokenBudget(words, service), 2, 60_000, 1);
+
+        DryRun.Estimate estimate = dryRun.run(files);
+
+        int first = words.countTokens(ParsedSource.read(files.get(0)).getCodeWithoutComments());
+        int second = words.countTokens(ParsedSource.read(files.get(1)).getCodeWithoutComments());
+        assertEquals(2, estimate.files());
+        assertEquals(first + second + 2 * TokenBudget.MESSAGE_OVERHEAD, estimate.promptTokens());
+        assertEquals(Math.ceil(first * 1.2) + Math.ceil(second * 1.2), estimate.outputTokens());
+        assertEquals(estimate.promptTokens() + 2.0 * estimate.outputTokens(), estimate.cost(), 1e-9);
+        // one file per lane, the larger answer decides
+        assertEquals(DryRun.LATENCY_SECONDS + Math.ceil(second * 1.2), estimate.seconds(), 1e-9);
+        assertEquals(0, estimate.oversized());
+        assertTrue(logs.stream().anyMatch(log -> log.contains("at parallelism 2")));
+        assertTrue(logs.stream().anyMatch(log -> log.contains("No valid Java code found")));
+    }
+
+    @Test
+    void rateLimitBoundsTime() throws IOException {
+        Path file = Files.createTempFile(tempDir, "Dry", ".java");
+        Files.writeString(file, "class A {}");
+        DryRun dryRun = new DryRun(mockLogger, new TokenBudget(Tokenizer.approximate(), service), 8, 1, 1_000_000);
+
+        DryRun.Estimate estimate = dryRun.estimate(List.of(file.toFile()));
+
+        assertEquals((estimate.promptTokens() + estimate.outputTokens()) * 60.0, estimate.seconds(), 1e-9);
+    }
+}
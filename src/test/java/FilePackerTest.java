@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilePackerTest {
+
+    static FileProcessor.MutationTask task(String name, int tokens) {
+        FileProcessor.MutationTask task = new FileProcessor.MutationTask(new File(name));
+        task.javaCode = "class " + name.replace(".java", "") + " {}";
+        task.codeTokens = tokens;
+        return task;
+    }
+
+    @Test
+    void packsUpToBudget() {
+        FilePacker packer = new FilePacker(100, File::getName);
+
+        assertTrue(packer.add(task("A.java", 40)).isEmpty());
+        assertTrue(packer.add(task("B.java", 40)).isEmpty());
+        List<FileProcessor.MutationTask> ready = packer.add(task("C.java", 40));
+
+        assertEquals(1, ready.size());
+        assertEquals(2, ready.getFirst().size());
+        assertTrue(ready.getFirst().javaCode.contains(FilePacker.FILE_MARKER + "A.java\n```java\nclass A {}\n```"));
+        assertEquals("C.java", packer.flush().getFirst().file.getName());
+        assertTrue(packer.flush().isEmpty());
+    }
+
+    @Test
+    void largeAndFailedFilesPassThrough() {
+        FilePacker packer = new FilePacker(100, File::getName);
+        FileProcessor.MutationTask failed = task("F.java", 1);
+        failed.failed = true;
+
+        assertEquals(List.of(failed), packer.add(failed));
+        FileProcessor.MutationTask large = task("L.java", 51);
+        assertEquals(List.of(large), packer.add(large));
+    }
+
+    @Test
+    void unpackSplitsSections() {
+        String response = """
+                Here are the mutants.
+
+                ### FILE: `a/A.java`
+                ```java
+                class A {}
+                ```
+
+                **### FILE: B.java**
+                ```java
+                class B {}
+                ```
+                """;
+
+        Map<String, String> sections = FilePacker.unpack(response);
+
+        assertEquals(List.of("a/A.java", "B.java"), List.copyOf(sections.keySet()));
+        assertTrue(sections.get("a/A.java").contains("class A {}"));
+        assertFalse(sections.get("a/A.java").contains("class B {}"));
+        assertTrue(sections.get("B.java").contains("class B {}"));
+    }
+}
@@ -1,6 +1,8 @@
 import Interfaces.LLMApiService;
 import Interfaces.LoggerService;
+import Interfaces.ProgressListener;
 import constants.Headers;
+import org.json.JSONObject;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,6 +11,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
@@ -27,7 +30,7 @@ class FileProcessorTest {
 
     @BeforeEach
     void setUp() throws IOException {
-        logs = new LinkedList<>();
+        logs = Collections.synchronizedList(new LinkedList<>());
         mockLogger = new LoggerService(){
             @Override
             public void log(String message) {
@@ -126,6 +129,444 @@ class FileProcessorTest {
         assertTrue(logs.stream().anyMatch(log -> log.contains("CSV file created successfully!")));
     }
 
+    @Test
+    void processSingleJavaFileWithDataErrorResponse() throws IOException {
+        Files.writeString(tempFile, "public class TempFile { public static void main(String[] args) {} }");
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                return  "Error: HTTP 429 after 6 retries";
+            }
+        };
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, mockOpenAIService);
+        fileProcessor.processJavaFiles(files,initProcessor.getOutputPath());
+
+        assertTrue(logs.stream().anyMatch(log -> log.contains("LLM request for " + tempFile.getFileName() + " failed: HTTP 429 after 6 retries")));
+        assertTrue(logs.stream().anyMatch(log -> log.contains("1 file(s) could not be mutated: " + tempFile.getFileName())));
+    }
+
+    @Test
+    void processWithLocalEngine() throws IOException {
+        Files.writeString(tempFile, Headers.APACHE_LICENCE + "public class TempFile { int sum(int a) { return a + 2; } }");
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, new LocalMutationService(mockLogger), 2);
+        fileProcessor.processJavaFiles(files, initProcessor.getOutputPath());
+
+        String mutated = Files.readString(tempDir.resolve("output").resolve(tempFile.getFileName()));
+        assertTrue(mutated.startsWith(Headers.APACHE_LICENCE));
+        assertTrue(mutated.contains("// Math: replaced + with -"));
+        assertTrue(mutated.contains("return a - 2;"));
+        assertTrue(Files.readString(tempDir.resolve("output").resolve("MutationOperators.csv")).contains("Math: replaced + with -"));
+    }
+
+    @Test
+    void rejectMutantThatDoesNotCompile() throws IOException {
+        Files.writeString(tempFile, "class TempFile { int sum() { return 1 + 2; } }");
+        mockOpenAIService = javaCode -> "```java\nclass TempFile { int sum() { return \"1\" - 2; } }\n```";
+        try (MutantCompiler compiler = new MutantCompiler(List.of(), List.of(tempDir.toFile()), 1, mockLogger)) {
+            new FileProcessor(mockLogger, mockOpenAIService, new MutationOptions().setCompiler(compiler))
+                    .processJavaFiles(files, initProcessor.getOutputPath());
+        }
+
+        assertFalse(Files.exists(tempDir.resolve("output").resolve(tempFile.getFileName())));
+        assertTrue(logs.stream().anyMatch(log -> log.startsWith("Mutant of " + tempFile.getFileName() + " does not compile, 1 error(s), first at line 1: ")));
+    }
+
+    @Test
+    void deleteStreamedMutantThatDoesNotCompile() throws IOException {
+        Files.writeString(tempFile, "class TempFile { int sum() { return 1 + 2; } }");
+        mockOpenAIService = javaCode -> "```java\nclass TempFile { int sum() { return missing(); } }\n```";
+        try (MutantCompiler compiler = new MutantCompiler(List.of(), List.of(tempDir.toFile()), 1, mockLogger)) {
+            new FileProcessor(mockLogger, mockOpenAIService, new MutationOptions().setStreaming(true).setCompiler(compiler))
+                    .processJavaFiles(files, initProcessor.getOutputPath());
+        }
+
+        assertFalse(Files.exists(tempDir.resolve("output").resolve(tempFile.getFileName())));
+        assertTrue(logs.stream().anyMatch(log -> log.startsWith("Mutant of " + tempFile.getFileName() + " does not compile")));
+    }
+
+    @Test
+    void recordsRunMetrics() throws IOException {
+        Files.writeString(tempFile, "public class TempFile { int sum(int a) { return a + 2; } }");
+        Metrics metrics = new Metrics();
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, new LocalMutationService(mockLogger),
+                new MutationOptions().setParallelism(2).setMetrics(metrics));
+        fileProcessor.processJavaFiles(files, initProcessor.getOutputPath());
+
+        assertEquals(1, metrics.counter("files_total", "status", "done"));
+        for (String stage : List.of("parse", "header", "extract", "write", "report")) {
+            assertEquals(1, metrics.count("stage_seconds", "stage", stage), stage);
+        }
+        assertFalse(metrics.toPrometheus().contains("mutator_queue_depth"), "queue gauges outlive the run");
+        JSONObject summary = new JSONObject(Files.readString(tempDir.resolve("output").resolve("RunMetrics.json")));
+        assertEquals(1, summary.getJSONObject("latencies").getJSONObject("stage_seconds.write").getLong("count"));
+        assertTrue(logs.stream().anyMatch(log -> log.startsWith("Run metrics saved to ")));
+    }
+
+    @Test
+    void emitsProgressEvents() throws IOException {
+        Path broken = Files.createTempFile(tempDir, "Broken", ".java");
+        Files.writeString(tempFile, "public class TempFile { int sum(int a) { return a + 2; } }");
+        List<ProgressListener.Event> events = Collections.synchronizedList(new LinkedList<>());
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, new LocalMutationService(mockLogger),
+                new MutationOptions().setParallelism(2).setProgressListener(events::add));
+        fileProcessor.processJavaFiles(List.of(tempFile.toFile(), broken.toFile()), tempDir);
+
+        String name = tempFile.getFileName().toString();
+        assertEquals(List.of(ProgressListener.Type.QUEUED, ProgressListener.Type.QUEUED), events.subList(0, 2).stream()
+                .map(ProgressListener.Event::type).toList());
+        assertTrue(events.stream().anyMatch(event -> event.type() == ProgressListener.Type.STARTED && event.file().equals(name)));
+        assertTrue(events.stream().anyMatch(event -> event.type() == ProgressListener.Type.DONE && event.file().equals(name)));
+        assertTrue(events.stream().anyMatch(event -> event.type() == ProgressListener.Type.FAILED
+                && event.file().equals(broken.getFileName().toString())
+                && event.message().equals("No valid Java code found in " + broken.getFileName())));
+        ProgressListener.Event last = events.getLast();
+        assertEquals(ProgressListener.Type.FINISHED, last.type());
+        assertEquals(2, last.finished());
+        assertEquals(1, last.failed());
+    }
+
+    @Test
+    void cancelledRunSkipsRemainingFiles() throws IOException {
+        Files.writeString(tempFile, "public class TempFile { int sum(int a) { return a + 2; } }");
+        List<ProgressListener.Event> events = Collections.synchronizedList(new LinkedList<>());
+        MutationOptions options = new MutationOptions().setProgressListener(events::add);
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, new LocalMutationService(mockLogger), options);
+        fileProcessor.cancel();
+        fileProcessor.processJavaFiles(files, initProcessor.getOutputPath());
+
+        assertTrue(events.stream().anyMatch(event -> event.type() == ProgressListener.Type.SKIPPED
+                && event.message().equals("cancelled")));
+        assertFalse(Files.exists(tempDir.resolve("output").resolve(tempFile.getFileName())));
+        assertEquals(1, options.getMetrics().counter("files_total", "status", "cancelled"));
+    }
+
+    @Test
+    void dropEquivalentAndDuplicateMutants() throws IOException {
+        Path copy = Files.createTempFile(tempDir, "Copy", ".java");
+        Path changed = Files.createTempFile(tempDir, "Changed", ".java");
+        Files.writeString(tempFile, "import java.util.List;\nimport java.util.Map;\nclass TempFile { int sum() { return 1 + 2; } }");
+        Files.writeString(copy, "class Copy { int sum() { return 1 + 2; } }");
+        Files.writeString(changed, "class Changed { int sum() { return 1 + 2; } }");
+        mockOpenAIService = javaCode -> javaCode.contains("TempFile")
+                // reordered imports, reformatted and commented only
+                ? "```java\nimport java.util.Map;\nimport java.util.List;\n// Math: none\nclass TempFile {\n    int sum() {\n        return 1 + 2;\n    }\n}\n```"
+                : "```java\nclass Changed { int sum() { return 1 - 2; } }\n```";
+        List<File> sources = List.of(tempFile.toFile(), changed.toFile(), copy.toFile());
+        new FileProcessor(mockLogger, mockOpenAIService).processJavaFiles(sources, tempDir);
+
+        Path output = tempDir.resolve("output");
+        assertFalse(Files.exists(output.resolve(tempFile.getFileName())));
+        assertTrue(Files.exists(output.resolve(changed.getFileName())));
+        assertFalse(Files.exists(output.resolve(copy.getFileName())));
+        String report = Files.readString(output.resolve("DroppedMutants.csv"));
+        assertTrue(report.contains(tempFile.getFileName() + ",\"identical to the original\""));
+        assertTrue(report.contains(copy.getFileName() + ",\"identical to the mutant of " + changed.getFileName() + "\""));
+        assertTrue(Files.readString(output.resolve(RunManifest.FILE_NAME)).contains("\"DROPPED\""));
+        assertTrue(logs.contains("2 mutant(s) dropped as equivalent or duplicate: " + String.join(", ",
+                new java.util.TreeSet<>(List.of(tempFile.getFileName().toString(), copy.getFileName().toString())))));
+    }
+
+    @Test
+    void splitIntoFirstOrderMutants() throws IOException {
+        Files.writeString(tempFile, Headers.APACHE_LICENCE + "class TempFile { int sum(int a) { return a + 2; } boolean less(int a) { return a < 2; } }");
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, new LocalMutationService(mockLogger),
+                new MutationOptions().setFirstOrder(true));
+        fileProcessor.processJavaFiles(files, initProcessor.getOutputPath());
+
+        String name = tempFile.getFileName().toString();
+        Path mutants = tempDir.resolve("output").resolve("first-order").resolve(name.substring(0, name.length() - ".java".length()));
+        String first = Files.readString(mutants.resolve("1").resolve(name));
+        String second = Files.readString(mutants.resolve("2").resolve(name));
+        assertTrue(first.startsWith(Headers.APACHE_LICENCE));
+        assertTrue(first.contains("return a - 2;") && first.contains("return a < 2;"));
+        assertTrue(second.contains("return a + 2;") && !second.contains("return a < 2;"));
+        assertFalse(Files.exists(mutants.resolve("3")));
+        String report = Files.readString(tempDir.resolve("output").resolve("MutationOperators.csv"));
+        assertTrue(report.contains(Path.of("first-order", name.replace(".java", ""), "1", name) + ",\"Math: replaced + with -\""));
+        assertTrue(logs.contains(name + " split into 2 first-order mutant(s)..."));
+    }
+
+    @Test
+    void extractCodeWithFenceInStringLiteral() throws IOException {
+        Files.writeString(tempFile, "public class TempFile { String fence = \"```\"; }");
+        mockOpenAIService = javaCode -> "```java\n" + javaCode + "\n```";
+        new FileProcessor(mockLogger, mockOpenAIService, new MutationOptions().setDropEquivalent(false))
+                .processJavaFiles(files, initProcessor.getOutputPath());
+
+        String mutated = Files.readString(tempDir.resolve("output").resolve(tempFile.getFileName()));
+        assertTrue(mutated.contains("String fence = \"```\";"));
+        assertTrue(mutated.trim().endsWith("}"));
+    }
+
+    @Test
+    void processSingleJavaFileStreaming() throws IOException {
+        Files.writeString(tempFile, Headers.APACHE_LICENCE + "public class TempFile { int sum() { return 1 + 2; } }");
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                return "```java\npublic class TempFile { int sum() { return 1 - 2; } // Math\n}\n```";
+            }
+        };
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, mockOpenAIService, new MutationOptions().setStreaming(true));
+        fileProcessor.processJavaFiles(files, initProcessor.getOutputPath());
+
+        Path output = tempDir.resolve("output").resolve(tempFile.getFileName());
+        String mutated = Files.readString(output);
+        assertTrue(mutated.startsWith(Headers.APACHE_LICENCE));
+        assertTrue(mutated.endsWith("return 1 - 2; } // Math\n}"));
+        assertFalse(Files.exists(output.resolveSibling(tempFile.getFileName() + ".part")));
+        assertTrue(logs.stream().anyMatch(log -> log.contains("Mutated Java code streamed to: " + output)));
+        assertTrue(logs.stream().anyMatch(log -> log.contains("CSV file created successfully!")));
+    }
+
+    @Test
+    void resumeSkipsCompletedFiles() throws IOException {
+        Path done = Files.createTempFile(tempDir, "Done", ".java");
+        Path pending = Files.createTempFile(tempDir, "Pending", ".java");
+        Files.writeString(done, "public class Done { int a() { return 1; } }");
+        Files.writeString(pending, "public class Pending { int b() { return 2; } }");
+        List<String> requested = Collections.synchronizedList(new LinkedList<>());
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                requested.add(javaCode);
+                return "```java\n" + javaCode + "\n```";
+            }
+        };
+        MutationOptions resume = new MutationOptions().setResume(true).setDropEquivalent(false);
+
+        new FileProcessor(mockLogger, mockOpenAIService, new MutationOptions().setDropEquivalent(false))
+                .processJavaFiles(List.of(done.toFile()), tempDir);
+        new FileProcessor(mockLogger, mockOpenAIService, resume).processJavaFiles(List.of(done.toFile(), pending.toFile()), tempDir);
+
+        assertEquals(2, requested.size());
+        assertTrue(logs.stream().anyMatch(log -> log.contains("Skipping " + done.getFileName() + ", already mutated in an earlier run")));
+        assertTrue(Files.exists(tempDir.resolve("output").resolve(done.getFileName())));
+        assertTrue(Files.exists(tempDir.resolve("output").resolve(pending.getFileName())));
+        String report = Files.readString(tempDir.resolve("output").resolve("MutationOperators.csv"));
+        assertTrue(report.contains(done.getFileName().toString()));
+        assertTrue(report.contains(pending.getFileName().toString()));
+
+        Files.writeString(done, "public class Done { int a() { return 3; } }");
+        new FileProcessor(mockLogger, mockOpenAIService, resume).processJavaFiles(List.of(done.toFile(), pending.toFile()), tempDir);
+
+        assertEquals(3, requested.size());
+    }
+
+    @Test
+    void processJavaFilesInParallel() throws IOException {
+        List<File> sources = new LinkedList<>();
+        for (int i = 0; i < 20; i++) {
+            Path source = Files.createTempFile(tempDir, "Parallel" + i, ".java");
+            Files.writeString(source, "public class Parallel" + i + " { int value() { return " + i + "; } }");
+            sources.add(source.toFile());
+        }
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                return "```java\n" + javaCode + "\n```";
+            }
+        };
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, mockOpenAIService,
+                new MutationOptions().setParallelism(8).setDropEquivalent(false));
+        fileProcessor.processJavaFiles(sources, tempDir);
+
+        assertTrue(logs.stream().anyMatch(log -> log.contains("0 file(s) remaining...")));
+        assertTrue(logs.stream().anyMatch(log -> log.contains("CSV file created successfully!")));
+        for (File source : sources) {
+            assertTrue(Files.exists(tempDir.resolve("output").resolve(source.getName())));
+        }
+    }
+
+    @Test
+    void processChunkedJavaFile() throws IOException {
+        Files.writeString(tempFile, """
+                public class TempFile {
+                    int first(int a) {
+                        return a + 1;
+                    }
+
+                    int second(int a) {
+                        return a - 1;
+                    }
+                }
+                """);
+        List<String> prompts = Collections.synchronizedList(new LinkedList<>());
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                prompts.add(javaCode);
+                if (javaCode.contains("a + 1")) {
+                    return "```java\n" + javaCode.replace("a + 1", "a - 1 /* Arithmetic */") + "\n```";
+                }
+                return "Error: timeout";
+            }
+        };
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, mockOpenAIService,
+                new MutationOptions().setChunkLines(4));
+        fileProcessor.processJavaFiles(files, tempDir);
+
+        String mutated = Files.readString(tempDir.resolve("output").resolve(tempFile.getFileName()));
+        assertEquals(2, prompts.size());
+        assertTrue(mutated.contains("return a - 1 /* Arithmetic */;"));
+        assertTrue(mutated.contains("int second(int a) {\n        return a - 1;"));
+        assertTrue(logs.stream().anyMatch(log -> log.contains("Chunk 2/2 of " + tempFile.getFileName() + " could not be used: timeout")));
+    }
+
+    @Test
+    void oversizedJavaFileIsRejected() throws IOException {
+        Files.writeString(tempFile, "public class TempFile { int value() { return 1; } }");
+        List<String> prompts = Collections.synchronizedList(new LinkedList<>());
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                prompts.add(javaCode);
+                return "```java\n" + javaCode + "\n```";
+            }
+
+            @Override
+            public int getContextWindow() {
+                return 10;
+            }
+        };
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, mockOpenAIService);
+        fileProcessor.processJavaFiles(files, tempDir);
+
+        assertTrue(prompts.isEmpty());
+        assertTrue(logs.stream().anyMatch(log -> log.contains("exceeds the limits of the model, skipped...")));
+    }
+
+    @Test
+    void oversizedJavaFileIsChunked() throws IOException {
+        StringBuilder code = new StringBuilder("public class TempFile {\n");
+        for (int i = 0; i < 10; i++) {
+            code.append("    int value").append(i).append("() {\n");
+            for (int j = 0; j < 8; j++) {
+                code.append("        int x").append(j).append(" = ").append(j).append(";\n");
+            }
+            code.append("        return ").append(i).append(";\n    }\n");
+        }
+        Files.writeString(tempFile, code.append("}\n").toString());
+        List<String> prompts = Collections.synchronizedList(new LinkedList<>());
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                prompts.add(javaCode);
+                return "```java\n" + javaCode + "\n```";
+            }
+
+            @Override
+            public int getMaxOutputTokens() {
+                return 200;
+            }
+        };
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, mockOpenAIService, new MutationOptions().setDropEquivalent(false));
+        fileProcessor.processJavaFiles(files, tempDir);
+
+        assertTrue(prompts.size() > 1);
+        assertTrue(Files.readString(tempDir.resolve("output").resolve(tempFile.getFileName())).contains("return 9;"));
+    }
+
+    @Test
+    void processPackedJavaFiles() throws IOException {
+        List<File> sources = new LinkedList<>();
+        for (int i = 0; i < 5; i++) {
+            Path source = Files.createTempFile(tempDir, "Packed" + i, ".java");
+            Files.writeString(source, "public class Packed" + i + " { int value() { return " + i + "; } }");
+            sources.add(source.toFile());
+        }
+        String dropped = sources.get(1).getName();
+        List<String> prompts = Collections.synchronizedList(new LinkedList<>());
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                prompts.add(javaCode);
+                if (!javaCode.contains(FilePacker.FILE_MARKER)) {
+                    return "```java\n" + javaCode + "\n```";
+                }
+                // answer in the layout of the pack, leaving out one file
+                StringBuilder answer = new StringBuilder();
+                FilePacker.unpack(javaCode).forEach((name, section) -> {
+                    if (!name.equals(dropped)) {
+                        answer.append(FilePacker.FILE_MARKER).append(name).append("\n").append(section);
+                    }
+                });
+                return answer.toString();
+            }
+        };
+        List<ProgressListener.Event> events = Collections.synchronizedList(new LinkedList<>());
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, mockOpenAIService, new MutationOptions().setPackTokens(1000)
+                .setDropEquivalent(false).setProgressListener(events::add));
+        fileProcessor.processJavaFiles(sources, tempDir);
+
+        assertEquals(2, prompts.size());
+        assertEquals(1, events.stream().filter(event -> event.type() == ProgressListener.Type.STARTED
+                && event.file().equals(dropped)).count());
+        assertTrue(logs.stream().anyMatch(log -> log.contains("Sending 5 packed files in one request...")));
+        assertTrue(logs.stream().anyMatch(log -> log.contains(dropped + " missing from packed answer, retrying on its own...")));
+        assertTrue(logs.stream().anyMatch(log -> log.contains("0 file(s) remaining...")));
+        for (int i = 0; i < sources.size(); i++) {
+            assertTrue(Files.readString(tempDir.resolve("output").resolve(sources.get(i).getName())).contains("class Packed" + i + " "));
+        }
+    }
+
+    @Test
+    void processPackedJavaFilesInParallel() throws IOException {
+        List<File> sources = new LinkedList<>();
+        for (int i = 0; i < 12; i++) {
+            Path source = Files.createTempFile(tempDir, "Packed" + i, ".java");
+            Files.writeString(source, "public class Packed" + i + " { int value() { return " + i + "; } }");
+            sources.add(source.toFile());
+        }
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                return javaCode.contains(FilePacker.FILE_MARKER) ? javaCode : "```java\n" + javaCode + "\n```";
+            }
+        };
+        FileProcessor fileProcessor = new FileProcessor(mockLogger, mockOpenAIService,
+                new MutationOptions().setParallelism(4).setPackTokens(60).setDropEquivalent(false));
+        fileProcessor.processJavaFiles(sources, tempDir);
+
+        assertTrue(logs.stream().anyMatch(log -> log.contains("0 file(s) remaining...")));
+        assertFalse(logs.stream().anyMatch(log -> log.contains("missing from packed answer")));
+        for (File source : sources) {
+            assertTrue(Files.exists(tempDir.resolve("output").resolve(source.getName())));
+        }
+    }
+
+    @Test
+    void processJavaFilesAsBatch() throws Exception {
+        Path other = Files.createTempFile(tempDir, "Other", ".java");
+        Files.writeString(tempFile, "public class TempFile { int value() { return 1; } }");
+        Files.writeString(other, "public class Other { int value() { return 2; } }");
+        mockOpenAIService = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                throw new AssertionError("batch requests must not be sent one by one");
+            }
+        };
+        Path batchDir = Files.createTempDirectory("BatchFiles");
+        try (BatchEndpointStandIn standIn = new BatchEndpointStandIn(batchDir, body -> {
+            String code = body.getJSONArray("messages").getJSONObject(1).getString("content");
+            return code.contains("class Other") ? null : "```java\n" + code.replace("1;", "0; // Constant") + "\n```";
+        })) {
+            OpenAIBatchService batch = new OpenAIBatchService(mockOpenAIService, "key", standIn.baseUrl(),
+                    java.net.http.HttpClient.newHttpClient(), java.time.Duration.ofMillis(1), mockLogger);
+            FileProcessor fileProcessor = new FileProcessor(mockLogger, mockOpenAIService, new MutationOptions().setBatchService(batch));
+            fileProcessor.processJavaFiles(List.of(tempFile.toFile(), other.toFile()), tempDir);
+        } finally {
+            try (var paths = Files.walk(batchDir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+
+        assertTrue(Files.readString(tempDir.resolve("output").resolve(tempFile.getFileName())).contains("return 0; // Constant"));
+        assertFalse(Files.exists(tempDir.resolve("output").resolve(other.getFileName())));
+        assertTrue(logs.stream().anyMatch(log -> log.contains("LLM request for " + other.getFileName() + " failed: request failed")));
+        assertTrue(Files.readString(tempDir.resolve("output").resolve("MutationOperators.csv")).contains("Constant"));
+    }
+
     @Test
     void processNullPath(){
         FileProcessor fileProcessor = new FileProcessor(mockLogger, mockOpenAIService);
@@ -0,0 +1,108 @@
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FirstOrderSplitterTest {
+
+    private static CompilationUnit parse(String code) {
+        return ParsedSource.parser().parse(code).getResult().orElseThrow();
+    }
+
+    @Test
+    void oneMutantPerSiteWithItsOperator() {
+        CompilationUnit original = parse("""
+                class A {
+                    int f(int a, int b) {
+                        if (a < b) {
+                            return a + b;
+                        }
+                        return 0;
+                    }
+                }
+                """);
+        CompilationUnit mutated = parse("""
+                class A {
+                    int f(int a, int b) {
+                        // Conditionals Boundary: replaced < with <=
+                        if (a <= b) {
+                            // Math: replaced + with -
+                            return a - b;
+                        }
+                        return 0;
+                    }
+                }
+                """);
+
+        List<FirstOrderSplitter.Mutant> mutants = FirstOrderSplitter.split(original, mutated);
+
+        assertEquals(2, mutants.size());
+        assertEquals(1, mutants.get(0).site());
+        assertEquals("Conditionals Boundary: replaced < with <=", mutants.get(0).operators());
+        assertTrue(mutants.get(0).code().contains("// Conditionals Boundary: replaced < with <=\n        if (a <= b)"));
+        assertTrue(mutants.get(0).code().contains("return a + b;"));
+        assertEquals("Math: replaced + with -", mutants.get(1).operators());
+        assertTrue(mutants.get(1).code().contains("if (a < b)"));
+        assertTrue(mutants.get(1).code().contains("// Math: replaced + with -\n            return a - b;"));
+    }
+
+    @Test
+    void sharedCommentIsSplitBetweenItsSites() {
+        CompilationUnit original = parse("class A { void f(int[] v) { for (int i = 0; i < v.length; i++) { } } }");
+        CompilationUnit mutated = parse("""
+                class A {
+                    void f(int[] v) {
+                        // Conditionals Boundary: replaced < with <=; Increments: replaced ++ with --
+                        for (int i = 0; i <= v.length; i--) { }
+                    }
+                }
+                """);
+
+        List<FirstOrderSplitter.Mutant> mutants = FirstOrderSplitter.split(original, mutated);
+
+        assertEquals(List.of("Conditionals Boundary: replaced < with <=", "Increments: replaced ++ with --"),
+                mutants.stream().map(FirstOrderSplitter.Mutant::operators).toList());
+        assertTrue(mutants.get(0).code().contains("i <= v.length; i++"));
+        assertTrue(mutants.get(1).code().contains("i < v.length; i--"));
+    }
+
+    @Test
+    void mutantImportsAreKeptAndCommentsIgnored() {
+        CompilationUnit original = parse("/* header */\nclass A { /* note */ Object f() { return new Object(); } }");
+        CompilationUnit mutated = parse("import java.util.List;\nclass A { Object f() { return List.of(); } }");
+
+        List<FirstOrderSplitter.Mutant> mutants = FirstOrderSplitter.split(original, mutated);
+
+        assertEquals(1, mutants.size());
+        assertEquals("", mutants.getFirst().operators());
+        assertTrue(mutants.getFirst().code().startsWith("import java.util.List;"));
+        assertTrue(mutants.getFirst().code().contains("return List.of();"));
+        assertTrue(FirstOrderSplitter.split(original, parse("class A { Object f() { return new Object(); } }")).isEmpty());
+    }
+
+    @Test
+    void splitsEveryLocalMutantInParallel() {
+        StringBuilder code = new StringBuilder("class A {\n");
+        for (int i = 0; i < 3 * FirstOrderSplitter.SITES_PER_WORKER; i++) {
+            code.append("    boolean f").append(i).append("(int a) { return a < ").append(i).append("; }\n");
+        }
+        String source = code.append("}\n").toString();
+        CompilationUnit mutated = parse(source);
+        int sites = LocalMutationService.mutate(mutated);
+
+        List<FirstOrderSplitter.Mutant> mutants = FirstOrderSplitter.split(parse(source), mutated);
+
+        assertEquals(sites, mutants.size());
+        for (int i = 0; i < mutants.size(); i++) {
+            FirstOrderSplitter.Mutant mutant = mutants.get(i);
+            assertEquals(i + 1, mutant.site());
+            assertFalse(mutant.operators().isEmpty());
+            assertEquals(1, ParsedSource.scanComments(mutant.code()).size());
+        }
+        for (FirstOrderSplitter.Mutant mutant : List.of(mutants.getFirst(), mutants.get(FirstOrderSplitter.SITES_PER_WORKER), mutants.getLast())) {
+            assertEquals(1, FirstOrderSplitter.split(parse(source), parse(mutant.code())).size());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import constants.Headers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeaderDetectorTest {
+    Path tempFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempFile = Files.createTempFile("Header", ".java");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(tempFile);
+    }
+
+    @Test
+    void detectsEveryBuiltInHeader() {
+        for (String header : Headers.getAllHeaders()) {
+            String detected = HeaderDetector.defaults().detect(header + "package a;\n\npublic class A {}\n");
+
+            assertEquals(HeaderDetector.normalise(header), HeaderDetector.normalise(detected));
+        }
+    }
+
+    @Test
+    void ignoresDifferencesInWhitespace() {
+        String reformatted = Headers.APACHE_LICENCE.replace("\n *", "\r\n\t *").replace("  ", " ");
+
+        assertEquals(Headers.APACHE_LICENCE + "\n", HeaderDetector.defaults().detect(reformatted + "class A {}"));
+    }
+
+    @Test
+    void findsHeaderAfterOtherLeadingComments() {
+        String content = "\uFEFF// generated\n\n" + Headers.APACHE_LICENCE + "/** Javadoc */\nclass A {}";
+
+        assertEquals(Headers.APACHE_LICENCE + "\n", HeaderDetector.defaults().detect(content));
+    }
+
+    @Test
+    void ignoresHeaderAfterCode() {
+        String content = "package a;\n" + Headers.APACHE_LICENCE + "class A {}";
+
+        assertEquals("", HeaderDetector.defaults().detect(content));
+    }
+
+    @Test
+    void firstListedHeaderWins() {
+        HeaderDetector detector = new HeaderDetector(List.of("/* short */", "/*  short */", "// other"));
+
+        assertEquals("/* short */\n", detector.detect("// other\n/*\tshort */\nclass A {}"));
+    }
+
+    @Test
+    void readsOnlyTheCommentRegionOfAFile() throws IOException {
+        Files.writeString(tempFile, Headers.APACHE_LICENCE + "class A {\n}\n" + Headers.APACHE_IO_LICENSE);
+
+        assertEquals(Headers.APACHE_LICENCE + "\n", HeaderDetector.defaults().detect(tempFile.toFile()));
+    }
+
+    @Test
+    void readsUserHeaders() throws IOException {
+        Files.writeString(tempFile, """
+                /*
+                 * Copyright (c) Example Corp.
+                 */
+
+                // SPDX-License-Identifier: MIT
+                // Copyright Example
+
+                /* one line */
+                """);
+        List<String> headers = HeaderDetector.readHeaders(tempFile);
+
+        assertEquals(List.of("/*\n * Copyright (c) Example Corp.\n */",
+                "// SPDX-License-Identifier: MIT\n// Copyright Example",
+                "/* one line */"), headers);
+        assertEquals("// SPDX-License-Identifier: MIT\n// Copyright Example\n",
+                new HeaderDetector(headers).detect("//  SPDX-License-Identifier: MIT\n//  Copyright Example\nclass A {}"));
+    }
+}
@@ -0,0 +1,65 @@
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HybridMutationServiceTest {
+    LoggerService mockLogger;
+    List<String> logs;
+
+    @BeforeEach
+    void setUp() {
+        logs = Collections.synchronizedList(new LinkedList<>());
+        mockLogger = new LoggerService() {
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void debug(String message) {
+                logs.add(message);
+            }
+        };
+    }
+
+    @Test
+    void sendsLocalMutantsForSemanticMutation() {
+        List<String> requests = Collections.synchronizedList(new LinkedList<>());
+        LLMApiService llm = javaCode -> {
+            requests.add(javaCode);
+            return "```java\n" + javaCode.substring(javaCode.indexOf("class")) + "\n```";
+        };
+        HybridMutationService hybrid = new HybridMutationService(new LocalMutationService(mockLogger), llm, mockLogger);
+
+        String answer = hybrid.askOpenAI("class A { boolean f(int a) { return a > 1; } }");
+
+        assertEquals(1, requests.size());
+        assertTrue(requests.getFirst().startsWith(HybridMutationService.SEMANTIC_INSTRUCTIONS));
+        assertTrue(requests.getFirst().contains("// Conditionals Boundary: replaced > with >="));
+        assertTrue(answer.contains("a >= 1"));
+    }
+
+    @Test
+    void keepsLocalMutantsWhenTheAnswerIsUnusable() {
+        LLMApiService llm = javaCode -> "Error: HTTP 500";
+        HybridMutationService hybrid = new HybridMutationService(new LocalMutationService(mockLogger), llm, mockLogger);
+
+        String answer = hybrid.askOpenAI("class A { boolean f(int a) { return a > 1; } }");
+
+        assertTrue(answer.startsWith("```java\n"));
+        assertTrue(answer.contains("a >= 1"));
+        assertTrue(logs.stream().anyMatch(log -> log.startsWith("LLM answer not usable, keeping the local mutants")));
+    }
+}
@@ -165,6 +165,147 @@ class InitProcessorTest {
         assertEquals("gpt4omini", model);
     }
 
+    @Test
+    void getParallelismDefault() {
+        String[] args = {"-dir", "/path/to/dir"};
+        InitProcessor processor = new InitProcessor(args, mockLogger);
+
+        assertEquals(1, processor.getParallelism());
+    }
+
+    @Test
+    void getParallelism() {
+        String[] args = {"-dir", "/path/to/dir", "-parallel", "64"};
+        InitProcessor processor = new InitProcessor(args, mockLogger);
+
+        assertEquals(64, processor.getParallelism());
+    }
+
+    @Test
+    void getParallelismInvalid() {
+        String[] args = {"-parallel", "many"};
+        InitProcessor processor = new InitProcessor(args, mockLogger);
+
+        assertEquals(1, processor.getParallelism());
+        assertTrue(logs.stream().anyMatch(log -> log.contains("Invalid value for -parallel: many")));
+    }
+
+    @Test
+    void getTokenizerInvalidVocabulary() throws IOException {
+        Path vocabulary = Files.createTempFile("broken", ".tiktoken");
+        Files.writeString(vocabulary, "broken\n");
+        String[] args = {"-dry-run", "-tokenizer-vocab", vocabulary.toString()};
+        InitProcessor processor = new InitProcessor(args, mockLogger);
+
+        assertTrue(processor.isDryRun());
+        assertEquals(3, processor.getTokenizer().countTokens("123456789"));
+        assertTrue(logs.stream().anyMatch(log -> log.startsWith("Tokenizer vocabulary not usable")));
+        Files.delete(vocabulary);
+    }
+
+    @Test
+    void getHeaderDetectorWithUserHeaders() throws IOException {
+        Path headers = Files.createTempFile("headers", ".txt");
+        Files.writeString(headers, "/* Copyright Example */\n");
+        InitProcessor processor = new InitProcessor(new String[]{"-headers", headers.toString()}, mockLogger);
+
+        HeaderDetector detector = processor.getHeaderDetector();
+
+        assertEquals("/* Copyright Example */\n", detector.detect("/*  Copyright  Example */\nclass A {}"));
+        assertFalse(detector.detect(constants.Headers.APACHE_LICENCE + "class A {}").isEmpty());
+        assertTrue(logs.contains("1 licence header(s) read from " + headers));
+        Files.delete(headers);
+    }
+
+    @Test
+    void getHeaderDetectorMissingFile() {
+        InitProcessor processor = new InitProcessor(new String[]{"-headers", "/no/such/headers.txt"}, mockLogger);
+
+        assertSame(HeaderDetector.defaults(), processor.getHeaderDetector());
+        assertTrue(logs.stream().anyMatch(log -> log.startsWith("Licence headers not readable")));
+    }
+
+    @Test
+    void localEngine() {
+        String[] args = {"-engine", "local", "-pack", "4000", "-batch"};
+        InitProcessor processor = new InitProcessor(args, mockLogger);
+
+        assertInstanceOf(LocalMutationService.class, processor.createAPIService());
+        assertEquals(Runtime.getRuntime().availableProcessors(), processor.getParallelism());
+        assertEquals(0, processor.getMutationOptions().getPackTokens());
+        assertFalse(processor.isBatch());
+    }
+
+    @Test
+    void unsupportedEngine() {
+        InitProcessor processor = new InitProcessor(new String[]{"-engine", "quantum"}, mockLogger);
+
+        assertNull(processor.createAPIService());
+        assertTrue(logs.contains("Unsupported engine: quantum"));
+    }
+
+    @Test
+    void mutantCompilerOnlyWithValidate() {
+        assertNull(new InitProcessor(new String[]{"-dir", "/path/to/dir"}, mockLogger).createMutantCompiler(List.of()));
+
+        try (MutantCompiler compiler = new InitProcessor(new String[]{"-validate", "lib/a.jar" + File.pathSeparator + "classes"}, mockLogger)
+                .createMutantCompiler(List.of())) {
+            assertNotNull(compiler);
+        }
+    }
+
+    @Test
+    void metricsSharedWithMutationOptions() {
+        InitProcessor processor = new InitProcessor(new String[]{"-metrics-port", "9400"}, mockLogger);
+
+        assertSame(processor.getMetrics(), processor.getMutationOptions().getMetrics());
+        assertEquals(9400, processor.getMetricsPort());
+        assertEquals(-1, new InitProcessor(new String[]{}, mockLogger).getMetricsPort());
+        assertEquals("127.0.0.1", processor.getMetricsHost());
+        assertEquals("0.0.0.0", new InitProcessor(new String[]{"-metrics-host", "0.0.0.0"}, mockLogger).getMetricsHost());
+    }
+
+    @Test
+    void serverArguments() {
+        InitProcessor processor = new InitProcessor(new String[]{"-server", "9500", "-server-jobs", "3"}, mockLogger);
+
+        assertTrue(processor.isServer());
+        assertEquals(9500, processor.getServerPort());
+        assertEquals(3, processor.getServerJobs());
+        assertEquals(16, processor.getServerLlmSlots());
+        assertEquals(2, processor.getServerInteractiveJobs());
+        assertEquals(10, processor.getServerInteractiveFiles());
+        assertEquals("127.0.0.1", processor.getServerHost());
+        assertEquals(List.of("-api-base", "http://localhost:8089/v1", "-cache"), new InitProcessor(new String[]{
+                "-server", "-api-base", "http://localhost:8089/v1", "-model", "gpt4o", "-cache"}, mockLogger).getServerJobDefaults());
+        assertFalse(new InitProcessor(new String[]{}, mockLogger).isServer());
+        assertEquals(new InitProcessor(new String[]{"-f", "A.java", "-engine", "local"}, mockLogger).getServiceKey(),
+                new InitProcessor(new String[]{"-engine", "local", "-f", "B.java"}, mockLogger).getServiceKey());
+        assertNotEquals(new InitProcessor(new String[]{"-engine", "local"}, mockLogger).getServiceKey(),
+                new InitProcessor(new String[]{"-engine", "local", "-rpm", "20"}, mockLogger).getServiceKey());
+        assertNotEquals(new InitProcessor(new String[]{"-engine", "local"}, mockLogger).getServiceKey(),
+                new InitProcessor(new String[]{"-engine", "local", "-dry-run"}, mockLogger).getServiceKey());
+    }
+
+    @Test
+    void mockServerPortOptional() {
+        assertEquals(8089, new InitProcessor(new String[]{"-mock-server", "-mock-latency", "50"}, mockLogger).getMockServerPort());
+        assertEquals(9000, new InitProcessor(new String[]{"-mock-server", "9000"}, mockLogger).getMockServerPort());
+        assertEquals(8090, new InitProcessor(new String[]{"-server", "-server-jobs", "2"}, mockLogger).getServerPort());
+        assertTrue(logs.stream().noneMatch(log -> log.startsWith("Invalid value")));
+    }
+
+    @Test
+    void createLoggerInvalidLevel() {
+        InitProcessor processor = new InitProcessor(new String[]{"-log-level", "loud", "-log-format", "json"}, mockLogger);
+
+        try (AsyncLogger logger = processor.createLogger()) {
+            assertTrue(logger.isEnabled(enums.LogLevel.INFO));
+            assertFalse(logger.isEnabled(enums.LogLevel.DEBUG));
+        }
+        assertTrue(logs.contains("Invalid value for -log-level: loud"));
+    }
+
     @Test
     void createAPIService() {
         String[] args = {"-dir", "/path/to/dir"};
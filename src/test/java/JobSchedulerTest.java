@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobSchedulerTest {
+
+    @Test
+    void interactiveLaneServedFirst() {
+        JobScheduler scheduler = JobScheduler.create(1, new Metrics());
+        JobScheduler.Share bulk = scheduler.join("nightly", JobScheduler.Lane.BULK, 8);
+        JobScheduler.Share interactive = scheduler.join("single file", JobScheduler.Lane.INTERACTIVE, 1);
+
+        assertTrue(bulk.acquire().isDone());
+        CompletableFuture<Void> bulkNext = bulk.acquire();
+        CompletableFuture<Void> interactiveNext = interactive.acquire();
+        assertFalse(bulkNext.isDone());
+        assertFalse(interactiveNext.isDone());
+
+        bulk.release();
+        assertTrue(interactiveNext.isDone());
+        assertFalse(bulkNext.isDone());
+
+        interactive.release();
+        assertTrue(bulkNext.isDone());
+        assertEquals(1, scheduler.getInUse());
+    }
+
+    @Test
+    void slotsSharedByWeight() {
+        JobScheduler scheduler = JobScheduler.create(6, new Metrics());
+        JobScheduler.Share heavy = scheduler.join("heavy", JobScheduler.Lane.BULK, 2);
+        JobScheduler.Share light = scheduler.join("light", JobScheduler.Lane.BULK, 1);
+        JobScheduler.Share blocker = scheduler.join("blocker", JobScheduler.Lane.INTERACTIVE, 1);
+        for (int i = 0; i < 6; i++) {
+            blocker.acquire();
+        }
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            requests.add(heavy.acquire());
+            requests.add(light.acquire());
+        }
+
+        for (int i = 0; i < 6; i++) {
+            blocker.release();
+        }
+
+        assertEquals(4, heavy.getInFlight());
+        assertEquals(2, light.getInFlight());
+        assertEquals(6, requests.stream().filter(CompletableFuture::isDone).count());
+    }
+
+    @Test
+    void cancelFailsWaitingRequests() {
+        JobScheduler scheduler = JobScheduler.create(1, new Metrics());
+        JobScheduler.Share running = scheduler.join("running", JobScheduler.Lane.BULK, 1);
+        JobScheduler.Share cancelled = scheduler.join("cancelled", JobScheduler.Lane.BULK, 1);
+        running.acquire();
+        CompletableFuture<Void> waiting = cancelled.acquire();
+
+        cancelled.cancel();
+
+        assertThrows(CancellationException.class, waiting::join);
+        assertTrue(cancelled.acquire().isCompletedExceptionally());
+        running.release();
+        assertEquals(0, scheduler.getInUse());
+        assertTrue(running.acquire().isDone());
+    }
+
+    @Test
+    void scheduledServiceReleasesSlot() {
+        Metrics metrics = new Metrics();
+        JobScheduler scheduler = JobScheduler.create(1, metrics);
+        JobScheduler.Share share = scheduler.join("job", JobScheduler.Lane.INTERACTIVE, 1);
+        ScheduledLLMService service = new ScheduledLLMService(javaCode -> "```java\n" + javaCode + "\n```", share);
+
+        assertEquals("```java\nclass A {}\n```", service.askOpenAI("class A {}"));
+        assertEquals("```java\nclass B {}\n```", service.askOpenAIAsync("class B {}").join().content());
+
+        assertEquals(0, scheduler.getInUse());
+        assertEquals(2, metrics.count("llm_slot_wait_seconds", "lane", "interactive"));
+    }
+}
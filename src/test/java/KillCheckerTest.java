@@ -0,0 +1,206 @@
+import Interfaces.LoggerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KillCheckerTest {
+    private static final String CALC = """
+            package calc;
+
+            public class Calc {
+                public int add(int a, int b) {
+                    return a + b;
+                }
+            }
+            """;
+    // named like a default package class of the mutator itself
+    private static final String TOKEN_BUDGET = "public class TokenBudget { public int twice(int a) { return a * 2; } }";
+
+    LoggerService mockLogger;
+    List<String> logs;
+    MutantCompiler compiler;
+    KillChecker checker;
+
+    @TempDir
+    Path project;
+
+    @BeforeEach
+    void setUp() throws IOException, URISyntaxException {
+        logs = Collections.synchronizedList(new LinkedList<>());
+        mockLogger = new LoggerService() {
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void debug(String message) {
+                logs.add(message);
+            }
+        };
+        File junit = new File(Test.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Path sources = Files.createDirectories(project.resolve("src").resolve("calc"));
+        Files.writeString(sources.resolve("Calc.java"), CALC);
+        Files.writeString(sources.resolve("Untested.java"), "package calc;\npublic class Untested { int one() { return 1; } }");
+        Path tests = Files.createDirectories(project.resolve("test").resolve("calc"));
+        Files.writeString(tests.resolve("CalcTest.java"), """
+                package calc;
+
+                import org.junit.jupiter.api.Test;
+                import static org.junit.jupiter.api.Assertions.assertEquals;
+
+                class CalcTest {
+                    @Test
+                    void add() {
+                        assertEquals(5, new Calc().add(2, 3));
+                    }
+                }
+                """);
+        Files.writeString(project.resolve("src").resolve("TokenBudget.java"), TOKEN_BUDGET);
+        Files.writeString(project.resolve("test").resolve("TokenBudgetTest.java"), """
+                import org.junit.jupiter.api.Test;
+                import static org.junit.jupiter.api.Assertions.assertEquals;
+
+                class TokenBudgetTest {
+                    @Test
+                    void twice() {
+                        assertEquals(4, new TokenBudget().twice(2));
+                    }
+                }
+                """);
+        Path classes = project.resolve("classes");
+        Path testClasses = project.resolve("test-classes");
+        javac(classes, List.of(), sources.resolve("Calc.java"), sources.resolve("Untested.java"),
+                project.resolve("src").resolve("TokenBudget.java"));
+        javac(testClasses, List.of(classes.toFile(), junit), tests.resolve("CalcTest.java"),
+                project.resolve("test").resolve("TokenBudgetTest.java"));
+
+        List<File> classpath = List.of(classes.toFile(), testClasses.toFile(), junit);
+        compiler = new MutantCompiler(classpath, List.of(project.resolve("src").toFile()), 2, mockLogger);
+        checker = new KillChecker(compiler, classpath, 2, Duration.ofMillis(300), mockLogger);
+    }
+
+    @AfterEach
+    void tearDown() {
+        checker.close();
+        compiler.close();
+    }
+
+    private static void javac(Path output, List<File> classpath, Path... sources) throws IOException {
+        Files.createDirectories(output);
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        List<String> args = new LinkedList<>(List.of("-d", output.toString(), "-cp",
+                String.join(File.pathSeparator, classpath.stream().map(File::getPath).toList())));
+        for (Path source : sources) {
+            args.add(source.toString());
+        }
+        assertEquals(0, javac.run(null, null, null, args.toArray(String[]::new)));
+    }
+
+    private KillChecker.Result check(String code) {
+        return checker.check("calc/Calc.java", code).join();
+    }
+
+    @Test
+    void killedMutant() {
+        KillChecker.Result result = check(CALC.replace("a + b", "a - b"));
+
+        assertEquals(KillChecker.Status.KILLED, result.status());
+        assertTrue(result.detail().startsWith("add() org.opentest4j.AssertionFailedError: expected: <5> but was: <-1>"));
+    }
+
+    @Test
+    void survivingMutant() {
+        assertEquals(new KillChecker.Result(KillChecker.Status.SURVIVED, ""), check(CALC.replace("a + b", "b + a")));
+    }
+
+    @Test
+    void timedOutMutant() {
+        KillChecker.Result result = check(CALC.replace("return a + b;", "while (a > 0) { b++; }\n        return b;"));
+
+        assertEquals(KillChecker.Status.TIMED_OUT, result.status());
+        assertEquals(KillChecker.Status.KILLED, check(CALC.replace("a + b", "a * b")).status());
+    }
+
+    @Test
+    void mutantEndingTheTestJvm() {
+        KillChecker.Result result = check(CALC.replace("return a + b;", "System.exit(3);\n        return 0;"));
+
+        assertEquals(KillChecker.Status.KILLED, result.status());
+        assertEquals("test JVM ended: exit code 3", result.detail());
+        assertEquals(KillChecker.Status.SURVIVED, check(CALC.replace("a + b", "b + a")).status());
+    }
+
+    @Test
+    void testsThatCanNotRunAreAnError() throws IOException {
+        Path testClass = project.resolve("test-classes").resolve("calc").resolve("CalcTest.class");
+        byte[] bytes = Files.readAllBytes(testClass);
+        Files.delete(testClass);
+
+        KillChecker.Result result = check(CALC.replace("a + b", "a - b"));
+
+        assertEquals(KillChecker.Status.ERROR, result.status());
+        assertTrue(result.detail().startsWith("tests could not run on the original: "), result.detail());
+
+        Files.write(testClass, bytes);
+        assertEquals(KillChecker.Status.KILLED, check(CALC.replace("a + b", "a - b")).status());
+    }
+
+    @Test
+    void projectClassesComeBeforeTheMutatorsOwn() {
+        assertEquals(KillChecker.Status.SURVIVED,
+                checker.check("TokenBudget.java", TOKEN_BUDGET.replace("a * 2", "2 * a")).join().status());
+        assertEquals(KillChecker.Status.KILLED,
+                checker.check("TokenBudget.java", TOKEN_BUDGET.replace("a * 2", "a * 3")).join().status());
+    }
+
+    @Test
+    void nonViableAndUncoveredMutants() {
+        assertEquals(KillChecker.Status.NON_VIABLE, check(CALC.replace("a + b", "a + \"b\"")).status());
+        assertEquals(KillChecker.Status.NO_COVERAGE, checker.check("calc/Untested.java",
+                "package calc;\npublic class Untested { int one() { return 2; } }").join().status());
+    }
+
+    @Test
+    void mutantsDoNotLeakIntoOtherLoaders() {
+        List<KillChecker.Result> results = List.of(
+                checker.check("calc/Calc.java", CALC.replace("a + b", "a - b")),
+                checker.check("calc/Calc.java", CALC.replace("a + b", "b + a")),
+                checker.check("calc/Calc.java", CALC.replace("a + b", "a * b"))).stream()
+                .map(java.util.concurrent.CompletableFuture::join).toList();
+
+        assertEquals(List.of(KillChecker.Status.KILLED, KillChecker.Status.SURVIVED, KillChecker.Status.KILLED),
+                results.stream().map(KillChecker.Result::status).toList());
+    }
+
+    @Test
+    void findsReferencesInTheConstantPool() throws IOException {
+        byte[] test = Files.readAllBytes(project.resolve("test-classes").resolve("calc").resolve("CalcTest.class"));
+
+        assertTrue(KillChecker.references(test, "calc/Calc"));
+        assertFalse(KillChecker.references(test, "calc/Cal"));
+        assertFalse(KillChecker.references(test, "calc/Untested"));
+        assertFalse(KillChecker.references("calc/CalcTest".getBytes(StandardCharsets.UTF_8), "calc/Calc"));
+    }
+}
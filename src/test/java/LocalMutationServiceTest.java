@@ -0,0 +1,146 @@
+import Interfaces.LoggerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalMutationServiceTest {
+    LoggerService mockLogger;
+    List<String> logs;
+    LocalMutationService service;
+
+    @BeforeEach
+    void setUp() {
+        logs = Collections.synchronizedList(new LinkedList<>());
+        mockLogger = new LoggerService() {
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void debug(String message) {
+                logs.add(message);
+            }
+        };
+        service = new LocalMutationService(mockLogger);
+    }
+
+    @Test
+    void appliesOperatorsWithComments() {
+        String answer = service.askOpenAI("""
+                public class A {
+                    int count;
+                    boolean check(int a, int b) {
+                        if (a < b) {
+                            count++;
+                        }
+                        log(a);
+                        return a == b;
+                    }
+                    int total(int[] values, int offset) {
+                        return values.length;
+                    }
+                    void log(int a) {
+                    }
+                }
+                """);
+
+        assertTrue(answer.startsWith("```java\n"));
+        assertTrue(answer.endsWith("\n```"));
+        assertTrue(answer.contains("// Conditionals Boundary: replaced < with <=\n        if (a <= b)"));
+        assertTrue(answer.contains("// Increments: replaced ++ with --\n            count--;"));
+        assertTrue(answer.contains("// Void Method Calls: removed call to log\n        ;"));
+        assertTrue(answer.contains("// Negate Conditionals: replaced == with !=\n        return a != b;"));
+        assertTrue(answer.contains("// Return Values: replaced return value x with x == 0 ? 1 : 0\n        return values.length == 0 ? 1 : 0;"));
+        assertTrue(logs.contains("5 mutant(s) generated locally..."));
+    }
+
+    @Test
+    void isDeterministic() {
+        String code = "class A { int f(int a, int b) { return a < b ? a * b : a - b; } boolean g() { return ready(); } boolean ready() { return true; } }";
+
+        assertEquals(service.askOpenAI(code), service.askOpenAI(code));
+    }
+
+    @Test
+    void balancesOperatorsOnSharedSites() {
+        String answer = service.askOpenAI("class A { void f(int a) { if (a < 1) {} if (a < 2) {} } }");
+
+        assertTrue(answer.contains("Conditionals Boundary: replaced < with <="));
+        assertTrue(answer.contains("Negate Conditionals: replaced < with >="));
+    }
+
+    @Test
+    void keepsConcatenationAndConstants() {
+        String answer = service.askOpenAI("""
+                class A {
+                    static final int MAX = 2;
+                    @SuppressWarnings("unused")
+                    String f(String name, int n) {
+                        switch (n) {
+                            case MAX + 1:
+                                return name + n;
+                        }
+                        return "x" + name;
+                    }
+                }
+                """);
+
+        assertTrue(answer.contains("case MAX + 1:"));
+        assertTrue(answer.contains("name + n"));
+        assertFalse(answer.contains("\"x\" - name"));
+    }
+
+    @Test
+    void returnsByType() {
+        String answer = service.askOpenAI("""
+                import java.util.List;
+                class A {
+                    String name() { return value(); }
+                    List<String> names() { return load(); }
+                    Integer boxed() { return load2(); }
+                    Boolean flag() { return load3(); }
+                }
+                """);
+
+        assertTrue(answer.contains("return \"\";"));
+        assertTrue(answer.contains("return null;"));
+        assertTrue(answer.contains("return java.util.Collections.emptyList();") || answer.contains("return 0;"));
+        assertTrue(answer.contains("return true;") || answer.contains("return false;"));
+    }
+
+    @Test
+    void keepsCallsNeededByCatchClauses() {
+        String answer = service.askOpenAI("""
+                class A {
+                    void f(java.io.Reader reader) {
+                        try {
+                            reader.close();
+                        } catch (java.io.IOException e) {
+                        }
+                        list.forEach(item -> print(item));
+                        Runnable task = () -> print(reader);
+                    }
+                }
+                """);
+
+        assertTrue(answer.contains("reader.close();"));
+        assertTrue(answer.contains("removed call to forEach"));
+        assertTrue(answer.contains("() -> print(reader)"));
+    }
+
+    @Test
+    void reportsUnparsableCode() {
+        assertTrue(service.askOpenAI("class {").startsWith("Error: "));
+    }
+}
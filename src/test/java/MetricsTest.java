@@ -0,0 +1,104 @@
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void countersAndGaugesInPrometheusFormat() {
+        Metrics metrics = new Metrics();
+        metrics.increment("files_total", "status", "done");
+        metrics.increment("files_total", "status", "done");
+        metrics.error("http_429");
+        metrics.usage("gpt-4o-mini", 1000, 500, 0.00045);
+        metrics.gauge("queue_depth", "queue", "write", () -> 3);
+
+        String text = metrics.toPrometheus();
+
+        assertTrue(text.contains("# TYPE mutator_files_total counter\nmutator_files_total{status=\"done\"} 2\n"));
+        assertTrue(text.contains("mutator_errors_total{type=\"http_429\"} 1\n"));
+        assertTrue(text.contains("mutator_llm_prompt_tokens_total{model=\"gpt-4o-mini\"} 1000\n"));
+        assertTrue(text.contains("mutator_llm_cost_usd_total{model=\"gpt-4o-mini\"} 4.5E-4\n"));
+        assertTrue(text.contains("# TYPE mutator_queue_depth gauge\nmutator_queue_depth{queue=\"write\"} 3\n"));
+        assertEquals(2, metrics.counter("files_total", "status", "done"));
+        assertEquals(0, metrics.counter("files_total", "status", "failed"));
+    }
+
+    @Test
+    void jobMetricsAddUpInServerMetrics() {
+        Metrics server = new Metrics();
+        Metrics first = new Metrics(server);
+        Metrics second = new Metrics(server);
+        first.increment("files_total", "status", "done");
+        second.increment("files_total", "status", "done");
+        second.stage("write", System.nanoTime());
+        first.gauge("queue_depth", "queue", "write", () -> 3);
+
+        assertEquals(1, first.counter("files_total", "status", "done"));
+        assertEquals(2, server.counter("files_total", "status", "done"));
+        assertEquals(0, first.count("stage_seconds", "stage", "write"));
+        assertEquals(1, server.count("stage_seconds", "stage", "write"));
+        assertFalse(server.toPrometheus().contains("queue_depth"));
+
+        first.removeGauge("queue_depth", "queue", "write");
+        assertFalse(first.toPrometheus().contains("queue_depth"));
+    }
+
+    @Test
+    void histogramBucketsAreCumulative() {
+        Metrics metrics = new Metrics();
+        metrics.record("stage_seconds", "stage", "parse", 500_000);
+        metrics.record("stage_seconds", "stage", "parse", 2_000_000_000L);
+        metrics.record("stage_seconds", "stage", "parse", 400_000_000_000L);
+
+        String text = metrics.toPrometheus();
+
+        assertTrue(text.contains("# TYPE mutator_stage_seconds histogram\n"));
+        assertTrue(text.contains("mutator_stage_seconds_bucket{stage=\"parse\",le=\"0.001\"} 1\n"));
+        assertTrue(text.contains("mutator_stage_seconds_bucket{stage=\"parse\",le=\"2.5\"} 2\n"));
+        assertTrue(text.contains("mutator_stage_seconds_bucket{stage=\"parse\",le=\"300.0\"} 2\n"));
+        assertTrue(text.contains("mutator_stage_seconds_bucket{stage=\"parse\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("mutator_stage_seconds_count{stage=\"parse\"} 3\n"));
+        assertEquals(3, metrics.count("stage_seconds", "stage", "parse"));
+    }
+
+    @Test
+    void jsonSummary() {
+        Metrics metrics = new Metrics();
+        for (int i = 0; i < 19; i++) {
+            metrics.record("llm_ttfb_seconds", "model", "m", 500_000);
+        }
+        metrics.record("llm_ttfb_seconds", "model", "m", 20_000_000_000L);
+        metrics.increment("files_total", "status", "failed");
+
+        JSONObject summary = metrics.toJson();
+        JSONObject ttfb = summary.getJSONObject("latencies").getJSONObject("llm_ttfb_seconds.m");
+
+        assertEquals(20, ttfb.getLong("count"));
+        assertEquals(0.001, ttfb.getDouble("p50Seconds"));
+        assertEquals(0.001, ttfb.getDouble("p95Seconds"));
+        assertTrue(ttfb.getDouble("maxSeconds") >= 20);
+        assertEquals(1, summary.getJSONObject("counters").getDouble("files_total.failed"));
+    }
+
+    @Test
+    void servesMetricsEndpoint() throws Exception {
+        try (Metrics metrics = new Metrics().serve(0)) {
+            metrics.error("IOException");
+
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + metrics.getPort() + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+            assertTrue(response.body().contains("mutator_errors_total{type=\"IOException\"} 1"));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MockOpenAIServerTest {
+    LoggerService mockLogger;
+    List<String> logs;
+    MockOpenAIServer server;
+
+    @BeforeEach
+    void setUp() {
+        logs = Collections.synchronizedList(new LinkedList<>());
+        mockLogger = new LoggerService(){
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void debug(String message) {
+                logs.add(message);
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    OpenAIService service(int retries) {
+        return new OpenAIService("mock-model", "key", server.getBaseUrl() + "/chat/completions", SharedHttpClient.get(8),
+                new RequestScheduler(1000, 1_000_000, retries, mockLogger), mockLogger);
+    }
+
+    @Test
+    void answerMutatesCodeDeterministically() {
+        String prompt = "Mutate this:\n\npublic class A {\n    boolean f(int a) {\n        return a + 1 == 2;\n    }\n}";
+
+        String answer = MockOpenAIServer.answer(prompt);
+
+        assertEquals(answer, MockOpenAIServer.answer(prompt));
+        assertTrue(answer.startsWith("Here is the mutated class:\n```java\npublic class A {"));
+        assertTrue(answer.contains("return a + 1 != 2; // Relational Operator Replacement"));
+        assertTrue(answer.endsWith("}\n```"));
+    }
+
+    @Test
+    void packedPromptKeepsLayout() {
+        FilePacker packer = new FilePacker(100, File::getName);
+        for (String name : List.of("A", "B")) {
+            FileProcessor.MutationTask task = new FileProcessor.MutationTask(new File(name + ".java"));
+            task.javaCode = "class " + name + " {\n    int f() {\n        return 1 + 1;\n    }\n}";
+            task.codeTokens = 10;
+            packer.add(task);
+        }
+        String packed = packer.flush().getFirst().javaCode;
+
+        Map<String, String> sections = FilePacker.unpack(MockOpenAIServer.answer("Mutate these files\n\n" + packed));
+
+        assertEquals(Set.of("A.java", "B.java"), sections.keySet());
+        assertTrue(sections.get("B.java").contains("return 1 - 1; // Arithmetic Operator Replacement"));
+    }
+
+    @Test
+    void servesChatCompletions() {
+        server = new MockOpenAIServer().setLatency(MockOpenAIServer.Latency.fixed(50)).start(0);
+
+        long start = System.nanoTime();
+        LLMApiService.Response response = service(0).askOpenAIAsync("class A {\n    int f() {\n        return 2 * 3;\n    }\n}").join();
+
+        assertTrue((System.nanoTime() - start) / 1_000_000 >= 50);
+        assertTrue(response.content().contains("return 2 / 3; // Arithmetic Operator Replacement"));
+        assertTrue(response.promptTokens() > 0);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void dripsStreamedAnswers() {
+        server = new MockOpenAIServer().setDripChars(4).setTokensPerSecond(1000).start(0);
+        List<String> deltas = Collections.synchronizedList(new ArrayList<>());
+
+        LLMApiService.Response response = service(0).askOpenAIStreaming("class A {\n}", delta -> deltas.add(delta)).join();
+
+        assertTrue(deltas.size() > 5);
+        assertEquals(response.content(), String.join("", deltas).trim());
+        assertTrue(response.content().endsWith("```"));
+    }
+
+    @Test
+    void injectsRateLimitsAndServerErrors() {
+        server = new MockOpenAIServer().setRateLimitRate(1.0).start(0);
+
+        assertTrue(service(1).askOpenAI("class A {}").startsWith("Error: HTTP 429 after 1 retries"));
+        assertEquals(2, server.getRateLimitedCount());
+
+        server.setRateLimitRate(0).setServerErrorRate(1.0);
+        assertTrue(service(0).askOpenAI("class A {}").startsWith("Error: HTTP 500 after 0 retries"));
+        assertEquals(1, server.getServerErrorCount());
+    }
+
+    @Test
+    void recordsNetworkMetrics() {
+        server = new MockOpenAIServer().setLatency(MockOpenAIServer.Latency.fixed(20)).setServerErrorRate(1.0).start(0);
+        Metrics metrics = new Metrics();
+        OpenAIService service = new OpenAIService("mock-model", "key", server.getBaseUrl() + "/chat/completions",
+                SharedHttpClient.get(8), new RequestScheduler(1000, 1_000_000, 0, mockLogger), metrics, mockLogger);
+
+        assertTrue(service.askOpenAI("class A {}").startsWith("Error: HTTP 500"));
+        server.setServerErrorRate(0);
+        service.askOpenAIStreaming("class A {\n}", delta -> true).join();
+
+        assertEquals(1, metrics.counter("errors_total", "type", "http_500"));
+        assertEquals(2, metrics.count("llm_ttfb_seconds", "model", "mock-model"));
+        assertEquals(2, metrics.count("llm_request_seconds", "model", "mock-model"));
+        assertEquals(2, metrics.count("stage_seconds", "stage", "prompt"));
+        assertTrue(metrics.counter("llm_completion_tokens_total", "model", "mock-model") > 0);
+        assertTrue(metrics.toPrometheus().contains("mutator_llm_requests_in_flight{model=\"mock-model\"} 0"));
+    }
+
+    @Test
+    void truncatesBodies() {
+        server = new MockOpenAIServer().setTruncateRate(1.0).start(0);
+
+        assertTrue(service(0).askOpenAI("class A {}").startsWith("Error: "));
+        LLMApiService.Response streamed = service(0).askOpenAIStreaming("class A {\n}", delta -> true).join();
+        assertFalse(streamed.content().endsWith("```"));
+        assertEquals(2, server.getTruncatedCount());
+    }
+
+    @Test
+    void mutationRunSurvivesFaults() throws IOException {
+        server = new MockOpenAIServer(7).setServerErrorRate(0.2).setRateLimitRate(0.1)
+                .setLatency(MockOpenAIServer.Latency.uniform(5, 20)).start(0);
+        Path tempDir = Files.createTempDirectory("MockRun");
+        try {
+            List<File> sources = new LinkedList<>();
+            for (int i = 0; i < 10; i++) {
+                Path source = Files.createTempFile(tempDir, "Load" + i, ".java");
+                Files.writeString(source, "public class Load" + i + " { int f(int a) { return a + " + i + "; } }");
+                sources.add(source.toFile());
+            }
+
+            new FileProcessor(mockLogger, service(6), 4).processJavaFiles(sources, tempDir);
+
+            assertTrue(server.getServerErrorCount() + server.getRateLimitedCount() > 0);
+            for (File source : sources) {
+                assertTrue(Files.readString(tempDir.resolve("output").resolve(source.getName()))
+                        .contains("// Arithmetic Operator Replacement"));
+            }
+        } finally {
+            try (var paths = Files.walk(tempDir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+}
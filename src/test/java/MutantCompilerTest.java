@@ -0,0 +1,109 @@
+import Interfaces.LoggerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutantCompilerTest {
+    LoggerService mockLogger;
+    List<String> logs;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        logs = Collections.synchronizedList(new LinkedList<>());
+        mockLogger = new LoggerService() {
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void debug(String message) {
+                logs.add(message);
+            }
+        };
+    }
+
+    @Test
+    void acceptsCompilingMutant() {
+        try (MutantCompiler compiler = new MutantCompiler(List.of(), List.of(), 1, mockLogger)) {
+            List<String> errors = compiler.compile("A.java", "public class A { int f(int a) { return a - 1; } }",
+                    "public class A { int f(int a) { return a + 1; } }").join();
+
+            assertEquals(List.of(), errors);
+        }
+    }
+
+    @Test
+    void rejectsMutantWithErrors() {
+        try (MutantCompiler compiler = new MutantCompiler(List.of(), List.of(), 1, mockLogger)) {
+            List<String> errors = compiler.compile("A.java", "public class A {\n int f(int a) { return \"a\"; }\n}",
+                    "public class A {\n int f(int a) { return a; }\n}").join();
+
+            assertEquals(1, errors.size());
+            assertTrue(errors.getFirst().startsWith("line 2: "));
+        }
+    }
+
+    @Test
+    void resolvesClassesOfTheSourcePath() throws IOException {
+        Path pkg = Files.createDirectories(tempDir.resolve("src").resolve("p"));
+        Files.writeString(pkg.resolve("B.java"), "package p;\npublic class B { public static int two() { return 2; } }");
+        Path a = Files.writeString(pkg.resolve("A.java"), "package p;\npublic class A { int f() { return B.two(); } }");
+        List<File> roots = MutantCompiler.sourceRoots(List.of(a.toFile()));
+
+        try (MutantCompiler compiler = new MutantCompiler(List.of(), roots, 1, mockLogger)) {
+            List<String> errors = compiler.compile("p/A.java", "package p;\npublic class A { int f() { return -B.two(); } }",
+                    Files.readString(a)).join();
+
+            assertEquals(List.of(tempDir.resolve("src").toFile().getAbsoluteFile()), roots);
+            assertEquals(List.of(), errors);
+        }
+    }
+
+    @Test
+    void acceptsMutantWhoseOriginalDoesNotCompile() {
+        try (MutantCompiler compiler = new MutantCompiler(List.of(), List.of(), 1, mockLogger)) {
+            List<String> errors = compiler.compile("A.java", "public class A { Missing m; int f() { return 0; } }",
+                    "public class A { Missing m; int f() { return 1; } }").join();
+
+            assertEquals(List.of(), errors);
+            assertTrue(logs.contains("A.java could not be validated, its original does not compile against the classpath"));
+        }
+    }
+
+    @Test
+    void batchedMutantsKeepTheirOwnErrors() {
+        try (MutantCompiler compiler = new MutantCompiler(List.of(), List.of(), 2, mockLogger)) {
+            List<CompletableFuture<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 3 * MutantCompiler.BATCH_SIZE; i++) {
+                String body = i % 3 == 0 ? "return true;" : "return " + i + ";";
+                results.add(compiler.compile("C" + i + ".java", "public class C" + i + " { int f() { " + body + " } }",
+                        "public class C" + i + " { int f() { return 0; } }"));
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 3 == 0, !results.get(i).join().isEmpty(), "C" + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutantFilterTest {
+
+    private static final String ORIGINAL = """
+            package p;
+
+            import java.util.List;
+            import java.util.ArrayList;
+
+            /** Sums values. */
+            public class A {
+                int sum(List<Integer> values) {
+                    int total = 0; // running total
+                    for (int value : values) total += value;
+                    return total;
+                }
+            }
+            """;
+
+    private final MutantFilter filter = new MutantFilter();
+
+    private ParsedSource original(String name, String code) {
+        return ParsedSource.of(new File(name), code);
+    }
+
+    @Test
+    void dropsMutantDifferingInCommentsFormattingAndImports() {
+        String mutant = """
+                package p;
+                import java.util.ArrayList;
+                import java.util.List;
+                public class A {
+                    // Math: none
+                    int sum(List<Integer> values) {
+                        int total = 0;
+                        for (int value : values)
+                            total  +=  value ;
+                        return total;
+                    }
+                }
+                """;
+
+        assertEquals("identical to the original", filter.check(original("p/A.java", ORIGINAL), "p/A.java", mutant));
+    }
+
+    @Test
+    void keepsMutantChangingCode() {
+        String mutant = ORIGINAL.replace("total += value", "total -= value");
+
+        assertNull(filter.check(original("p/A.java", ORIGINAL), "p/A.java", mutant));
+    }
+
+    @Test
+    void dropsRepeatedMutantOfAnotherFile() {
+        String mutant = ORIGINAL.replace("return total", "return 0");
+
+        assertNull(filter.check(original("p/A.java", ORIGINAL), "p/A.java", mutant));
+        assertNull(filter.check(original("p/A.java", ORIGINAL), "p/A.java", mutant + "\n// again"));
+        assertEquals("identical to the mutant of p/A.java",
+                filter.check(original("q/A.java", ORIGINAL), "q/A.java", "// copied\n" + mutant));
+    }
+
+    @Test
+    void keepsMutantThatDoesNotParse() {
+        assertNull(filter.check(original("p/A.java", ORIGINAL), "p/A.java", "public class A {"));
+    }
+
+    @Test
+    void fingerprintIgnoresImportOrderOnly() {
+        String reordered = ORIGINAL.replace("import java.util.List;\nimport java.util.ArrayList;",
+                "import java.util.ArrayList;\nimport java.util.List;");
+
+        assertEquals(ParsedSource.of(null, ORIGINAL).getFingerprint(), ParsedSource.of(null, reordered).getFingerprint());
+        assertNotEquals(ParsedSource.of(null, ORIGINAL).getFingerprint(),
+                ParsedSource.of(null, ORIGINAL.replace("package p;", "package q;")).getFingerprint());
+        assertNull(ParsedSource.of(null, "class {").getFingerprint());
+    }
+}
@@ -0,0 +1,270 @@
+import Interfaces.LoggerService;
+import Interfaces.ProgressListener;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationServerTest {
+
+    List<String> logs;
+    LoggerService mockLogger;
+    Path tempDir;
+    Path sources;
+    MutationServer server;
+    HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        logs = Collections.synchronizedList(new LinkedList<>());
+        mockLogger = new LoggerService() {
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void debug(String message) {
+                logs.add(message);
+            }
+        };
+        tempDir = Files.createTempDirectory("MutationServer");
+        sources = Files.createDirectories(tempDir.resolve("src"));
+        Files.writeString(sources.resolve("Adder.java"), "public class Adder { int sum(int a) { return a + 2; } }");
+        Files.writeString(sources.resolve("Checker.java"), "public class Checker { boolean low(int a) { return a < 2; } }");
+        server = new MutationServer(1, 4, new Metrics(), mockLogger).setRoot(tempDir).start(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void runsJobAndStreamsProgress() throws Exception {
+        JSONObject submitted = post("{\"path\": \"" + sources.toString().replace("\\", "\\\\") + "\", \"args\": [\"-engine\", \"local\", \"-parallel\", \"1\"]}");
+        assertEquals("1", submitted.getString("id"));
+
+        HttpResponse<Stream<String>> events = client.send(
+                request(submitted.getString("events"))
+                        .header("Accept", "text/event-stream").build(),
+                HttpResponse.BodyHandlers.ofLines());
+        String stream = events.body().collect(Collectors.joining("\n"));
+
+        assertTrue(stream.contains("event: queued"));
+        assertTrue(stream.contains("event: done"));
+        assertTrue(stream.contains("event: finished"));
+        String last = stream.substring(stream.lastIndexOf("event: job"));
+        JSONObject job = new JSONObject(last.substring(last.indexOf("data: ") + 6).lines().findFirst().orElseThrow());
+        assertEquals("done", job.getString("state"));
+        assertEquals(2, job.getInt("finished"));
+        assertTrue(Files.readString(tempDir.resolve("output").resolve("job-1").resolve("src").resolve("Adder.java")).contains("return a - 2;"));
+
+        JSONObject status = get("/jobs/1");
+        assertEquals("done", status.getString("state"));
+        String metrics = client.send(request("/metrics").build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        assertTrue(metrics.contains("mutator_server_jobs{state=\"running\"} 0"));
+    }
+
+    @Test
+    void jobsShareTheService() throws Exception {
+        MutationServer.Job first = server.submit(new String[]{"-dir", sources.toString(), "-engine", "local"});
+        MutationServer.Job second = server.submit(new String[]{"-dir", sources.toString(), "-engine", "local"});
+        await(first);
+        await(second);
+
+        assertEquals(MutationServer.State.DONE, second.getState());
+        for (MutationServer.Job job : List.of(first, second)) {
+            Path output = Path.of(job.toJson().getString("output"));
+            assertEquals(tempDir.resolve("output").resolve("job-" + job.getId()), output);
+            assertTrue(Files.exists(output.resolve("src").resolve("Adder.java")));
+            assertTrue(Files.exists(output.resolve("RunMetrics.json")));
+        }
+        assertEquals(1, logs.stream().filter(log -> log.equals("Using local mutation engine")).count());
+        assertTrue(logs.stream().anyMatch(log -> log.startsWith("[job 2] ")));
+    }
+
+    @Test
+    void cancelQueuedJob() throws Exception {
+        for (int i = 0; i < 40; i++) {
+            Files.writeString(sources.resolve("Adder" + i + ".java"), "public class Adder" + i + " { int sum(int a) { return a + " + i + "; } }");
+        }
+        MutationServer.Job running = server.submit(new String[]{"-dir", sources.toString(), "-engine", "local"});
+        MutationServer.Job queued = server.submit(new String[]{"-dir", sources.toString(), "-engine", "local"});
+
+        HttpResponse<String> response = client.send(request("/jobs/" + queued.getId())
+                .DELETE().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(202, response.statusCode());
+        await(running);
+        await(queued);
+
+        assertEquals(MutationServer.State.DONE, running.getState());
+        assertEquals(MutationServer.State.CANCELLED, queued.getState());
+    }
+
+    @Test
+    void jobLanes() throws Exception {
+        JSONObject single = post("{\"path\": \"" + sources.resolve("Adder.java").toString().replace("\\", "\\\\") + "\", \"args\": [\"-engine\", \"local\"]}");
+        JSONObject weighted = post("{\"path\": \"" + sources.toString().replace("\\", "\\\\") + "\", \"args\": [\"-engine\", \"local\"], \"priority\": \"bulk\", \"weight\": 3}");
+
+        assertEquals("interactive", single.getString("priority"));
+        assertEquals("bulk", weighted.getString("priority"));
+        assertEquals(3, weighted.getInt("weight"));
+        await(server.getJob(single.getString("id")));
+        await(server.getJob(weighted.getString("id")));
+        assertEquals(MutationServer.State.DONE, server.getJob(single.getString("id")).getState());
+        assertEquals(JobScheduler.Lane.BULK, MutationServer.defaultLane(List.of("-dir", "src")));
+    }
+
+    @Test
+    void largeInteractiveJobMovedToBulkLane() throws Exception {
+        server.close();
+        server = new MutationServer(1, 1, 1, 4, new Metrics(), mockLogger).setRoot(tempDir).start(0);
+        JSONObject submitted = post("{\"path\": \"" + sources.toString().replace("\\", "\\\\") + "\", \"args\": [\"-engine\", \"local\"], \"priority\": \"interactive\"}");
+        MutationServer.Job job = server.getJob(submitted.getString("id"));
+        await(job);
+
+        assertEquals(MutationServer.State.DONE, job.getState());
+        assertEquals("bulk", job.toJson().getString("priority"));
+        assertTrue(logs.stream().anyMatch(log -> log.endsWith("moved to the bulk lane")));
+    }
+
+    @Test
+    void unknownJobAndInvalidBody() throws Exception {
+        HttpResponse<String> missing = client.send(request("/jobs/7").build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(404, missing.statusCode());
+
+        HttpResponse<String> invalid = client.send(request("/jobs")
+                .POST(HttpRequest.BodyPublishers.ofString("not json")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, invalid.statusCode());
+
+        HttpResponse<String> unknownLane = client.send(request("/jobs")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"priority\": \"urgent\"}")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, unknownLane.statusCode());
+    }
+
+    @Test
+    void dryRunJobOnlyEstimates() throws Exception {
+        MutationServer.Job job = server.submit(new String[]{"-dir", sources.toString(), "-engine", "local", "-dry-run"});
+        await(job);
+
+        assertEquals(MutationServer.State.DONE, job.getState());
+        assertEquals(2, job.toJson().getJSONObject("estimate").getInt("files"));
+        assertFalse(Files.exists(tempDir.resolve("output")));
+    }
+
+    @Test
+    void jobWithoutFilesFails() throws Exception {
+        MutationServer.Job job = server.submit(new String[]{"-dir", tempDir.resolve("missing").toString(), "-engine", "local"});
+        await(job);
+
+        assertEquals(MutationServer.State.FAILED, job.getState());
+        assertEquals("No file(s) found", job.toJson().getString("message"));
+    }
+
+    @Test
+    void requestsNeedTheToken() throws Exception {
+        HttpResponse<String> anonymous = client.send(HttpRequest.newBuilder(URI.create(server.getBaseUrl() + "/jobs")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> wrong = client.send(HttpRequest.newBuilder(URI.create(server.getBaseUrl() + "/jobs"))
+                .header("Authorization", "Bearer " + server.getToken() + "x").build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(401, anonymous.statusCode());
+        assertEquals(401, wrong.statusCode());
+        assertTrue(server.getBaseUrl().startsWith("http://127.0.0.1:"));
+    }
+
+    @Test
+    void jobsStayInsideTheirLimits() throws Exception {
+        String path = sources.toString().replace("\\", "\\\\");
+        List<String> rejected = List.of(
+                "{\"path\": \"" + path + "\", \"args\": [\"-api-base\", \"http://attacker/\"]}",
+                "{\"path\": \"" + path + "\", \"args\": [\"-kill\", \"" + path + "\"]}",
+                "{\"path\": \"" + path + "\", \"args\": [\"-cache\", \"/tmp\"]}",
+                "{\"path\": \"" + tempDir.getParent().toString().replace("\\", "\\\\") + "\"}",
+                "{\"path\": \"..\"}",
+                "{\"path\": \".\"}",
+                "{\"args\": [\"-engine\", \"local\"]}");
+        for (String body : rejected) {
+            HttpResponse<String> response = client.send(request("/jobs").POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, response.statusCode(), body);
+        }
+
+        JSONObject relative = post("{\"path\": \"src/Adder.java\", \"args\": [\"-engine\", \"local\", \"-first-order\"]}");
+        await(server.getJob(relative.getString("id")));
+        assertEquals(MutationServer.State.DONE, server.getJob(relative.getString("id")).getState());
+    }
+
+    @Test
+    void finishedJobsAreForgotten() throws Exception {
+        server.setRetention(Duration.ofHours(1), 1);
+        for (int i = 0; i < 3; i++) {
+            await(server.submit(new String[]{"-f", sources.resolve("Adder.java").toString(), "-engine", "local"}));
+        }
+
+        assertNull(server.getJob("1"));
+        assertNotNull(server.getJob("2"));
+        assertNotNull(server.getJob("3"));
+    }
+
+    @Test
+    void replayKeepsTheLatestEvents() {
+        MutationServer.Job job = new MutationServer.Job(1, new String[0], JobScheduler.Lane.BULK, 1);
+        for (int i = 0; i < MutationServer.REPLAY_EVENTS + 5; i++) {
+            job.onProgress(new ProgressListener.Event(ProgressListener.Type.DONE, "A" + i + ".java", "", 0, 0,
+                    MutationServer.REPLAY_EVENTS + 5, i + 1, 0, 0, 0, -1));
+        }
+
+        assertEquals(MutationServer.REPLAY_EVENTS, job.events.size());
+        assertEquals("A5.java", job.events.getFirst().getString("file"));
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(server.getBaseUrl() + path))
+                .header("Authorization", "Bearer " + server.getToken());
+    }
+
+    private JSONObject post(String body) throws Exception {
+        HttpResponse<String> response = client.send(request("/jobs")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(202, response.statusCode());
+        return new JSONObject(response.body());
+    }
+
+    private JSONObject get(String path) throws Exception {
+        return new JSONObject(client.send(request(path).build(),
+                HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private static void await(MutationServer.Job job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(job.isFinished());
+    }
+}
@@ -0,0 +1,114 @@
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAIBatchServiceTest {
+    LoggerService mockLogger;
+    List<String> logs;
+    LLMApiService prompts;
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        logs = Collections.synchronizedList(new LinkedList<>());
+        mockLogger = new LoggerService(){
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void debug(String message) {
+                logs.add(message);
+            }
+        };
+        prompts = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                throw new AssertionError("batch requests must not be sent one by one");
+            }
+
+            @Override
+            public String getModelName() {
+                return "test-model";
+            }
+
+            @Override
+            public String generatePrompt(String javaCode) {
+                return "Mutate:\n" + javaCode;
+            }
+
+            @Override
+            public double estimateCost(int promptTokens, int completionTokens) {
+                return promptTokens + completionTokens;
+            }
+        };
+        tempDir = Files.createTempDirectory("BatchDir");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    static String userMessage(JSONObject body) {
+        return body.getJSONArray("messages").getJSONObject(1).getString("content");
+    }
+
+    @Test
+    void requestsAreChatCompletionLines() {
+        OpenAIBatchService service = new OpenAIBatchService(prompts, "key", "http://localhost/v1/", HttpClient.newHttpClient(),
+                Duration.ofMillis(1), mockLogger);
+        Map<String, String> codes = new LinkedHashMap<>();
+        codes.put("A.java", "class A {}");
+
+        JSONObject line = new JSONObject(service.requests(codes).trim());
+
+        assertEquals("A.java", line.getString("custom_id"));
+        assertEquals("/v1/chat/completions", line.getString("url"));
+        assertEquals("test-model", line.getJSONObject("body").getString("model"));
+        assertEquals("Mutate:\nclass A {}", userMessage(line.getJSONObject("body")));
+    }
+
+    @Test
+    void submitsPollsAndReadsResults() throws Exception {
+        try (BatchEndpointStandIn standIn = new BatchEndpointStandIn(tempDir, body ->
+                userMessage(body).contains("class B") ? null : "```java\n" + userMessage(body).substring(8) + "\n```")) {
+            OpenAIBatchService service = new OpenAIBatchService(prompts, "key", standIn.baseUrl(), HttpClient.newHttpClient(),
+                    Duration.ofMillis(1), mockLogger);
+            Map<String, String> codes = new LinkedHashMap<>();
+            codes.put("A.java", "class A {}");
+            codes.put("B.java", "class B {}");
+            Map<String, LLMApiService.Response> results = new LinkedHashMap<>();
+
+            service.run(codes, results::put);
+
+            assertEquals(2, standIn.polls.get());
+            assertEquals("```java\nclass A {}\n```", results.get("A.java").content());
+            assertEquals(100, results.get("A.java").promptTokens());
+            assertEquals(75.0, results.get("A.java").cost(), 1e-9);
+            assertEquals("Error: request failed", results.get("B.java").content());
+            assertTrue(logs.stream().anyMatch(log -> log.contains("is completed (2/2 done)")));
+        }
+    }
+}
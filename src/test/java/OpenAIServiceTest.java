@@ -13,11 +13,21 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.sun.net.httpserver.HttpServer;
+
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -46,7 +56,7 @@ class OpenAIServiceTest {
                 logs.add(message);
             }
         };
-        logs = new LinkedList<>();
+        logs = Collections.synchronizedList(new LinkedList<>());
 
         openAIService = new OpenAIService("mockModelName"
                 , "MockApiKey"
@@ -91,4 +101,146 @@ class OpenAIServiceTest {
         assertNotNull(openAIResponse);
         assertTrue(logs.stream().anyMatch(log -> log.contains("API response received")));
     }
-}
\ No newline at end of file
+
+    @Test
+    void askOpenAIAsync() throws IOException {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(200, requests);
+        try {
+            openAIService = new OpenAIService("mockModelName"
+                    , "MockApiKey"
+                    , "http://localhost:" + server.getAddress().getPort() + "/v1/chat/completions"
+                    , SharedHttpClient.get(8)
+                    , mockLoggerService);
+
+            List<CompletableFuture<LLMApiService.Response>> responses = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                responses.add(openAIService.askOpenAIAsync("class A {}"));
+            }
+            for (CompletableFuture<LLMApiService.Response> response : responses) {
+                LLMApiService.Response result = response.join();
+                assertEquals("Mocked mutated code", result.content());
+                assertEquals(10, result.promptTokens());
+                assertEquals(5, result.completionTokens());
+            }
+            assertEquals(16, requests.get());
+            assertEquals("Mocked mutated code", openAIService.askOpenAI("class A {}"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void clientCreatedOnFirstRequest() throws IOException {
+        HttpServer server = startServer(200, new AtomicInteger());
+        AtomicInteger clients = new AtomicInteger();
+        try {
+            openAIService = new OpenAIService("mockModelName"
+                    , "MockApiKey"
+                    , "http://localhost:" + server.getAddress().getPort() + "/v1/chat/completions"
+                    , () -> {
+                        clients.incrementAndGet();
+                        return SharedHttpClient.get(8);
+                    }
+                    , new RequestScheduler(100, 10_000, 0, mockLoggerService)
+                    , new Metrics()
+                    , mockLoggerService);
+            assertEquals(0, clients.get());
+
+            assertEquals("Mocked mutated code", openAIService.askOpenAIAsync("class A {}").join().content());
+
+            assertTrue(clients.get() > 0);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void askOpenAIAsyncHttpError() throws IOException {
+        HttpServer server = startServer(500, new AtomicInteger());
+        try {
+            openAIService = new OpenAIService("mockModelName"
+                    , "MockApiKey"
+                    , "http://localhost:" + server.getAddress().getPort() + "/v1/chat/completions"
+                    , SharedHttpClient.get(8)
+                    , new RequestScheduler(100, 10_000, 0, mockLoggerService)
+                    , mockLoggerService);
+
+            String openAIResponse = openAIService.askOpenAI("class A {}");
+
+            assertTrue(openAIResponse.startsWith("Error: HTTP 500 after 0 retries"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void askOpenAIStreaming() throws IOException {
+        String[] deltas = {"Mutated:\n```ja", "va\nclass A { int x = 1 - 2; }\n", "```", "\nExplanation that is never read"};
+        StringBuilder events = new StringBuilder();
+        for (String delta : deltas) {
+            events.append("data: ").append(new JSONObject()
+                    .put("choices", new JSONArray().put(new JSONObject()
+                            .put("delta", new JSONObject().put("content", delta))))).append("\n\n");
+        }
+        events.append("data: [DONE]\n\n");
+        byte[] body = events.toString().getBytes(StandardCharsets.UTF_8);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            JSONObject request = new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            assertTrue(request.getBoolean("stream"));
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException ignored) {
+                // client closed the stream after the code block
+            }
+        });
+        server.start();
+        try {
+            openAIService = new OpenAIService("mockModelName"
+                    , "MockApiKey"
+                    , "http://localhost:" + server.getAddress().getPort() + "/v1/chat/completions"
+                    , SharedHttpClient.get(8)
+                    , mockLoggerService);
+            List<String> received = new ArrayList<>();
+
+            LLMApiService.Response response = openAIService.askOpenAIStreaming("class A { int x = 1 + 2; }", delta -> {
+                received.add(delta);
+                return !delta.contains("```\n") && !delta.equals("```");
+            }).join();
+
+            assertEquals(3, received.size());
+            assertTrue(response.content().contains("class A { int x = 1 - 2; }"));
+            assertTrue(response.completionTokens() > 0);
+            assertTrue(logs.stream().anyMatch(log -> log.contains("stream closed after the code block")));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private HttpServer startServer(int status, AtomicInteger requests) throws IOException {
+        byte[] body = new JSONObject()
+                .put("choices", new JSONArray().put(new JSONObject()
+                        .put("message", new JSONObject().put("content", "Mocked mutated code"))))
+                .put("usage", new JSONObject()
+                        .put("prompt_tokens", 10)
+                        .put("completion_tokens", 5)
+                        .put("total_tokens", 15))
+                .toString().getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/chat/completions", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+}
@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParsedSourceTest {
+    Path tempFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempFile = Files.createTempFile("Parsed", ".java");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(tempFile);
+    }
+
+    @Test
+    void codeWithoutCommentsKeepsTree() throws IOException {
+        Files.writeString(tempFile, "/** doc */\npublic class A {\n    // line\n    int x = 1; /* block */\n}\n");
+        ParsedSource source = ParsedSource.read(tempFile.toFile());
+
+        String code = source.getCodeWithoutComments();
+
+        assertFalse(code.contains("doc"));
+        assertFalse(code.contains("line"));
+        assertFalse(code.contains("block"));
+        assertTrue(code.contains("int x = 1;"));
+        assertEquals(3, source.getCompilationUnit().orElseThrow().getAllContainedComments().size());
+        assertNull(source.getParseError());
+    }
+
+    @Test
+    void invalidJavaReportsParseError() throws IOException {
+        Files.writeString(tempFile, "public class {");
+        ParsedSource source = ParsedSource.read(tempFile.toFile());
+
+        assertEquals("", source.getCodeWithoutComments());
+        assertTrue(source.getCompilationUnit().isEmpty());
+        assertNotNull(source.getParseError());
+    }
+
+    @Test
+    void hashMatchesManifestHash() throws IOException {
+        Files.writeString(tempFile, "class A {}");
+        ParsedSource source = ParsedSource.read(tempFile.toFile());
+
+        assertEquals(RunManifest.hash(Files.readAllBytes(tempFile)), source.getHash());
+    }
+
+    @Test
+    void noHeader() throws IOException {
+        Files.writeString(tempFile, "class A {}");
+
+        assertEquals("", ParsedSource.read(tempFile.toFile()).getHeader());
+    }
+
+    @Test
+    void readMissingFile() {
+        assertThrows(IOException.class, () -> ParsedSource.read(new File(tempFile + ".missing")));
+    }
+
+    @Test
+    void scanCommentsSkipsLiterals() {
+        String code = "class A {\n"
+                + "    String s = \"// not a comment\"; // Math\n"
+                + "    char c = '/'; /* Relational */\n"
+                + "    String t = \"\"\"\n        /* text */\n        \"\"\";\n"
+                + "    /** Logical */\n"
+                + "}\n";
+
+        assertEquals(List.of("Math", "Relational", "Logical"), ParsedSource.scanComments(code));
+    }
+
+    @Test
+    void scanCommentsOfPlainText() {
+        assertEquals(List.of(), ParsedSource.scanComments("Mutated Code"));
+    }
+}
@@ -0,0 +1,116 @@
+import Interfaces.LLMApiService;
+import Interfaces.LoggerService;
+import Interfaces.ProgressListener;
+import Interfaces.ProgressListener.Type;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgressTrackerTest {
+    LoggerService mockLogger;
+    List<String> logs;
+    List<ProgressListener.Event> events;
+    ProgressTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        logs = Collections.synchronizedList(new LinkedList<>());
+        events = Collections.synchronizedList(new LinkedList<>());
+        mockLogger = new LoggerService() {
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void debug(String message) {
+                logs.add(message);
+            }
+        };
+        LLMApiService pricing = new LLMApiService() {
+            @Override
+            public String askOpenAI(String javaCode) {
+                return "";
+            }
+
+            @Override
+            public double estimateCost(int promptTokens, int completionTokens) {
+                return (promptTokens + completionTokens) / 1000.0;
+            }
+        };
+        tracker = new ProgressTracker(List.of(events::add, new ConsoleProgress(mockLogger)), pricing);
+    }
+
+    @Test
+    void countsFinishedFilesOnce() {
+        tracker.queued(List.of("A.java", "B.java", "C.java"));
+        tracker.started("A.java");
+        tracker.finished(Type.DONE, "A.java", "", 100, 400);
+        tracker.finished(Type.FAILED, "B.java", "HTTP 500", 0, 0);
+        tracker.finished(Type.FAILED, "B.java", "HTTP 500", 0, 0);
+        tracker.finished(Type.DROPPED, "C.java", "identical to the original", 50, 50);
+        tracker.runFinished();
+
+        assertEquals(List.of(Type.QUEUED, Type.QUEUED, Type.QUEUED, Type.STARTED, Type.DONE, Type.FAILED, Type.DROPPED,
+                Type.FINISHED), events.stream().map(ProgressListener.Event::type).toList());
+        ProgressListener.Event done = events.get(4);
+        assertEquals("A.java", done.file());
+        assertEquals(500, done.tokens());
+        assertEquals(0.5, done.cost());
+        assertEquals(1, done.finished());
+        assertTrue(done.etaSeconds() >= 0);
+        ProgressListener.Event last = events.getLast();
+        assertEquals(3, last.finished());
+        assertEquals(1, last.failed());
+        assertEquals(600, last.totalTokens());
+        assertEquals(0.6, last.totalCost(), 1e-9);
+    }
+
+    @Test
+    void rendersConsoleView() {
+        tracker.queued(List.of("A.java", "B.java"));
+        tracker.finished(Type.DONE, "A.java", "", 1000, 0);
+        tracker.finished(Type.SKIPPED, "B.java", "", 0, 0);
+        tracker.runFinished();
+
+        assertTrue(logs.get(0).startsWith("1 file(s) remaining... (1/2, 1000 tokens, $1.000000, ETA "));
+        assertEquals("0 file(s) remaining... (2/2, 1000 tokens, $1.000000)", logs.get(1));
+        assertEquals("2 of 2 file(s) finished, 0 failed, 1000 tokens, $1.000000", logs.get(2));
+    }
+
+    @Test
+    void writesCompactJsonLines() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (NdjsonProgressWriter writer = new NdjsonProgressWriter(out, true)) {
+            writer.onProgress(new ProgressListener.Event(Type.QUEUED, "a/A.java", "", 0, 0, 2, 0, 0, 0, 0, -1));
+            writer.onProgress(new ProgressListener.Event(Type.FAILED, "a/A.java", "no \"code\"", 30, 0.25, 2, 1, 1, 30, 0.25, 4));
+        }
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, lines.size());
+        assertFalse(lines.get(0).contains(" "));
+        JSONObject queued = new JSONObject(lines.get(0));
+        assertEquals("queued", queued.getString("event"));
+        assertFalse(queued.has("message") || queued.has("tokens"));
+        JSONObject failed = new JSONObject(lines.get(1));
+        assertEquals("failed", failed.getString("event"));
+        assertEquals("no \"code\"", failed.getString("message"));
+        assertEquals(30, failed.getInt("tokens"));
+        assertEquals(1, failed.getInt("failed"));
+        assertEquals(4, failed.getLong("etaSeconds"));
+    }
+}
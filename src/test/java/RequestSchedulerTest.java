@@ -0,0 +1,146 @@
+import Interfaces.LoggerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RequestSchedulerTest {
+    LoggerService mockLogger;
+    List<String> logs;
+
+    @BeforeEach
+    void setUp() {
+        logs = Collections.synchronizedList(new LinkedList<>());
+        mockLogger = new LoggerService() {
+            @Override
+            public void log(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                logs.add(message);
+            }
+
+            @Override
+            public void debug(String message) {
+                logs.add(message);
+            }
+        };
+    }
+
+    @Test
+    void parseDurationMillis() {
+        assertEquals(20, RequestScheduler.parseDurationMillis("20ms"));
+        assertEquals(1500, RequestScheduler.parseDurationMillis("1.5s"));
+        assertEquals(360_000, RequestScheduler.parseDurationMillis("6m0s"));
+        assertEquals(-1, RequestScheduler.parseDurationMillis("soon"));
+    }
+
+    @Test
+    void retryAfterMillis() {
+        assertEquals(Optional.of(2000L), RequestScheduler.retryAfterMillis(headers(Map.of("retry-after", "2"))));
+        assertEquals(Optional.of(150L), RequestScheduler.retryAfterMillis(headers(Map.of("retry-after-ms", "150"))));
+        assertEquals(Optional.empty(), RequestScheduler.retryAfterMillis(headers(Map.of())));
+    }
+
+    @Test
+    void emptyBucketDelaysReservation() {
+        RequestScheduler.TokenBucket bucket = new RequestScheduler.TokenBucket(60);
+
+        assertEquals(0, bucket.reserve(60));
+        long delay = bucket.reserve(1);
+
+        assertTrue(delay > 900 && delay <= 1000, "delay was " + delay);
+    }
+
+    @Test
+    void exhaustedBudgetWaitsForReset() {
+        RequestScheduler.TokenBucket bucket = new RequestScheduler.TokenBucket(100);
+        bucket.setRemaining(0, 3000);
+
+        assertTrue(bucket.reserve(1) >= 2900);
+    }
+
+    @Test
+    void retryAfterHeaderPausesRequests() {
+        RequestScheduler scheduler = new RequestScheduler(100, 10_000, 0, mockLogger);
+        scheduler.update(headers(Map.of("retry-after", "1")));
+
+        long start = System.nanoTime();
+        scheduler.<String>submit(1, () -> CompletableFuture.completedFuture(response(200, Map.of()))).join();
+
+        assertTrue(System.nanoTime() - start >= 900_000_000L);
+        assertTrue(logs.stream().anyMatch(log -> log.contains("LLM API asked to pause requests for 1000 ms")));
+    }
+
+    @Test
+    void retriesRateLimitedRequest() {
+        RequestScheduler scheduler = new RequestScheduler(1000, 1_000_000, 3, mockLogger);
+        AtomicInteger attempts = new AtomicInteger();
+
+        HttpResponse<String> result = scheduler.<String>submit(10, () -> {
+            int attempt = attempts.incrementAndGet();
+            return CompletableFuture.completedFuture(attempt < 3
+                    ? response(429, Map.of("retry-after-ms", "10"))
+                    : response(200, Map.of()));
+        }).join();
+
+        assertEquals(200, result.statusCode());
+        assertEquals(3, attempts.get());
+        assertTrue(logs.stream().anyMatch(log -> log.contains("HTTP 429 from LLM API, retrying")));
+    }
+
+    @Test
+    void givesUpAfterMaxRetries() {
+        RequestScheduler scheduler = new RequestScheduler(1000, 1_000_000, 1, mockLogger);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<HttpResponse<String>> result = scheduler.submit(10, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.completedFuture(response(503, Map.of()));
+        });
+
+        CompletionException error = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(IOException.class, error.getCause());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        RequestScheduler scheduler = new RequestScheduler(1000, 1_000_000, 3, mockLogger);
+        AtomicInteger attempts = new AtomicInteger();
+
+        HttpResponse<String> result = scheduler.<String>submit(10, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.completedFuture(response(401, Map.of()));
+        }).join();
+
+        assertEquals(401, result.statusCode());
+        assertEquals(1, attempts.get());
+    }
+
+    private static HttpHeaders headers(Map<String, String> values) {
+        Map<String, List<String>> map = new HashMap<>();
+        values.forEach((key, value) -> map.put(key, List.of(value)));
+        return HttpHeaders.of(map, (key, value) -> true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<String> response(int status, Map<String, String> headers) {
+        HttpResponse<String> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        when(response.headers()).thenReturn(headers(headers));
+        when(response.body()).thenReturn("");
+        return response;
+    }
+}
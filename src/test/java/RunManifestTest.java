@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunManifestTest {
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("ManifestDir");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    void completedEntriesSurviveRestart() throws IOException {
+        String hash = RunManifest.hash("class A {}".getBytes(StandardCharsets.UTF_8));
+        try (RunManifest manifest = new RunManifest(tempDir)) {
+            manifest.record(new RunManifest.Entry("pkg/A.java", hash, "pkg/A.java", RunManifest.Status.DONE, 10, 5, "Math"));
+        }
+        try (RunManifest manifest = new RunManifest(tempDir)) {
+            RunManifest.Entry entry = manifest.findCompleted("pkg/A.java", hash);
+
+            assertNotNull(entry);
+            assertEquals(10, entry.promptTokens());
+            assertEquals("Math", entry.mutators());
+            assertNull(manifest.findCompleted("pkg/A.java", RunManifest.hash(new byte[0])));
+        }
+    }
+
+    @Test
+    void failedEntryIsNotCompleted() throws IOException {
+        try (RunManifest manifest = new RunManifest(tempDir)) {
+            manifest.record(new RunManifest.Entry("A.java", "h", "A.java", RunManifest.Status.DONE, 0, 0, ""));
+            manifest.record(new RunManifest.Entry("A.java", "h", "", RunManifest.Status.FAILED, 0, 0, ""));
+
+            assertNull(manifest.findCompleted("A.java", "h"));
+        }
+    }
+
+    @Test
+    void tornLineIsIgnored() throws IOException {
+        try (RunManifest manifest = new RunManifest(tempDir)) {
+            manifest.record(new RunManifest.Entry("A.java", "h", "A.java", RunManifest.Status.DONE, 0, 0, ""));
+        }
+        Files.writeString(tempDir.resolve(RunManifest.FILE_NAME), "{\"source\":\"B.ja", StandardOpenOption.APPEND);
+
+        try (RunManifest manifest = new RunManifest(tempDir)) {
+            assertEquals(1, manifest.size());
+            assertNotNull(manifest.findCompleted("A.java", "h"));
+            manifest.record(new RunManifest.Entry("C.java", "h", "C.java", RunManifest.Status.DONE, 0, 0, ""));
+        }
+
+        try (RunManifest manifest = new RunManifest(tempDir)) {
+            assertEquals(2, manifest.size());
+            assertNotNull(manifest.findCompleted("C.java", "h"));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingCodeExtractorTest {
+
+    @Test
+    void extractsCodeSplitAcrossPieces() {
+        StringWriter writer = new StringWriter();
+        StreamingCodeExtractor extractor = new StreamingCodeExtractor(writer);
+        String[] pieces = {"Here is the mutated class:\n``", "`ja", "va\n  public class A {\n", "  int x = 1 - 2;\n}\n\n`", "``\nI changed + to -."};
+
+        boolean wanted = true;
+        for (String piece : pieces) {
+            wanted = extractor.accept(piece);
+        }
+
+        assertFalse(wanted);
+        assertTrue(extractor.isComplete());
+        assertEquals("public class A {\n  int x = 1 - 2;\n}", writer.toString());
+        assertEquals(writer.toString(), extractor.getCode());
+    }
+
+    @Test
+    void matchesExtractionOfCompleteAnswer() {
+        String answer = "text ```java\n\nclass B { String s = \"`\"; }\n``` trailing ```java class C {} ```";
+        StringWriter writer = new StringWriter();
+        StreamingCodeExtractor extractor = new StreamingCodeExtractor(writer);
+        for (char c : answer.toCharArray()) {
+            extractor.accept(String.valueOf(c));
+        }
+
+        assertEquals("class B { String s = \"`\"; }", writer.toString());
+    }
+
+    @Test
+    void stopsAcceptingAfterClosingFence() {
+        StreamingCodeExtractor extractor = new StreamingCodeExtractor(new StringWriter());
+
+        assertFalse(extractor.accept("```java class A {} ```"));
+        assertFalse(extractor.accept("more"));
+        assertEquals("class A {}", extractor.getCode());
+    }
+
+    @Test
+    void incompleteWithoutCodeBlock() {
+        StringWriter writer = new StringWriter();
+        StreamingCodeExtractor extractor = new StreamingCodeExtractor(writer);
+
+        assertTrue(extractor.accept("No Java Code to Extract"));
+        assertFalse(extractor.isComplete());
+        assertEquals("", writer.toString());
+    }
+}